@@ -0,0 +1,106 @@
+package com.exchange.match.engine.benchmark;
+
+import com.exchange.match.engine.model.Order;
+import com.exchange.match.engine.model.Symbol;
+import com.exchange.match.engine.orderbook.OrderBook;
+
+import java.math.BigDecimal;
+
+/**
+ * 基准测试公共数据构造
+ */
+final class BenchmarkFixtures {
+    static final String SYMBOL = "BTCUSDT";
+    // 价格档位间隔
+    static final BigDecimal TICK = new BigDecimal("0.01");
+    // 买一价，卖一价为 BEST_BID + TICK
+    static final BigDecimal BEST_BID = new BigDecimal("30000.00");
+    
+    private BenchmarkFixtures() {
+    }
+    
+    /**
+     * 创建交易对信息，手续费必须非空，否则成交时计算手续费会抛出异常
+     *
+     * @return 交易对信息
+     */
+    static Symbol newSymbol() {
+        Symbol symbol = new Symbol();
+        symbol.setId(1);
+        symbol.setSymbol(SYMBOL);
+        symbol.setType(1);
+        symbol.setMarginCoin("USDT");
+        symbol.setPriceDecimal(2);
+        symbol.setQuantityDecimal(8);
+        symbol.setBuyMakerFee(new BigDecimal("0.001"));
+        symbol.setBuyTakerFee(new BigDecimal("0.002"));
+        symbol.setSellMakerFee(new BigDecimal("0.001"));
+        symbol.setSellTakerFee(new BigDecimal("0.002"));
+        symbol.setPartition(0);
+        return symbol;
+    }
+    
+    /**
+     * 创建限价单
+     *
+     * @param id       订单ID
+     * @param side     方向 1买 2卖
+     * @param price    价格
+     * @param quantity 数量
+     * @return 订单
+     */
+    static Order newLimitOrder(long id, int side, BigDecimal price, BigDecimal quantity) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId(id % 1000);
+        order.setSymbol(SYMBOL);
+        order.setType(1);
+        order.setPrice(price);
+        order.setQuantity(quantity);
+        order.setQuantityLeft(quantity);
+        order.setQuantityDone(BigDecimal.ZERO);
+        order.setSide(side);
+        order.setAction(0);
+        order.setMarginMode(0);
+        order.setMarginType(0);
+        order.setStatus(1);
+        order.setCreateTime(id);
+        order.setUpdateTime(id);
+        return order;
+    }
+    
+    /**
+     * 第level档买价（0为买一）
+     */
+    static BigDecimal bidPrice(int level) {
+        return BEST_BID.subtract(TICK.multiply(BigDecimal.valueOf(level)));
+    }
+    
+    /**
+     * 第level档卖价（0为卖一）
+     */
+    static BigDecimal askPrice(int level) {
+        return BEST_BID.add(TICK.multiply(BigDecimal.valueOf(level + 1L)));
+    }
+    
+    /**
+     * 按档位填充订单簿的买卖两边
+     *
+     * @param orderBook      订单簿
+     * @param depth          每边档位数
+     * @param ordersPerLevel 每档订单数
+     * @param quantity       每笔订单数量
+     * @param firstId        起始订单ID
+     * @return 下一个可用的订单ID
+     */
+    static long fillBook(OrderBook orderBook, int depth, int ordersPerLevel, BigDecimal quantity, long firstId) {
+        long id = firstId;
+        for (int level = 0; level < depth; level++) {
+            for (int i = 0; i < ordersPerLevel; i++) {
+                orderBook.addOrder(newLimitOrder(id++, 1, bidPrice(level), quantity));
+                orderBook.addOrder(newLimitOrder(id++, 2, askPrice(level), quantity));
+            }
+        }
+        return id;
+    }
+}
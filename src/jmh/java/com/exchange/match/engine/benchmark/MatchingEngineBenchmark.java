@@ -0,0 +1,115 @@
+package com.exchange.match.engine.benchmark;
+
+import com.exchange.match.engine.dto.OrderBookUpdate;
+import com.exchange.match.engine.matching.MatchingEngine;
+import com.exchange.match.engine.matching.TradeExecutionResult;
+import com.exchange.match.engine.orderbook.OrderBook;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MatchingEngine 撮合路径基准测试
+ * <p>
+ * 成交类基准在同一次调用内把被吃掉的挂单补回订单簿，保证每次调用面对相同的盘口，
+ * 补单本身的开销可参考 {@link OrderBookBenchmark}。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingEngineBenchmark {
+    
+    private static final BigDecimal QUANTITY = new BigDecimal("1.5");
+    
+    @Param({"10", "100", "1000"})
+    private int depth;
+    
+    @Param({"1", "10"})
+    private int ordersPerLevel;
+    
+    // 扫单吃掉的档位数
+    @Param({"5"})
+    private int sweepLevels;
+    
+    private OrderBook orderBook;
+    private MatchingEngine matchingEngine;
+    private long nextId;
+    private long offset;
+    private BigDecimal sweepQuantity;
+    private Set<BigDecimal> modifiedBids;
+    private Set<BigDecimal> modifiedAsks;
+    
+    @Setup(Level.Iteration)
+    public void setup() {
+        orderBook = new OrderBook(BenchmarkFixtures.SYMBOL);
+        matchingEngine = new MatchingEngine(orderBook, BenchmarkFixtures.newSymbol(), new AtomicLong());
+        nextId = BenchmarkFixtures.fillBook(orderBook, depth, ordersPerLevel, QUANTITY, 1);
+        offset = 0;
+        int levels = Math.min(sweepLevels, depth);
+        sweepQuantity = QUANTITY.multiply(BigDecimal.valueOf((long) levels * ordersPerLevel));
+        
+        modifiedBids = new HashSet<>();
+        modifiedAsks = new HashSet<>();
+        for (int level = 0; level < levels; level++) {
+            modifiedBids.add(BenchmarkFixtures.bidPrice(level));
+            modifiedAsks.add(BenchmarkFixtures.askPrice(level));
+        }
+    }
+    
+    /**
+     * 不成交的限价单直接挂入订单簿，随后撤掉以保持盘口不变
+     */
+    @Benchmark
+    public TradeExecutionResult passiveInsert() {
+        long id = nextId++;
+        TradeExecutionResult result = matchingEngine.processNewOrder(
+                BenchmarkFixtures.newLimitOrder(id, 1, BenchmarkFixtures.bidPrice(0), QUANTITY), offset++);
+        orderBook.cancelOrder(id);
+        return result;
+    }
+    
+    /**
+     * 卖单恰好吃掉买一档的第一笔挂单
+     */
+    @Benchmark
+    public TradeExecutionResult singleLevelFill() {
+        BigDecimal price = BenchmarkFixtures.bidPrice(0);
+        TradeExecutionResult result = matchingEngine.processNewOrder(
+                BenchmarkFixtures.newLimitOrder(nextId++, 2, price, QUANTITY), offset++);
+        orderBook.addOrder(BenchmarkFixtures.newLimitOrder(nextId++, 1, price, QUANTITY));
+        return result;
+    }
+    
+    /**
+     * 买单连续吃掉卖盘前 sweepLevels 档
+     */
+    @Benchmark
+    public TradeExecutionResult multiLevelSweep() {
+        int levels = Math.min(sweepLevels, depth);
+        TradeExecutionResult result = matchingEngine.processNewOrder(
+                BenchmarkFixtures.newLimitOrder(nextId++, 1, BenchmarkFixtures.askPrice(levels - 1), sweepQuantity),
+                offset++);
+        for (int level = 0; level < levels; level++) {
+            for (int i = 0; i < ordersPerLevel; i++) {
+                orderBook.addOrder(BenchmarkFixtures.newLimitOrder(
+                        nextId++, 2, BenchmarkFixtures.askPrice(level), QUANTITY));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 针对 sweepLevels 个买卖档位生成订单簿增量
+     */
+    @Benchmark
+    public OrderBookUpdate generateUpdate() {
+        return orderBook.generateUpdate(modifiedBids, modifiedAsks);
+    }
+}
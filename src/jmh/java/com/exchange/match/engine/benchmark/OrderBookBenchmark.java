@@ -0,0 +1,76 @@
+package com.exchange.match.engine.benchmark;
+
+import com.exchange.match.engine.model.Order;
+import com.exchange.match.engine.orderbook.OrderBook;
+import com.exchange.match.engine.orderbook.OrderBookEntry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderBook 挂单与撤单基准测试
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBookBenchmark {
+    
+    private static final BigDecimal QUANTITY = new BigDecimal("1.5");
+    
+    @Param({"10", "100", "1000"})
+    private int depth;
+    
+    @Param({"1", "10", "100"})
+    private int ordersPerLevel;
+    
+    @Param({"heap", "offheap"})
+    private String storage;
+    
+    private OrderBook orderBook;
+    private long nextId;
+    private int level;
+    
+    @Setup(Level.Iteration)
+    public void setup() {
+        orderBook = "offheap".equals(storage)
+                ? OrderBook.offHeap(BenchmarkFixtures.SYMBOL, 2, 8, depth * ordersPerLevel * 2)
+                : new OrderBook(BenchmarkFixtures.SYMBOL);
+        nextId = BenchmarkFixtures.fillBook(orderBook, depth, ordersPerLevel, QUANTITY, 1);
+        level = 0;
+    }
+    
+    /**
+     * 在已有价格档位挂入一笔新单再撤掉，订单簿规模保持不变
+     */
+    @Benchmark
+    public OrderBookEntry addThenCancel() {
+        long id = nextId++;
+        orderBook.addOrder(BenchmarkFixtures.newLimitOrder(id, 1, nextBidPrice(), QUANTITY));
+        return orderBook.cancelOrder(id);
+    }
+    
+    /**
+     * 撤掉档位队首订单再以新ID挂回队尾，测量队首撤单的代价
+     */
+    @Benchmark
+    public void cancelHeadAndReAdd(Blackhole blackhole) {
+        BigDecimal price = nextBidPrice();
+        OrderBookEntry head = orderBook.getBucket(price, 1).getFirstOrder();
+        blackhole.consume(orderBook.cancelOrder(head.getOrderId()));
+        Order order = BenchmarkFixtures.newLimitOrder(nextId++, 1, price, QUANTITY);
+        orderBook.addOrder(order);
+    }
+    
+    private BigDecimal nextBidPrice() {
+        BigDecimal price = BenchmarkFixtures.bidPrice(level);
+        if (++level == depth) {
+            level = 0;
+        }
+        return price;
+    }
+}
@@ -0,0 +1,72 @@
+package com.exchange.match.engine.benchmark;
+
+import com.exchange.match.engine.dto.OrderBookEntry;
+import com.exchange.match.engine.dto.OrderBookUpdate;
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.util.ProtostuffUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProtostuffUtils 序列化与反序列化往返基准测试
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtostuffBenchmark {
+    
+    // 订单簿增量中每边的档位数
+    @Param({"1", "10", "100"})
+    private int updateLevels;
+    
+    private OrderCommand command;
+    private OrderBookUpdate update;
+    
+    @Setup
+    public void setup() {
+        command = new OrderCommand();
+        command.setType(OrderCommand.TYPE_NEW_ORDER);
+        command.setOrderId(123456789L);
+        command.setUserId(10086L);
+        command.setSymbol(BenchmarkFixtures.SYMBOL);
+        command.setOrderType(1);
+        command.setPrice(new BigDecimal("30000.01"));
+        command.setQuantity(new BigDecimal("0.125"));
+        command.setSide(1);
+        command.setAction(0);
+        command.setMarginMode(0);
+        command.setMarginType(0);
+        command.setTimestamp(System.currentTimeMillis());
+        
+        List<OrderBookEntry> bids = new ArrayList<>();
+        List<OrderBookEntry> asks = new ArrayList<>();
+        for (int level = 0; level < updateLevels; level++) {
+            bids.add(new OrderBookEntry(BenchmarkFixtures.bidPrice(level), new BigDecimal("1.5"), null, null));
+            asks.add(new OrderBookEntry(BenchmarkFixtures.askPrice(level), new BigDecimal("1.5"), null, null));
+        }
+        update = OrderBookUpdate.builder()
+                .symbol(BenchmarkFixtures.SYMBOL)
+                .bids(bids)
+                .asks(asks)
+                .lastOffset(1000L)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+    
+    @Benchmark
+    public OrderCommand orderCommandRoundTrip() {
+        return ProtostuffUtils.deserialize(ProtostuffUtils.serialize(command), OrderCommand.class);
+    }
+    
+    @Benchmark
+    public byte[] orderBookUpdateSerialize() {
+        return ProtostuffUtils.serialize(update);
+    }
+}
@@ -4,31 +4,114 @@ import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * 撮合引擎配置类
  */
 @Data
 @Configuration
 public class MatchEngineConfig {
-
+    
     @Value("${match.topic.orders}")
     private String ordersTopic;
-
+    
     @Value("${match.topic.trades}")
     private String tradesTopic;
-
+    
     @Value("${match.topic.order-book}")
     private String orderBookTopic;
-
+    
     @Value("${match.topic.user-tasks}")
     private String userTasksTopic;
-
+    
+    @Value("${match.topic.order-book-aggregated:order_book_aggregated_updates}")
+    private String aggregatedDepthTopic;
+    
+    @Value("${match.topic.order-events:order_book_events}")
+    private String orderEventsTopic;
+    
+    @Value("${match.topic.klines:klines}")
+    private String klinesTopic;
+    
+    @Value("${match.topic.ticker:ticker_24h}")
+    private String tickerTopic;
+    
     @Value("${match.backup.save-interval}")
     private Long backupSaveInterval;
-
+    
     @Value("${match.node.id}")
     private Integer nodeId;
     
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String kafkaBootstrapServers;
+    
+    @Value("${match.symbol.change-channel:match:symbol:changes}")
+    private String symbolChangeChannel;
+    
+    @Value("${match.depth.snapshot-levels:100}")
+    private Integer depthSnapshotLevels;
+    
+    @Value("${match.depth.snapshot-max-commands:1000}")
+    private int depthSnapshotMaxCommands;
+    
+    @Value("${match.depth.snapshot-max-interval-ms:100}")
+    private long depthSnapshotMaxIntervalMs;
+    
+    @Value("${match.depth.aggregation-groups:}")
+    private int[] depthAggregationGroups;
+    
+    @Value("${match.kline.intervals:}")
+    private Duration[] klineIntervals;
+    
+    @Value("${match.ticker.publish-interval-ms:0}")
+    private Long tickerPublishIntervalMs;
+    
+    @Value("${match.output.partitioning:symbol}")
+    private String outputPartitioning;
+    
+    @Value("${match.output.dual-write:false}")
+    private boolean outputDualWrite;
+    
+    @Value("${match.conflation.interval-ms:0}")
+    private Long conflationIntervalMs;
+    
+    @Value("${match.conflation.max-changes:200}")
+    private Integer conflationMaxChanges;
+    
+    @Value("${match.fanout.port:9100}")
+    private Integer fanoutPort;
+    
+    @Value("${match.fanout.max-pending-bytes:4194304}")
+    private Long fanoutMaxPendingBytes;
+    
+    @Value("${match.orderbook.order-event-symbols:}")
+    private String[] orderEventSymbols;
+    
+    @Value("${match.orderbook.off-heap-symbols:}")
+    private String[] offHeapSymbols;
+    
+    @Value("${match.orderbook.off-heap-expected-orders:1000000}")
+    private Integer offHeapExpectedOrders;
+    
+    @Value("${match.placement.metrics-file:symbol-load.csv}")
+    private String placementMetricsFile;
+    
+    @Value("${match.ipc.dir:/dev/shm/match}")
+    private String ipcDir;
+    
+    @Value("${match.ipc.slot-size:512}")
+    private Integer ipcSlotSize;
+    
+    @Value("${match.ipc.capacity:65536}")
+    private Integer ipcCapacity;
+    
+    @Value("${match.ipc.journal-dir:journal}")
+    private String ipcJournalDir;
+    
+    @Value("${match.ipc.journal-segment-bytes:67108864}")
+    private Long ipcJournalSegmentBytes;
+    
     // 计算用户分区
     public Integer calculateUserPartition(Long userId) {
         return (int) ((userId / 19) % 100);
@@ -0,0 +1,55 @@
+package com.exchange.match.engine.controller;
+
+import com.exchange.match.engine.dto.TickerStatistics;
+import com.exchange.match.engine.orderbook.DepthSnapshot;
+import com.exchange.match.engine.service.MatchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 行情查询接口，只读取撮合线程发布的不可变快照，不与撮合竞争
+ */
+@RestController
+@RequestMapping("/api/market")
+@RequiredArgsConstructor
+public class MarketDataController {
+    
+    private final MatchService matchService;
+    
+    /**
+     * 查询盘口深度
+     *
+     * @param symbol 交易对
+     * @param limit  每边档位数
+     * @return 深度快照
+     */
+    @GetMapping("/depth/{symbol}")
+    public ResponseEntity<DepthSnapshot> depth(@PathVariable("symbol") String symbol,
+                                               @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        DepthSnapshot snapshot = matchService.getDepthSnapshot(symbol);
+        if (snapshot == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(snapshot.limit(Math.max(1, limit)));
+    }
+    
+    /**
+     * 查询24小时行情统计
+     *
+     * @param symbol 交易对
+     * @return 行情统计
+     */
+    @GetMapping("/ticker/{symbol}")
+    public ResponseEntity<TickerStatistics> ticker(@PathVariable("symbol") String symbol) {
+        TickerStatistics statistics = matchService.getTickerStatistics(symbol);
+        if (statistics == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(statistics);
+    }
+}
@@ -0,0 +1,45 @@
+package com.exchange.match.engine.controller;
+
+import com.exchange.match.engine.dto.SymbolMigrationResult;
+import com.exchange.match.engine.service.SymbolMigrationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+
+/**
+ * 交易对运维接口
+ */
+@RestController
+@RequestMapping("/api/admin/symbols")
+@RequiredArgsConstructor
+public class SymbolAdminController {
+    
+    private final SymbolMigrationService symbolMigrationService;
+    
+    /**
+     * 把本节点运行中的交易对迁移到目标节点
+     *
+     * @param symbol       交易对
+     * @param targetNodeId 目标节点ID
+     * @return 迁移结果；无法迁移时返回409，响应体的message为原因（目标节点与本节点相同、交易对不在本节点运行、
+     * 未分配给本节点、目标节点未注册或快照保存失败）
+     */
+    @PostMapping("/{symbol}/migrate")
+    public ResponseEntity<?> migrate(@PathVariable("symbol") String symbol,
+                                     @RequestParam("targetNodeId") int targetNodeId) {
+        try {
+            SymbolMigrationResult result = symbolMigrationService.migrate(symbol, targetNodeId);
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Collections.singletonMap("message", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.exchange.match.engine.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 聚合深度更新DTO，按价格分组合并后的档位变化
+ */
+@Data
+@Builder
+public class AggregatedDepthUpdate {
+    private String symbol; // 交易对
+    private Integer groupTicks; // 分组大小（最小价格单位个数）
+    private List<OrderBookEntry> bids; // 买盘分组更新，价格为分组下沿，数量为0表示删除
+    private List<OrderBookEntry> asks; // 卖盘分组更新，价格为分组上沿，数量为0表示删除
+    private Long lastOffset; // 最后处理的Kafka消息的offset
+    private Long timestamp; // 更新时间戳
+}
@@ -0,0 +1,28 @@
+package com.exchange.match.engine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * K线DTO，一个周期内的开高低收和成交量
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Kline {
+    private String symbol; // 交易对
+    private Long interval; // 周期（毫秒）
+    private Long openTime; // 周期开始时间，按周期对齐
+    private BigDecimal open; // 开盘价
+    private BigDecimal high; // 最高价
+    private BigDecimal low; // 最低价
+    private BigDecimal close; // 收盘价
+    private BigDecimal volume; // 成交量
+    private BigDecimal quoteVolume; // 成交额
+    private Long tradeCount; // 成交笔数
+}
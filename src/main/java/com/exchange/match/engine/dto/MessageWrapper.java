@@ -51,4 +51,61 @@ public class MessageWrapper<T> {
     public static String generateOrderBookUpdateMessageId(String symbol, Long timestamp) {
         return String.format("OB-%s-%d", symbol, timestamp);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 为聚合深度更新生成唯一的消息ID
+     *
+     * @param symbol 交易对
+     * @param groupTicks 分组大小
+     * @param offset 最后处理的offset
+     * @return 消息ID
+     */
+    public static String generateAggregatedDepthMessageId(String symbol, Integer groupTicks, Long offset) {
+        return String.format("OBA-%s-%d-%d", symbol, groupTicks, offset);
+    }
+    
+    /**
+     * 为逐笔委托事件批次生成唯一的消息ID
+     *
+     * @param symbol 交易对
+     * @param firstSequence 第一个事件的序号
+     * @return 消息ID
+     */
+    public static String generateOrderEventMessageId(String symbol, Long firstSequence) {
+        return String.format("OE-%s-%d", symbol, firstSequence);
+    }
+    
+    /**
+     * 为K线生成唯一的消息ID
+     *
+     * @param symbol 交易对
+     * @param interval 周期（毫秒）
+     * @param openTime 周期开始时间
+     * @return 消息ID
+     */
+    public static String generateKlineMessageId(String symbol, Long interval, Long openTime) {
+        return String.format("K-%s-%d-%d", symbol, interval, openTime);
+    }
+    
+    /**
+     * 为24小时行情统计生成唯一的消息ID
+     *
+     * @param symbol 交易对
+     * @param timestamp 统计时间
+     * @return 消息ID
+     */
+    public static String generateTickerMessageId(String symbol, Long timestamp) {
+        return String.format("TK-%s-%d", symbol, timestamp);
+    }
+    
+    /**
+     * 为订单拒绝结果生成唯一的消息ID
+     *
+     * @param orderId 订单ID
+     * @param offset 命令的Kafka偏移量，同一订单的改单可能被多次拒绝
+     * @return 消息ID
+     */
+    public static String generateOrderRejectMessageId(Long orderId, Long offset) {
+        return String.format("RJ-%d-%d", orderId, offset);
+    }
+}
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.exchange.match.engine.dto;
 
 import lombok.Data;
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * 订单命令DTO，用于接收新订单或撤单请求
@@ -10,20 +11,27 @@ import java.math.BigDecimal;
 public class OrderCommand {
     public static final String TYPE_NEW_ORDER = "NEW";
     public static final String TYPE_CANCEL_ORDER = "CANCEL";
+    public static final String TYPE_CANCEL_ALL_USER = "CANCEL_ALL_USER";
+    public static final String TYPE_CANCEL_ALL_USER_SIDE = "CANCEL_ALL_USER_SIDE";
+    public static final String TYPE_AMEND = "AMEND";
+    public static final String TYPE_BATCH_NEW = "BATCH_NEW";
+    public static final String TYPE_TICK = "TICK";
     
-    private String type; // NEW 或 CANCEL
+    private String type; // NEW、CANCEL、CANCEL_ALL_USER（撤销userId的全部挂单）或 CANCEL_ALL_USER_SIDE（撤销userId在side方向的全部挂单）、AMEND（修改orderId的价格和剩余数量）、BATCH_NEW（批量下单，子订单见orders）或 TICK（只推进时间，撤销到期订单）
     private Long orderId; // 订单ID
     private Long userId; // 用户ID
     private String symbol; // 交易对
-    private Integer orderType; // 订单类型 1 限价 2 只做挂单 3 全成交或全取消 4 成交后取消剩余 5市价委托
-    private BigDecimal price; // 价格
-    private BigDecimal quantity; // 数量
+    private Integer orderType; // 订单类型 1 限价 2 只做挂单 3 全成交或全取消 4 成交后取消剩余 5市价委托 6止损限价 7止损市价
+    private BigDecimal price; // 价格，AMEND时为新价格，为空表示不改价
+    private BigDecimal quantity; // 数量，AMEND时为新的剩余数量
     private Integer side; // 方向 1买 2卖
     private Integer action; // 动作 0现货 1开仓 2平仓 3买卖模式仓位自动
     private Integer marginMode; // 保证金模式 0普通现货 1逐仓 2全仓
     private Integer marginType; // 保证金类型 0现货 1币本位 2U本位
-    private BigDecimal priceStop; // 止损价
+    private BigDecimal priceStop; // 止损价，止损单（6、7）的触发价
     private BigDecimal volumeMax; // 最大成交额（市价单）
     private BigDecimal quantityClose; // 平仓数量
-    private Long timestamp; // 时间戳
+    private Long timestamp; // 时间戳，同时推进订单过期
+    private Long expireTime; // 过期时间（GTD），为空表示一直有效
+    private List<OrderCommand> orders; // 批量下单的子订单，按顺序撮合
 } 
\ No newline at end of file
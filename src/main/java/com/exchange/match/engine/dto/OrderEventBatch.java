@@ -0,0 +1,25 @@
+package com.exchange.match.engine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 逐笔委托（L3）事件批次DTO，一条命令产生的全部挂单事件
+ * <p>
+ * 事件按 {@link com.exchange.match.engine.util.OrderEventCodec} 的格式紧凑编码在events中，
+ * 第i个事件的序号为firstSequence + i，同一交易对的序号连续，不连续说明丢失了批次。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEventBatch {
+    private String symbol; // 交易对
+    private Long firstSequence; // 第一个事件的序号
+    private Integer count; // 事件数
+    private byte[] events; // 编码后的事件
+    private Long lastOffset; // 最后处理的Kafka消息的offset
+    private Long timestamp; // 时间戳
+}
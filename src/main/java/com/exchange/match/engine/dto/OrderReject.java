@@ -0,0 +1,27 @@
+package com.exchange.match.engine.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 订单拒绝结果DTO，订单被拒绝或到期撤销，不会再有成交，下游据此解冻剩余资金并结束订单
+ * <p>
+ * 拒绝的订单没有进入订单簿也没有成交；到期（EXPIRED）的订单可能已部分成交，剩余部分不再撮合。
+ */
+@Data
+@Builder
+public class OrderReject {
+    public static final String REASON_PRECISION = "PRECISION";
+    public static final String REASON_POST_ONLY = "POST_ONLY";
+    public static final String REASON_STOP_PRICE = "STOP_PRICE";
+    public static final String REASON_FOK = "FOK";
+    public static final String REASON_EXPIRED = "EXPIRED";
+    public static final String REASON_SYMBOL = "SYMBOL";
+    
+    private Long orderId; // 订单ID
+    private Long userId; // 用户ID
+    private String symbol; // 交易对
+    private Integer side; // 方向 1买 2卖
+    private String reason; // 拒绝原因 PRECISION（价格或数量的小数位超出交易对精度）、POST_ONLY（只做挂单下单或改价后会立即成交）、STOP_PRICE（止损单没有触发价）、FOK（FOK订单不能全部成交）、EXPIRED（下单时已过期，或挂单、止损单到期撤销）、SYMBOL（批量下单的子订单属于其他交易对）
+    private Long timestamp; // 拒绝或撤销时间戳
+}
@@ -0,0 +1,23 @@
+package com.exchange.match.engine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 交易对迁移结果DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SymbolMigrationResult {
+    private String symbol; // 交易对
+    private Integer sourceNodeId; // 原节点ID
+    private Integer targetNodeId; // 目标节点ID
+    private Integer partition; // 交易对的Kafka分区，迁移前后不变
+    private Long lastOffset; // 交接快照对应的最后处理offset，目标节点从下一个offset继续消费
+    private Integer orderCount; // 交接的挂单数
+    private Long pauseMillis; // 本节点停止撮合到切换分配完成的耗时
+}
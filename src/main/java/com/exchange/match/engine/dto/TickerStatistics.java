@@ -0,0 +1,30 @@
+package com.exchange.match.engine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 24小时滚动行情统计DTO，由撮合线程生成后不再修改
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TickerStatistics {
+    private String symbol; // 交易对
+    private BigDecimal lastPrice; // 最新成交价
+    private BigDecimal openPrice; // 窗口内第一笔成交价
+    private BigDecimal highPrice; // 窗口内最高价
+    private BigDecimal lowPrice; // 窗口内最低价
+    private BigDecimal volume; // 窗口内成交量
+    private BigDecimal quoteVolume; // 窗口内成交额
+    private Long tradeCount; // 窗口内成交笔数
+    private BigDecimal priceChange; // 价格变化（最新价 - 开盘价）
+    private BigDecimal priceChangePercent; // 价格变化百分比
+    private Long openTime; // 窗口开始时间
+    private Long timestamp; // 统计时间
+}
@@ -0,0 +1,61 @@
+package com.exchange.match.engine.loadtest;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 压测参数
+ */
+@Data
+public class LoadTestOptions {
+    private String symbol = "BTCUSDT";
+    private long seed = 42; // 随机种子，相同种子生成相同的订单流
+    private int rate = 50000; // 目标速率（命令/秒）
+    private int durationSeconds = 30; // 压测时长
+    private int users = 10000; // 用户数
+    private int priceDecimal = 2; // 价格小数位
+    private int quantityDecimal = 4; // 数量小数位
+    private long initialMidTicks = 3000000; // 初始中间价（最小价格单位个数）
+    private double driftTicks = 0.3; // 每笔命令中间价随机游走的标准差（最小价格单位个数）
+    private double meanLevelDistance = 8; // 挂单价格距中间价的平均档位数
+    private double aggressiveRatio = 0.1; // 穿过中间价的限价单比例
+    private double cancelRatio = 0.4; // 撤单比例
+    private double marketRatio = 0.02; // 市价单比例
+    private double iocRatio = 0.03; // IOC比例
+    private double fokRatio = 0.01; // FOK比例
+    private long minQuantityUnits = 1; // 最小数量（最小数量单位个数）
+    private long maxQuantityUnits = 20000; // 最大数量（最小数量单位个数）
+    private int cancelWindow = 100000; // 撤单从最近多少笔挂单中随机选择
+    private boolean offHeap; // 是否使用堆外订单簿
+    
+    /**
+     * 从 --name value 形式的参数覆盖默认值
+     *
+     * @param args 参数
+     * @return 压测参数
+     */
+    public static LoadTestOptions fromArgs(Map<String, String> args) {
+        LoadTestOptions options = new LoadTestOptions();
+        options.setSymbol(args.getOrDefault("symbol", options.getSymbol()));
+        options.setSeed(Long.parseLong(args.getOrDefault("seed", String.valueOf(options.getSeed()))));
+        options.setRate(Integer.parseInt(args.getOrDefault("rate", String.valueOf(options.getRate()))));
+        options.setDurationSeconds(Integer.parseInt(args.getOrDefault("duration", String.valueOf(options.getDurationSeconds()))));
+        options.setUsers(Integer.parseInt(args.getOrDefault("users", String.valueOf(options.getUsers()))));
+        options.setCancelRatio(Double.parseDouble(args.getOrDefault("cancel-ratio", String.valueOf(options.getCancelRatio()))));
+        options.setMarketRatio(Double.parseDouble(args.getOrDefault("market-ratio", String.valueOf(options.getMarketRatio()))));
+        options.setIocRatio(Double.parseDouble(args.getOrDefault("ioc-ratio", String.valueOf(options.getIocRatio()))));
+        options.setFokRatio(Double.parseDouble(args.getOrDefault("fok-ratio", String.valueOf(options.getFokRatio()))));
+        options.setAggressiveRatio(Double.parseDouble(args.getOrDefault("aggressive-ratio", String.valueOf(options.getAggressiveRatio()))));
+        options.setDriftTicks(Double.parseDouble(args.getOrDefault("drift", String.valueOf(options.getDriftTicks()))));
+        options.setPriceDecimal(Integer.parseInt(args.getOrDefault("price-decimal", String.valueOf(options.getPriceDecimal()))));
+        options.setQuantityDecimal(Integer.parseInt(args.getOrDefault("quantity-decimal", String.valueOf(options.getQuantityDecimal()))));
+        options.setInitialMidTicks(Long.parseLong(args.getOrDefault("initial-mid", String.valueOf(options.getInitialMidTicks()))));
+        options.setMeanLevelDistance(Double.parseDouble(args.getOrDefault("mean-level-distance", String.valueOf(options.getMeanLevelDistance()))));
+        options.setMinQuantityUnits(Long.parseLong(args.getOrDefault("min-quantity", String.valueOf(options.getMinQuantityUnits()))));
+        options.setMaxQuantityUnits(Long.parseLong(args.getOrDefault("max-quantity", String.valueOf(options.getMaxQuantityUnits()))));
+        options.setCancelWindow(Integer.parseInt(args.getOrDefault("cancel-window", String.valueOf(options.getCancelWindow()))));
+        options.setOffHeap(Boolean.parseBoolean(args.getOrDefault("off-heap", String.valueOf(options.isOffHeap()))));
+        return options;
+    }
+}
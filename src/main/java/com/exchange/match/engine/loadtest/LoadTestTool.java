@@ -0,0 +1,220 @@
+package com.exchange.match.engine.loadtest;
+
+import com.exchange.match.engine.config.MatchEngineConfig;
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.dto.TradeResult;
+import com.exchange.match.engine.marketdata.MarketDataFanoutServer;
+import com.exchange.match.engine.matching.TradeExecutionResult;
+import com.exchange.match.engine.model.Symbol;
+import com.exchange.match.engine.orderbook.OrderBookSnapshot;
+import com.exchange.match.engine.replay.ReplayTool;
+import com.exchange.match.engine.service.MatchService;
+import com.exchange.match.engine.service.OrderBookPersistenceService;
+import com.exchange.match.engine.transport.InMemoryCommandSource;
+import com.exchange.match.engine.transport.InMemoryResultSink;
+import com.exchange.match.engine.util.LatencyRecorder;
+import com.exchange.match.engine.util.ProtostuffUtils;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 本地压测工具，通过内存命令来源和结果去向驱动 {@link MatchService}，用于寻找单节点的饱和点
+ * <p>
+ * 发单线程按泊松过程的计划时间开环提交命令，命令经过撮合服务的队列和撮合线程，
+ * 结果在撮合线程上按Kafka发送路径序列化。延迟从命令的计划发出时间算到成交结果序列化完成，
+ * 包含排队时间，避免协调遗漏。快照持久化替换为空实现，不依赖MongoDB。
+ * <pre>
+ * --rate 50000 --duration 30 --users 10000 --cancel-ratio 0.4 --market-ratio 0.02 --ioc-ratio 0.03 --fok-ratio 0.01
+ * --price-decimal 2 --quantity-decimal 4 --initial-mid 3000000 --mean-level-distance 8
+ * --min-quantity 1 --max-quantity 20000 --cancel-window 100000 --off-heap false
+ * </pre>
+ */
+public class LoadTestTool {
+    
+    // 记录计划发出时间的环形数组大小，积压超过该值的命令丢弃并计数
+    private static final int MAX_BACKLOG = 1 << 20;
+    private static final int BACKLOG_MASK = MAX_BACKLOG - 1;
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> argMap = ReplayTool.parseArgs(args);
+        LoadTestOptions options = LoadTestOptions.fromArgs(argMap);
+        
+        InMemoryCommandSource commandSource = new InMemoryCommandSource();
+        InMemoryResultSink resultSink = new InMemoryResultSink();
+        MatchService matchService = new MatchService(buildConfig(options), null, commandSource, resultSink,
+                new NoopPersistenceService(), new StaticListableBeanFactory().getBeanProvider(MarketDataFanoutServer.class));
+        
+        // 按偏移量记录命令的计划发出时间，提交命令先于撮合线程取出命令，撮合线程读取时可见
+        long[] intendedNanos = new long[MAX_BACKLOG];
+        AtomicLong offered = new AtomicLong();
+        AtomicLong dropped = new AtomicLong();
+        AtomicLong processed = new AtomicLong();
+        LatencyRecorder commandLatency = new LatencyRecorder();
+        LatencyRecorder tradeLatency = new LatencyRecorder();
+        long[] tradeCount = new long[1];
+        
+        // 监听器在撮合线程上执行，与Kafka结果去向一样在撮合线程上序列化
+        resultSink.addListener(result -> {
+            publish(result);
+            long latency = System.nanoTime() - intendedNanos[(int) (result.getOffset() & BACKLOG_MASK)];
+            commandLatency.record(latency);
+            if (!result.getPublicTrades().isEmpty()) {
+                tradeLatency.record(latency);
+                tradeCount[0] += result.getPublicTrades().size();
+            }
+            processed.incrementAndGet();
+        });
+        matchService.startSymbol(buildSymbol(options));
+        
+        Thread generatorThread = new Thread(() -> generate(options, commandSource, intendedNanos, offered, dropped, processed),
+                "load-generator");
+        long start = System.nanoTime();
+        generatorThread.start();
+        
+        // 每秒输出一次速率和积压
+        long lastOffered = 0;
+        long lastProcessed = 0;
+        while (generatorThread.isAlive()) {
+            generatorThread.join(1000);
+            long currentOffered = offered.get();
+            long currentProcessed = processed.get();
+            System.out.printf("offered: %d/s, processed: %d/s, backlog: %d, dropped: %d%n",
+                    currentOffered - lastOffered, currentProcessed - lastProcessed,
+                    currentOffered - currentProcessed, dropped.get());
+            lastOffered = currentOffered;
+            lastProcessed = currentProcessed;
+        }
+        
+        // 下线交易对，撮合线程处理完积压的命令后退出
+        OrderBookSnapshot snapshot = matchService.stopSymbol(options.getSymbol());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        matchService.shutdown();
+        
+        System.out.printf("target rate: %d/s, achieved: %.0f/s, commands: %d, dropped: %d, trades: %d, resting orders: %d%n",
+                options.getRate(), processed.get() / seconds, processed.get(), dropped.get(), tradeCount[0],
+                snapshot == null ? 0 : snapshot.getOrderCount());
+        System.out.println("all commands " + commandLatency.report());
+        System.out.println("with trades  " + tradeLatency.report());
+        if (dropped.get() > 0 || processed.get() / seconds < options.getRate() * 0.95) {
+            System.out.println("目标速率超过单节点处理能力，已饱和");
+        }
+    }
+    
+    /**
+     * 按计划时间开环提交命令，积压超过上限时丢弃并计数
+     */
+    private static void generate(LoadTestOptions options, InMemoryCommandSource commandSource, long[] intendedNanos,
+                                 AtomicLong offered, AtomicLong dropped, AtomicLong processed) {
+        OrderFlowGenerator generator = new OrderFlowGenerator(options);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+        long intended = start;
+        long startMillis = System.currentTimeMillis();
+        
+        try {
+            while (intended < end) {
+                intended += generator.nextInterArrivalNanos();
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    if (wait > 50_000) {
+                        LockSupport.parkNanos(wait - 50_000);
+                    } else {
+                        Thread.onSpinWait();
+                    }
+                }
+                OrderCommand command = generator.next(startMillis + (intended - start) / 1_000_000);
+                long offset = offered.get();
+                if (offset - processed.get() >= MAX_BACKLOG) {
+                    dropped.incrementAndGet();
+                    continue;
+                }
+                // 内存命令来源的偏移量从0开始逐条递增，与已提交的命令数一致
+                intendedNanos[(int) (offset & BACKLOG_MASK)] = intended;
+                commandSource.submit(command);
+                offered.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * 按Kafka结果去向的发送路径序列化，计入编码开销
+     *
+     * @param result 撮合结果
+     */
+    private static void publish(TradeExecutionResult result) {
+        for (TradeResult takerTradeResult : result.getTakerTradeResults()) {
+            ProtostuffUtils.serialize(takerTradeResult);
+        }
+        for (TradeResult makerTradeResult : result.getMakerTradeResults()) {
+            ProtostuffUtils.serialize(makerTradeResult);
+        }
+        if (result.getOrderBookUpdate() != null) {
+            ProtostuffUtils.serialize(result.getOrderBookUpdate());
+        }
+    }
+    
+    private static MatchEngineConfig buildConfig(LoadTestOptions options) {
+        MatchEngineConfig config = new MatchEngineConfig();
+        config.setNodeId(0);
+        config.setDepthSnapshotLevels(100);
+        config.setDepthSnapshotMaxCommands(1000);
+        config.setDepthSnapshotMaxIntervalMs(100);
+        config.setTickerPublishIntervalMs(0L);
+        // 压测期间不生成备份快照
+        config.setBackupSaveInterval(TimeUnit.DAYS.toMillis(1));
+        if (options.isOffHeap()) {
+            config.setOffHeapSymbols(new String[]{options.getSymbol()});
+            config.setOffHeapExpectedOrders(1_000_000);
+        }
+        return config;
+    }
+    
+    private static Symbol buildSymbol(LoadTestOptions options) {
+        Symbol symbol = new Symbol();
+        symbol.setId(1);
+        symbol.setSymbol(options.getSymbol());
+        symbol.setStatus(1);
+        symbol.setPartition(0);
+        symbol.setMarginCoin("USDT");
+        symbol.setPriceDecimal(options.getPriceDecimal());
+        symbol.setQuantityDecimal(options.getQuantityDecimal());
+        symbol.setBuyMakerFee(new BigDecimal("0.001"));
+        symbol.setSellMakerFee(new BigDecimal("0.001"));
+        symbol.setBuyTakerFee(new BigDecimal("0.002"));
+        symbol.setSellTakerFee(new BigDecimal("0.002"));
+        return symbol;
+    }
+    
+    /**
+     * 不读写MongoDB的快照持久化，压测从空订单簿开始
+     */
+    private static class NoopPersistenceService extends OrderBookPersistenceService {
+        
+        NoopPersistenceService() {
+            super(null, null, null);
+        }
+        
+        @Override
+        public OrderBookSnapshot loadSnapshot(String symbol) {
+            return null;
+        }
+        
+        @Override
+        public boolean saveSnapshot(OrderBookSnapshot snapshot) {
+            return true;
+        }
+        
+        @Override
+        public CompletableFuture<Boolean> backupSnapshot(OrderBookSnapshot snapshot) {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.exchange.match.engine.loadtest;
+
+import com.exchange.match.engine.dto.OrderCommand;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * 合成订单流生成器
+ * <p>
+ * 命令按泊松过程到达，挂单价格围绕随机游走的中间价按指数分布散开，
+ * 按配置比例混合撤单、市价单、IOC和FOK，非线程安全。
+ */
+public class OrderFlowGenerator {
+    private final LoadTestOptions options;
+    private final Random random;
+    // 最近挂出的限价单ID，撤单从中随机选择
+    private final long[] recentOrderIds;
+    private int recentCount;
+    private int recentCursor;
+    private long nextOrderId = 1;
+    private double midTicks;
+    
+    /**
+     * 构造函数
+     *
+     * @param options 压测参数
+     */
+    public OrderFlowGenerator(LoadTestOptions options) {
+        this.options = options;
+        this.random = new Random(options.getSeed());
+        this.recentOrderIds = new long[options.getCancelWindow()];
+        this.midTicks = options.getInitialMidTicks();
+    }
+    
+    /**
+     * 下一笔命令的到达间隔，服从指数分布
+     *
+     * @return 间隔（纳秒）
+     */
+    public long nextInterArrivalNanos() {
+        return (long) (-Math.log(1 - random.nextDouble()) * 1e9 / options.getRate());
+    }
+    
+    /**
+     * 生成下一笔命令
+     *
+     * @param timestamp 命令时间戳（毫秒）
+     * @return 订单命令
+     */
+    public OrderCommand next(long timestamp) {
+        // 中间价随机游走
+        midTicks = Math.max(1, midTicks + random.nextGaussian() * options.getDriftTicks());
+        
+        double r = random.nextDouble();
+        if (r < options.getCancelRatio() && recentCount > 0) {
+            return cancel(timestamp);
+        }
+        r -= options.getCancelRatio();
+        
+        int orderType;
+        if (r < options.getMarketRatio()) {
+            orderType = 5;
+        } else if (r < options.getMarketRatio() + options.getIocRatio()) {
+            orderType = 4;
+        } else if (r < options.getMarketRatio() + options.getIocRatio() + options.getFokRatio()) {
+            orderType = 3;
+        } else {
+            orderType = 1;
+        }
+        return newOrder(orderType, timestamp);
+    }
+    
+    private OrderCommand newOrder(int orderType, long timestamp) {
+        int side = random.nextBoolean() ? 1 : 2;
+        
+        // 距中间价的档位数服从指数分布，部分订单穿过中间价成为吃单
+        long distance = (long) (-Math.log(1 - random.nextDouble()) * options.getMeanLevelDistance());
+        boolean aggressive = orderType != 1 || random.nextDouble() < options.getAggressiveRatio();
+        long mid = Math.round(midTicks);
+        long priceTicks = (side == 1) == aggressive ? mid + distance : mid - distance;
+        
+        long quantityUnits = options.getMinQuantityUnits()
+                + (long) (random.nextDouble() * (options.getMaxQuantityUnits() - options.getMinQuantityUnits()));
+        
+        OrderCommand command = new OrderCommand();
+        command.setType(OrderCommand.TYPE_NEW_ORDER);
+        command.setOrderId(nextOrderId++);
+        command.setUserId((long) random.nextInt(options.getUsers()) + 1);
+        command.setSymbol(options.getSymbol());
+        command.setOrderType(orderType);
+        command.setPrice(orderType == 5 ? BigDecimal.ZERO
+                : BigDecimal.valueOf(Math.max(1, priceTicks), options.getPriceDecimal()));
+        command.setQuantity(BigDecimal.valueOf(quantityUnits, options.getQuantityDecimal()));
+        command.setSide(side);
+        command.setAction(0);
+        command.setMarginMode(0);
+        command.setMarginType(0);
+        command.setTimestamp(timestamp);
+        
+        if (orderType == 1) {
+            recentOrderIds[recentCursor] = command.getOrderId();
+            recentCursor = (recentCursor + 1) % recentOrderIds.length;
+            recentCount = Math.min(recentCount + 1, recentOrderIds.length);
+        }
+        return command;
+    }
+    
+    private OrderCommand cancel(long timestamp) {
+        OrderCommand command = new OrderCommand();
+        command.setType(OrderCommand.TYPE_CANCEL_ORDER);
+        command.setOrderId(recentOrderIds[random.nextInt(recentCount)]);
+        command.setSymbol(options.getSymbol());
+        command.setTimestamp(timestamp);
+        return command;
+    }
+}
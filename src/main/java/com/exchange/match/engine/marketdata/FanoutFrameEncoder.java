@@ -0,0 +1,84 @@
+package com.exchange.match.engine.marketdata;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 行情推送帧编码，帧写入直接内存，同一帧以只读副本发给所有订阅者
+ * <p>
+ * 帧格式（大端）：int 帧长度（不含自身）| byte 类型 | short 交易对长度 | 交易对UTF-8 | long 序号 | long offset |
+ * long 时间戳 | int 买盘档数 | 买盘档位 | int 卖盘档数 | 卖盘档位。
+ * 档位为价格、数量两个数值，每个数值为 long 去掉小数点后的整数 + byte 小数位；增量帧中数量为0表示删除该档。
+ * 直接内存按块分配，帧从当前块顺序切出，块内所有帧都不再被引用后整块由GC回收。只在推送线程中使用。
+ */
+class FanoutFrameEncoder {
+    static final byte FRAME_SNAPSHOT = 1; // 全量快照
+    static final byte FRAME_DELTA = 2; // 增量
+
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int LEVEL_SIZE = 18;
+
+    private ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+
+    /**
+     * 编码一帧
+     *
+     * @param type       帧类型
+     * @param symbol     交易对
+     * @param seq        该交易对的推送序号，增量帧逐条加1，快照帧为快照对应的序号
+     * @param lastOffset 对应的最后处理offset
+     * @param timestamp  时间戳
+     * @param bids       买盘档位，价格 -> 数量
+     * @param asks       卖盘档位，价格 -> 数量
+     * @return 帧，position为0，limit为帧长
+     */
+    ByteBuffer encode(byte type, String symbol, long seq, long lastOffset, long timestamp,
+                      Iterable<Map.Entry<BigDecimal, BigDecimal>> bids, int bidCount,
+                      Iterable<Map.Entry<BigDecimal, BigDecimal>> asks, int askCount) {
+        byte[] symbolBytes = symbol.getBytes(StandardCharsets.UTF_8);
+        int size = 4 + 1 + 2 + symbolBytes.length + 8 + 8 + 8
+                + 4 + bidCount * LEVEL_SIZE + 4 + askCount * LEVEL_SIZE;
+        ByteBuffer frame = allocate(size);
+        frame.putInt(size - 4);
+        frame.put(type);
+        frame.putShort((short) symbolBytes.length);
+        frame.put(symbolBytes);
+        frame.putLong(seq);
+        frame.putLong(lastOffset);
+        frame.putLong(timestamp);
+        putLevels(frame, bids, bidCount);
+        putLevels(frame, asks, askCount);
+        frame.flip();
+        return frame.asReadOnlyBuffer();
+    }
+
+    private static void putLevels(ByteBuffer frame, Iterable<Map.Entry<BigDecimal, BigDecimal>> levels, int count) {
+        frame.putInt(count);
+        for (Map.Entry<BigDecimal, BigDecimal> level : levels) {
+            putDecimal(frame, level.getKey());
+            putDecimal(frame, level.getValue());
+        }
+    }
+
+    private static void putDecimal(ByteBuffer frame, BigDecimal value) {
+        frame.putLong(value.unscaledValue().longValueExact());
+        frame.put((byte) value.scale());
+    }
+
+    /**
+     * 从当前块切出一段，不足时换新块
+     *
+     * @param size 字节数
+     * @return 可写缓冲区
+     */
+    private ByteBuffer allocate(int size) {
+        if (chunk.remaining() < size) {
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, size));
+        }
+        ByteBuffer frame = chunk.slice(chunk.position(), size);
+        chunk.position(chunk.position() + size);
+        return frame;
+    }
+}
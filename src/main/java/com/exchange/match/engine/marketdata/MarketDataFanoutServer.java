@@ -0,0 +1,464 @@
+package com.exchange.match.engine.marketdata;
+
+import com.exchange.match.engine.config.MatchEngineConfig;
+import com.exchange.match.engine.dto.OrderBookEntry;
+import com.exchange.match.engine.dto.OrderBookUpdate;
+import com.exchange.match.engine.orderbook.DepthSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 内嵌的二进制行情推送服务，基于NIO直接向TCP订阅者推送L2盘口
+ * <p>
+ * 撮合线程只把订单簿更新放入无锁队列；推送线程按交易对维护一份完整的L2盘口，
+ * 订阅时先发全量快照，之后按序号推送增量，帧格式见 {@link FanoutFrameEncoder}。
+ * 同一帧只编码一次，以直接内存的只读副本排入各订阅者的发送队列并用聚集写发送；
+ * 订阅者积压超过 match.fanout.max-pending-bytes 时直接断开，不会反压撮合。
+ * <p>
+ * 客户端请求格式：byte 类型（1订阅 2取消订阅）| short 交易对长度 | 交易对UTF-8。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "match.fanout.enabled", havingValue = "true")
+public class MarketDataFanoutServer {
+
+    private static final byte REQUEST_SUBSCRIBE = 1;
+    private static final byte REQUEST_UNSUBSCRIBE = 2;
+    private static final int MAX_GATHER = 64; // 一次聚集写的最大帧数
+
+    private final MatchEngineConfig config;
+    // 撮合线程到推送线程的事件
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    // 以下字段只在推送线程中访问
+    private final Map<String, SymbolState> symbols = new HashMap<>();
+    private final FanoutFrameEncoder encoder = new FanoutFrameEncoder();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread ioThread;
+    private volatile boolean running;
+
+    /**
+     * 撮合线程到推送线程的事件：快照重置、增量或移除交易对
+     */
+    private record Event(String symbol, DepthSnapshot snapshot, OrderBookUpdate update) {
+    }
+
+    /**
+     * 单个交易对的L2盘口和订阅者
+     */
+    private static final class SymbolState {
+        private final TreeMap<BigDecimal, BigDecimal> bids = new TreeMap<>(Comparator.reverseOrder());
+        private final TreeMap<BigDecimal, BigDecimal> asks = new TreeMap<>();
+        private final Set<Client> subscribers = new LinkedHashSet<>();
+        private long seq;
+        private long lastOffset;
+        private long timestamp;
+    }
+
+    /**
+     * 订阅者连接
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(512);
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        private final Set<String> symbols = new HashSet<>();
+        private long pendingBytes;
+        private boolean closed;
+
+        private Client(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    /**
+     * 启动推送服务
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress(config.getFanoutPort()));
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        ioThread = new Thread(this::ioLoop);
+        ioThread.setName("market-data-fanout-thread");
+        ioThread.setDaemon(true);
+        ioThread.start();
+        log.info("行情推送服务启动，端口: {}", config.getFanoutPort());
+    }
+
+    /**
+     * 注册交易对并设置初始盘口，撮合线程启动前调用；已有订阅者会重新收到快照
+     *
+     * @param fullDepth 完整盘口快照
+     */
+    public void registerSymbol(DepthSnapshot fullDepth) {
+        events.offer(new Event(fullDepth.getSymbol(), fullDepth, null));
+    }
+
+    /**
+     * 移除交易对，断开该交易对的订阅
+     *
+     * @param symbol 交易对
+     */
+    public void unregisterSymbol(String symbol) {
+        events.offer(new Event(symbol, null, null));
+    }
+
+    /**
+     * 提交订单簿更新，在撮合线程调用，只入队不阻塞
+     *
+     * @param update 订单簿更新
+     */
+    public void onUpdate(OrderBookUpdate update) {
+        events.offer(new Event(update.getSymbol(), null, update));
+    }
+
+    /**
+     * 推送线程主循环
+     */
+    private void ioLoop() {
+        while (running) {
+            try {
+                selector.select(1);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Client client = (Client) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(client);
+                        }
+                        if (!client.closed && key.isWritable()) {
+                            flush(client);
+                        }
+                    } catch (IOException e) {
+                        log.debug("行情订阅者连接异常: {}", e.getMessage());
+                        close(client);
+                    }
+                }
+                drainEvents();
+            } catch (Exception e) {
+                log.error("行情推送线程异常", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Client(channel, key));
+    }
+
+    /**
+     * 读取订阅请求
+     *
+     * @param client 订阅者
+     */
+    private void read(Client client) throws IOException {
+        ByteBuffer buffer = client.readBuffer;
+        if (client.channel.read(buffer) < 0) {
+            close(client);
+            return;
+        }
+        buffer.flip();
+        while (buffer.remaining() >= 3) {
+            int start = buffer.position();
+            byte type = buffer.get(start);
+            int length = buffer.getShort(start + 1);
+            if (length < 0 || 3 + length > buffer.capacity()) {
+                close(client);
+                return;
+            }
+            if (buffer.remaining() < 3 + length) {
+                break;
+            }
+            byte[] symbolBytes = new byte[length];
+            buffer.position(start + 3);
+            buffer.get(symbolBytes);
+            String symbol = new String(symbolBytes, StandardCharsets.UTF_8);
+            if (type == REQUEST_SUBSCRIBE) {
+                subscribe(client, symbol);
+            } else if (type == REQUEST_UNSUBSCRIBE) {
+                unsubscribe(client, symbol);
+            }
+            if (client.closed) {
+                return;
+            }
+        }
+        buffer.compact();
+    }
+
+    private void subscribe(Client client, String symbol) {
+        SymbolState state = symbols.get(symbol);
+        if (state == null || !client.symbols.add(symbol)) {
+            return;
+        }
+        state.subscribers.add(client);
+        send(client, encodeSnapshot(symbol, state));
+    }
+
+    private void unsubscribe(Client client, String symbol) {
+        SymbolState state = symbols.get(symbol);
+        if (state != null) {
+            state.subscribers.remove(client);
+        }
+        client.symbols.remove(symbol);
+    }
+
+    /**
+     * 处理撮合线程提交的事件
+     */
+    private void drainEvents() {
+        Event event;
+        while ((event = events.poll()) != null) {
+            if (event.update() != null) {
+                applyUpdate(event.update());
+            } else if (event.snapshot() != null) {
+                resetSymbol(event.snapshot());
+            } else {
+                removeSymbol(event.symbol());
+            }
+        }
+    }
+
+    private void resetSymbol(DepthSnapshot snapshot) {
+        SymbolState state = symbols.computeIfAbsent(snapshot.getSymbol(), s -> new SymbolState());
+        state.bids.clear();
+        state.asks.clear();
+        for (DepthSnapshot.DepthLevel level : snapshot.getBids()) {
+            state.bids.put(level.price(), level.quantity());
+        }
+        for (DepthSnapshot.DepthLevel level : snapshot.getAsks()) {
+            state.asks.put(level.price(), level.quantity());
+        }
+        state.seq++;
+        state.lastOffset = snapshot.getLastOffset();
+        state.timestamp = snapshot.getTimestamp();
+        if (!state.subscribers.isEmpty()) {
+            ByteBuffer frame = encodeSnapshot(snapshot.getSymbol(), state);
+            for (Client client : new ArrayList<>(state.subscribers)) {
+                send(client, frame);
+            }
+        }
+    }
+
+    private void removeSymbol(String symbol) {
+        SymbolState state = symbols.remove(symbol);
+        if (state == null) {
+            return;
+        }
+        for (Client client : state.subscribers) {
+            client.symbols.remove(symbol);
+        }
+    }
+
+    private void applyUpdate(OrderBookUpdate update) {
+        SymbolState state = symbols.get(update.getSymbol());
+        if (state == null) {
+            return;
+        }
+        List<Map.Entry<BigDecimal, BigDecimal>> bids = applyLevels(state.bids, update.getBids());
+        List<Map.Entry<BigDecimal, BigDecimal>> asks = applyLevels(state.asks, update.getAsks());
+        state.lastOffset = update.getLastOffset() == null ? state.lastOffset : update.getLastOffset();
+        state.timestamp = update.getTimestamp() == null ? state.timestamp : update.getTimestamp();
+        if (bids.isEmpty() && asks.isEmpty()) {
+            return;
+        }
+        state.seq++;
+        if (state.subscribers.isEmpty()) {
+            return;
+        }
+        ByteBuffer frame = encoder.encode(FanoutFrameEncoder.FRAME_DELTA, update.getSymbol(),
+                state.seq, state.lastOffset, state.timestamp, bids, bids.size(), asks, asks.size());
+        for (Client client : new ArrayList<>(state.subscribers)) {
+            send(client, frame);
+        }
+    }
+
+    /**
+     * 把档位变化应用到盘口，数量为0时删除该档
+     *
+     * @param book    盘口一侧
+     * @param updates 档位变化
+     * @return 档位变化，价格 -> 数量
+     */
+    private static List<Map.Entry<BigDecimal, BigDecimal>> applyLevels(TreeMap<BigDecimal, BigDecimal> book,
+                                                                       List<OrderBookEntry> updates) {
+        if (updates == null || updates.isEmpty()) {
+            return List.of();
+        }
+        List<Map.Entry<BigDecimal, BigDecimal>> levels = new ArrayList<>(updates.size());
+        for (OrderBookEntry entry : updates) {
+            if (entry.getQuantity().signum() == 0) {
+                book.remove(entry.getPrice());
+            } else {
+                book.put(entry.getPrice(), entry.getQuantity());
+            }
+            levels.add(Map.entry(entry.getPrice(), entry.getQuantity()));
+        }
+        return levels;
+    }
+
+    private ByteBuffer encodeSnapshot(String symbol, SymbolState state) {
+        return encoder.encode(FanoutFrameEncoder.FRAME_SNAPSHOT, symbol, state.seq, state.lastOffset,
+                state.timestamp, state.bids.entrySet(), state.bids.size(), state.asks.entrySet(), state.asks.size());
+    }
+
+    /**
+     * 把帧排入订阅者的发送队列并尝试立即发送，积压过多时断开
+     *
+     * @param client 订阅者
+     * @param frame  帧
+     */
+    private void send(Client client, ByteBuffer frame) {
+        if (client.closed) {
+            return;
+        }
+        ByteBuffer copy = frame.duplicate();
+        client.pending.addLast(copy);
+        client.pendingBytes += copy.remaining();
+        if (client.pendingBytes > config.getFanoutMaxPendingBytes()) {
+            log.warn("行情订阅者{}积压{}字节，断开连接", remoteAddress(client), client.pendingBytes);
+            close(client);
+            return;
+        }
+        try {
+            flush(client);
+        } catch (IOException e) {
+            log.debug("行情订阅者连接异常: {}", e.getMessage());
+            close(client);
+        }
+    }
+
+    /**
+     * 聚集写发送队列中的帧，写不完时关注可写事件
+     *
+     * @param client 订阅者
+     */
+    private void flush(Client client) throws IOException {
+        while (!client.pending.isEmpty()) {
+            int count = 0;
+            for (ByteBuffer buffer : client.pending) {
+                gather[count++] = buffer;
+                if (count == MAX_GATHER) {
+                    break;
+                }
+            }
+            long written = client.channel.write(gather, 0, count);
+            client.pendingBytes -= written;
+            while (!client.pending.isEmpty() && !client.pending.peekFirst().hasRemaining()) {
+                client.pending.pollFirst();
+            }
+            if (!client.pending.isEmpty() && count < MAX_GATHER || written == 0) {
+                // 内核发送缓冲区已满
+                break;
+            }
+        }
+        Arrays.fill(gather, null);
+        int ops = client.pending.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (client.key.isValid() && client.key.interestOps() != ops) {
+            client.key.interestOps(ops);
+        }
+    }
+
+    private void close(Client client) {
+        if (client.closed) {
+            return;
+        }
+        client.closed = true;
+        for (String symbol : client.symbols) {
+            SymbolState state = symbols.get(symbol);
+            if (state != null) {
+                state.subscribers.remove(client);
+            }
+        }
+        client.pending.clear();
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            log.debug("关闭行情订阅者连接失败: {}", e.getMessage());
+        }
+    }
+
+    private static String remoteAddress(Client client) {
+        try {
+            return String.valueOf(client.channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * 关闭推送服务
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (ioThread != null) {
+            try {
+                ioThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            log.warn("关闭行情推送服务失败", e);
+        }
+        log.info("行情推送服务关闭");
+    }
+}
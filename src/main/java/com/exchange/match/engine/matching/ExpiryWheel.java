@@ -0,0 +1,194 @@
+package com.exchange.match.engine.matching;
+
+import java.util.Arrays;
+
+/**
+ * 分层时间轮，管理带过期时间订单的到期
+ * <p>
+ * 共4层、每层64个槽，第0层每槽一个刻度，上层每槽覆盖下层一整圈，上层槽到期时降级到下层。
+ * 插入、到期均为O(1)；时间只由调用方推进（撮合中使用命令时间戳），同样的命令序列得到同样的到期结果。
+ * 撤单和成交时不从时间轮删除，到期回调时由调用方判断订单是否仍然有效（惰性删除）。
+ * 只在撮合线程中使用，非线程安全。
+ */
+public class ExpiryWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final long tickMs; // 刻度（毫秒）
+    private final Timer[][] wheels = new Timer[LEVELS][SLOTS];
+    private final int[] levelSizes = new int[LEVELS];
+    private long currentTick = UNSET; // 下一个待处理的刻度
+    private int size;
+
+    /**
+     * 到期回调
+     */
+    public interface ExpiryHandler {
+        /**
+         * 订单到期
+         *
+         * @param orderId    订单ID
+         * @param expireTime 登记时的过期时间，用于判断订单是否已被替换
+         */
+        void onExpire(long orderId, long expireTime);
+    }
+
+    /**
+     * 时间轮节点，同一槽内的节点组成单向链表
+     */
+    private static final class Timer {
+        private final long orderId;
+        private final long expireTime;
+        private final long expireTick;
+        private Timer next;
+
+        private Timer(long orderId, long expireTime, long expireTick) {
+            this.orderId = orderId;
+            this.expireTime = expireTime;
+            this.expireTick = expireTick;
+        }
+    }
+
+    /**
+     * @param tickMs 刻度（毫秒），订单最多晚一个刻度到期
+     */
+    public ExpiryWheel(long tickMs) {
+        this.tickMs = tickMs;
+    }
+
+    /**
+     * 时间轮尚未开始计时时从now开始计时，已开始计时时不做处理
+     * <p>
+     * 登记订单前必须先开始计时：早于当前刻度的过期时间会被放入当前刻度，
+     * 若以某个订单的过期时间作为起点，之后登记的更早到期的订单都会被推迟到该时间。
+     *
+     * @param now 当前时间（毫秒）
+     */
+    public void start(long now) {
+        if (currentTick == UNSET) {
+            currentTick = Math.floorDiv(now, tickMs);
+        }
+    }
+    
+    /**
+     * 登记订单的过期时间
+     *
+     * @param orderId    订单ID
+     * @param expireTime 过期时间（毫秒）
+     * @throws IllegalStateException 时间轮尚未开始计时
+     */
+    public void schedule(long orderId, long expireTime) {
+        if (currentTick == UNSET) {
+            throw new IllegalStateException("时间轮尚未开始计时");
+        }
+        // 向上取整，保证不会早于过期时间到期
+        long expireTick = Math.floorDiv(expireTime + tickMs - 1, tickMs);
+        insert(new Timer(orderId, expireTime, expireTick));
+        size++;
+    }
+
+    /**
+     * 推进时间到now，依次回调所有到期的订单
+     *
+     * @param now     当前时间（毫秒），小于已推进到的时间时不做处理
+     * @param handler 到期回调
+     */
+    public void advance(long now, ExpiryHandler handler) {
+        long targetTick = Math.floorDiv(now, tickMs);
+        if (currentTick == UNSET) {
+            currentTick = targetTick + 1;
+            return;
+        }
+        while (currentTick <= targetTick) {
+            if (size == 0) {
+                currentTick = targetTick + 1;
+                return;
+            }
+            // 第0层转满一圈时逐层降级
+            if ((currentTick & SLOT_MASK) == 0) {
+                for (int level = 1; level < LEVELS; level++) {
+                    if (cascade(level) != 0) {
+                        break;
+                    }
+                }
+            }
+            // 第0层为空时直接跳到本圈末尾
+            if (levelSizes[0] == 0) {
+                currentTick = Math.min(targetTick, currentTick | SLOT_MASK) + 1;
+                continue;
+            }
+            int index = (int) (currentTick & SLOT_MASK);
+            Timer timer = wheels[0][index];
+            wheels[0][index] = null;
+            currentTick++;
+            while (timer != null) {
+                Timer next = timer.next;
+                levelSizes[0]--;
+                size--;
+                handler.onExpire(timer.orderId, timer.expireTime);
+                timer = next;
+            }
+        }
+    }
+
+    /**
+     * 已登记的数量，包括已撤销或成交、尚未到期清理的订单
+     *
+     * @return 数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 清空时间轮，之后须重新开始计时
+     */
+    public void clear() {
+        for (int level = 0; level < LEVELS; level++) {
+            Arrays.fill(wheels[level], null);
+            levelSizes[level] = 0;
+        }
+        size = 0;
+        currentTick = UNSET;
+    }
+
+    /**
+     * 把上层当前槽的节点按剩余时间重新放入下层
+     *
+     * @param level 层级
+     * @return 该层当前槽的下标
+     */
+    private int cascade(int level) {
+        int index = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Timer timer = wheels[level][index];
+        wheels[level][index] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            levelSizes[level]--;
+            insert(timer);
+            timer = next;
+        }
+        return index;
+    }
+
+    /**
+     * 按距离当前刻度的远近放入对应层级的槽，已过期的放入当前槽
+     *
+     * @param timer 节点
+     */
+    private void insert(Timer timer) {
+        long tick = Math.max(timer.expireTick, currentTick);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int index = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        timer.next = wheels[level][index];
+        wheels[level][index] = timer;
+        levelSizes[level]++;
+    }
+}
@@ -1,22 +1,35 @@
 package com.exchange.match.engine.matching;
 
 import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.dto.OrderReject;
 import com.exchange.match.engine.dto.PublicTradeRecord;
+import com.exchange.match.engine.dto.TickerStatistics;
 import com.exchange.match.engine.dto.TradeResult;
 import com.exchange.match.engine.model.Order;
 import com.exchange.match.engine.model.Symbol;
 import com.exchange.match.engine.orderbook.OrderBook;
 import com.exchange.match.engine.orderbook.OrderBookEntry;
+import com.exchange.match.engine.orderbook.OrderBookSnapshot;
 import com.exchange.match.engine.orderbook.PriceBucket;
+import com.exchange.match.engine.orderbook.StopOrderBook;
+import com.exchange.match.engine.util.OrderCommandUtils;
+import lombok.Getter;
+import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 
 /**
  * 撮合引擎，实现核心撮合逻辑
@@ -24,14 +37,93 @@ import java.util.concurrent.atomic.AtomicLong;
 @Slf4j
 @RequiredArgsConstructor
 public class MatchingEngine {
+    // 过期时间轮的刻度（毫秒）
+    private static final long EXPIRY_TICK_MS = 10;
+    
+    @Getter
     private final OrderBook orderBook;
-    private final Symbol symbolInfo;
+    // 交易对信息，只在撮合线程中替换
+    @Getter
+    @NonNull
+    private Symbol symbolInfo;
     private final AtomicLong tradeIdGenerator;
     
     // 修改过的买单价格集合
     private final Set<BigDecimal> modifiedBidPrices = new HashSet<>();
     // 修改过的卖单价格集合
     private final Set<BigDecimal> modifiedAskPrices = new HashSet<>();
+    // 本次命令产生、尚未用于检查止损触发的成交价
+    private final ArrayDeque<BigDecimal> pendingTradePrices = new ArrayDeque<>();
+    
+    // 等待在下一条命令前生效的交易对信息
+    private final AtomicReference<Symbol> pendingSymbolInfo = new AtomicReference<>();
+    
+    // 订单过期时间轮，由命令时间戳推进
+    private final ExpiryWheel expiryWheel = new ExpiryWheel(EXPIRY_TICK_MS);
+    // 本次命令推进时间轮时到期撤销的订单，随本次命令的结果发出
+    private final List<OrderReject> expiredOrders = new ArrayList<>();
+    
+    // 24小时滚动行情统计
+    private final RollingTicker ticker = new RollingTicker();
+    
+    // 最近生成的24小时行情统计，供其他线程读取
+    @Getter
+    private volatile TickerStatistics tickerStatistics;
+    
+    // 随撮合结果发布24小时行情统计的间隔（毫秒），0表示不发布
+    @Setter
+    private long tickerPublishIntervalMs;
+    private long lastTickerPublishTime;
+    
+    // 时间来源，离线重放时替换为命令时间戳以保证输出可复现
+    private LongSupplier clock = System::currentTimeMillis;
+    
+    /**
+     * 设置时间来源，同时作用于订单簿
+     *
+     * @param clock 时间来源（毫秒）
+     */
+    public void setClock(LongSupplier clock) {
+        this.clock = clock;
+        orderBook.setClock(clock);
+    }
+    
+    /**
+     * 处理订单命令
+     *
+     * @param command 订单命令
+     * @param offset  Kafka偏移量
+     * @return 交易执行结果，未知命令类型返回null
+     */
+    public TradeExecutionResult processCommand(OrderCommand command, long offset) {
+        if (OrderCommand.TYPE_NEW_ORDER.equals(command.getType())) {
+            // 将订单命令转换为订单对象
+            Order order = OrderCommandUtils.toOrder(command);
+            // 处理新订单
+            return processNewOrder(order, offset);
+        } else if (OrderCommand.TYPE_CANCEL_ORDER.equals(command.getType())) {
+            // 处理撤单
+            return processCancelOrder(command, offset);
+        } else if (OrderCommand.TYPE_CANCEL_ALL_USER.equals(command.getType())) {
+            // 撤销用户全部挂单
+            return processMassCancel(command.getUserId(), null, command.getTimestamp(), offset);
+        } else if (OrderCommand.TYPE_CANCEL_ALL_USER_SIDE.equals(command.getType())) {
+            // 撤销用户单边全部挂单
+            return processMassCancel(command.getUserId(), command.getSide(), command.getTimestamp(), offset);
+        } else if (OrderCommand.TYPE_AMEND.equals(command.getType())) {
+            // 改单
+            return processAmendOrder(command, offset);
+        } else if (OrderCommand.TYPE_BATCH_NEW.equals(command.getType())) {
+            // 批量下单
+            return processBatchNewOrder(command, offset);
+        } else if (OrderCommand.TYPE_TICK.equals(command.getType())) {
+            // 时钟推进，只处理到期订单
+            return processTick(command.getTimestamp(), offset);
+        } else {
+            log.warn("未知的订单命令类型: {}", command.getType());
+            return null;
+        }
+    }
     
     /**
      * 处理新订单
@@ -41,31 +133,212 @@ public class MatchingEngine {
      * @return 交易执行结果
      */
     public TradeExecutionResult processNewOrder(Order order, long offset) {
-        // 清空修改过的价格集合
-        modifiedBidPrices.clear();
-        modifiedAskPrices.clear();
+        beginCommand(order.getCreateTime());
         
-        TradeExecutionResult.Builder resultBuilder = TradeExecutionResult.builder()
-                .offset(offset);
+        TradeExecutionResult.Builder resultBuilder = newResultBuilder(offset);
         
-        // 如果是市价单
-        if (order.getType() == 5) {
-            processMarketOrder(order, resultBuilder);
-        } 
-        // 如果是限价单
-        else {
-            processLimitOrder(order, resultBuilder);
+        placeOrder(order, resultBuilder);
+        
+        // 更新订单簿的最后处理偏移量
+        orderBook.updateLastProcessedOffset(offset);
+        
+        // 生成订单簿更新
+        resultBuilder.orderBookUpdate(orderBook.generateUpdate(modifiedBidPrices, modifiedAskPrices))
+                .aggregatedDepthUpdates(orderBook.generateAggregatedUpdates())
+                .orderEvents(orderBook.generateOrderEvents())
+                .klines(orderBook.generateClosedKlines())
+                .tickerStatistics(periodicTickerStatistics());
+        
+        return resultBuilder.build();
+    }
+    
+    /**
+     * 批量处理新订单，按顺序撮合，整批只生成一个执行结果和一个合并后的订单簿更新
+     *
+     * @param command 批量下单命令
+     * @param offset  Kafka偏移量
+     * @return 交易执行结果
+     */
+    public TradeExecutionResult processBatchNewOrder(OrderCommand command, long offset) {
+        beginCommand(command.getTimestamp());
+        
+        TradeExecutionResult.Builder resultBuilder = newResultBuilder(offset);
+        
+        List<OrderCommand> orders = command.getOrders();
+        if (orders != null) {
+            for (OrderCommand orderCommand : orders) {
+                // 子订单未填写的交易对和时间戳沿用批量命令的值，属于其他交易对的子订单拒绝，不进入本订单簿
+                if (orderCommand.getSymbol() == null) {
+                    orderCommand.setSymbol(command.getSymbol());
+                } else if (!orderCommand.getSymbol().equals(symbolInfo.getSymbol())) {
+                    resultBuilder.addReject(reject(orderCommand.getOrderId(), orderCommand.getUserId(),
+                            orderCommand.getSide(), OrderReject.REASON_SYMBOL));
+                    continue;
+                }
+                if (orderCommand.getTimestamp() == null) {
+                    orderCommand.setTimestamp(command.getTimestamp());
+                }
+                placeOrder(OrderCommandUtils.toOrder(orderCommand), resultBuilder);
+            }
         }
         
         // 更新订单簿的最后处理偏移量
         orderBook.updateLastProcessedOffset(offset);
         
         // 生成订单簿更新
-        resultBuilder.orderBookUpdate(orderBook.generateUpdate(modifiedBidPrices, modifiedAskPrices));
+        resultBuilder.orderBookUpdate(orderBook.generateUpdate(modifiedBidPrices, modifiedAskPrices))
+                .aggregatedDepthUpdates(orderBook.generateAggregatedUpdates())
+                .orderEvents(orderBook.generateOrderEvents())
+                .klines(orderBook.generateClosedKlines())
+                .tickerStatistics(periodicTickerStatistics());
         
         return resultBuilder.build();
     }
     
+    /**
+     * 下单：未触发的止损单挂入止损单簿，其余订单立即执行，并处理由此触发的止损单
+     *
+     * @param order 订单
+     * @param resultBuilder 结果构建器
+     */
+    private void placeOrder(Order order, TradeExecutionResult.Builder resultBuilder) {
+        Long expireTime = order.getExpireTime();
+        // 下单时已过期的订单不参与撮合，输出过期结果以便下游解冻资金
+        if (expireTime != null && order.getCreateTime() != null && order.getCreateTime() >= expireTime) {
+            resultBuilder.addReject(reject(order.getId(), order.getUserId(), order.getSide(), OrderReject.REASON_EXPIRED));
+            return;
+        }
+        
+        // 小数位超出交易对精度时拒绝，不修改订单簿；堆外订单簿按精度保存整数，无法存放这样的价格和数量
+        if (!withinScale(order.getPrice(), symbolInfo.getPriceDecimal())
+                || !withinScale(order.getPriceStop(), symbolInfo.getPriceDecimal())
+                || !withinScale(order.getQuantity(), symbolInfo.getQuantityDecimal())) {
+            resultBuilder.addReject(reject(order.getId(), order.getUserId(), order.getSide(), OrderReject.REASON_PRECISION));
+            return;
+        }
+        
+        // 止损单必须带触发价
+        if (isStopOrder(order) && order.getPriceStop() == null) {
+            resultBuilder.addReject(reject(order.getId(), order.getUserId(), order.getSide(), OrderReject.REASON_STOP_PRICE));
+            return;
+        }
+        
+        // 止损单未触发时挂入止损单簿
+        if (isStopOrder(order) && !StopOrderBook.isTriggered(order, orderBook.getLastTradePrice())) {
+            orderBook.getStopOrders().add(order);
+        } else {
+            executeOrder(order, resultBuilder);
+        }
+        
+        // 在同一命令内依次执行被成交价触发的止损单
+        processTriggeredStops(resultBuilder);
+        
+        // 挂单或止损单留在簿中时登记过期时间，止损单触发后沿用同一登记
+        if (expireTime != null && (orderBook.getOrder(order.getId()) != null
+                || orderBook.getStopOrders().get(order.getId()) != null)) {
+            // 还没有带时间戳的命令推进过时间轮时，以下单时间开始计时
+            expiryWheel.start(order.getCreateTime() != null ? order.getCreateTime() : clock.getAsLong());
+            expiryWheel.schedule(order.getId(), expireTime);
+        }
+    }
+    
+    /**
+     * 执行订单，已触发的止损单按对应的限价单或市价单执行
+     *
+     * @param order 订单
+     * @param resultBuilder 结果构建器
+     */
+    private void executeOrder(Order order, TradeExecutionResult.Builder resultBuilder) {
+        if (isStopOrder(order)) {
+            activateStopOrder(order);
+        }
+        
+        // 如果是市价单
+        if (order.getType() == 5) {
+            processMarketOrder(order, resultBuilder);
+        } 
+        // 如果是限价单
+        else {
+            processLimitOrder(order, resultBuilder);
+        }
+    }
+    
+    /**
+     * 数值的小数位是否不超过精度，去掉末尾的0后比较
+     *
+     * @param value    数值，为空时视为合法
+     * @param decimals 小数位，为空时不限制
+     * @return 是否合法
+     */
+    private static boolean withinScale(BigDecimal value, Integer decimals) {
+        return value == null || decimals == null || value.stripTrailingZeros().scale() <= decimals;
+    }
+    
+    /**
+     * 构建订单拒绝结果
+     *
+     * @param orderId 订单ID
+     * @param userId  用户ID
+     * @param side    方向
+     * @param reason  拒绝原因
+     * @return 订单拒绝结果
+     */
+    private OrderReject reject(Long orderId, Long userId, Integer side, String reason) {
+        return OrderReject.builder()
+                .orderId(orderId)
+                .userId(userId)
+                .symbol(symbolInfo.getSymbol())
+                .side(side)
+                .reason(reason)
+                .timestamp(clock.getAsLong())
+                .build();
+    }
+    
+    /**
+     * 是否为止损单（6 止损限价 7 止损市价）
+     *
+     * @param order 订单
+     * @return 是否为止损单
+     */
+    private boolean isStopOrder(Order order) {
+        return order.getType() == 6 || order.getType() == 7;
+    }
+    
+    /**
+     * 止损单触发后转为限价单或市价单，触发价不再作为市价单的价格限制
+     *
+     * @param order 止损单
+     */
+    private void activateStopOrder(Order order) {
+        order.setType(order.getType() == 6 ? 1 : 5);
+        order.setPriceStop(null);
+    }
+    
+    /**
+     * 按成交顺序检查每个成交价触发的止损单并执行，执行过程中新产生的成交价继续参与检查
+     *
+     * @param resultBuilder 结果构建器
+     */
+    private void processTriggeredStops(TradeExecutionResult.Builder resultBuilder) {
+        StopOrderBook stopOrders = orderBook.getStopOrders();
+        List<Order> triggered = null;
+        while (!pendingTradePrices.isEmpty()) {
+            BigDecimal tradePrice = pendingTradePrices.pollFirst();
+            if (stopOrders.size() == 0) {
+                pendingTradePrices.clear();
+                return;
+            }
+            if (triggered == null) {
+                triggered = new ArrayList<>();
+            }
+            triggered.clear();
+            stopOrders.pollTriggered(tradePrice, triggered);
+            for (Order order : triggered) {
+                executeOrder(order, resultBuilder);
+            }
+        }
+    }
+    
     /**
      * 处理限价单
      *
@@ -75,6 +348,21 @@ public class MatchingEngine {
     private void processLimitOrder(Order order, TradeExecutionResult.Builder resultBuilder) {
         BigDecimal remainingQty = order.getQuantity();
         
+        // FOK和只做挂单在修改订单簿之前先检查可成交量，被拒绝时只输出拒绝结果，不产生任何成交和订单簿变化
+        if (order.getType() == 3 || order.getType() == 2) {
+            BigDecimal matchable = orderBook.getMatchableVolume(order.getSide(), order.getPrice(), remainingQty);
+            // FOK不能全部成交
+            if (order.getType() == 3 && matchable.compareTo(remainingQty) < 0) {
+                resultBuilder.addReject(reject(order.getId(), order.getUserId(), order.getSide(), OrderReject.REASON_FOK));
+                return;
+            }
+            // 只做挂单会立即成交
+            if (order.getType() == 2 && matchable.signum() > 0) {
+                resultBuilder.addReject(reject(order.getId(), order.getUserId(), order.getSide(), OrderReject.REASON_POST_ONLY));
+                return;
+            }
+        }
+        
         // 买单
         if (order.getSide() == 1) {
             // 尝试匹配卖单
@@ -116,6 +404,17 @@ public class MatchingEngine {
     private void processMarketOrder(Order order, TradeExecutionResult.Builder resultBuilder) {
         BigDecimal remainingQty = order.getQuantity();
         
+        // 现货市价买单按成交额上限换算出可买数量，委托量大于0时同时受委托量限制
+        if (order.getSide() == 1 && order.getVolumeMax() != null && order.getVolumeMax().signum() > 0) {
+            int quantityDecimal = symbolInfo.getQuantityDecimal() == null ? 8 : symbolInfo.getQuantityDecimal();
+            BigDecimal quoteQty = orderBook.getBuyQuantityForQuoteAmount(
+                    order.getVolumeMax(), getLimitPrice(order), quantityDecimal);
+            remainingQty = remainingQty == null || remainingQty.signum() <= 0 ? quoteQty : remainingQty.min(quoteQty);
+        }
+        if (remainingQty == null || remainingQty.signum() <= 0) {
+            return;
+        }
+        
         // 买单
         if (order.getSide() == 1) {
             // 尝试匹配卖单
@@ -130,6 +429,22 @@ public class MatchingEngine {
         // 市价单不会添加到订单簿
     }
     
+    /**
+     * 获取订单的成交价格限制
+     * <p>
+     * 限价单为委托价；市价单委托价为0，以priceStop作为买的上限、卖的下限，未设置时不限价。
+     *
+     * @param order 订单
+     * @return 价格限制，为null表示不限
+     */
+    private BigDecimal getLimitPrice(Order order) {
+        if (order.getType() == 5) {
+            BigDecimal priceStop = order.getPriceStop();
+            return priceStop != null && priceStop.signum() > 0 ? priceStop : null;
+        }
+        return order.getPrice();
+    }
+    
     /**
      * 与订单簿中的订单进行匹配
      *
@@ -144,8 +459,8 @@ public class MatchingEngine {
         // 获取对应的订单簿（买或卖）
         NavigableMap<BigDecimal, PriceBucket> bookSide = isBuyMatching ? orderBook.getBids() : orderBook.getAsks();
         
-        // 匹配价格上限或下限
-        BigDecimal limitPrice = takerOrder.getPrice();
+        // 匹配价格上限或下限，为null表示不限
+        BigDecimal limitPrice = getLimitPrice(takerOrder);
         
         // 持续匹配，直到没有可匹配的订单或剩余数量为0
         while (remainingQty.compareTo(BigDecimal.ZERO) > 0 && !bookSide.isEmpty()) {
@@ -153,8 +468,8 @@ public class MatchingEngine {
             BigDecimal bestPrice = bookSide.firstKey();
             
             // 检查价格是否满足条件（买单要价格大于等于卖单价格，卖单要价格小于等于买单价格）
-            if ((isBuyMatching && bestPrice.compareTo(limitPrice) < 0)
-                    || (!isBuyMatching && bestPrice.compareTo(limitPrice) > 0)) {
+            if (limitPrice != null && ((isBuyMatching && bestPrice.compareTo(limitPrice) < 0)
+                    || (!isBuyMatching && bestPrice.compareTo(limitPrice) > 0))) {
                 break;
             }
             
@@ -194,11 +509,11 @@ public class MatchingEngine {
                     .price(tradePrice)
                     .quantity(tradeQty)
                     .direction(takerOrder.getSide())
-                    .timestamp(System.currentTimeMillis())
+                    .timestamp(clock.getAsLong())
                     .build();
             
-            // 设置taker成交结果
-            resultBuilder.takerTradeResult(takerTradeResult);
+            // 添加taker成交结果
+            resultBuilder.addTakerTradeResult(takerTradeResult);
             
             // 添加maker成交结果
             resultBuilder.addMakerTradeResult(makerTradeResult);
@@ -209,13 +524,16 @@ public class MatchingEngine {
             // 更新剩余数量
             remainingQty = remainingQty.subtract(tradeQty);
             
-            // 更新maker订单的数量
-            boolean shouldRemoveMaker = bucket.executeTrade(tradeQty);
+            // 记录最新成交价，供止损单触发检查
+            orderBook.updateLastTradePrice(tradePrice);
+            pendingTradePrices.addLast(tradePrice);
             
-            // 如果maker订单已完全成交，则从订单簿中移除
-            if (shouldRemoveMaker) {
-                bookSide.remove(bestPrice);
-            }
+            // 累计K线和24小时行情统计
+            orderBook.updateKlines(tradePrice, tradeQty, publicTrade.getTimestamp());
+            ticker.onTrade(tradePrice, tradeQty, publicTrade.getTimestamp());
+            
+            // 更新maker订单的数量，价格桶为空时从订单簿中移除
+            orderBook.executeTrade(bucket, tradeQty);
             
             // 记录修改的价格等级
             if (isBuyMatching) {
@@ -223,11 +541,7 @@ public class MatchingEngine {
             } else {
                 modifiedAskPrices.add(bestPrice);
             }
-            
-            // 如果是FOK订单且不能完全成交，则返回原数量
-            if (takerOrder.getType() == 3 && remainingQty.compareTo(BigDecimal.ZERO) > 0) {
-                return takerOrder.getQuantity();
-            }
+        
         }
         
         return remainingQty;
@@ -282,9 +596,10 @@ public class MatchingEngine {
             userId = e.getUserId();
             symbol = symbolInfo.getSymbol();
             side = e.getSide();
-            action = 0; // 假设为现货
-            marginType = 0; // 假设为现货
-            marginMode = 0; // 假设为普通现货
+            // 旧快照恢复的挂单没有记录这些字段，按现货处理
+            action = e.getAction() == null ? 0 : e.getAction();
+            marginType = e.getMarginType() == null ? 0 : e.getMarginType();
+            marginMode = e.getMarginMode() == null ? 0 : e.getMarginMode();
             
             // 计算手续费
             if (side == 1) { // 买
@@ -317,7 +632,7 @@ public class MatchingEngine {
                 .marginType(marginType)
                 .marginMode(marginMode)
                 .isMaker(isMaker)
-                .timestamp(System.currentTimeMillis())
+                .timestamp(clock.getAsLong())
                 .build();
     }
     
@@ -329,18 +644,24 @@ public class MatchingEngine {
      * @return 交易执行结果
      */
     public TradeExecutionResult processCancelOrder(OrderCommand command, long offset) {
-        // 清空修改过的价格集合
-        modifiedBidPrices.clear();
-        modifiedAskPrices.clear();
+        beginCommand(command.getTimestamp());
         
         // 从订单簿中取消订单
         OrderBookEntry cancelledEntry = orderBook.cancelOrder(command.getOrderId());
         
+        // 不在订单簿中时尝试撤销未触发的止损单
+        if (cancelledEntry == null && orderBook.getStopOrders().remove(command.getOrderId()) != null) {
+            orderBook.updateLastProcessedOffset(offset);
+        }
+        
         // 如果订单不存在，返回空结果
         if (cancelledEntry == null) {
-            return TradeExecutionResult.builder()
-                    .offset(offset)
+            return newResultBuilder(offset)
                     .orderBookUpdate(orderBook.generateUpdate(modifiedBidPrices, modifiedAskPrices))
+                    .aggregatedDepthUpdates(orderBook.generateAggregatedUpdates())
+                    .orderEvents(orderBook.generateOrderEvents())
+                    .klines(orderBook.generateClosedKlines())
+                    .tickerStatistics(periodicTickerStatistics())
                     .build();
         }
         
@@ -355,9 +676,299 @@ public class MatchingEngine {
         orderBook.updateLastProcessedOffset(offset);
         
         // 构建结果
-        return TradeExecutionResult.builder()
-                .offset(offset)
+        return newResultBuilder(offset)
+                .orderBookUpdate(orderBook.generateUpdate(modifiedBidPrices, modifiedAskPrices))
+                .aggregatedDepthUpdates(orderBook.generateAggregatedUpdates())
+                .orderEvents(orderBook.generateOrderEvents())
+                .klines(orderBook.generateClosedKlines())
+                .tickerStatistics(periodicTickerStatistics())
+                .build();
+    }
+    
+    /**
+     * 批量撤销用户挂单，包括未触发的止损单，所有变化合并为一个订单簿更新
+     *
+     * @param userId    用户ID
+     * @param side      买卖方向（1买/2卖），为null表示两边都撤
+     * @param timestamp 命令时间戳，用于推进订单过期
+     * @param offset    Kafka偏移量
+     * @return 交易执行结果
+     */
+    public TradeExecutionResult processMassCancel(Long userId, Integer side, Long timestamp, long offset) {
+        beginCommand(timestamp);
+        
+        if (userId != null) {
+            for (OrderBookEntry entry : orderBook.cancelUserOrders(userId, side)) {
+                // 记录修改的价格等级
+                if (entry.getSide() == 1) {
+                    modifiedBidPrices.add(entry.getPrice());
+                } else {
+                    modifiedAskPrices.add(entry.getPrice());
+                }
+            }
+            orderBook.getStopOrders().removeUserOrders(userId, side);
+        }
+        
+        // 更新订单簿的最后处理偏移量
+        orderBook.updateLastProcessedOffset(offset);
+        
+        return newResultBuilder(offset)
+                .orderBookUpdate(orderBook.generateUpdate(modifiedBidPrices, modifiedAskPrices))
+                .aggregatedDepthUpdates(orderBook.generateAggregatedUpdates())
+                .orderEvents(orderBook.generateOrderEvents())
+                .klines(orderBook.generateClosedKlines())
+                .tickerStatistics(periodicTickerStatistics())
+                .build();
+    }
+    
+    /**
+     * 处理改单请求
+     * <p>
+     * 价格不变且数量减少时原地修改，保留排队优先级；数量增加时移到该价格队尾；
+     * 改价时在同一命令内撤掉原单并以新价格重新撮合，可能立即成交；只做挂单改价后会立即成交时拒绝改单。新数量不大于0时等同撤单。
+     *
+     * @param command 改单命令
+     * @param offset  Kafka偏移量
+     * @return 交易执行结果
+     */
+    public TradeExecutionResult processAmendOrder(OrderCommand command, long offset) {
+        beginCommand(command.getTimestamp());
+        
+        TradeExecutionResult.Builder resultBuilder = newResultBuilder(offset);
+        
+        OrderBookEntry entry = orderBook.getOrder(command.getOrderId());
+        BigDecimal newQuantity = command.getQuantity();
+        if (entry != null && newQuantity != null
+                && (!withinScale(command.getPrice(), symbolInfo.getPriceDecimal())
+                || !withinScale(newQuantity, symbolInfo.getQuantityDecimal()))) {
+            // 小数位超出交易对精度时拒绝改单，原挂单不变
+            resultBuilder.addReject(reject(entry.getOrderId(), entry.getUserId(), entry.getSide(), OrderReject.REASON_PRECISION));
+        } else if (entry != null && newQuantity != null) {
+            BigDecimal newPrice = command.getPrice() == null ? entry.getPrice() : command.getPrice();
+            Set<BigDecimal> modifiedPrices = entry.getSide() == 1 ? modifiedBidPrices : modifiedAskPrices;
+            
+            if (entry.getOrderType() == 2 && newQuantity.signum() > 0 && newPrice.compareTo(entry.getPrice()) != 0
+                    && orderBook.getMatchableVolume(entry.getSide(), newPrice, newQuantity).signum() > 0) {
+                // 只做挂单改价后会立即成交时拒绝改单，原挂单不变
+                resultBuilder.addReject(reject(entry.getOrderId(), entry.getUserId(), entry.getSide(), OrderReject.REASON_POST_ONLY));
+            } else if (newPrice.compareTo(entry.getPrice()) == 0
+                    && newQuantity.signum() > 0 && newQuantity.compareTo(entry.getQuantity()) < 0) {
+                // 原地减量
+                orderBook.reduceOrder(entry.getOrderId(), newQuantity);
+                modifiedPrices.add(entry.getPrice());
+            } else {
+                // 撤掉原单，按新价格和数量重新下单
+                orderBook.cancelOrder(entry.getOrderId());
+                modifiedPrices.add(entry.getPrice());
+                if (newQuantity.signum() > 0) {
+                    executeOrder(toReplacementOrder(entry, newPrice, newQuantity, command.getTimestamp()), resultBuilder);
+                    processTriggeredStops(resultBuilder);
+                }
+            }
+        }
+        
+        // 更新订单簿的最后处理偏移量
+        orderBook.updateLastProcessedOffset(offset);
+        
+        return resultBuilder
+                .orderBookUpdate(orderBook.generateUpdate(modifiedBidPrices, modifiedAskPrices))
+                .aggregatedDepthUpdates(orderBook.generateAggregatedUpdates())
+                .orderEvents(orderBook.generateOrderEvents())
+                .klines(orderBook.generateClosedKlines())
+                .tickerStatistics(periodicTickerStatistics())
+                .build();
+    }
+    
+    /**
+     * 根据原挂单构建改价或加量后的新订单，订单ID不变
+     *
+     * @param entry     原挂单
+     * @param price     新价格
+     * @param quantity  新数量
+     * @param timestamp 改单时间
+     * @return 新订单
+     */
+    private Order toReplacementOrder(OrderBookEntry entry, BigDecimal price, BigDecimal quantity, Long timestamp) {
+        Order order = new Order();
+        order.setId(entry.getOrderId());
+        order.setUserId(entry.getUserId());
+        order.setSymbol(symbolInfo.getSymbol());
+        order.setType(entry.getOrderType());
+        order.setPrice(price);
+        order.setQuantity(quantity);
+        order.setQuantityLeft(quantity);
+        order.setQuantityDone(BigDecimal.ZERO);
+        order.setSide(entry.getSide());
+        order.setAction(entry.getAction());
+        order.setMarginType(entry.getMarginType());
+        order.setMarginMode(entry.getMarginMode());
+        order.setStatus(2); // 挂单中
+        order.setExpireTime(entry.getExpireTime());
+        order.setCreateTime(timestamp == null ? entry.getTimestamp() : timestamp);
+        order.setUpdateTime(order.getCreateTime());
+        return order;
+    }
+    
+    /**
+     * 处理时钟推进命令，撤销到期订单，所有变化合并为一个订单簿更新
+     *
+     * @param timestamp 命令时间戳
+     * @param offset    Kafka偏移量
+     * @return 交易执行结果
+     */
+    public TradeExecutionResult processTick(Long timestamp, long offset) {
+        beginCommand(timestamp);
+        
+        // 更新订单簿的最后处理偏移量
+        orderBook.updateLastProcessedOffset(offset);
+        
+        return newResultBuilder(offset)
                 .orderBookUpdate(orderBook.generateUpdate(modifiedBidPrices, modifiedAskPrices))
+                .aggregatedDepthUpdates(orderBook.generateAggregatedUpdates())
+                .orderEvents(orderBook.generateOrderEvents())
+                .klines(orderBook.generateClosedKlines())
+                .tickerStatistics(periodicTickerStatistics())
                 .build();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 按订单簿中的挂单和止损单重建过期时间轮，用于从快照恢复后
+     * <p>
+     * 时间轮从快照时间开始计时，快照时已过期的订单在下一条带时间戳的命令到来时撤销。
+     *
+     * @param now 快照时间（毫秒）
+     */
+    public void rebuildExpiryWheel(long now) {
+        expiryWheel.clear();
+        expiryWheel.start(now);
+        for (OrderBookEntry entry : orderBook.getOrders()) {
+            if (entry.getExpireTime() != null) {
+                expiryWheel.schedule(entry.getOrderId(), entry.getExpireTime());
+            }
+        }
+        for (Order order : orderBook.getStopOrders().getOrders()) {
+            if (order.getExpireTime() != null) {
+                expiryWheel.schedule(order.getId(), order.getExpireTime());
+            }
+        }
+    }
+    
+    /**
+     * 生成快照，只能在撮合线程调用或撮合线程停止后调用
+     *
+     * @return 快照
+     */
+    public OrderBookSnapshot snapshot() {
+        return orderBook.snapshot(symbolInfo.getPartition(), tradeIdGenerator.get());
+    }
+    
+    /**
+     * 替换交易对信息（手续费、精度等），可在任意线程调用，撮合线程在处理下一条命令前整体替换，
+     * 同一条命令内不会看到新旧混合的配置
+     *
+     * @param symbol 新的交易对信息
+     */
+    public void updateSymbolInfo(Symbol symbol) {
+        pendingSymbolInfo.set(symbol);
+    }
+    
+    /**
+     * 刷新24小时行情统计，有变化时发布新的统计供其他线程读取，只能在撮合线程调用
+     */
+    public void refreshTickerStatistics() {
+        TickerStatistics statistics = ticker.snapshotIfChanged(symbolInfo.getSymbol(), clock.getAsLong());
+        if (statistics != null) {
+            this.tickerStatistics = statistics;
+        }
+    }
+    
+    /**
+     * 距上次随撮合结果发布已超过间隔时生成24小时行情统计
+     *
+     * @return 行情统计，未到间隔或未开启时返回null
+     */
+    private TickerStatistics periodicTickerStatistics() {
+        if (tickerPublishIntervalMs <= 0) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (now - lastTickerPublishTime < tickerPublishIntervalMs) {
+            return null;
+        }
+        lastTickerPublishTime = now;
+        TickerStatistics statistics = ticker.snapshot(symbolInfo.getSymbol(), now);
+        this.tickerStatistics = statistics;
+        return statistics;
+    }
+    
+    /**
+     * 开始处理一条命令：应用待生效的交易对信息，清空本次命令的变化记录，并按命令时间戳撤销到期订单，
+     * 到期撤单的价格变化并入本次命令的订单簿更新
+     *
+     * @param timestamp 命令时间戳，为空时不推进时间轮
+     */
+    private void beginCommand(Long timestamp) {
+        if (pendingSymbolInfo.get() != null) {
+            symbolInfo = pendingSymbolInfo.getAndSet(null);
+        }
+        
+        // 清空修改过的价格集合
+        modifiedBidPrices.clear();
+        modifiedAskPrices.clear();
+        
+        pendingTradePrices.clear();
+        
+        expiredOrders.clear();
+        if (timestamp != null) {
+            expiryWheel.advance(timestamp, this::expireOrder);
+        }
+        
+        // K线按成交时间的同一时间来源收盘，空闲时由TICK命令推进
+        orderBook.advanceKlines(clock.getAsLong());
+    }
+    
+    /**
+     * 创建本次命令的结果构建器，带上开始处理命令时到期撤销的订单
+     *
+     * @param offset Kafka偏移量
+     * @return 结果构建器
+     */
+    private TradeExecutionResult.Builder newResultBuilder(long offset) {
+        TradeExecutionResult.Builder resultBuilder = TradeExecutionResult.builder()
+                .offset(offset);
+        for (OrderReject expired : expiredOrders) {
+            resultBuilder.addReject(expired);
+        }
+        return resultBuilder;
+    }
+    
+    /**
+     * 到期回调，订单已成交、已撤销或已被改单替换为其他过期时间时忽略
+     * <p>
+     * 挂单和未触发的止损单到期时各输出一条过期结果，与拒绝结果走同一按用户分区的路径，下游据此解冻资金并结束订单。
+     *
+     * @param orderId    订单ID
+     * @param expireTime 登记时的过期时间
+     */
+    private void expireOrder(long orderId, long expireTime) {
+        OrderBookEntry entry = orderBook.getOrder(orderId);
+        if (entry != null) {
+            if (entry.getExpireTime() != null && entry.getExpireTime() == expireTime) {
+                orderBook.cancelOrder(orderId);
+                // 记录修改的价格等级
+                if (entry.getSide() == 1) {
+                    modifiedBidPrices.add(entry.getPrice());
+                } else {
+                    modifiedAskPrices.add(entry.getPrice());
+                }
+                expiredOrders.add(reject(orderId, entry.getUserId(), entry.getSide(), OrderReject.REASON_EXPIRED));
+            }
+            return;
+        }
+        Order stopOrder = orderBook.getStopOrders().get(orderId);
+        if (stopOrder != null && stopOrder.getExpireTime() != null && stopOrder.getExpireTime() == expireTime) {
+            orderBook.getStopOrders().remove(orderId);
+            expiredOrders.add(reject(orderId, stopOrder.getUserId(), stopOrder.getSide(), OrderReject.REASON_EXPIRED));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.dto.TickerStatistics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * 24小时滚动行情统计，按分钟分桶的环形数组
+ * <p>
+ * 每笔成交只更新当前分钟的桶和窗口累计值；时间推进时逐分钟淘汰窗口外的桶并扣减累计值，
+ * 被淘汰的桶恰好是最高价或最低价所在的桶时才重新扫描一遍，读取为O(1)。窗口为最近1440个自然分钟，包含当前分钟。
+ * 只在撮合线程中使用。
+ */
+class RollingTicker {
+    private static final long BUCKET_MS = 60_000L;
+    private static final int BUCKETS = 1440;
+
+    // 环形数组，下标为分钟数对BUCKETS取模；minute为-1表示空桶
+    private final long[] minutes = new long[BUCKETS];
+    private final BigDecimal[] opens = new BigDecimal[BUCKETS];
+    private final BigDecimal[] highs = new BigDecimal[BUCKETS];
+    private final BigDecimal[] lows = new BigDecimal[BUCKETS];
+    private final BigDecimal[] volumes = new BigDecimal[BUCKETS];
+    private final BigDecimal[] quoteVolumes = new BigDecimal[BUCKETS];
+    private final long[] tradeCounts = new long[BUCKETS];
+
+    // 窗口累计值
+    private BigDecimal volume = BigDecimal.ZERO;
+    private BigDecimal quoteVolume = BigDecimal.ZERO;
+    private long tradeCount;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal lastPrice;
+    private long currentMinute = Long.MIN_VALUE; // 已推进到的分钟
+    private long oldestMinute = Long.MAX_VALUE; // 窗口内最早有成交的分钟
+    private boolean dirty = true; // 自上次生成统计以来是否有变化
+
+    RollingTicker() {
+        Arrays.fill(minutes, -1L);
+    }
+
+    /**
+     * 累计一笔成交
+     *
+     * @param price     成交价
+     * @param quantity  成交量
+     * @param timestamp 成交时间
+     */
+    void onTrade(BigDecimal price, BigDecimal quantity, long timestamp) {
+        advance(timestamp);
+        // 时间回拨时计入当前分钟
+        long minute = Math.max(Math.floorDiv(timestamp, BUCKET_MS), currentMinute);
+        int slot = (int) Math.floorMod(minute, (long) BUCKETS);
+        BigDecimal amount = price.multiply(quantity);
+        if (minutes[slot] != minute) {
+            minutes[slot] = minute;
+            opens[slot] = price;
+            highs[slot] = price;
+            lows[slot] = price;
+            volumes[slot] = quantity;
+            quoteVolumes[slot] = amount;
+            tradeCounts[slot] = 1;
+            oldestMinute = Math.min(oldestMinute, minute);
+        } else {
+            highs[slot] = highs[slot].max(price);
+            lows[slot] = lows[slot].min(price);
+            volumes[slot] = volumes[slot].add(quantity);
+            quoteVolumes[slot] = quoteVolumes[slot].add(amount);
+            tradeCounts[slot]++;
+        }
+        volume = volume.add(quantity);
+        quoteVolume = quoteVolume.add(amount);
+        tradeCount++;
+        high = high == null ? price : high.max(price);
+        low = low == null ? price : low.min(price);
+        lastPrice = price;
+        dirty = true;
+    }
+
+    /**
+     * 推进时间，淘汰窗口外的分钟桶
+     *
+     * @param now 当前时间
+     */
+    void advance(long now) {
+        long minute = Math.floorDiv(now, BUCKET_MS);
+        if (minute <= currentMinute) {
+            return;
+        }
+        long previous = currentMinute;
+        currentMinute = minute;
+        if (tradeCount == 0) {
+            return;
+        }
+        long windowStart = minute - BUCKETS + 1;
+        if (minute - previous >= BUCKETS) {
+            // 跳过了整个窗口，直接重算
+            rescan();
+            return;
+        }
+        boolean rescan = false;
+        // 新进入窗口的分钟所在的槽位保存的是BUCKETS分钟之前的数据
+        for (long m = previous + 1; m <= minute; m++) {
+            int slot = (int) Math.floorMod(m, (long) BUCKETS);
+            if (minutes[slot] == -1L || minutes[slot] >= windowStart) {
+                continue;
+            }
+            volume = volume.subtract(volumes[slot]);
+            quoteVolume = quoteVolume.subtract(quoteVolumes[slot]);
+            tradeCount -= tradeCounts[slot];
+            rescan |= highs[slot].compareTo(high) == 0 || lows[slot].compareTo(low) == 0;
+            clearSlot(slot);
+            dirty = true;
+        }
+        if (rescan) {
+            rescan();
+        } else if (oldestMinute < windowStart) {
+            // 最早的桶被淘汰，向后找下一个有成交的分钟
+            oldestMinute = Long.MAX_VALUE;
+            for (long m = windowStart; m <= minute; m++) {
+                if (minutes[(int) Math.floorMod(m, (long) BUCKETS)] == m) {
+                    oldestMinute = m;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成统计，没有变化时返回null
+     *
+     * @param symbol 交易对
+     * @param now    当前时间
+     * @return 统计，没有变化时返回null
+     */
+    TickerStatistics snapshotIfChanged(String symbol, long now) {
+        advance(now);
+        if (!dirty) {
+            return null;
+        }
+        return snapshot(symbol, now);
+    }
+
+    /**
+     * 生成统计
+     *
+     * @param symbol 交易对
+     * @param now    当前时间
+     * @return 统计
+     */
+    TickerStatistics snapshot(String symbol, long now) {
+        advance(now);
+        dirty = false;
+        BigDecimal openPrice = null;
+        if (tradeCount > 0) {
+            openPrice = opens[(int) Math.floorMod(oldestMinute, (long) BUCKETS)];
+        }
+        BigDecimal priceChange = null;
+        BigDecimal priceChangePercent = null;
+        if (openPrice != null && lastPrice != null) {
+            priceChange = lastPrice.subtract(openPrice);
+            if (openPrice.signum() != 0) {
+                priceChangePercent = priceChange.multiply(BigDecimal.valueOf(100))
+                        .divide(openPrice, 4, RoundingMode.HALF_UP);
+            }
+        }
+        return TickerStatistics.builder()
+                .symbol(symbol)
+                .lastPrice(lastPrice)
+                .openPrice(openPrice)
+                .highPrice(tradeCount > 0 ? high : null)
+                .lowPrice(tradeCount > 0 ? low : null)
+                .volume(volume)
+                .quoteVolume(quoteVolume)
+                .tradeCount(tradeCount)
+                .priceChange(priceChange)
+                .priceChangePercent(priceChangePercent)
+                .openTime((currentMinute - BUCKETS + 1) * BUCKET_MS)
+                .timestamp(now)
+                .build();
+    }
+
+    /**
+     * 清除窗口外的桶，重新计算最高价、最低价和最早成交分钟
+     */
+    private void rescan() {
+        long windowStart = currentMinute - BUCKETS + 1;
+        high = null;
+        low = null;
+        oldestMinute = Long.MAX_VALUE;
+        volume = BigDecimal.ZERO;
+        quoteVolume = BigDecimal.ZERO;
+        tradeCount = 0;
+        for (int slot = 0; slot < BUCKETS; slot++) {
+            if (minutes[slot] == -1L) {
+                continue;
+            }
+            if (minutes[slot] < windowStart) {
+                clearSlot(slot);
+                continue;
+            }
+            high = high == null ? highs[slot] : high.max(highs[slot]);
+            low = low == null ? lows[slot] : low.min(lows[slot]);
+            oldestMinute = Math.min(oldestMinute, minutes[slot]);
+            volume = volume.add(volumes[slot]);
+            quoteVolume = quoteVolume.add(quoteVolumes[slot]);
+            tradeCount += tradeCounts[slot];
+        }
+        dirty = true;
+    }
+
+    private void clearSlot(int slot) {
+        minutes[slot] = -1L;
+        opens[slot] = null;
+        highs[slot] = null;
+        lows[slot] = null;
+        volumes[slot] = null;
+        quoteVolumes[slot] = null;
+        tradeCounts[slot] = 0;
+    }
+}
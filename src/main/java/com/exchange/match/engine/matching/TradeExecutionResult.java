@@ -1,11 +1,17 @@
 package com.exchange.match.engine.matching;
 
+import com.exchange.match.engine.dto.AggregatedDepthUpdate;
+import com.exchange.match.engine.dto.Kline;
 import com.exchange.match.engine.dto.OrderBookUpdate;
+import com.exchange.match.engine.dto.OrderEventBatch;
+import com.exchange.match.engine.dto.OrderReject;
 import com.exchange.match.engine.dto.PublicTradeRecord;
+import com.exchange.match.engine.dto.TickerStatistics;
 import com.exchange.match.engine.dto.TradeResult;
 import lombok.Getter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -13,8 +19,8 @@ import java.util.List;
  */
 @Getter
 public class TradeExecutionResult {
-    // taker的成交结果
-    private final TradeResult takerTradeResult;
+    // taker的成交结果，一笔订单吃掉多笔挂单或触发止损单时有多条
+    private final List<TradeResult> takerTradeResults;
     
     // maker的成交结果列表
     private final List<TradeResult> makerTradeResults;
@@ -22,17 +28,37 @@ public class TradeExecutionResult {
     // 公共成交记录
     private final List<PublicTradeRecord> publicTrades;
     
+    // 被拒绝的订单
+    private final List<OrderReject> rejects;
+    
     // 订单簿更新
     private final OrderBookUpdate orderBookUpdate;
     
+    // 聚合深度更新
+    private final List<AggregatedDepthUpdate> aggregatedDepthUpdates;
+    
+    // 逐笔委托事件，未开启或没有事件时为null
+    private final OrderEventBatch orderEvents;
+    
+    // 本次命令期间收盘的K线
+    private final List<Kline> klines;
+    
+    // 24小时行情统计，只在到达发布间隔时设置
+    private final TickerStatistics tickerStatistics;
+    
     // Kafka偏移量
     private final Long offset;
     
     private TradeExecutionResult(Builder builder) {
-        this.takerTradeResult = builder.takerTradeResult;
+        this.takerTradeResults = builder.takerTradeResults;
         this.makerTradeResults = builder.makerTradeResults;
         this.publicTrades = builder.publicTrades;
+        this.rejects = builder.rejects;
         this.orderBookUpdate = builder.orderBookUpdate;
+        this.aggregatedDepthUpdates = builder.aggregatedDepthUpdates;
+        this.orderEvents = builder.orderEvents;
+        this.klines = builder.klines;
+        this.tickerStatistics = builder.tickerStatistics;
         this.offset = builder.offset;
     }
     
@@ -49,23 +75,28 @@ public class TradeExecutionResult {
      * 交易执行结果构建器
      */
     public static class Builder {
-        private TradeResult takerTradeResult;
+        private List<TradeResult> takerTradeResults = new ArrayList<>();
         private List<TradeResult> makerTradeResults = new ArrayList<>();
         private List<PublicTradeRecord> publicTrades = new ArrayList<>();
+        private List<OrderReject> rejects = Collections.emptyList();
         private OrderBookUpdate orderBookUpdate;
+        private List<AggregatedDepthUpdate> aggregatedDepthUpdates = Collections.emptyList();
+        private OrderEventBatch orderEvents;
+        private List<Kline> klines = Collections.emptyList();
+        private TickerStatistics tickerStatistics;
         private Long offset;
         
         private Builder() {
         }
         
         /**
-         * 设置taker的成交结果
+         * 添加taker的成交结果
          *
          * @param takerTradeResult taker的成交结果
          * @return Builder对象
          */
-        public Builder takerTradeResult(TradeResult takerTradeResult) {
-            this.takerTradeResult = takerTradeResult;
+        public Builder addTakerTradeResult(TradeResult takerTradeResult) {
+            this.takerTradeResults.add(takerTradeResult);
             return this;
         }
         
@@ -91,6 +122,20 @@ public class TradeExecutionResult {
             return this;
         }
         
+        /**
+         * 添加订单拒绝结果
+         *
+         * @param reject 订单拒绝结果
+         * @return Builder对象
+         */
+        public Builder addReject(OrderReject reject) {
+            if (this.rejects.isEmpty()) {
+                this.rejects = new ArrayList<>();
+            }
+            this.rejects.add(reject);
+            return this;
+        }
+        
         /**
          * 设置订单簿更新
          *
@@ -102,6 +147,50 @@ public class TradeExecutionResult {
             return this;
         }
         
+        /**
+         * 设置聚合深度更新
+         *
+         * @param aggregatedDepthUpdates 聚合深度更新
+         * @return Builder对象
+         */
+        public Builder aggregatedDepthUpdates(List<AggregatedDepthUpdate> aggregatedDepthUpdates) {
+            this.aggregatedDepthUpdates = aggregatedDepthUpdates;
+            return this;
+        }
+        
+        /**
+         * 设置逐笔委托事件
+         *
+         * @param orderEvents 逐笔委托事件
+         * @return Builder对象
+         */
+        public Builder orderEvents(OrderEventBatch orderEvents) {
+            this.orderEvents = orderEvents;
+            return this;
+        }
+        
+        /**
+         * 设置收盘的K线
+         *
+         * @param klines 收盘的K线
+         * @return Builder对象
+         */
+        public Builder klines(List<Kline> klines) {
+            this.klines = klines;
+            return this;
+        }
+        
+        /**
+         * 设置24小时行情统计
+         *
+         * @param tickerStatistics 24小时行情统计
+         * @return Builder对象
+         */
+        public Builder tickerStatistics(TickerStatistics tickerStatistics) {
+            this.tickerStatistics = tickerStatistics;
+            return this;
+        }
+        
         /**
          * 设置Kafka偏移量
          *
@@ -8,6 +8,8 @@ import java.math.BigDecimal;
  */
 @Data
 public class Symbol {
+    public static final int STATUS_OFFLINE = 2;
+    
     private Integer id;
     private String symbol;
     private Integer type; // 1现货 2 交割合约 3 永续合约
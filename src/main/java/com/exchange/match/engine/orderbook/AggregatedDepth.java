@@ -0,0 +1,110 @@
+package com.exchange.match.engine.orderbook;
+
+import com.exchange.match.engine.dto.AggregatedDepthUpdate;
+import com.exchange.match.engine.dto.OrderBookEntry;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 多粒度聚合深度，随价格档位数量变化增量维护
+ * <p>
+ * 价格换算为最小价格单位个数后按分组大小取整：买盘向下取整，卖盘向上取整，
+ * 保证聚合后的买卖盘不会交叉。每次档位变化只更新各分组的一个条目。
+ */
+class AggregatedDepth {
+    private final int priceDecimal;
+    private final int[] groupTicks;
+    // 每个分组粒度一份：分组键 -> 数量
+    private final List<Map<Long, BigDecimal>> bidGroups = new ArrayList<>();
+    private final List<Map<Long, BigDecimal>> askGroups = new ArrayList<>();
+    // 每个分组粒度自上次生成更新以来修改过的分组键
+    private final List<Set<Long>> modifiedBidGroups = new ArrayList<>();
+    private final List<Set<Long>> modifiedAskGroups = new ArrayList<>();
+    
+    /**
+     * 构造函数
+     *
+     * @param priceDecimal 价格小数位
+     * @param groupTicks   分组大小列表（最小价格单位个数）
+     */
+    AggregatedDepth(int priceDecimal, int[] groupTicks) {
+        this.priceDecimal = priceDecimal;
+        this.groupTicks = groupTicks.clone();
+        for (int i = 0; i < groupTicks.length; i++) {
+            bidGroups.add(new HashMap<>());
+            askGroups.add(new HashMap<>());
+            modifiedBidGroups.add(new HashSet<>());
+            modifiedAskGroups.add(new HashSet<>());
+        }
+    }
+    
+    /**
+     * 档位数量变化
+     *
+     * @param side  买卖方向（1买/2卖）
+     * @param price 价格
+     * @param delta 数量变化，可为负
+     */
+    void onVolumeChange(int side, BigDecimal price, BigDecimal delta) {
+        if (delta.signum() == 0) {
+            return;
+        }
+        long ticks = price.movePointRight(priceDecimal).setScale(0, RoundingMode.FLOOR).longValue();
+        boolean bid = side == 1;
+        for (int i = 0; i < groupTicks.length; i++) {
+            long group = bid ? Math.floorDiv(ticks, groupTicks[i]) : -Math.floorDiv(-ticks, groupTicks[i]);
+            Map<Long, BigDecimal> groups = bid ? bidGroups.get(i) : askGroups.get(i);
+            BigDecimal volume = groups.merge(group, delta, BigDecimal::add);
+            if (volume.signum() <= 0) {
+                groups.remove(group);
+            }
+            (bid ? modifiedBidGroups.get(i) : modifiedAskGroups.get(i)).add(group);
+        }
+    }
+    
+    /**
+     * 生成各分组粒度自上次调用以来的更新，并清空修改记录
+     *
+     * @param symbol     交易对
+     * @param lastOffset 最后处理的offset
+     * @param timestamp  时间戳
+     * @return 聚合深度更新列表，没有变化的粒度不生成
+     */
+    List<AggregatedDepthUpdate> generateUpdates(String symbol, long lastOffset, long timestamp) {
+        List<AggregatedDepthUpdate> updates = new ArrayList<>();
+        for (int i = 0; i < groupTicks.length; i++) {
+            Set<Long> modifiedBids = modifiedBidGroups.get(i);
+            Set<Long> modifiedAsks = modifiedAskGroups.get(i);
+            if (modifiedBids.isEmpty() && modifiedAsks.isEmpty()) {
+                continue;
+            }
+            updates.add(AggregatedDepthUpdate.builder()
+                    .symbol(symbol)
+                    .groupTicks(groupTicks[i])
+                    .bids(toEntries(modifiedBids, bidGroups.get(i), groupTicks[i]))
+                    .asks(toEntries(modifiedAsks, askGroups.get(i), groupTicks[i]))
+                    .lastOffset(lastOffset)
+                    .timestamp(timestamp)
+                    .build());
+            modifiedBids.clear();
+            modifiedAsks.clear();
+        }
+        return updates;
+    }
+    
+    private List<OrderBookEntry> toEntries(Set<Long> modified, Map<Long, BigDecimal> groups, int ticksPerGroup) {
+        List<OrderBookEntry> entries = new ArrayList<>(modified.size());
+        for (Long group : modified) {
+            BigDecimal price = BigDecimal.valueOf(group * ticksPerGroup, priceDecimal);
+            entries.add(new OrderBookEntry(price, groups.getOrDefault(group, BigDecimal.ZERO), null, null));
+        }
+        return entries;
+    }
+}
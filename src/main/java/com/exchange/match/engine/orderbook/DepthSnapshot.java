@@ -0,0 +1,49 @@
+package com.exchange.match.engine.orderbook;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 不可变的盘口深度快照，由撮合线程发布，任意线程可无锁读取
+ */
+@Getter
+public class DepthSnapshot {
+    private final String symbol; // 交易对
+    private final List<DepthLevel> bids; // 买盘，价格降序
+    private final List<DepthLevel> asks; // 卖盘，价格升序
+    private final long lastOffset; // 快照对应的最后处理offset
+    private final long timestamp; // 快照时间戳
+    
+    /**
+     * 价格档位
+     */
+    public record DepthLevel(BigDecimal price, BigDecimal quantity) {
+    }
+    
+    public DepthSnapshot(String symbol, List<DepthLevel> bids, List<DepthLevel> asks, long lastOffset, long timestamp) {
+        this.symbol = symbol;
+        this.bids = Collections.unmodifiableList(bids);
+        this.asks = Collections.unmodifiableList(asks);
+        this.lastOffset = lastOffset;
+        this.timestamp = timestamp;
+    }
+    
+    /**
+     * 截取前limit档，不复制档位数据
+     *
+     * @param limit 档位数
+     * @return 深度快照
+     */
+    public DepthSnapshot limit(int limit) {
+        if (limit >= bids.size() && limit >= asks.size()) {
+            return this;
+        }
+        return new DepthSnapshot(symbol,
+                bids.subList(0, Math.min(limit, bids.size())),
+                asks.subList(0, Math.min(limit, asks.size())),
+                lastOffset, timestamp);
+    }
+}
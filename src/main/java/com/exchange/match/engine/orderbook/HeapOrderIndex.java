@@ -0,0 +1,82 @@
+package com.exchange.match.engine.orderbook;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 堆内挂单存储，订单条目以对象形式保存，队列和索引共享同一个条目对象
+ */
+class HeapOrderIndex implements OrderIndex {
+    // 订单ID到订单条目的映射
+    private final Map<Long, OrderBookEntry> orderMap = new HashMap<>();
+    // 用户ID到该用户挂单的映射，按挂单顺序
+    private final Map<Long, Map<Long, OrderBookEntry>> userOrders = new HashMap<>();
+
+    @Override
+    public void put(OrderBookEntry entry) {
+        orderMap.put(entry.getOrderId(), entry);
+        userOrders.computeIfAbsent(entry.getUserId(), userId -> new LinkedHashMap<>()).put(entry.getOrderId(), entry);
+    }
+
+    @Override
+    public OrderBookEntry get(Long orderId) {
+        return orderMap.get(orderId);
+    }
+
+    @Override
+    public OrderBookEntry remove(Long orderId) {
+        OrderBookEntry entry = orderMap.remove(orderId);
+        if (entry == null) {
+            return null;
+        }
+        Map<Long, OrderBookEntry> orders = userOrders.get(entry.getUserId());
+        if (orders != null) {
+            orders.remove(orderId);
+            if (orders.isEmpty()) {
+                userOrders.remove(entry.getUserId());
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public List<OrderBookEntry> getUserOrders(Long userId, Integer side) {
+        Map<Long, OrderBookEntry> orders = userOrders.get(userId);
+        if (orders == null) {
+            return Collections.emptyList();
+        }
+        List<OrderBookEntry> result = new ArrayList<>(orders.size());
+        for (OrderBookEntry entry : orders.values()) {
+            if (side == null || side.equals(entry.getSide())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<OrderBookEntry> values() {
+        return Collections.unmodifiableCollection(orderMap.values());
+    }
+
+    @Override
+    public int size() {
+        return orderMap.size();
+    }
+
+    @Override
+    public OrderQueue newQueue() {
+        return new HeapOrderQueue();
+    }
+
+    @Override
+    public void clear() {
+        orderMap.clear();
+        userOrders.clear();
+    }
+}
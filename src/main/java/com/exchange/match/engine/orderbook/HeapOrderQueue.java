@@ -0,0 +1,70 @@
+package com.exchange.match.engine.orderbook;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 堆内价格档位队列，LinkedHashMap按插入顺序保存订单条目
+ */
+class HeapOrderQueue implements OrderQueue {
+    private final Map<Long, OrderBookEntry> orders = new LinkedHashMap<>(); // 订单ID -> 订单条目映射
+
+    @Override
+    public void addLast(OrderBookEntry entry) {
+        orders.put(entry.getOrderId(), entry);
+    }
+
+    @Override
+    public OrderBookEntry remove(Long orderId) {
+        return orders.remove(orderId);
+    }
+
+    @Override
+    public OrderBookEntry peekFirst() {
+        if (orders.isEmpty()) {
+            return null;
+        }
+        return orders.values().iterator().next();
+    }
+
+    @Override
+    public BigDecimal setQuantity(Long orderId, BigDecimal newQuantity) {
+        OrderBookEntry entry = orders.get(orderId);
+        if (entry == null) {
+            return null;
+        }
+        BigDecimal oldQuantity = entry.getQuantity();
+        entry.updateQuantity(oldQuantity.subtract(newQuantity));
+        return oldQuantity;
+    }
+
+    @Override
+    public BigDecimal fillFirst(BigDecimal executedQty) {
+        Iterator<OrderBookEntry> it = orders.values().iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+
+        OrderBookEntry entry = it.next();
+        BigDecimal remainingQty = entry.updateQuantity(executedQty);
+
+        if (remainingQty.compareTo(BigDecimal.ZERO) <= 0) {
+            it.remove();
+        }
+        return remainingQty;
+    }
+
+    @Override
+    public List<OrderBookEntry> toList() {
+        return new ArrayList<>(orders.values());
+    }
+
+    @Override
+    public int size() {
+        return orders.size();
+    }
+}
@@ -0,0 +1,184 @@
+package com.exchange.match.engine.orderbook;
+
+import com.exchange.match.engine.dto.Kline;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 多周期K线增量维护
+ * <p>
+ * 每个周期只保存当前未收盘的一根K线，每笔成交对每个周期做一次O(1)更新；
+ * 成交或时间推进到下一个周期时当前K线收盘，放入待发布列表。没有成交的周期不产生K线。
+ * 当前K线和最近收盘的K线随订单簿快照一起序列化，恢复后可以继续累计。只在撮合线程中使用。
+ */
+class KlineAggregator {
+    private final String symbol; // 交易对
+    private final long[] intervals; // 周期（毫秒）
+    private final Bar[] current; // 每个周期当前未收盘的K线，为null表示该周期还没有成交
+    private final Bar[] lastClosed; // 每个周期最近收盘的K线
+    private final List<Kline> closed = new ArrayList<>(); // 自上次生成以来收盘的K线
+
+    /**
+     * 单根K线的累计值
+     */
+    private static final class Bar {
+        private long openTime;
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private BigDecimal volume;
+        private BigDecimal quoteVolume;
+        private long tradeCount;
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param symbol    交易对
+     * @param intervals 周期列表（毫秒）
+     */
+    KlineAggregator(String symbol, long[] intervals) {
+        this.symbol = symbol;
+        this.intervals = intervals.clone();
+        this.current = new Bar[intervals.length];
+        this.lastClosed = new Bar[intervals.length];
+    }
+
+    /**
+     * 供反序列化使用，保证字段初始化语句执行
+     */
+    private KlineAggregator() {
+        this(null, new long[0]);
+    }
+
+    /**
+     * 周期配置是否相同
+     *
+     * @param intervals 周期列表（毫秒）
+     * @return 是否相同
+     */
+    boolean hasIntervals(long[] intervals) {
+        return Arrays.equals(this.intervals, intervals);
+    }
+
+    /**
+     * 累计一笔成交，成交时间早于当前K线的开始时间时计入当前K线
+     *
+     * @param price     成交价
+     * @param quantity  成交量
+     * @param timestamp 成交时间
+     */
+    void onTrade(BigDecimal price, BigDecimal quantity, long timestamp) {
+        BigDecimal amount = price.multiply(quantity);
+        for (int i = 0; i < intervals.length; i++) {
+            Bar bar = current[i];
+            if (bar != null && timestamp >= bar.openTime + intervals[i]) {
+                close(i);
+                bar = null;
+            }
+            if (bar == null) {
+                bar = new Bar();
+                bar.openTime = timestamp - Math.floorMod(timestamp, intervals[i]);
+                bar.open = price;
+                bar.high = price;
+                bar.low = price;
+                bar.volume = BigDecimal.ZERO;
+                bar.quoteVolume = BigDecimal.ZERO;
+                current[i] = bar;
+            } else if (price.compareTo(bar.high) > 0) {
+                bar.high = price;
+            } else if (price.compareTo(bar.low) < 0) {
+                bar.low = price;
+            }
+            bar.close = price;
+            bar.volume = bar.volume.add(quantity);
+            bar.quoteVolume = bar.quoteVolume.add(amount);
+            bar.tradeCount++;
+        }
+    }
+
+    /**
+     * 推进时间，收盘所有已到期的K线
+     *
+     * @param now 当前时间
+     */
+    void advance(long now) {
+        for (int i = 0; i < intervals.length; i++) {
+            Bar bar = current[i];
+            if (bar != null && now >= bar.openTime + intervals[i]) {
+                close(i);
+            }
+        }
+    }
+
+    /**
+     * 取出自上次调用以来收盘的K线
+     *
+     * @return K线列表
+     */
+    List<Kline> drainClosed() {
+        if (closed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Kline> result = new ArrayList<>(closed);
+        closed.clear();
+        return result;
+    }
+
+    /**
+     * 获取当前未收盘的K线
+     *
+     * @return 每个有成交的周期一根
+     */
+    List<Kline> getCurrent() {
+        List<Kline> result = new ArrayList<>(intervals.length);
+        for (int i = 0; i < intervals.length; i++) {
+            if (current[i] != null) {
+                result.add(toKline(i, current[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取每个周期最近收盘的K线
+     *
+     * @return 每个已有收盘K线的周期一根
+     */
+    List<Kline> getLastClosed() {
+        List<Kline> result = new ArrayList<>(intervals.length);
+        for (int i = 0; i < intervals.length; i++) {
+            if (lastClosed[i] != null) {
+                result.add(toKline(i, lastClosed[i]));
+            }
+        }
+        return result;
+    }
+
+    private void close(int index) {
+        Bar bar = current[index];
+        closed.add(toKline(index, bar));
+        lastClosed[index] = bar;
+        current[index] = null;
+    }
+
+    private Kline toKline(int index, Bar bar) {
+        return Kline.builder()
+                .symbol(symbol)
+                .interval(intervals[index])
+                .openTime(bar.openTime)
+                .open(bar.open)
+                .high(bar.high)
+                .low(bar.low)
+                .close(bar.close)
+                .volume(bar.volume)
+                .quoteVolume(bar.quoteVolume)
+                .tradeCount(bar.tradeCount)
+                .build();
+    }
+}
@@ -0,0 +1,187 @@
+package com.exchange.match.engine.orderbook;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 堆外long到int的哈希表，开放寻址、线性探测，删除时回移后续条目，不留墓碑
+ * <p>
+ * 每个条目12字节：8字节key和4字节value+1，value为0表示空位（直接内存分配时已清零）。
+ * value只能是非负数。非线程安全。
+ */
+class OffHeapLongIntMap {
+    private static final int ENTRY_SIZE = 12;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int MAX_CAPACITY = 1 << 27; // 单个ByteBuffer不超过2GB
+
+    private ByteBuffer buffer;
+    private int capacity; // 2的幂
+    private int mask;
+    private int size;
+
+    /**
+     * @param expectedSize 预计条目数
+     */
+    OffHeapLongIntMap(int expectedSize) {
+        allocate(tableSizeFor((int) Math.min(MAX_CAPACITY, (long) (expectedSize / LOAD_FACTOR) + 1)));
+    }
+
+    /**
+     * 获取value
+     *
+     * @param key key
+     * @return value，不存在时返回-1
+     */
+    int get(long key) {
+        int index = indexOf(key);
+        while (true) {
+            int value = buffer.getInt(index * ENTRY_SIZE + 8);
+            if (value == 0) {
+                return -1;
+            }
+            if (buffer.getLong(index * ENTRY_SIZE) == key) {
+                return value - 1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * 放入或覆盖
+     *
+     * @param key   key
+     * @param value value，非负
+     */
+    void put(long key, int value) {
+        if (size + 1 > capacity * LOAD_FACTOR) {
+            if (capacity >= MAX_CAPACITY) {
+                throw new IllegalStateException("堆外哈希表已达到最大容量: " + capacity);
+            }
+            resize(capacity << 1);
+        }
+        if (insert(buffer, mask, key, value)) {
+            size++;
+        }
+    }
+
+    /**
+     * 移除
+     *
+     * @param key key
+     * @return 被移除的value，不存在时返回-1
+     */
+    int remove(long key) {
+        int index = indexOf(key);
+        while (true) {
+            int value = buffer.getInt(index * ENTRY_SIZE + 8);
+            if (value == 0) {
+                return -1;
+            }
+            if (buffer.getLong(index * ENTRY_SIZE) == key) {
+                shiftBack(index);
+                size--;
+                return value - 1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * 条目数
+     *
+     * @return 条目数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 清空，保留已分配的内存
+     */
+    void clear() {
+        for (int i = 0; i < capacity; i++) {
+            buffer.putInt(i * ENTRY_SIZE + 8, 0);
+        }
+        size = 0;
+    }
+
+    /**
+     * 删除index处的条目，把探测链上后续的条目回移填补空位
+     *
+     * @param index 被删除的位置
+     */
+    private void shiftBack(int index) {
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (true) {
+            int value = buffer.getInt(next * ENTRY_SIZE + 8);
+            if (value == 0) {
+                break;
+            }
+            long key = buffer.getLong(next * ENTRY_SIZE);
+            int home = indexOf(key);
+            // home不在(gap, next]区间内时，该条目可以回移到gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                buffer.putLong(gap * ENTRY_SIZE, key);
+                buffer.putInt(gap * ENTRY_SIZE + 8, value);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        buffer.putInt(gap * ENTRY_SIZE + 8, 0);
+    }
+
+    private boolean insert(ByteBuffer target, int targetMask, long key, int value) {
+        int index = hash(key) & targetMask;
+        while (true) {
+            int existing = target.getInt(index * ENTRY_SIZE + 8);
+            if (existing == 0) {
+                target.putLong(index * ENTRY_SIZE, key);
+                target.putInt(index * ENTRY_SIZE + 8, value + 1);
+                return true;
+            }
+            if (target.getLong(index * ENTRY_SIZE) == key) {
+                target.putInt(index * ENTRY_SIZE + 8, value + 1);
+                return false;
+            }
+            index = (index + 1) & targetMask;
+        }
+    }
+
+    private void resize(int newCapacity) {
+        ByteBuffer oldBuffer = buffer;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            int value = oldBuffer.getInt(i * ENTRY_SIZE + 8);
+            if (value != 0) {
+                insert(buffer, mask, oldBuffer.getLong(i * ENTRY_SIZE), value - 1);
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        this.capacity = newCapacity;
+        this.mask = newCapacity - 1;
+        this.buffer = ByteBuffer.allocateDirect(newCapacity * ENTRY_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    private int indexOf(long key) {
+        return hash(key) & mask;
+    }
+
+    private static int hash(long key) {
+        // murmur3 fmix64
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = Integer.highestOneBit(Math.max(n, 16) - 1) << 1;
+        return Math.max(size, 16);
+    }
+}
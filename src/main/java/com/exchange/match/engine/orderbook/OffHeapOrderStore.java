@@ -0,0 +1,431 @@
+package com.exchange.match.engine.orderbook;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 堆外挂单存储
+ * <p>
+ * 每个挂单占直接内存中一个固定大小的槽，用int句柄代替对象引用：价格档位队列和用户挂单都是槽之间的双向链表，
+ * 订单ID和用户ID到句柄的映射也放在堆外哈希表中，释放的槽进入空闲链表复用。
+ * 价格和数量按交易对精度保存为long，超出精度的订单和改单由撮合引擎在修改订单簿之前拒绝，这里仍抛出ArithmeticException兜底。
+ * 堆上只剩价格档位对象，占用与挂单数量无关；读取时临时构造 {@link OrderBookEntry}，修改需通过订单簿方法写回。
+ * 快照时按队列顺序原样复制槽（{@link #pack}），不构造堆上对象，槽按小端序存放，快照与平台无关。
+ * 只在撮合线程中使用，非线程安全。
+ */
+class OffHeapOrderStore implements OrderIndex {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_BITS; // 每块槽数，按块扩容不搬移已有数据
+    private static final int CHUNK_MASK = CHUNK_SLOTS - 1;
+    private static final int NIL = -1;
+    private static final long NULL_LONG = Long.MIN_VALUE; // 表示null
+
+    // 槽内字段偏移
+    private static final int SLOT_SIZE = 80;
+    private static final int ORDER_ID = 0;
+    private static final int USER_ID = 8;
+    private static final int PRICE = 16;
+    private static final int QUANTITY = 24;
+    private static final int TIMESTAMP = 32;
+    private static final int EXPIRE_TIME = 40;
+    private static final int PREV = 48; // 价格档位队列中的前一个，空闲槽不使用
+    private static final int NEXT = 52; // 价格档位队列中的后一个，空闲槽为空闲链表的下一个
+    private static final int USER_PREV = 56;
+    private static final int USER_NEXT = 60;
+    private static final int ORDER_TYPE = 64;
+    private static final int SIDE = 68;
+    private static final int USED = 69;
+    private static final int ACTION = 70; // 以下三个字段各占一个字节，-1表示null
+    private static final int MARGIN_MODE = 71;
+    private static final int MARGIN_TYPE = 72;
+    private static final byte NULL_BYTE = -1;
+
+    /**
+     * 快照中每个挂单占的字节数，与槽大小相同
+     */
+    static final int PACKED_ORDER_SIZE = SLOT_SIZE;
+
+    private final int priceScale;
+    private final int quantityScale;
+    private final OffHeapLongIntMap orderHandles; // 订单ID -> 句柄
+    private final OffHeapLongIntMap userHeads; // 用户ID -> 该用户最新挂单的句柄
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+    private int chunkCount;
+    private int highWater; // 分配过的槽数
+    private int freeHead = NIL; // 空闲链表头
+    private int size;
+
+    /**
+     * @param priceScale     价格小数位
+     * @param quantityScale  数量小数位
+     * @param expectedOrders 预计挂单数，用于预分配哈希表
+     */
+    OffHeapOrderStore(int priceScale, int quantityScale, int expectedOrders) {
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+        this.orderHandles = new OffHeapLongIntMap(expectedOrders);
+        this.userHeads = new OffHeapLongIntMap(Math.max(16, expectedOrders / 16));
+    }
+
+    @Override
+    public void put(OrderBookEntry entry) {
+        int handle = allocateSlot();
+        putLong(handle, ORDER_ID, entry.getOrderId());
+        putNullableLong(handle, USER_ID, entry.getUserId());
+        putLong(handle, PRICE, toUnscaled(entry.getPrice(), priceScale));
+        putLong(handle, QUANTITY, toUnscaled(entry.getQuantity(), quantityScale));
+        putNullableLong(handle, TIMESTAMP, entry.getTimestamp());
+        putNullableLong(handle, EXPIRE_TIME, entry.getExpireTime());
+        putInt(handle, PREV, NIL);
+        putInt(handle, NEXT, NIL);
+        putInt(handle, ORDER_TYPE, entry.getOrderType());
+        chunk(handle).put(offset(handle) + SIDE, entry.getSide().byteValue());
+        chunk(handle).put(offset(handle) + USED, (byte) 1);
+        putNullableByte(handle, ACTION, entry.getAction());
+        putNullableByte(handle, MARGIN_MODE, entry.getMarginMode());
+        putNullableByte(handle, MARGIN_TYPE, entry.getMarginType());
+
+        // 插入用户挂单链表头部
+        long userKey = entry.getUserId() == null ? NULL_LONG : entry.getUserId();
+        int head = userHeads.get(userKey);
+        putInt(handle, USER_PREV, NIL);
+        putInt(handle, USER_NEXT, head);
+        if (head != NIL) {
+            putInt(head, USER_PREV, handle);
+        }
+        userHeads.put(userKey, handle);
+
+        orderHandles.put(entry.getOrderId(), handle);
+        size++;
+    }
+
+    @Override
+    public OrderBookEntry get(Long orderId) {
+        int handle = orderHandles.get(orderId);
+        return handle == NIL ? null : materialize(handle);
+    }
+
+    @Override
+    public OrderBookEntry remove(Long orderId) {
+        int handle = orderHandles.remove(orderId);
+        if (handle == NIL) {
+            return null;
+        }
+        OrderBookEntry entry = materialize(handle);
+
+        // 从用户挂单链表中摘除
+        long userKey = getLong(handle, USER_ID);
+        int prev = getInt(handle, USER_PREV);
+        int next = getInt(handle, USER_NEXT);
+        if (prev != NIL) {
+            putInt(prev, USER_NEXT, next);
+        } else if (next != NIL) {
+            userHeads.put(userKey, next);
+        } else {
+            userHeads.remove(userKey);
+        }
+        if (next != NIL) {
+            putInt(next, USER_PREV, prev);
+        }
+
+        freeSlot(handle);
+        size--;
+        return entry;
+    }
+
+    @Override
+    public List<OrderBookEntry> getUserOrders(Long userId, Integer side) {
+        int handle = userHeads.get(userId == null ? NULL_LONG : userId);
+        if (handle == NIL) {
+            return Collections.emptyList();
+        }
+        List<OrderBookEntry> result = new ArrayList<>();
+        while (handle != NIL) {
+            if (side == null || side == chunk(handle).get(offset(handle) + SIDE)) {
+                result.add(materialize(handle));
+            }
+            handle = getInt(handle, USER_NEXT);
+        }
+        // 链表按新到旧排列，返回挂单顺序
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public Collection<OrderBookEntry> values() {
+        List<OrderBookEntry> result = new ArrayList<>(size);
+        for (int handle = 0; handle < highWater; handle++) {
+            if (chunk(handle).get(offset(handle) + USED) != 0) {
+                result.add(materialize(handle));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    int getPriceScale() {
+        return priceScale;
+    }
+
+    int getQuantityScale() {
+        return quantityScale;
+    }
+
+    @Override
+    public OrderQueue newQueue() {
+        return new Queue();
+    }
+
+    @Override
+    public void clear() {
+        orderHandles.clear();
+        userHeads.clear();
+        highWater = 0;
+        freeHead = NIL;
+        size = 0;
+    }
+
+    /**
+     * 按队列顺序把挂单所在的槽原样复制到一个字节数组，用于快照：只有一次数组分配和逐槽的内存复制，
+     * 不为挂单构造堆上对象。链表和空闲标记字段一并复制，{@link #unpack} 时忽略
+     *
+     * @param queues 价格档位队列，买盘价格降序、卖盘价格升序
+     * @return 挂单数据，每个挂单 {@link #PACKED_ORDER_SIZE} 字节
+     */
+    byte[] pack(List<OrderQueue> queues) {
+        byte[] packed = new byte[size * PACKED_ORDER_SIZE];
+        int position = 0;
+        for (OrderQueue queue : queues) {
+            for (int handle = ((Queue) queue).head; handle != NIL; handle = getInt(handle, NEXT)) {
+                chunk(handle).get(offset(handle), packed, position, SLOT_SIZE);
+                position += SLOT_SIZE;
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * 展开 {@link #pack} 生成的挂单数据
+     *
+     * @param packed        挂单数据
+     * @param priceScale    价格小数位
+     * @param quantityScale 数量小数位
+     * @return 订单条目列表，顺序与打包时相同
+     */
+    static List<OrderBookEntry> unpack(byte[] packed, int priceScale, int quantityScale) {
+        ByteBuffer buffer = ByteBuffer.wrap(packed).order(ByteOrder.LITTLE_ENDIAN);
+        List<OrderBookEntry> entries = new ArrayList<>(packed.length / PACKED_ORDER_SIZE);
+        for (int base = 0; base < packed.length; base += PACKED_ORDER_SIZE) {
+            entries.add(read(buffer, base, priceScale, quantityScale));
+        }
+        return entries;
+    }
+
+    /**
+     * 价格档位队列，只保存队首、队尾句柄和订单数
+     */
+    private final class Queue implements OrderQueue {
+        private int head = NIL;
+        private int tail = NIL;
+        private int count;
+
+        @Override
+        public void addLast(OrderBookEntry entry) {
+            int handle = orderHandles.get(entry.getOrderId());
+            if (handle == NIL) {
+                throw new IllegalStateException("订单未放入索引: " + entry.getOrderId());
+            }
+            putInt(handle, PREV, tail);
+            putInt(handle, NEXT, NIL);
+            if (tail != NIL) {
+                putInt(tail, NEXT, handle);
+            } else {
+                head = handle;
+            }
+            tail = handle;
+            count++;
+        }
+
+        @Override
+        public OrderBookEntry remove(Long orderId) {
+            int handle = orderHandles.get(orderId);
+            if (handle == NIL) {
+                return null;
+            }
+            OrderBookEntry entry = materialize(handle);
+            unlink(handle);
+            return entry;
+        }
+
+        @Override
+        public OrderBookEntry peekFirst() {
+            return head == NIL ? null : materialize(head);
+        }
+
+        @Override
+        public BigDecimal setQuantity(Long orderId, BigDecimal newQuantity) {
+            int handle = orderHandles.get(orderId);
+            if (handle == NIL) {
+                return null;
+            }
+            long oldQuantity = getLong(handle, QUANTITY);
+            putLong(handle, QUANTITY, toUnscaled(newQuantity, quantityScale));
+            return BigDecimal.valueOf(oldQuantity, quantityScale);
+        }
+
+        @Override
+        public BigDecimal fillFirst(BigDecimal executedQty) {
+            if (head == NIL) {
+                return null;
+            }
+            int handle = head;
+            long remaining = getLong(handle, QUANTITY) - toUnscaled(executedQty, quantityScale);
+            putLong(handle, QUANTITY, remaining);
+            if (remaining <= 0) {
+                unlink(handle);
+            }
+            return BigDecimal.valueOf(remaining, quantityScale);
+        }
+
+        @Override
+        public List<OrderBookEntry> toList() {
+            List<OrderBookEntry> result = new ArrayList<>(count);
+            for (int handle = head; handle != NIL; handle = getInt(handle, NEXT)) {
+                result.add(materialize(handle));
+            }
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        private void unlink(int handle) {
+            int prev = getInt(handle, PREV);
+            int next = getInt(handle, NEXT);
+            if (prev != NIL) {
+                putInt(prev, NEXT, next);
+            } else {
+                head = next;
+            }
+            if (next != NIL) {
+                putInt(next, PREV, prev);
+            } else {
+                tail = prev;
+            }
+            count--;
+        }
+    }
+
+    private OrderBookEntry materialize(int handle) {
+        return read(chunk(handle), offset(handle), priceScale, quantityScale);
+    }
+
+    /**
+     * 从槽中读取订单条目
+     *
+     * @param buffer        槽所在的缓冲区
+     * @param base          槽的起始位置
+     * @param priceScale    价格小数位
+     * @param quantityScale 数量小数位
+     * @return 订单条目
+     */
+    private static OrderBookEntry read(ByteBuffer buffer, int base, int priceScale, int quantityScale) {
+        return new OrderBookEntry(
+                buffer.getLong(base + ORDER_ID),
+                nullableLong(buffer.getLong(base + USER_ID)),
+                BigDecimal.valueOf(buffer.getLong(base + PRICE), priceScale),
+                BigDecimal.valueOf(buffer.getLong(base + QUANTITY), quantityScale),
+                buffer.getInt(base + ORDER_TYPE),
+                (int) buffer.get(base + SIDE),
+                nullableLong(buffer.getLong(base + TIMESTAMP)),
+                nullableLong(buffer.getLong(base + EXPIRE_TIME)),
+                nullableByte(buffer.get(base + ACTION)),
+                nullableByte(buffer.get(base + MARGIN_MODE)),
+                nullableByte(buffer.get(base + MARGIN_TYPE)));
+    }
+
+    private int allocateSlot() {
+        if (freeHead != NIL) {
+            int handle = freeHead;
+            freeHead = getInt(handle, NEXT);
+            return handle;
+        }
+        if (highWater == chunkCount * CHUNK_SLOTS) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            chunks[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_SLOTS * SLOT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return highWater++;
+    }
+
+    private void freeSlot(int handle) {
+        chunk(handle).put(offset(handle) + USED, (byte) 0);
+        putInt(handle, NEXT, freeHead);
+        freeHead = handle;
+    }
+
+    private ByteBuffer chunk(int handle) {
+        return chunks[handle >>> CHUNK_BITS];
+    }
+
+    private static int offset(int handle) {
+        return (handle & CHUNK_MASK) * SLOT_SIZE;
+    }
+
+    private long getLong(int handle, int field) {
+        return chunk(handle).getLong(offset(handle) + field);
+    }
+
+    private void putLong(int handle, int field, long value) {
+        chunk(handle).putLong(offset(handle) + field, value);
+    }
+
+    private static Long nullableLong(long value) {
+        return value == NULL_LONG ? null : value;
+    }
+
+    private void putNullableLong(int handle, int field, Long value) {
+        putLong(handle, field, value == null ? NULL_LONG : value);
+    }
+
+    private static Integer nullableByte(byte value) {
+        return value == NULL_BYTE ? null : (int) value;
+    }
+
+    private void putNullableByte(int handle, int field, Integer value) {
+        chunk(handle).put(offset(handle) + field, value == null ? NULL_BYTE : value.byteValue());
+    }
+
+    private int getInt(int handle, int field) {
+        return chunk(handle).getInt(offset(handle) + field);
+    }
+
+    private void putInt(int handle, int field, int value) {
+        chunk(handle).putInt(offset(handle) + field, value);
+    }
+
+    /**
+     * 按固定小数位转换为long
+     *
+     * @param value 数值
+     * @param scale 小数位
+     * @return 放大后的整数
+     */
+    private static long toUnscaled(BigDecimal value, int scale) {
+        return value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+}
@@ -1,11 +1,18 @@
 package com.exchange.match.engine.orderbook;
 
+import com.exchange.match.engine.dto.AggregatedDepthUpdate;
+import com.exchange.match.engine.dto.Kline;
 import com.exchange.match.engine.dto.OrderBookUpdate;
+import com.exchange.match.engine.dto.OrderEventBatch;
 import com.exchange.match.engine.model.Order;
+import com.exchange.match.engine.util.OrderEventCodec;
 import lombok.Getter;
+import lombok.Setter;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.*;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 /**
@@ -22,8 +29,28 @@ public class OrderBook {
     // 卖单价格升序排列
     @Getter
     private final NavigableMap<BigDecimal, PriceBucket> asks;
-    // 订单ID到订单条目的映射
-    private final Map<Long, OrderBookEntry> orderMap;
+    // 挂单存储：订单ID索引、用户挂单索引和价格档位队列
+    private final OrderIndex orders;
+    // 尚未触发的止损单
+    @Getter
+    private final StopOrderBook stopOrders;
+    // 最新成交价
+    @Getter
+    private BigDecimal lastTradePrice;
+    // 时间来源，不参与序列化
+    @Setter
+    private transient LongSupplier clock = System::currentTimeMillis;
+    // 最近发布的盘口深度快照，供其他线程读取
+    @Getter
+    private transient volatile DepthSnapshot depthSnapshot;
+    // 多粒度聚合深度，未开启时为null
+    private transient AggregatedDepth aggregatedDepth;
+    // 逐笔委托事件，未开启时为null
+    private transient OrderEventCodec.Writer orderEvents;
+    // 下一个逐笔委托事件的序号，随交接快照保存和恢复
+    private transient long nextOrderEventSequence;
+    // 多周期K线，未开启时为null；随快照一起备份
+    private KlineAggregator klines;
     
     /**
      * 构造函数
@@ -31,6 +58,16 @@ public class OrderBook {
      * @param symbol 交易对
      */
     public OrderBook(String symbol) {
+        this(symbol, new HeapOrderIndex());
+    }
+    
+    /**
+     * 构造函数
+     *
+     * @param symbol 交易对
+     * @param orders 挂单存储
+     */
+    private OrderBook(String symbol, OrderIndex orders) {
         this.symbol = symbol;
         this.lastProcessedOffset = -1;
         
@@ -38,8 +75,33 @@ public class OrderBook {
         this.bids = new TreeMap<>(Comparator.reverseOrder());
         // 卖单升序，使用TreeMap替代ConcurrentSkipListMap
         this.asks = new TreeMap<>();
-        // 使用HashMap替代ConcurrentHashMap
-        this.orderMap = new HashMap<>();
+        this.orders = orders;
+        this.stopOrders = new StopOrderBook();
+    }
+    
+    /**
+     * 创建挂单存放在堆外内存的订单簿，堆占用不随挂单数量增长，适合挂单量很大的交易对
+     * <p>
+     * 价格和数量按给定小数位保存，超出精度的订单会抛出ArithmeticException，撮合引擎在修改订单簿之前按交易对精度拒绝这样的订单。
+     * 读取到的 {@link OrderBookEntry} 是副本，修改需通过订单簿方法。堆外订单簿不支持Protostuff序列化。
+     *
+     * @param symbol         交易对
+     * @param priceScale     价格小数位
+     * @param quantityScale  数量小数位
+     * @param expectedOrders 预计挂单数
+     * @return 订单簿
+     */
+    public static OrderBook offHeap(String symbol, int priceScale, int quantityScale, int expectedOrders) {
+        return new OrderBook(symbol, new OffHeapOrderStore(priceScale, quantityScale, expectedOrders));
+    }
+    
+    /**
+     * 挂单是否存放在堆外内存
+     *
+     * @return 是否堆外
+     */
+    public boolean isOffHeap() {
+        return orders instanceof OffHeapOrderStore;
     }
     
     /**
@@ -51,6 +113,9 @@ public class OrderBook {
         // 创建订单条目
         OrderBookEntry entry = new OrderBookEntry(order);
         
+        // 先放入挂单存储，再加入价格档位队列
+        orders.put(entry);
+        
         // 买单
         if (order.getSide() == 1) {
             addToOrderBook(bids, entry);
@@ -59,9 +124,6 @@ public class OrderBook {
         else {
             addToOrderBook(asks, entry);
         }
-        
-        // 添加到订单映射
-        orderMap.put(order.getId(), entry);
     }
     
     /**
@@ -72,8 +134,15 @@ public class OrderBook {
      */
     private void addToOrderBook(NavigableMap<BigDecimal, PriceBucket> book, OrderBookEntry entry) {
         BigDecimal price = entry.getPrice();
-        PriceBucket bucket = book.computeIfAbsent(price, PriceBucket::new);
+        PriceBucket bucket = book.computeIfAbsent(price, p -> new PriceBucket(p, orders.newQueue()));
         bucket.addOrder(entry);
+        
+        if (aggregatedDepth != null) {
+            aggregatedDepth.onVolumeChange(entry.getSide(), price, entry.getQuantity());
+        }
+        if (orderEvents != null) {
+            orderEvents.write(OrderEventCodec.TYPE_ADD, entry.getOrderId(), entry.getSide(), price, entry.getQuantity());
+        }
     }
     
     /**
@@ -83,7 +152,7 @@ public class OrderBook {
      * @return 被取消的订单条目，如果不存在则返回null
      */
     public OrderBookEntry cancelOrder(Long orderId) {
-        OrderBookEntry entry = orderMap.remove(orderId);
+        OrderBookEntry entry = orders.get(orderId);
         if (entry == null) {
             return null;
         }
@@ -97,9 +166,50 @@ public class OrderBook {
             removeFromOrderBook(asks, entry);
         }
         
+        // 出队后再从挂单存储中移除
+        orders.remove(orderId);
+        return entry;
+    }
+    
+    /**
+     * 原地减少挂单数量，保留排队优先级
+     *
+     * @param orderId     订单ID
+     * @param newQuantity 新的剩余数量，必须小于当前数量且大于0
+     * @return 订单条目，不存在时返回null
+     */
+    public OrderBookEntry reduceOrder(Long orderId, BigDecimal newQuantity) {
+        OrderBookEntry entry = orders.get(orderId);
+        if (entry == null) {
+            return null;
+        }
+        PriceBucket bucket = getBucket(entry.getPrice(), entry.getSide());
+        BigDecimal delta = bucket == null ? null : bucket.reduceOrder(orderId, newQuantity);
+        if (delta != null && aggregatedDepth != null) {
+            aggregatedDepth.onVolumeChange(entry.getSide(), entry.getPrice(), delta.negate());
+        }
+        if (delta != null && orderEvents != null) {
+            orderEvents.write(OrderEventCodec.TYPE_REDUCE, orderId, entry.getSide(), entry.getPrice(), newQuantity);
+        }
         return entry;
     }
     
+    /**
+     * 撤销用户的全部挂单，一次遍历该用户的挂单索引
+     *
+     * @param userId 用户ID
+     * @param side   买卖方向（1买/2卖），为null表示两边都撤
+     * @return 被撤销的订单条目
+     */
+    public List<OrderBookEntry> cancelUserOrders(Long userId, Integer side) {
+        List<OrderBookEntry> cancelled = orders.getUserOrders(userId, side);
+        for (OrderBookEntry entry : cancelled) {
+            removeFromOrderBook(entry.getSide() == 1 ? bids : asks, entry);
+            orders.remove(entry.getOrderId());
+        }
+        return cancelled;
+    }
+    
     /**
      * 从订单簿中移除订单
      *
@@ -110,10 +220,51 @@ public class OrderBook {
         BigDecimal price = entry.getPrice();
         PriceBucket bucket = book.get(price);
         if (bucket != null) {
-            bucket.removeOrder(entry.getOrderId());
+            OrderBookEntry removed = bucket.removeOrder(entry.getOrderId());
             if (bucket.isEmpty()) {
                 book.remove(price);
             }
+            
+            if (removed != null && aggregatedDepth != null) {
+                aggregatedDepth.onVolumeChange(entry.getSide(), price, removed.getQuantity().negate());
+            }
+            if (removed != null && orderEvents != null) {
+                orderEvents.write(OrderEventCodec.TYPE_REMOVE, removed.getOrderId(), entry.getSide(), price,
+                        removed.getQuantity());
+            }
+        }
+    }
+    
+    /**
+     * 与价格桶中的第一个订单成交
+     *
+     * @param bucket      价格桶
+     * @param executedQty 成交数量
+     */
+    public void executeTrade(PriceBucket bucket, BigDecimal executedQty) {
+        OrderBookEntry maker = bucket.getFirstOrder();
+        if (maker == null) {
+            return;
+        }
+        NavigableMap<BigDecimal, PriceBucket> book = maker.getSide() == 1 ? bids : asks;
+        // 堆外存储读取到的是副本，成交前判断是否完全成交
+        boolean fullyExecuted = maker.getQuantity().compareTo(executedQty) <= 0;
+        
+        // 价格桶为空时从订单簿中移除
+        if (bucket.executeTrade(executedQty)) {
+            book.remove(bucket.getPrice());
+        }
+        // 完全成交的maker同时从挂单存储中移除
+        if (fullyExecuted) {
+            orders.remove(maker.getOrderId());
+        }
+        
+        if (aggregatedDepth != null) {
+            aggregatedDepth.onVolumeChange(maker.getSide(), bucket.getPrice(), executedQty.negate());
+        }
+        if (orderEvents != null) {
+            orderEvents.write(OrderEventCodec.TYPE_EXECUTE, maker.getOrderId(), maker.getSide(), bucket.getPrice(),
+                    executedQty);
         }
     }
     
@@ -135,6 +286,65 @@ public class OrderBook {
         return asks.isEmpty() ? null : asks.firstKey();
     }
     
+    /**
+     * 计算taker订单在价格限制内可成交的数量，只读取各档位的总量，不修改订单簿
+     *
+     * @param takerSide  taker方向（1买/2卖）
+     * @param limitPrice 价格限制，为null表示不限
+     * @param target     目标数量，累计达到后提前返回
+     * @return 可成交数量，最多累计到刚超过target的档位
+     */
+    public BigDecimal getMatchableVolume(int takerSide, BigDecimal limitPrice, BigDecimal target) {
+        NavigableMap<BigDecimal, PriceBucket> book = takerSide == 1 ? asks : bids;
+        BigDecimal volume = BigDecimal.ZERO;
+        for (PriceBucket bucket : book.values()) {
+            if (limitPrice != null) {
+                int cmp = bucket.getPrice().compareTo(limitPrice);
+                if (takerSide == 1 ? cmp > 0 : cmp < 0) {
+                    break;
+                }
+            }
+            volume = volume.add(bucket.getTotalVolume());
+            if (volume.compareTo(target) >= 0) {
+                break;
+            }
+        }
+        return volume;
+    }
+    
+    /**
+     * 计算给定成交额上限在卖盘上可买入的数量
+     * <p>
+     * 按档位累加成交额，完整吃掉的档位直接累加数量，只在最后一个部分成交的档位做一次除法。
+     *
+     * @param quoteAmount     成交额上限
+     * @param limitPrice      价格上限，为null表示不限
+     * @param quantityDecimal 数量小数位，部分成交档位的数量向下取整到该精度
+     * @return 可买入数量
+     */
+    public BigDecimal getBuyQuantityForQuoteAmount(BigDecimal quoteAmount, BigDecimal limitPrice, int quantityDecimal) {
+        BigDecimal remainingAmount = quoteAmount;
+        BigDecimal quantity = BigDecimal.ZERO;
+        for (PriceBucket bucket : asks.values()) {
+            BigDecimal price = bucket.getPrice();
+            if (limitPrice != null && price.compareTo(limitPrice) > 0) {
+                break;
+            }
+            BigDecimal levelAmount = price.multiply(bucket.getTotalVolume());
+            if (levelAmount.compareTo(remainingAmount) <= 0) {
+                quantity = quantity.add(bucket.getTotalVolume());
+                remainingAmount = remainingAmount.subtract(levelAmount);
+                if (remainingAmount.signum() == 0) {
+                    break;
+                }
+            } else {
+                quantity = quantity.add(remainingAmount.divide(price, quantityDecimal, RoundingMode.DOWN));
+                break;
+            }
+        }
+        return quantity;
+    }
+    
     /**
      * 获取价格桶
      *
@@ -171,7 +381,25 @@ public class OrderBook {
      * @return 订单条目，如果不存在则返回null
      */
     public OrderBookEntry getOrder(Long orderId) {
-        return orderMap.get(orderId);
+        return orders.get(orderId);
+    }
+    
+    /**
+     * 获取全部挂单，只应在撮合线程中调用
+     *
+     * @return 只读视图，堆外订单簿返回副本
+     */
+    public Collection<OrderBookEntry> getOrders() {
+        return orders.values();
+    }
+    
+    /**
+     * 更新最新成交价
+     *
+     * @param price 成交价
+     */
+    public void updateLastTradePrice(BigDecimal price) {
+        this.lastTradePrice = price;
     }
     
     /**
@@ -229,12 +457,12 @@ public class OrderBook {
                 .bids(bidUpdates)
                 .asks(askUpdates)
                 .lastOffset(lastProcessedOffset)
-                .timestamp(System.currentTimeMillis())
+                .timestamp(clock.getAsLong())
                 .build();
     }
     
     /**
-     * 获取订单簿深度
+     * 获取订单簿深度，只能在撮合线程调用，其他线程请使用 {@link #getDepthSnapshot()}
      *
      * @param depth 深度
      * @return 订单簿深度数据
@@ -277,12 +505,255 @@ public class OrderBook {
         return result;
     }
     
+    /**
+     * 获取挂单数，不含止损单
+     *
+     * @return 挂单数
+     */
+    public int getOrderCount() {
+        return orders.size();
+    }
+    
+    /**
+     * 生成交接快照，只能在撮合线程调用或撮合线程停止后调用
+     * <p>
+     * 堆外订单簿按队列顺序原样复制挂单所在的槽，不为挂单构造堆上对象，定期备份在撮合线程上的开销只是一次内存复制；
+     * 挂单在读取 {@link OrderBookSnapshot#getOrders()} 时才展开。
+     *
+     * @param partition   命令所在的Kafka分区
+     * @param lastTradeId 最后分配的成交ID
+     * @return 快照
+     */
+    public OrderBookSnapshot snapshot(Integer partition, long lastTradeId) {
+        if (orders instanceof OffHeapOrderStore) {
+            OffHeapOrderStore store = (OffHeapOrderStore) orders;
+            List<OrderQueue> queues = new ArrayList<>(bids.size() + asks.size());
+            for (PriceBucket bucket : bids.values()) {
+                queues.add(bucket.queue());
+            }
+            for (PriceBucket bucket : asks.values()) {
+                queues.add(bucket.queue());
+            }
+            return new OrderBookSnapshot(symbol, partition, lastProcessedOffset, lastTradePrice, lastTradeId,
+                    null, store.pack(queues), store.getPriceScale(), store.getQuantityScale(),
+                    stopOrders.getOrdersInQueueOrder(), klines, clock.getAsLong(), nextOrderEventSequence);
+        }
+        List<OrderBookEntry> entries = new ArrayList<>(orders.size());
+        for (PriceBucket bucket : bids.values()) {
+            for (OrderBookEntry entry : bucket.getOrders()) {
+                entries.add(entry.copy());
+            }
+        }
+        for (PriceBucket bucket : asks.values()) {
+            for (OrderBookEntry entry : bucket.getOrders()) {
+                entries.add(entry.copy());
+            }
+        }
+        return new OrderBookSnapshot(symbol, partition, lastProcessedOffset, lastTradePrice, lastTradeId,
+                entries, null, 0, 0, stopOrders.getOrdersInQueueOrder(), klines, clock.getAsLong(), nextOrderEventSequence);
+    }
+    
+    /**
+     * 从交接快照恢复，只能恢复到空订单簿，须在开启聚合深度和逐笔委托事件之前调用
+     *
+     * @param snapshot 快照
+     */
+    public void restore(OrderBookSnapshot snapshot) {
+        if (orders.size() > 0 || stopOrders.size() > 0) {
+            throw new IllegalStateException("只能恢复到空订单簿: " + symbol);
+        }
+        // 按价格优先、时间优先的顺序重新入队，还原排队位置
+        for (OrderBookEntry entry : snapshot.getOrders()) {
+            OrderBookEntry copy = entry.copy();
+            orders.put(copy);
+            addToOrderBook(copy.getSide() == 1 ? bids : asks, copy);
+        }
+        for (Order order : snapshot.getStopOrders()) {
+            stopOrders.add(order);
+        }
+        this.lastProcessedOffset = snapshot.getLastProcessedOffset();
+        this.lastTradePrice = snapshot.getLastTradePrice();
+        this.klines = snapshot.getKlines();
+        this.nextOrderEventSequence = snapshot.getNextOrderEventSequence();
+    }
+    
+    /**
+     * 开启多粒度聚合深度，按当前订单簿初始化
+     *
+     * @param priceDecimal 价格小数位
+     * @param groupTicks   分组大小列表（最小价格单位个数）
+     */
+    public void enableAggregation(int priceDecimal, int[] groupTicks) {
+        AggregatedDepth depth = new AggregatedDepth(priceDecimal, groupTicks);
+        for (PriceBucket bucket : bids.values()) {
+            depth.onVolumeChange(1, bucket.getPrice(), bucket.getTotalVolume());
+        }
+        for (PriceBucket bucket : asks.values()) {
+            depth.onVolumeChange(2, bucket.getPrice(), bucket.getTotalVolume());
+        }
+        // 初始化产生的修改记录不需要发布
+        depth.generateUpdates(symbol, lastProcessedOffset, clock.getAsLong());
+        this.aggregatedDepth = depth;
+    }
+    
+    /**
+     * 生成聚合深度更新
+     *
+     * @return 聚合深度更新列表，未开启聚合时为空列表
+     */
+    public List<AggregatedDepthUpdate> generateAggregatedUpdates() {
+        if (aggregatedDepth == null) {
+            return Collections.emptyList();
+        }
+        return aggregatedDepth.generateUpdates(symbol, lastProcessedOffset, clock.getAsLong());
+    }
+    
+    /**
+     * 开启逐笔委托（L3）事件，之后挂单的加入、减量、撤销和成交都会记录为事件
+     * <p>
+     * 开启前已在订单簿中的挂单不产生事件，下游应先从订单簿快照初始化。
+     */
+    public void enableOrderEvents() {
+        if (orderEvents == null) {
+            orderEvents = new OrderEventCodec.Writer();
+        }
+    }
+    
+    /**
+     * 取出自上次调用以来的逐笔委托事件
+     *
+     * @return 事件批次，未开启或没有事件时返回null
+     */
+    public OrderEventBatch generateOrderEvents() {
+        if (orderEvents == null || orderEvents.count() == 0) {
+            return null;
+        }
+        int count = orderEvents.count();
+        OrderEventBatch batch = OrderEventBatch.builder()
+                .symbol(symbol)
+                .firstSequence(nextOrderEventSequence)
+                .count(count)
+                .events(orderEvents.drain())
+                .lastOffset(lastProcessedOffset)
+                .timestamp(clock.getAsLong())
+                .build();
+        nextOrderEventSequence += count;
+        return batch;
+    }
+    
+    /**
+     * 开启多周期K线，从备份恢复且周期相同时保留已累计的K线
+     *
+     * @param intervals 周期列表（毫秒）
+     */
+    public void enableKlines(long[] intervals) {
+        if (klines == null || !klines.hasIntervals(intervals)) {
+            klines = new KlineAggregator(symbol, intervals);
+        }
+    }
+    
+    /**
+     * 累计一笔成交到K线
+     *
+     * @param price     成交价
+     * @param quantity  成交量
+     * @param timestamp 成交时间
+     */
+    public void updateKlines(BigDecimal price, BigDecimal quantity, long timestamp) {
+        if (klines != null) {
+            klines.onTrade(price, quantity, timestamp);
+        }
+    }
+    
+    /**
+     * 推进K线时间，收盘已到期的K线
+     *
+     * @param now 当前时间
+     */
+    public void advanceKlines(long now) {
+        if (klines != null) {
+            klines.advance(now);
+        }
+    }
+    
+    /**
+     * 取出自上次调用以来收盘的K线
+     *
+     * @return K线列表，未开启或没有收盘时为空列表
+     */
+    public List<Kline> generateClosedKlines() {
+        return klines == null ? Collections.emptyList() : klines.drainClosed();
+    }
+    
+    /**
+     * 获取各周期当前未收盘的K线，只能在撮合线程调用
+     *
+     * @return K线列表，未开启时为空列表
+     */
+    public List<Kline> getCurrentKlines() {
+        return klines == null ? Collections.emptyList() : klines.getCurrent();
+    }
+    
+    /**
+     * 获取各周期最近收盘的K线，只能在撮合线程调用
+     *
+     * @return K线列表，未开启时为空列表
+     */
+    public List<Kline> getLastClosedKlines() {
+        return klines == null ? Collections.emptyList() : klines.getLastClosed();
+    }
+    
+    /**
+     * 发布盘口深度快照，只能在撮合线程调用
+     *
+     * @param levels 每边档位数
+     * @return 发布的快照
+     */
+    public DepthSnapshot publishDepthSnapshot(int levels) {
+        DepthSnapshot snapshot = snapshotDepth(levels);
+        this.depthSnapshot = snapshot;
+        return snapshot;
+    }
+    
+    /**
+     * 生成盘口深度快照但不发布，只能在撮合线程调用
+     *
+     * @param levels 每边档位数
+     * @return 快照
+     */
+    public DepthSnapshot snapshotDepth(int levels) {
+        return new DepthSnapshot(symbol,
+                topLevels(bids, levels), topLevels(asks, levels),
+                lastProcessedOffset, clock.getAsLong());
+    }
+    
+    /**
+     * 取一边订单簿的前若干档
+     *
+     * @param book   订单簿（买单或卖单）
+     * @param levels 档位数
+     * @return 价格档位列表
+     */
+    private List<DepthSnapshot.DepthLevel> topLevels(NavigableMap<BigDecimal, PriceBucket> book, int levels) {
+        List<DepthSnapshot.DepthLevel> result = new ArrayList<>(Math.min(levels, book.size()));
+        for (PriceBucket bucket : book.values()) {
+            if (result.size() >= levels) {
+                break;
+            }
+            if (!bucket.isEmpty()) {
+                result.add(new DepthSnapshot.DepthLevel(bucket.getPrice(), bucket.getTotalVolume()));
+            }
+        }
+        return result;
+    }
+    
     /**
      * 清空订单簿
      */
     public void clear() {
         bids.clear();
         asks.clear();
-        orderMap.clear();
+        orders.clear();
+        stopOrders.clear();
     }
 } 
\ No newline at end of file
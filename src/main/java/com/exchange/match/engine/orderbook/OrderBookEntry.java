@@ -16,6 +16,10 @@ public class OrderBookEntry {
     private final Integer orderType; // 订单类型
     private final Integer side; // 买卖方向
     private final Long timestamp; // 时间戳
+    private final Long expireTime; // 过期时间，为空表示不过期
+    private final Integer action; // 动作 0现货 1开仓 2平仓 3买卖模式仓位自动
+    private final Integer marginMode; // 保证金模式 0普通现货 1逐仓 2全仓
+    private final Integer marginType; // 保证金类型 0现货 1币本位 2U本位
     
     /**
      * 从Order对象构建OrderBookEntry
@@ -30,6 +34,39 @@ public class OrderBookEntry {
         this.orderType = order.getType();
         this.side = order.getSide();
         this.timestamp = order.getCreateTime();
+        this.expireTime = order.getExpireTime();
+        this.action = order.getAction();
+        this.marginMode = order.getMarginMode();
+        this.marginType = order.getMarginType();
+    }
+    
+    /**
+     * 按字段构建，供堆外存储读取时使用
+     */
+    OrderBookEntry(Long orderId, Long userId, BigDecimal price, BigDecimal quantity,
+                   Integer orderType, Integer side, Long timestamp, Long expireTime,
+                   Integer action, Integer marginMode, Integer marginType) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.price = price;
+        this.quantity = quantity;
+        this.orderType = orderType;
+        this.side = side;
+        this.timestamp = timestamp;
+        this.expireTime = expireTime;
+        this.action = action;
+        this.marginMode = marginMode;
+        this.marginType = marginType;
+    }
+    
+    /**
+     * 复制当前状态
+     *
+     * @return 新的订单条目
+     */
+    OrderBookEntry copy() {
+        return new OrderBookEntry(orderId, userId, price, quantity, orderType, side, timestamp, expireTime,
+                action, marginMode, marginType);
     }
     
     /**
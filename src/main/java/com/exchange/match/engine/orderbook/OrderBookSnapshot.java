@@ -0,0 +1,81 @@
+package com.exchange.match.engine.orderbook;
+
+import com.exchange.match.engine.model.Order;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 订单簿交接快照，记录某个offset处理完成时订单簿的完整状态
+ * <p>
+ * 挂单按价格优先、时间优先展开为列表，不含对象间的共享引用，可以直接用Protostuff序列化，
+ * 堆内和堆外订单簿都可以生成和恢复。接手的节点在同一个Kafka分区上从 lastProcessedOffset + 1 继续消费即可无缝衔接。
+ * 堆外订单簿的挂单以槽的原始字节保存在 packedOrders 中，读取 {@link #getOrders()} 时才展开。
+ */
+@Getter
+@NoArgsConstructor
+public class OrderBookSnapshot {
+    private String symbol; // 交易对
+    private Integer partition; // 快照对应的Kafka分区，lastProcessedOffset只在该分区内有意义
+    private long lastProcessedOffset; // 快照对应的最后处理offset
+    private BigDecimal lastTradePrice; // 最新成交价
+    private long lastTradeId; // 最后分配的成交ID
+    private List<OrderBookEntry> orders; // 挂单，买盘价格降序、卖盘价格升序，同一价格按排队顺序；堆外订单簿的快照为null
+    private List<Order> stopOrders; // 止损单，按触发顺序
+    @Getter(AccessLevel.PACKAGE)
+    private KlineAggregator klines; // 未收盘的K线，未开启时为null
+    private long timestamp; // 快照时间
+    private long nextOrderEventSequence; // 下一个逐笔委托事件的序号，恢复后继续编号，下游据此去重和检测缺口
+    // 以下字段追加在末尾，Protostuff按字段声明顺序编号，旧快照仍可读取
+    @Getter(AccessLevel.NONE)
+    private byte[] packedOrders; // 堆外订单簿按同样顺序复制的挂单槽，见 OffHeapOrderStore#pack
+    @Getter(AccessLevel.NONE)
+    private int priceScale; // packedOrders的价格小数位
+    @Getter(AccessLevel.NONE)
+    private int quantityScale; // packedOrders的数量小数位
+
+    OrderBookSnapshot(String symbol, Integer partition, long lastProcessedOffset, BigDecimal lastTradePrice, long lastTradeId,
+                      List<OrderBookEntry> orders, byte[] packedOrders, int priceScale, int quantityScale,
+                      List<Order> stopOrders, KlineAggregator klines, long timestamp, long nextOrderEventSequence) {
+        this.symbol = symbol;
+        this.partition = partition;
+        this.lastProcessedOffset = lastProcessedOffset;
+        this.lastTradePrice = lastTradePrice;
+        this.lastTradeId = lastTradeId;
+        this.orders = orders;
+        this.packedOrders = packedOrders;
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+        this.stopOrders = stopOrders;
+        this.klines = klines;
+        this.timestamp = timestamp;
+        this.nextOrderEventSequence = nextOrderEventSequence;
+    }
+
+    /**
+     * 挂单，买盘价格降序、卖盘价格升序，同一价格按排队顺序；堆外订单簿的快照每次调用都重新展开
+     *
+     * @return 订单条目列表
+     */
+    public List<OrderBookEntry> getOrders() {
+        if (packedOrders != null) {
+            return OffHeapOrderStore.unpack(packedOrders, priceScale, quantityScale);
+        }
+        return orders;
+    }
+
+    /**
+     * 挂单数，不展开堆外订单簿的挂单
+     *
+     * @return 挂单数
+     */
+    public int getOrderCount() {
+        if (packedOrders != null) {
+            return packedOrders.length / OffHeapOrderStore.PACKED_ORDER_SIZE;
+        }
+        return orders == null ? 0 : orders.size();
+    }
+}
@@ -0,0 +1,70 @@
+package com.exchange.match.engine.orderbook;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 挂单存储，维护订单ID索引和用户挂单索引，并创建与之配套的价格档位队列
+ * <p>
+ * 堆内实现见 {@link HeapOrderIndex}，堆外实现见 {@link OffHeapOrderStore}。只在撮合线程中使用。
+ */
+interface OrderIndex {
+
+    /**
+     * 放入订单
+     *
+     * @param entry 订单条目
+     */
+    void put(OrderBookEntry entry);
+
+    /**
+     * 获取订单
+     *
+     * @param orderId 订单ID
+     * @return 订单条目，如果不存在则返回null
+     */
+    OrderBookEntry get(Long orderId);
+
+    /**
+     * 移除订单，调用前订单必须已经从所在队列中移除
+     *
+     * @param orderId 订单ID
+     * @return 被移除的订单条目，如果不存在则返回null
+     */
+    OrderBookEntry remove(Long orderId);
+
+    /**
+     * 获取用户的挂单
+     *
+     * @param userId 用户ID
+     * @param side   买卖方向（1买/2卖），为null表示两边
+     * @return 订单条目列表（副本）
+     */
+    List<OrderBookEntry> getUserOrders(Long userId, Integer side);
+
+    /**
+     * 获取全部挂单
+     *
+     * @return 订单条目集合，堆外实现返回副本
+     */
+    Collection<OrderBookEntry> values();
+
+    /**
+     * 挂单数量
+     *
+     * @return 挂单数量
+     */
+    int size();
+
+    /**
+     * 创建价格档位队列
+     *
+     * @return 队列
+     */
+    OrderQueue newQueue();
+
+    /**
+     * 清空
+     */
+    void clear();
+}
@@ -0,0 +1,66 @@
+package com.exchange.match.engine.orderbook;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 同一价格档位内按时间优先排列的挂单队列，由 {@link OrderIndex#newQueue()} 创建
+ * <p>
+ * 队列只负责排队顺序和数量，订单的生命周期由所属的 {@link OrderIndex} 管理：
+ * 先 {@link OrderIndex#put} 再入队，先出队再 {@link OrderIndex#remove}。
+ */
+interface OrderQueue {
+
+    /**
+     * 追加到队尾
+     *
+     * @param entry 订单条目，必须已经放入索引
+     */
+    void addLast(OrderBookEntry entry);
+
+    /**
+     * 从队列中移除订单
+     *
+     * @param orderId 订单ID
+     * @return 被移除的订单条目，如果不存在则返回null
+     */
+    OrderBookEntry remove(Long orderId);
+
+    /**
+     * 获取队首订单
+     *
+     * @return 队首订单条目，队列为空时返回null
+     */
+    OrderBookEntry peekFirst();
+
+    /**
+     * 修改订单剩余数量，不改变排队位置
+     *
+     * @param orderId     订单ID
+     * @param newQuantity 新的剩余数量
+     * @return 原剩余数量，订单不存在时返回null
+     */
+    BigDecimal setQuantity(Long orderId, BigDecimal newQuantity);
+
+    /**
+     * 队首订单成交，完全成交时出队
+     *
+     * @param executedQty 成交数量
+     * @return 队首订单的剩余数量，队列为空时返回null
+     */
+    BigDecimal fillFirst(BigDecimal executedQty);
+
+    /**
+     * 按排队顺序返回全部订单条目
+     *
+     * @return 订单条目列表，堆外存储返回副本
+     */
+    List<OrderBookEntry> toList();
+
+    /**
+     * 队列中的订单数量
+     *
+     * @return 订单数量
+     */
+    int size();
+}
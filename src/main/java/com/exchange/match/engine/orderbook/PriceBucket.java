@@ -2,17 +2,16 @@ package com.exchange.match.engine.orderbook;
 
 import lombok.Getter;
 import java.math.BigDecimal;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * 价格桶，表示订单簿中同一价格的所有订单
  */
-@Getter
 public class PriceBucket {
+    @Getter
     private final BigDecimal price; // 价格
-    private final Map<Long, OrderBookEntry> orders; // 订单ID -> 订单条目映射
+    private final OrderQueue orders; // 按时间优先排列的订单
+    @Getter
     private BigDecimal totalVolume; // 总量
     
     /**
@@ -21,8 +20,18 @@ public class PriceBucket {
      * @param price 价格
      */
     public PriceBucket(BigDecimal price) {
+        this(price, new HeapOrderQueue());
+    }
+    
+    /**
+     * 构造函数
+     *
+     * @param price  价格
+     * @param orders 订单队列，由订单簿的挂单存储创建
+     */
+    PriceBucket(BigDecimal price, OrderQueue orders) {
         this.price = price;
-        this.orders = new LinkedHashMap<>();
+        this.orders = orders;
         this.totalVolume = BigDecimal.ZERO;
     }
     
@@ -32,7 +41,7 @@ public class PriceBucket {
      * @param entry 订单条目
      */
     public void addOrder(OrderBookEntry entry) {
-        orders.put(entry.getOrderId(), entry);
+        orders.addLast(entry);
         totalVolume = totalVolume.add(entry.getQuantity());
     }
     
@@ -50,16 +59,48 @@ public class PriceBucket {
         return entry;
     }
     
+    /**
+     * 原地减少订单数量，订单保持原有的排队位置
+     *
+     * @param orderId     订单ID
+     * @param newQuantity 新的剩余数量，必须小于当前数量且大于0
+     * @return 减少的数量，订单不存在时返回null
+     */
+    public BigDecimal reduceOrder(Long orderId, BigDecimal newQuantity) {
+        BigDecimal oldQuantity = orders.setQuantity(orderId, newQuantity);
+        if (oldQuantity == null) {
+            return null;
+        }
+        BigDecimal delta = oldQuantity.subtract(newQuantity);
+        totalVolume = totalVolume.subtract(delta);
+        return delta;
+    }
+    
     /**
      * 获取第一个订单条目
      *
      * @return 第一个订单条目，如果没有则返回null
      */
     public OrderBookEntry getFirstOrder() {
-        if (orders.isEmpty()) {
-            return null;
-        }
-        return orders.values().iterator().next();
+        return orders.peekFirst();
+    }
+    
+    /**
+     * 按排队顺序获取全部订单条目
+     *
+     * @return 订单条目列表
+     */
+    public List<OrderBookEntry> getOrders() {
+        return orders.toList();
+    }
+    
+    /**
+     * 订单队列，供订单簿直接遍历挂单存储
+     *
+     * @return 订单队列
+     */
+    OrderQueue queue() {
+        return orders;
     }
     
     /**
@@ -69,22 +110,14 @@ public class PriceBucket {
      * @return 是否需要从订单簿中删除该价格桶
      */
     public boolean executeTrade(BigDecimal executedQty) {
-        Iterator<OrderBookEntry> it = orders.values().iterator();
-        if (!it.hasNext()) {
+        if (orders.fillFirst(executedQty) == null) {
             return true;
         }
         
-        OrderBookEntry entry = it.next();
-        BigDecimal remainingQty = entry.updateQuantity(executedQty);
-        
-        if (remainingQty.compareTo(BigDecimal.ZERO) <= 0) {
-            it.remove();
-        }
-        
         // 更新总量
         totalVolume = totalVolume.subtract(executedQty);
         
-        return orders.isEmpty();
+        return orders.size() == 0;
     }
     
     /**
@@ -102,6 +135,6 @@ public class PriceBucket {
      * @return 是否为空
      */
     public boolean isEmpty() {
-        return orders.isEmpty();
+        return orders.size() == 0;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+package com.exchange.match.engine.orderbook;
+
+import com.exchange.match.engine.model.Order;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 止损单簿，按触发价保存尚未触发的止损单
+ * <p>
+ * 买入止损在成交价大于等于触发价时触发，卖出止损在成交价小于等于触发价时触发。
+ * 两边都按"越容易触发越靠前"排序，触发查询只需取 headMap，复杂度 O(log n + 触发数)。
+ * 同一触发价按挂入顺序触发，保证重放结果确定。每个触发价的队列按订单ID索引，
+ * 另按用户索引止损单，撤单和按用户批量撤单不需要扫描全部止损单。
+ */
+public class StopOrderBook {
+    // 买入止损，触发价升序
+    private final NavigableMap<BigDecimal, LinkedHashMap<Long, Order>> buyStops = new TreeMap<>();
+    // 卖出止损，触发价降序
+    private final NavigableMap<BigDecimal, LinkedHashMap<Long, Order>> sellStops = new TreeMap<>(Comparator.reverseOrder());
+    // 订单ID到止损单的映射
+    private final Map<Long, Order> orderMap = new HashMap<>();
+    // 用户ID到该用户止损单的映射，按挂入顺序
+    private final Map<Long, Map<Long, Order>> userOrders = new HashMap<>();
+    
+    /**
+     * 添加止损单
+     *
+     * @param order 止损单，priceStop为触发价，不能为空
+     */
+    public void add(Order order) {
+        NavigableMap<BigDecimal, LinkedHashMap<Long, Order>> book = order.getSide() == 1 ? buyStops : sellStops;
+        book.computeIfAbsent(order.getPriceStop(), price -> new LinkedHashMap<>()).put(order.getId(), order);
+        orderMap.put(order.getId(), order);
+        userOrders.computeIfAbsent(order.getUserId(), userId -> new LinkedHashMap<>()).put(order.getId(), order);
+    }
+    
+    /**
+     * 获取止损单
+     *
+     * @param orderId 订单ID
+     * @return 止损单，如果不存在则返回null
+     */
+    public Order get(Long orderId) {
+        return orderMap.get(orderId);
+    }
+    
+    /**
+     * 获取全部止损单
+     *
+     * @return 只读视图
+     */
+    public Collection<Order> getOrders() {
+        return Collections.unmodifiableCollection(orderMap.values());
+    }
+    
+    /**
+     * 按触发顺序获取全部止损单，按此顺序重新添加可以还原同一触发价内的先后
+     *
+     * @return 止损单列表
+     */
+    public List<Order> getOrdersInQueueOrder() {
+        List<Order> result = new ArrayList<>(orderMap.size());
+        buyStops.values().forEach(queue -> result.addAll(queue.values()));
+        sellStops.values().forEach(queue -> result.addAll(queue.values()));
+        return result;
+    }
+    
+    /**
+     * 移除止损单
+     *
+     * @param orderId 订单ID
+     * @return 被移除的止损单，如果不存在则返回null
+     */
+    public Order remove(Long orderId) {
+        Order order = orderMap.remove(orderId);
+        if (order == null) {
+            return null;
+        }
+        NavigableMap<BigDecimal, LinkedHashMap<Long, Order>> book = order.getSide() == 1 ? buyStops : sellStops;
+        LinkedHashMap<Long, Order> queue = book.get(order.getPriceStop());
+        if (queue != null) {
+            queue.remove(orderId);
+            if (queue.isEmpty()) {
+                book.remove(order.getPriceStop());
+            }
+        }
+        removeUserOrder(order);
+        return order;
+    }
+    
+    /**
+     * 撤销用户的止损单
+     *
+     * @param userId 用户ID
+     * @param side   买卖方向（1买/2卖），为null表示两边都撤
+     * @return 被撤销的止损单，按挂入顺序
+     */
+    public List<Order> removeUserOrders(Long userId, Integer side) {
+        Map<Long, Order> orders = userOrders.get(userId);
+        if (orders == null) {
+            return Collections.emptyList();
+        }
+        List<Order> matched = new ArrayList<>(orders.size());
+        for (Order order : orders.values()) {
+            if (side == null || side.equals(order.getSide())) {
+                matched.add(order);
+            }
+        }
+        for (Order order : matched) {
+            remove(order.getId());
+        }
+        return matched;
+    }
+    
+    /**
+     * 取出被成交价触发的止损单，先买后卖，同一边按触发价和挂入顺序
+     *
+     * @param tradePrice 成交价
+     * @param triggered  触发的止损单追加到此列表
+     */
+    public void pollTriggered(BigDecimal tradePrice, List<Order> triggered) {
+        pollTriggered(buyStops, tradePrice, triggered);
+        pollTriggered(sellStops, tradePrice, triggered);
+    }
+    
+    private void pollTriggered(NavigableMap<BigDecimal, LinkedHashMap<Long, Order>> book, BigDecimal tradePrice,
+                               List<Order> triggered) {
+        if (book.isEmpty()) {
+            return;
+        }
+        NavigableMap<BigDecimal, LinkedHashMap<Long, Order>> head = book.headMap(tradePrice, true);
+        if (head.isEmpty()) {
+            return;
+        }
+        for (LinkedHashMap<Long, Order> queue : head.values()) {
+            for (Order order : queue.values()) {
+                orderMap.remove(order.getId());
+                removeUserOrder(order);
+                triggered.add(order);
+            }
+        }
+        head.clear();
+    }
+    
+    /**
+     * 从用户索引中移除止损单
+     *
+     * @param order 止损单
+     */
+    private void removeUserOrder(Order order) {
+        Map<Long, Order> orders = userOrders.get(order.getUserId());
+        if (orders != null) {
+            orders.remove(order.getId());
+            if (orders.isEmpty()) {
+                userOrders.remove(order.getUserId());
+            }
+        }
+    }
+    
+    /**
+     * 止损单是否已被给定成交价触发
+     *
+     * @param order      止损单
+     * @param tradePrice 成交价，为null时视为未触发
+     * @return 是否已触发
+     */
+    public static boolean isTriggered(Order order, BigDecimal tradePrice) {
+        if (tradePrice == null) {
+            return false;
+        }
+        int cmp = tradePrice.compareTo(order.getPriceStop());
+        return order.getSide() == 1 ? cmp >= 0 : cmp <= 0;
+    }
+    
+    /**
+     * 止损单数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        return orderMap.size();
+    }
+    
+    /**
+     * 清空止损单簿
+     */
+    public void clear() {
+        buyStops.clear();
+        sellStops.clear();
+        orderMap.clear();
+        userOrders.clear();
+    }
+}
@@ -0,0 +1,262 @@
+package com.exchange.match.engine.placement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 交易对放置规划工具，读取 {@link SymbolLoadRecorder} 录制的负载记录，离线计算交易对在节点间的均衡分配，
+ * 输出迁移计划，不依赖Kafka、Mongo、Redis和Nacos
+ * <p>
+ * 每个交易对的负载取记录期间按采样周期加权的平均值，所在节点取最后一条记录的节点。
+ * 按负载从大到小依次放置：留在原节点不会使其超过平均负载的 (1 + tolerance) 倍时保持不动，
+ * 否则放到当前负载最小的节点，尽量少迁移的同时使各节点负载接近。
+ * <pre>
+ * java -cp match-engine.jar -Dloader.main=com.exchange.match.engine.placement.PlacementPlanner \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --in node1.csv,node2.csv [--nodes 1,2,3] [--metric cpu|commands|fills] [--tolerance 0.1] [--since 0] [--out plan.csv]
+ * </pre>
+ */
+public class PlacementPlanner {
+    
+    /**
+     * 单个交易对的平均负载
+     */
+    static final class SymbolLoad {
+        final String symbol;
+        int nodeId;
+        long lastTimestamp = Long.MIN_VALUE;
+        double weight;
+        double commands;
+        double fills;
+        double cpu;
+        boolean cpuMissing;
+        int bookOrders;
+        
+        SymbolLoad(String symbol) {
+            this.symbol = symbol;
+        }
+        
+        void add(SymbolLoadSample sample) {
+            double w = sample.getIntervalMs();
+            weight += w;
+            commands += sample.getCommandsPerSec() * w;
+            fills += sample.getFillsPerSec() * w;
+            if (sample.getCpuPercent() < 0) {
+                cpuMissing = true;
+            } else {
+                cpu += sample.getCpuPercent() * w;
+            }
+            if (sample.getTimestamp() >= lastTimestamp) {
+                lastTimestamp = sample.getTimestamp();
+                nodeId = sample.getNodeId();
+                bookOrders = sample.getBookOrders();
+            }
+        }
+        
+        double load(String metric) {
+            if (weight == 0) {
+                return 0;
+            }
+            switch (metric) {
+                case "cpu":
+                    return cpu / weight;
+                case "commands":
+                    return commands / weight;
+                case "fills":
+                    return fills / weight;
+                default:
+                    throw new IllegalArgumentException("未知的负载指标: " + metric);
+            }
+        }
+    }
+    
+    /**
+     * 一次迁移
+     */
+    static final class Move {
+        final String symbol;
+        final int fromNode;
+        final int toNode;
+        final double load;
+        
+        Move(String symbol, int fromNode, int toNode, double load) {
+            this.symbol = symbol;
+            this.fromNode = fromNode;
+            this.toNode = toNode;
+            this.load = load;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String in = required(options, "in");
+        String metric = options.getOrDefault("metric", "cpu");
+        double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "0.1"));
+        long since = Long.parseLong(options.getOrDefault("since", "0"));
+        
+        Map<String, SymbolLoad> loads = readLoads(in.split(","), since);
+        if (loads.isEmpty()) {
+            System.out.println("没有负载记录");
+            return;
+        }
+        if ("cpu".equals(metric) && loads.values().stream().anyMatch(l -> l.cpuMissing)) {
+            System.out.println("部分记录缺少CPU时间，改用命令速率作为负载指标");
+            metric = "commands";
+        }
+        
+        // 参与分配的节点：记录中出现的节点加上 --nodes 指定的空闲节点
+        TreeSet<Integer> nodes = new TreeSet<>();
+        loads.values().forEach(l -> nodes.add(l.nodeId));
+        if (options.containsKey("nodes")) {
+            Arrays.stream(options.get("nodes").split(",")).map(String::trim).map(Integer::valueOf).forEach(nodes::add);
+        }
+        
+        Map<String, Integer> assignment = new LinkedHashMap<>();
+        List<Move> moves = plan(loads, nodes, metric, tolerance, assignment);
+        
+        printReport(loads, nodes, metric, assignment, moves);
+        if (options.containsKey("out")) {
+            writePlan(options.get("out"), moves);
+        }
+    }
+    
+    /**
+     * 读取负载记录并按交易对汇总
+     *
+     * @param files 负载记录文件，每个节点一个
+     * @param since 只统计该时间之后的记录
+     * @return 交易对 -> 平均负载
+     */
+    static Map<String, SymbolLoad> readLoads(String[] files, long since) throws IOException {
+        Map<String, SymbolLoad> loads = new TreeMap<>();
+        for (String file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(file.trim()), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    SymbolLoadSample sample = SymbolLoadSample.parse(line);
+                    if (sample != null && sample.getTimestamp() >= since) {
+                        loads.computeIfAbsent(sample.getSymbol(), SymbolLoad::new).add(sample);
+                    }
+                }
+            }
+        }
+        return loads;
+    }
+    
+    /**
+     * 计算分配，负载大的交易对先放置
+     *
+     * @param loads      交易对负载
+     * @param nodes      节点
+     * @param metric     负载指标
+     * @param tolerance  节点负载允许超过平均负载的比例
+     * @param assignment 输出：交易对 -> 节点
+     * @return 迁移列表
+     */
+    static List<Move> plan(Map<String, SymbolLoad> loads, TreeSet<Integer> nodes, String metric,
+                           double tolerance, Map<String, Integer> assignment) {
+        double total = loads.values().stream().mapToDouble(l -> l.load(metric)).sum();
+        double limit = total / nodes.size() * (1 + tolerance);
+        
+        Map<Integer, Double> nodeLoads = new HashMap<>();
+        nodes.forEach(n -> nodeLoads.put(n, 0.0));
+        
+        List<SymbolLoad> ordered = new ArrayList<>(loads.values());
+        ordered.sort(Comparator.comparingDouble((SymbolLoad l) -> l.load(metric)).reversed()
+                .thenComparing(l -> l.symbol));
+        
+        List<Move> moves = new ArrayList<>();
+        for (SymbolLoad symbolLoad : ordered) {
+            double load = symbolLoad.load(metric);
+            int target = symbolLoad.nodeId;
+            if (nodeLoads.get(target) + load > limit) {
+                // 放到当前负载最小的节点，相同时取ID小的节点
+                for (int node : nodes) {
+                    if (nodeLoads.get(node) < nodeLoads.get(target)) {
+                        target = node;
+                    }
+                }
+            }
+            nodeLoads.merge(target, load, Double::sum);
+            assignment.put(symbolLoad.symbol, target);
+            if (target != symbolLoad.nodeId) {
+                moves.add(new Move(symbolLoad.symbol, symbolLoad.nodeId, target, load));
+            }
+        }
+        return moves;
+    }
+    
+    /**
+     * 输出各节点调整前后的负载和迁移列表
+     */
+    private static void printReport(Map<String, SymbolLoad> loads, TreeSet<Integer> nodes, String metric,
+                                    Map<String, Integer> assignment, List<Move> moves) {
+        System.out.printf("metric: %s, symbols: %d, nodes: %d%n", metric, loads.size(), nodes.size());
+        System.out.println("node      before       after  bookOrders");
+        for (int node : nodes) {
+            double before = 0;
+            double after = 0;
+            long bookOrders = 0;
+            for (SymbolLoad l : loads.values()) {
+                if (l.nodeId == node) {
+                    before += l.load(metric);
+                }
+                if (assignment.get(l.symbol) == node) {
+                    after += l.load(metric);
+                    bookOrders += l.bookOrders;
+                }
+            }
+            System.out.printf("%4d %11.3f %11.3f %11d%n", node, before, after, bookOrders);
+        }
+        System.out.printf("moves: %d%n", moves.size());
+        for (Move move : moves) {
+            // 在原节点上调用迁移接口
+            System.out.printf("node %d: POST /api/admin/symbols/%s/migrate?targetNodeId=%d  (load %.3f)%n",
+                    move.fromNode, move.symbol, move.toNode, move.load);
+        }
+    }
+    
+    private static void writePlan(String out, List<Move> moves) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8))) {
+            writer.println("symbol,fromNode,toNode,load");
+            for (Move move : moves) {
+                writer.printf(Locale.ROOT, "%s,%d,%d,%.3f%n", move.symbol, move.fromNode, move.toNode, move.load);
+            }
+        }
+    }
+    
+    /**
+     * 解析 --name value 形式的参数
+     */
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            }
+        }
+        return options;
+    }
+    
+    static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("缺少参数 --" + name);
+        }
+        return value;
+    }
+}
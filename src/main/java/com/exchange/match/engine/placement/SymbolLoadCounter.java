@@ -0,0 +1,60 @@
+package com.exchange.match.engine.placement;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 单个交易对的累计负载计数，只由撮合线程写入，采样线程读取
+ */
+public class SymbolLoadCounter {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    
+    private volatile long commands; // 累计处理的命令数
+    private volatile long fills; // 累计成交笔数
+    private volatile int bookOrders; // 最近一次记录时的挂单数
+    private volatile long threadId = -1L; // 撮合线程ID
+    
+    /**
+     * 绑定当前线程为撮合线程，用于读取其CPU时间
+     */
+    public void bindCurrentThread() {
+        threadId = Thread.currentThread().threadId();
+    }
+    
+    /**
+     * 记录一条命令，只在撮合线程调用
+     *
+     * @param fillCount  本条命令的成交笔数
+     * @param orderCount 处理后的挂单数
+     */
+    public void record(int fillCount, int orderCount) {
+        commands++;
+        fills += fillCount;
+        bookOrders = orderCount;
+    }
+    
+    public long getCommands() {
+        return commands;
+    }
+    
+    public long getFills() {
+        return fills;
+    }
+    
+    public int getBookOrders() {
+        return bookOrders;
+    }
+    
+    /**
+     * 撮合线程累计CPU时间
+     *
+     * @return 纳秒，线程未绑定、已退出或JVM不支持时返回-1
+     */
+    public long getCpuTimeNanos() {
+        long id = threadId;
+        if (id < 0 || !THREAD_MX_BEAN.isThreadCpuTimeSupported()) {
+            return -1L;
+        }
+        return THREAD_MX_BEAN.getThreadCpuTime(id);
+    }
+}
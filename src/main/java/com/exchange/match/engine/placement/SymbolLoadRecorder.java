@@ -0,0 +1,94 @@
+package com.exchange.match.engine.placement;
+
+import com.exchange.match.engine.config.MatchEngineConfig;
+import com.exchange.match.engine.service.MatchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按交易对定期记录负载（命令速率、成交速率、挂单数、撮合线程CPU占用），追加到CSV文件，
+ * 供 {@link PlacementPlanner} 离线计算交易对在节点间的均衡分配
+ * <p>
+ * 撮合线程只累加计数，速率和CPU占用由采样线程按相邻两次采样的差值计算。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "match.placement.record-metrics", havingValue = "true")
+public class SymbolLoadRecorder {
+    
+    private final MatchEngineConfig config;
+    private final MatchService matchService;
+    
+    // 交易对 -> 上一次采样时的累计值，只在采样线程中访问
+    private final Map<String, long[]> previous = new HashMap<>();
+    
+    /**
+     * 采样并追加到负载记录文件
+     */
+    @Scheduled(fixedDelayString = "${match.placement.sample-interval-ms:60000}")
+    public void sample() {
+        long now = System.currentTimeMillis();
+        Map<String, SymbolLoadCounter> counters = matchService.getLoadCounters();
+        previous.keySet().retainAll(counters.keySet());
+        
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, SymbolLoadCounter> entry : counters.entrySet()) {
+            SymbolLoadCounter counter = entry.getValue();
+            long[] current = {now, counter.getCommands(), counter.getFills(), counter.getCpuTimeNanos()};
+            long[] last = previous.put(entry.getKey(), current);
+            // 新上线的交易对从下一次采样开始记录
+            if (last == null || now <= last[0]) {
+                continue;
+            }
+            long intervalMs = now - last[0];
+            double seconds = intervalMs / 1000.0;
+            double cpuPercent = current[3] < 0 || last[3] < 0
+                    ? -1 : (current[3] - last[3]) / (intervalMs * 1e6) * 100;
+            SymbolLoadSample sample = SymbolLoadSample.builder()
+                    .timestamp(now)
+                    .nodeId(config.getNodeId())
+                    .symbol(entry.getKey())
+                    .intervalMs(intervalMs)
+                    .commandsPerSec((current[1] - last[1]) / seconds)
+                    .fillsPerSec((current[2] - last[2]) / seconds)
+                    .bookOrders(counter.getBookOrders())
+                    .cpuPercent(cpuPercent)
+                    .build();
+            lines.append(sample.toCsv()).append('\n');
+        }
+        if (lines.length() > 0) {
+            append(lines.toString());
+        }
+    }
+    
+    private void append(String lines) {
+        Path path = Paths.get(config.getPlacementMetricsFile());
+        try {
+            boolean exists = Files.exists(path);
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                if (!exists) {
+                    writer.write(SymbolLoadSample.CSV_HEADER);
+                    writer.newLine();
+                }
+                writer.write(lines);
+            }
+        } catch (IOException e) {
+            log.error("写入交易对负载记录失败: {}", path, e);
+        }
+    }
+}
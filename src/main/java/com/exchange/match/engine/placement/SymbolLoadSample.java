@@ -0,0 +1,65 @@
+package com.exchange.match.engine.placement;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Locale;
+
+/**
+ * 一个采样周期内单个交易对的负载，按CSV逐行记录
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SymbolLoadSample {
+    public static final String CSV_HEADER =
+            "timestamp,nodeId,symbol,intervalMs,commandsPerSec,fillsPerSec,bookOrders,cpuPercent";
+    
+    private long timestamp; // 采样时间
+    private int nodeId; // 节点ID
+    private String symbol; // 交易对
+    private long intervalMs; // 采样周期（毫秒）
+    private double commandsPerSec; // 每秒命令数
+    private double fillsPerSec; // 每秒成交笔数
+    private int bookOrders; // 挂单数
+    private double cpuPercent; // 撮合线程CPU占用（单核百分比），无法读取时为-1
+    
+    /**
+     * 转为CSV行
+     *
+     * @return CSV行，不含换行符
+     */
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%d,%d,%s,%d,%.3f,%.3f,%d,%.3f",
+                timestamp, nodeId, symbol, intervalMs, commandsPerSec, fillsPerSec, bookOrders, cpuPercent);
+    }
+    
+    /**
+     * 解析CSV行
+     *
+     * @param line CSV行
+     * @return 采样，表头或空行返回null
+     */
+    public static SymbolLoadSample parse(String line) {
+        if (line.isBlank() || line.startsWith("timestamp")) {
+            return null;
+        }
+        String[] fields = line.trim().split(",");
+        if (fields.length != 8) {
+            throw new IllegalArgumentException("负载记录格式错误: " + line);
+        }
+        return SymbolLoadSample.builder()
+                .timestamp(Long.parseLong(fields[0]))
+                .nodeId(Integer.parseInt(fields[1]))
+                .symbol(fields[2])
+                .intervalMs(Long.parseLong(fields[3]))
+                .commandsPerSec(Double.parseDouble(fields[4]))
+                .fillsPerSec(Double.parseDouble(fields[5]))
+                .bookOrders(Integer.parseInt(fields[6]))
+                .cpuPercent(Double.parseDouble(fields[7]))
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.exchange.match.engine.replay;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 命令日志导出工具，把 match_orders 某个分区的原始消息按 {@link CommandLogWriter} 格式写入本地文件
+ * <pre>
+ * --bootstrap localhost:9092 --topic match_orders --partition 0 --from 0 [--to 100000] --out orders.log
+ * </pre>
+ */
+public class CommandLogDumpTool {
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = ReplayTool.parseArgs(args);
+        String topic = options.getOrDefault("topic", "match_orders");
+        int partition = Integer.parseInt(ReplayTool.required(options, "partition"));
+        long from = Long.parseLong(options.getOrDefault("from", "0"));
+        long to = Long.parseLong(options.getOrDefault("to", String.valueOf(Long.MAX_VALUE)));
+        String out = ReplayTool.required(options, "out");
+        
+        Properties props = new Properties();
+        props.put("bootstrap.servers", options.getOrDefault("bootstrap", "localhost:9092"));
+        props.put("key.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
+        props.put("value.deserializer", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+        props.put("enable.auto.commit", "false");
+        
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        long count = 0;
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(props);
+             CommandLogWriter writer = new CommandLogWriter(out, false)) {
+            consumer.assign(Collections.singletonList(topicPartition));
+            consumer.seek(topicPartition, from);
+            long end = Math.min(to, consumer.endOffsets(Collections.singletonList(topicPartition)).get(topicPartition));
+            
+            // 分区中存在偏移量空洞（压缩、事务标记），按消费位置而不是记录数判断是否结束
+            long position = from;
+            while (position < end) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(500));
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    if (record.offset() < end) {
+                        writer.write(record.offset(), record.key(), record.value());
+                        count++;
+                    }
+                }
+                position = consumer.position(topicPartition);
+            }
+        }
+        System.out.printf("dumped %d records from %s-%d to %s%n", count, topic, partition, out);
+    }
+}
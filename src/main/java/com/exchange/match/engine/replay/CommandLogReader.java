@@ -0,0 +1,62 @@
+package com.exchange.match.engine.replay;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 命令日志读取器，格式见 {@link CommandLogWriter}
+ */
+public class CommandLogReader implements Closeable {
+    private final DataInputStream in;
+    private long position;
+    
+    /**
+     * 构造函数
+     *
+     * @param path 文件路径
+     * @throws IOException 打开文件失败
+     */
+    public CommandLogReader(String path) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+    }
+    
+    /**
+     * 读取下一条记录
+     *
+     * @return 命令日志记录，读到文件末尾时返回null
+     * @throws IOException 读取失败或文件被截断
+     */
+    public CommandLogRecord next() throws IOException {
+        long offset;
+        try {
+            offset = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] key = new byte[in.readInt()];
+        in.readFully(key);
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        position += 16L + key.length + value.length;
+        return new CommandLogRecord(offset, new String(key, StandardCharsets.UTF_8), value);
+    }
+    
+    /**
+     * 已完整读取的记录的总字节数，文件尾部被截断时可据此丢弃不完整的记录
+     *
+     * @return 字节数
+     */
+    public long position() {
+        return position;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
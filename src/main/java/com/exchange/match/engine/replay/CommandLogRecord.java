@@ -0,0 +1,15 @@
+package com.exchange.match.engine.replay;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 命令日志记录，对应一条原始的 match_orders 消息
+ */
+@Getter
+@AllArgsConstructor
+public class CommandLogRecord {
+    private final long offset; // Kafka偏移量
+    private final String key; // 消息key，区分命令类型
+    private final byte[] value; // Protostuff编码的消息体
+}
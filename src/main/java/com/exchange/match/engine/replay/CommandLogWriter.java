@@ -0,0 +1,73 @@
+package com.exchange.match.engine.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 命令日志写入器
+ * <p>
+ * 文件格式为连续的记录：offset(long) | key长度(int) | key(UTF-8) | value长度(int) | value
+ */
+public class CommandLogWriter implements Closeable {
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    
+    /**
+     * 构造函数
+     *
+     * @param path   文件路径
+     * @param append 是否追加写入
+     * @throws IOException 打开文件失败
+     */
+    public CommandLogWriter(String path, boolean append) throws IOException {
+        this.file = new FileOutputStream(path, append);
+        this.out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+    }
+    
+    /**
+     * 写入一条记录
+     *
+     * @param offset Kafka偏移量
+     * @param key    消息key
+     * @param value  消息体
+     * @return 记录的字节数
+     * @throws IOException 写入失败
+     */
+    public int write(long offset, String key, byte[] value) throws IOException {
+        byte[] keyBytes = key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8);
+        out.writeLong(offset);
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(value.length);
+        out.write(value);
+        return 16 + keyBytes.length + value.length;
+    }
+    
+    /**
+     * 刷新缓冲区
+     *
+     * @throws IOException 写入失败
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    /**
+     * 刷新缓冲区并把文件内容强制写入磁盘，返回后进程或机器崩溃都不会丢失已写入的记录
+     *
+     * @throws IOException 写入失败
+     */
+    public void force() throws IOException {
+        out.flush();
+        file.getChannel().force(false);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
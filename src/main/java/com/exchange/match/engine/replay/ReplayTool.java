@@ -0,0 +1,152 @@
+package com.exchange.match.engine.replay;
+
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.matching.MatchingEngine;
+import com.exchange.match.engine.matching.TradeExecutionResult;
+import com.exchange.match.engine.model.Symbol;
+import com.exchange.match.engine.orderbook.OrderBook;
+import com.exchange.match.engine.util.LatencyRecorder;
+import com.exchange.match.engine.util.OrderCommandUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 离线重放工具，将录制的命令日志直接送入 MatchingEngine，不依赖Kafka、Mongo、Redis和Nacos
+ * <p>
+ * 引擎时钟替换为命令自带的时间戳，成交ID从0开始，相同输入在不同引擎版本下应产生逐字节一致的输出。
+ * <pre>
+ * java -cp match-engine.jar -Dloader.main=com.exchange.match.engine.replay.ReplayTool \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --symbol BTCUSDT --in orders.log|journal/BTCUSDT --out results.bin [--maker-fee 0.001] [--taker-fee 0.002] [--aggregation-groups 1,10,100]
+ * </pre>
+ */
+public class ReplayTool {
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String symbolName = required(options, "symbol");
+        String in = required(options, "in");
+        String out = options.get("out");
+        
+        Symbol symbol = buildSymbol(symbolName, options);
+        OrderBook orderBook = new OrderBook(symbolName);
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook, symbol, new AtomicLong(0));
+        if (options.containsKey("aggregation-groups")) {
+            int[] groups = Arrays.stream(options.get("aggregation-groups").split(","))
+                    .mapToInt(Integer::parseInt).toArray();
+            orderBook.enableAggregation(symbol.getPriceDecimal(), groups);
+        }
+        
+        // 引擎时间取自当前命令的时间戳
+        long[] commandTime = new long[1];
+        matchingEngine.setClock(() -> commandTime[0]);
+        
+        LatencyRecorder latencies = new LatencyRecorder();
+        long skipped = 0;
+        long trades = 0;
+        
+        long startNanos = System.nanoTime();
+        // 目录按共享内存来源的分段命令日志处理，按起始偏移量顺序读取各段
+        Path inPath = Paths.get(in);
+        List<Path> inputs = Files.isDirectory(inPath) ? SegmentedCommandLog.segments(inPath) : Collections.singletonList(inPath);
+        try (ResultStreamWriter writer = out == null ? null : new ResultStreamWriter(out)) {
+            for (Path input : inputs) {
+                try (CommandLogReader reader = new CommandLogReader(input.toString())) {
+                    CommandLogRecord record;
+                    while ((record = reader.next()) != null) {
+                        long begin = System.nanoTime();
+                        OrderCommand command;
+                        try {
+                            command = OrderCommandUtils.decode(record.getKey(), record.getValue());
+                        } catch (RuntimeException e) {
+                            // 无法解码的记录与撮合服务一样跳过，不中断重放
+                            System.err.printf("skip undecodable record at offset %d: %s%n", record.getOffset(), e);
+                            skipped++;
+                            continue;
+                        }
+                        // 同一分区中混有其他交易对的命令
+                        if (command == null || !symbolName.equals(command.getSymbol())) {
+                            skipped++;
+                            continue;
+                        }
+                        commandTime[0] = command.getTimestamp() == null ? 0 : command.getTimestamp();
+                        TradeExecutionResult result = matchingEngine.processCommand(command, record.getOffset());
+                        latencies.record(System.nanoTime() - begin);
+                        
+                        if (result != null) {
+                            trades += result.getPublicTrades().size();
+                            if (writer != null) {
+                                writer.write(result);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        long totalNanos = System.nanoTime() - startNanos;
+        
+        printReport(latencies, skipped, trades, totalNanos, orderBook);
+    }
+    
+    /**
+     * 输出吞吐量和延迟分位数
+     */
+    private static void printReport(LatencyRecorder latencies, long skipped, long trades, long totalNanos,
+                                    OrderBook orderBook) {
+        int count = latencies.count();
+        System.out.printf("commands: %d, skipped: %d, trades: %d, last offset: %d%n",
+                count, skipped, trades, orderBook.getLastProcessedOffset());
+        System.out.printf("elapsed: %.3f s, throughput: %.0f cmd/s%n",
+                totalNanos / 1e9, count / (totalNanos / 1e9));
+        System.out.println(latencies.report());
+    }
+    
+    /**
+     * 根据命令行参数构建交易对信息
+     */
+    private static Symbol buildSymbol(String symbolName, Map<String, String> options) {
+        BigDecimal makerFee = new BigDecimal(options.getOrDefault("maker-fee", "0"));
+        BigDecimal takerFee = new BigDecimal(options.getOrDefault("taker-fee", "0"));
+        
+        Symbol symbol = new Symbol();
+        symbol.setSymbol(symbolName);
+        symbol.setMarginCoin(options.getOrDefault("fee-coin", ""));
+        symbol.setPriceDecimal(Integer.valueOf(options.getOrDefault("price-decimal", "8")));
+        symbol.setQuantityDecimal(Integer.valueOf(options.getOrDefault("quantity-decimal", "8")));
+        symbol.setBuyMakerFee(makerFee);
+        symbol.setSellMakerFee(makerFee);
+        symbol.setBuyTakerFee(takerFee);
+        symbol.setSellTakerFee(takerFee);
+        return symbol;
+    }
+    
+    /**
+     * 解析 --name value 形式的参数
+     */
+    public static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            }
+        }
+        return options;
+    }
+    
+    static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("缺少参数 --" + name);
+        }
+        return value;
+    }
+}
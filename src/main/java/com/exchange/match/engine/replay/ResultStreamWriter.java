@@ -0,0 +1,94 @@
+package com.exchange.match.engine.replay;
+
+import com.exchange.match.engine.dto.AggregatedDepthUpdate;
+import com.exchange.match.engine.dto.Kline;
+import com.exchange.match.engine.dto.OrderReject;
+import com.exchange.match.engine.dto.PublicTradeRecord;
+import com.exchange.match.engine.dto.TradeResult;
+import com.exchange.match.engine.matching.TradeExecutionResult;
+import com.exchange.match.engine.util.ProtostuffUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 撮合结果流写入器，用于不同引擎版本之间逐字节比对输出
+ * <p>
+ * 每条记录格式：类型(byte) | offset(long) | 长度(int) | Protostuff编码的数据
+ */
+public class ResultStreamWriter implements Closeable {
+    public static final byte TYPE_TAKER_TRADE = 1;
+    public static final byte TYPE_MAKER_TRADE = 2;
+    public static final byte TYPE_PUBLIC_TRADE = 3;
+    public static final byte TYPE_ORDER_BOOK_UPDATE = 4;
+    public static final byte TYPE_AGGREGATED_DEPTH_UPDATE = 5;
+    public static final byte TYPE_ORDER_REJECT = 6;
+    public static final byte TYPE_ORDER_EVENTS = 7;
+    public static final byte TYPE_KLINE = 8;
+    public static final byte TYPE_TICKER_STATISTICS = 9;
+    
+    private final DataOutputStream out;
+    
+    /**
+     * 构造函数
+     *
+     * @param path 文件路径
+     * @throws IOException 打开文件失败
+     */
+    public ResultStreamWriter(String path) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+    }
+    
+    /**
+     * 写入一次撮合的全部结果，顺序与KafkaProducerService的发送顺序一致
+     *
+     * @param result 撮合结果
+     * @throws IOException 写入失败
+     */
+    public void write(TradeExecutionResult result) throws IOException {
+        long offset = result.getOffset() == null ? -1 : result.getOffset();
+        for (TradeResult takerTradeResult : result.getTakerTradeResults()) {
+            write(TYPE_TAKER_TRADE, offset, takerTradeResult);
+        }
+        for (TradeResult makerTradeResult : result.getMakerTradeResults()) {
+            write(TYPE_MAKER_TRADE, offset, makerTradeResult);
+        }
+        for (OrderReject reject : result.getRejects()) {
+            write(TYPE_ORDER_REJECT, offset, reject);
+        }
+        for (PublicTradeRecord publicTrade : result.getPublicTrades()) {
+            write(TYPE_PUBLIC_TRADE, offset, publicTrade);
+        }
+        if (result.getOrderBookUpdate() != null) {
+            write(TYPE_ORDER_BOOK_UPDATE, offset, result.getOrderBookUpdate());
+        }
+        for (AggregatedDepthUpdate aggregatedDepthUpdate : result.getAggregatedDepthUpdates()) {
+            write(TYPE_AGGREGATED_DEPTH_UPDATE, offset, aggregatedDepthUpdate);
+        }
+        if (result.getOrderEvents() != null) {
+            write(TYPE_ORDER_EVENTS, offset, result.getOrderEvents());
+        }
+        for (Kline kline : result.getKlines()) {
+            write(TYPE_KLINE, offset, kline);
+        }
+        if (result.getTickerStatistics() != null) {
+            write(TYPE_TICKER_STATISTICS, offset, result.getTickerStatistics());
+        }
+    }
+    
+    private void write(byte type, long offset, Object data) throws IOException {
+        byte[] bytes = ProtostuffUtils.serialize(data);
+        out.writeByte(type);
+        out.writeLong(offset);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
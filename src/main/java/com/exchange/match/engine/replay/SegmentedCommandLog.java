@@ -0,0 +1,240 @@
+package com.exchange.match.engine.replay;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 分段命令日志，一个目录下的多个段文件，每个段的格式同 {@link CommandLogWriter}
+ * <p>
+ * 段文件以段内第一条记录的偏移量命名（20位补零），当前段超过段大小后在记录边界切换到新段，
+ * 偏移量在段之间连续，只有最后一个段可能因崩溃留下不完整的尾部。
+ * 恢复时只检查最后一个段，重放时从包含起始偏移量的段开始读取，快照保存后可删除全部记录都在快照之前的段，
+ * 因此磁盘占用和重启耗时只与最近一次快照之后的命令量有关。
+ * <p>
+ * 非线程安全，写入、刷盘和删除由同一个线程调用。
+ */
+@Slf4j
+public class SegmentedCommandLog implements Closeable {
+    
+    private static final String SUFFIX = ".journal";
+    
+    private final Path dir;
+    private final long segmentBytes;
+    private CommandLogWriter writer;
+    private long writerBytes;
+    
+    /**
+     * 构造函数
+     *
+     * @param dir          段文件目录，不存在时创建
+     * @param segmentBytes 单个段的大小上限（字节）
+     * @throws IOException 创建目录失败
+     */
+    public SegmentedCommandLog(Path dir, long segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+    }
+    
+    /**
+     * 目录下的全部段文件，按起始偏移量升序
+     *
+     * @param dir 目录
+     * @return 段文件列表，目录不存在时为空
+     * @throws IOException 读取目录失败
+     */
+    public static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).forEach(segments::add);
+            // 文件名补零到相同长度，按名称排序即按偏移量排序
+            segments.sort(null);
+            return segments;
+        }
+    }
+    
+    /**
+     * 段文件的起始偏移量
+     *
+     * @param segment 段文件
+     * @return 偏移量
+     */
+    public static long baseOffset(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+    
+    /**
+     * 检查最后一个段，截掉崩溃时写了一半的尾部记录
+     *
+     * @return 最后一条记录的下一个偏移量，没有记录时返回0
+     * @throws IOException 读写失败
+     */
+    public long recover() throws IOException {
+        List<Path> segments = segments(dir);
+        if (segments.isEmpty()) {
+            return 0L;
+        }
+        Path last = segments.get(segments.size() - 1);
+        long nextOffset = baseOffset(last);
+        long validLength;
+        try (CommandLogReader reader = new CommandLogReader(last.toString())) {
+            try {
+                CommandLogRecord record;
+                while ((record = reader.next()) != null) {
+                    nextOffset = record.getOffset() + 1;
+                }
+            } catch (EOFException e) {
+                log.warn("命令日志尾部记录不完整: {}", last);
+            }
+            validLength = reader.position();
+        }
+        if (Files.size(last) > validLength) {
+            try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+            log.warn("命令日志截断到{}字节: {}", validLength, last);
+        }
+        return nextOffset;
+    }
+    
+    /**
+     * 按顺序读取[fromOffset, toOffset)范围内的记录，跳过起始偏移量所在段之前的段
+     *
+     * @param fromOffset 起始偏移量（包含）
+     * @param toOffset   结束偏移量（不包含）
+     * @param handler    记录处理器
+     * @return 读取的记录数
+     * @throws IOException          读取失败
+     * @throws InterruptedException 处理器被中断
+     */
+    public int replay(long fromOffset, long toOffset, RecordHandler handler) throws IOException, InterruptedException {
+        List<Path> segments = segments(dir);
+        int start = 0;
+        for (int i = 1; i < segments.size() && baseOffset(segments.get(i)) <= fromOffset; i++) {
+            start = i;
+        }
+        int replayed = 0;
+        for (int i = start; i < segments.size(); i++) {
+            if (baseOffset(segments.get(i)) >= toOffset) {
+                break;
+            }
+            try (CommandLogReader reader = new CommandLogReader(segments.get(i).toString())) {
+                CommandLogRecord record;
+                while ((record = reader.next()) != null && record.getOffset() < toOffset) {
+                    if (record.getOffset() >= fromOffset) {
+                        handler.accept(record);
+                        replayed++;
+                    }
+                }
+            }
+        }
+        return replayed;
+    }
+    
+    /**
+     * 追加一条记录，当前段已满时先切换到以该偏移量命名的新段
+     *
+     * @param offset 偏移量
+     * @param key    消息key
+     * @param value  消息体
+     * @throws IOException 写入失败
+     */
+    public void write(long offset, String key, byte[] value) throws IOException {
+        if (writer == null || writerBytes >= segmentBytes) {
+            roll(offset);
+        }
+        writerBytes += writer.write(offset, key, value);
+    }
+    
+    /**
+     * 刷新缓冲区并把当前段强制写入磁盘
+     *
+     * @throws IOException 写入失败
+     */
+    public void force() throws IOException {
+        if (writer != null) {
+            writer.force();
+        }
+    }
+    
+    /**
+     * 删除全部记录都小于指定偏移量的段，当前写入的段不删除
+     *
+     * @param offset 仍需保留的最小偏移量
+     * @return 删除的段数
+     * @throws IOException 删除失败
+     */
+    public int deleteBefore(long offset) throws IOException {
+        List<Path> segments = segments(dir);
+        int deleted = 0;
+        // 段i的记录范围是[段i起始偏移量, 段i+1起始偏移量)，最后一个段没有后继，不会被删除
+        for (int i = 0; i + 1 < segments.size() && baseOffset(segments.get(i + 1)) <= offset; i++) {
+            Files.deleteIfExists(segments.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+    
+    /**
+     * 切换到新段，旧段刷盘后关闭，恢复时只检查最后一个段
+     */
+    private void roll(long offset) throws IOException {
+        if (writer != null) {
+            writer.force();
+            writer.close();
+        }
+        Path segment = dir.resolve(String.format("%020d%s", offset, SUFFIX));
+        // 重启后最后一个段没有记录时起始偏移量相同，继续追加到该段
+        writer = new CommandLogWriter(segment.toString(), true);
+        writerBytes = Files.size(segment);
+        forceDirectory();
+    }
+    
+    /**
+     * 目录刷盘，保证新建的段文件在机器崩溃后仍然存在；部分平台不支持打开目录，忽略
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("命令日志目录刷盘失败: {}", dir, e);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+    
+    /**
+     * 重放时的记录处理器
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        
+        /**
+         * 处理一条记录
+         *
+         * @param record 命令日志记录
+         * @throws InterruptedException 投递时被中断
+         */
+        void accept(CommandLogRecord record) throws InterruptedException;
+    }
+}
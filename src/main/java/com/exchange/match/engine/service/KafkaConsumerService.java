@@ -3,20 +3,25 @@ package com.exchange.match.engine.service;
 import com.exchange.match.engine.config.MatchEngineConfig;
 import com.exchange.match.engine.dto.OrderCommand;
 import com.exchange.match.engine.model.Order;
-import com.exchange.match.engine.util.ProtostuffUtils;
+import com.exchange.match.engine.transport.CommandSource;
+import com.exchange.match.engine.transport.SequencedCommand;
+import com.exchange.match.engine.util.OrderCommandUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Kafka消费者服务，负责消费订单消息
@@ -24,7 +29,8 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class KafkaConsumerService {
+@ConditionalOnProperty(name = "match.transport.command-source", havingValue = "kafka", matchIfMissing = true)
+public class KafkaConsumerService implements CommandSource {
     
     private final MatchEngineConfig config;
     private final Map<String, KafkaConsumer<String, byte[]>> consumers = new ConcurrentHashMap<>();
@@ -36,7 +42,63 @@ public class KafkaConsumerService {
      * @param partition  分区
      * @param messageQueue 消息队列
      */
-    public void startConsumerThread(String symbol, int partition, BlockingQueue<ConsumerRecord<String, byte[]>> messageQueue) {
+    @Override
+    public void start(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue) {
+        start(symbol, partition, messageQueue, -1L);
+    }
+    
+    /**
+     * 从指定offset启动消费线程
+     *
+     * @param symbol       交易对
+     * @param partition    分区
+     * @param messageQueue 消息队列
+     * @param fromOffset   起始offset，小于0表示从默认位置开始
+     */
+    @Override
+    public void start(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue, long fromOffset) {
+        startConsumer(symbol, partition, messageQueue, consumer -> {
+            if (fromOffset >= 0) {
+                consumer.seek(new TopicPartition(config.getOrdersTopic(), partition), fromOffset);
+                log.info("从offset {}开始消费: {}-{}", fromOffset, symbol, partition);
+            }
+        });
+    }
+    
+    /**
+     * 从时间戳不早于指定时间的第一条消息启动消费线程，分区中没有这样的消息时从末尾开始
+     *
+     * @param symbol       交易对
+     * @param partition    分区
+     * @param messageQueue 消息队列
+     * @param timestamp    起始时间
+     */
+    @Override
+    public void startFromTimestamp(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue, long timestamp) {
+        startConsumer(symbol, partition, messageQueue, consumer -> {
+            TopicPartition topicPartition = new TopicPartition(config.getOrdersTopic(), partition);
+            OffsetAndTimestamp found = consumer.offsetsForTimes(Collections.singletonMap(topicPartition, timestamp))
+                    .get(topicPartition);
+            if (found != null) {
+                consumer.seek(topicPartition, found.offset());
+                log.info("从时间{}对应的offset {}开始消费: {}-{}", timestamp, found.offset(), symbol, partition);
+            } else {
+                consumer.seekToEnd(Collections.singletonList(topicPartition));
+                log.info("分区中没有时间{}之后的消息，从末尾开始消费: {}-{}", timestamp, symbol, partition);
+            }
+        });
+    }
+    
+    /**
+     * 创建消费者、定位起始位置并启动消费线程
+     *
+     * @param symbol       交易对
+     * @param partition    分区
+     * @param messageQueue 消息队列
+     * @param positioner   定位起始位置
+     */
+    private void startConsumer(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue,
+                               Consumer<KafkaConsumer<String, byte[]>> positioner) {
         String consumerKey = symbol + "-" + partition;
         
         if (consumers.containsKey(consumerKey)) {
@@ -45,9 +107,10 @@ public class KafkaConsumerService {
         }
         
         KafkaConsumer<String, byte[]> consumer = createConsumer(symbol, partition);
+        positioner.accept(consumer);
         consumers.put(consumerKey, consumer);
         
-        Thread consumerThread = new Thread(() -> consumeMessages(consumer, messageQueue));
+        Thread consumerThread = new Thread(() -> consumeMessages(symbol, consumer, messageQueue));
         consumerThread.setName("kafka-consumer-" + consumerKey);
         consumerThread.setDaemon(true);
         consumerThread.start();
@@ -64,7 +127,7 @@ public class KafkaConsumerService {
      */
     private KafkaConsumer<String, byte[]> createConsumer(String symbol, int partition) {
         Properties props = new Properties();
-        props.put("bootstrap.servers", "localhost:9092");
+        props.put("bootstrap.servers", config.getKafkaBootstrapServers());
         props.put("group.id", "match-engine-" + config.getNodeId());
         props.put("key.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
         props.put("value.deserializer", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
@@ -81,18 +144,31 @@ public class KafkaConsumerService {
     }
     
     /**
-     * 消费消息
+     * 消费消息，在消费线程上完成解码，并过滤掉同一分区中其他交易对的命令
      *
+     * @param symbol       交易对
      * @param consumer     Kafka消费者
      * @param messageQueue 消息队列
      */
-    private void consumeMessages(KafkaConsumer<String, byte[]> consumer, BlockingQueue<ConsumerRecord<String, byte[]>> messageQueue) {
+    private void consumeMessages(String symbol, KafkaConsumer<String, byte[]> consumer, BlockingQueue<SequencedCommand> messageQueue) {
         try {
             while (true) {
                 ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(100));
                 for (ConsumerRecord<String, byte[]> record : records) {
+                    OrderCommand command;
+                    try {
+                        command = parseOrderCommand(record);
+                    } catch (Exception e) {
+                        // 无法解码的消息跳过，消费位置照常前进，不影响后续命令
+                        log.error("解码消息失败，跳过: partition={}, offset={}, key={}",
+                                record.partition(), record.offset(), record.key(), e);
+                        continue;
+                    }
+                    if (command == null || !symbol.equals(command.getSymbol())) {
+                        continue;
+                    }
                     try {
-                        messageQueue.put(record);
+                        messageQueue.put(new SequencedCommand(command, record.offset()));
                     } catch (InterruptedException e) {
                         log.error("消息入队列被中断", e);
                         Thread.currentThread().interrupt();
@@ -100,6 +176,8 @@ public class KafkaConsumerService {
                     }
                 }
             }
+        } catch (WakeupException e) {
+            log.info("消费线程收到关闭信号: {}", symbol);
         } catch (Exception e) {
             log.error("消费消息异常", e);
         } finally {
@@ -113,11 +191,13 @@ public class KafkaConsumerService {
      * @param symbol    交易对
      * @param partition 分区
      */
-    public void closeConsumer(String symbol, int partition) {
+    @Override
+    public void close(String symbol, int partition) {
         String consumerKey = symbol + "-" + partition;
         KafkaConsumer<String, byte[]> consumer = consumers.remove(consumerKey);
         if (consumer != null) {
-            consumer.close();
+            // KafkaConsumer非线程安全，唤醒消费线程后由其自行关闭
+            consumer.wakeup();
             log.info("关闭消费者: {}", consumerKey);
         }
     }
@@ -129,17 +209,11 @@ public class KafkaConsumerService {
      * @return 订单命令
      */
     public OrderCommand parseOrderCommand(ConsumerRecord<String, byte[]> record) {
-        String key = record.key();
-        byte[] value = record.value();
-        
-        if (OrderCommand.TYPE_NEW_ORDER.equals(key)) {
-            return ProtostuffUtils.deserialize(value, OrderCommand.class);
-        } else if (OrderCommand.TYPE_CANCEL_ORDER.equals(key)) {
-            return ProtostuffUtils.deserialize(value, OrderCommand.class);
-        } else {
-            log.warn("未知的消息类型: {}", key);
-            return null;
+        OrderCommand command = OrderCommandUtils.decode(record.key(), record.value());
+        if (command == null) {
+            log.warn("未知的消息类型: {}", record.key());
         }
+        return command;
     }
     
     /**
@@ -149,25 +223,6 @@ public class KafkaConsumerService {
      * @return 订单对象
      */
     public Order convertToOrder(OrderCommand command) {
-        Order order = new Order();
-        order.setId(command.getOrderId());
-        order.setUserId(command.getUserId());
-        order.setSymbol(command.getSymbol());
-        order.setType(command.getOrderType());
-        order.setPrice(command.getPrice());
-        order.setQuantity(command.getQuantity());
-        order.setQuantityLeft(command.getQuantity());
-        order.setQuantityDone(BigDecimal.ZERO);
-        order.setSide(command.getSide());
-        order.setAction(command.getAction());
-        order.setMarginMode(command.getMarginMode());
-        order.setMarginType(command.getMarginType());
-        order.setPriceStop(command.getPriceStop());
-        order.setVolumeMax(command.getVolumeMax());
-        order.setQuantityClose(command.getQuantityClose());
-        order.setStatus(1); // 等待撮合
-        order.setCreateTime(command.getTimestamp());
-        order.setUpdateTime(command.getTimestamp());
-        return order;
+        return OrderCommandUtils.toOrder(command);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,23 +1,34 @@
 package com.exchange.match.engine.service;
 
 import com.exchange.match.engine.config.MatchEngineConfig;
+import com.exchange.match.engine.dto.AggregatedDepthUpdate;
+import com.exchange.match.engine.dto.Kline;
 import com.exchange.match.engine.dto.MessageWrapper;
 import com.exchange.match.engine.dto.OrderBookUpdate;
+import com.exchange.match.engine.dto.OrderEventBatch;
+import com.exchange.match.engine.dto.OrderReject;
 import com.exchange.match.engine.dto.PublicTradeRecord;
+import com.exchange.match.engine.dto.TickerStatistics;
 import com.exchange.match.engine.dto.TradeResult;
 import com.exchange.match.engine.matching.TradeExecutionResult;
+import com.exchange.match.engine.transport.ResultSink;
 import com.exchange.match.engine.util.ProtostuffUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -27,10 +38,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class KafkaProducerService {
+@ConditionalOnProperty(name = "match.transport.result-sink", havingValue = "kafka", matchIfMissing = true)
+public class KafkaProducerService implements ResultSink {
+    
+    // 交易对下线时等待发送队列清空的最长时间
+    private static final long CLOSE_DRAIN_TIMEOUT_MS = 5000L;
     
     private final MatchEngineConfig config;
+    private final SymbolService symbolService;
     private KafkaProducer<String, byte[]> producer;
+    private MarketDataPartitioner partitioner;
+    // 订单簿更新合并器，未开启合并时为null
+    private OrderBookUpdateConflator conflator;
+    private ScheduledExecutorService conflationScheduler;
     private final BlockingQueue<ProducerRecord<String, byte[]>> messageQueue = new LinkedBlockingQueue<>();
     private final AtomicBoolean running = new AtomicBoolean(false);
     private Thread producerThread;
@@ -41,7 +61,30 @@ public class KafkaProducerService {
     @PostConstruct
     public void init() {
         producer = createProducer();
+        partitioner = new MarketDataPartitioner(config.getOutputPartitioning(), config.isOutputDualWrite(),
+                symbolService::getSymbol, this::partitionCount, System::currentTimeMillis);
         startProducerThread();
+        startConflation();
+    }
+    
+    /**
+     * 开启订单簿更新合并，定时发布等待超过间隔的合并结果
+     */
+    private void startConflation() {
+        long intervalMs = config.getConflationIntervalMs();
+        if (intervalMs <= 0) {
+            return;
+        }
+        conflator = new OrderBookUpdateConflator(intervalMs, config.getConflationMaxChanges());
+        conflationScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-book-conflation-thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        conflationScheduler.scheduleAtFixedRate(
+                () -> conflator.flushDue(System.currentTimeMillis(), this::sendOrderBookUpdate),
+                intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("开启订单簿更新合并，发布间隔: {}ms，变化档位上限: {}", intervalMs, config.getConflationMaxChanges());
     }
     
     /**
@@ -51,7 +94,7 @@ public class KafkaProducerService {
      */
     private KafkaProducer<String, byte[]> createProducer() {
         Properties props = new Properties();
-        props.put("bootstrap.servers", "localhost:9092");
+        props.put("bootstrap.servers", config.getKafkaBootstrapServers());
         props.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
         props.put("value.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
         props.put("acks", "all");
@@ -118,10 +161,11 @@ public class KafkaProducerService {
      *
      * @param result 撮合结果
      */
-    public void sendTradeExecutionResult(TradeExecutionResult result) {
+    @Override
+    public void publish(TradeExecutionResult result) {
         // 发送Taker的成交结果
-        if (result.getTakerTradeResult() != null) {
-            sendTradeResult(result.getTakerTradeResult());
+        for (TradeResult takerTradeResult : result.getTakerTradeResults()) {
+            sendTradeResult(takerTradeResult);
         }
         
         // 发送Maker的成交结果
@@ -129,15 +173,72 @@ public class KafkaProducerService {
             sendTradeResult(makerTradeResult);
         }
         
+        // 发送订单拒绝结果
+        for (OrderReject reject : result.getRejects()) {
+            sendOrderReject(reject, result.getOffset());
+        }
+        
         // 发送公共成交记录
         for (PublicTradeRecord publicTradeRecord : result.getPublicTrades()) {
             sendPublicTradeRecord(publicTradeRecord);
         }
         
-        // 发送订单簿更新
+        // 发送订单簿更新，开启合并时交给合并器限频发布
         if (result.getOrderBookUpdate() != null) {
-            sendOrderBookUpdate(result.getOrderBookUpdate());
+            if (conflator != null) {
+                conflator.offer(result.getOrderBookUpdate(), System.currentTimeMillis(), this::sendOrderBookUpdate);
+            } else {
+                sendOrderBookUpdate(result.getOrderBookUpdate());
+            }
+        }
+        
+        // 发送聚合深度更新
+        for (AggregatedDepthUpdate aggregatedDepthUpdate : result.getAggregatedDepthUpdates()) {
+            sendAggregatedDepthUpdate(aggregatedDepthUpdate);
+        }
+        
+        // 发送逐笔委托事件，不参与合并
+        if (result.getOrderEvents() != null) {
+            sendOrderEvents(result.getOrderEvents());
+        }
+        
+        // 发送收盘的K线
+        for (Kline kline : result.getKlines()) {
+            sendKline(kline);
+        }
+        
+        // 发送24小时行情统计
+        if (result.getTickerStatistics() != null) {
+            sendTickerStatistics(result.getTickerStatistics());
+        }
+    }
+    
+    /**
+     * 交易对下线，发出合并器中尚未发布的订单簿更新，并等待已入队的消息发送完成，
+     * 保证迁移时本节点的输出先于接手节点的输出到达Kafka
+     *
+     * @param symbol 交易对
+     */
+    @Override
+    public void close(String symbol) {
+        if (conflator != null) {
+            conflator.flushAndRemove(symbol, System.currentTimeMillis(), this::sendOrderBookUpdate);
+        }
+        // 发送队列为各交易对共用，有上限地等待队列清空
+        long deadline = System.currentTimeMillis() + CLOSE_DRAIN_TIMEOUT_MS;
+        try {
+            while (!messageQueue.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        if (!messageQueue.isEmpty()) {
+            log.warn("交易对{}下线时发送队列未能在超时内清空，剩余{}条", symbol, messageQueue.size());
+        }
+        producer.flush();
+        // 交易对重新上线时按当时的交易对分区和topic分区数重新计算行情分区
+        partitioner.release(symbol);
     }
     
     /**
@@ -182,25 +283,24 @@ public class KafkaProducerService {
     }
     
     /**
-     * 发送公共成交记录
+     * 发送订单拒绝结果，与成交结果使用同一主题和分区，保证同一用户的结果有序
      *
-     * @param publicTradeRecord 公共成交记录
+     * @param reject 订单拒绝结果
+     * @param offset 命令的Kafka偏移量
      */
-    private void sendPublicTradeRecord(PublicTradeRecord publicTradeRecord) {
-        String topic = config.getTradesTopic();
-        int partition = 0; // 根据实际情况确定分区
+    private void sendOrderReject(OrderReject reject, Long offset) {
+        String topic = config.getUserTasksTopic();
+        int partition = config.calculateUserPartition(reject.getUserId());
         
         // 生成消息ID，用于业务端排重
-        String messageId = MessageWrapper.generatePublicTradeMessageId(
-                publicTradeRecord.getTradeId(),
-                0L);  // 这里应该是对手方订单ID，但我们在PublicTradeRecord中没有保存
+        String messageId = MessageWrapper.generateOrderRejectMessageId(reject.getOrderId(), offset);
         
-        MessageWrapper<PublicTradeRecord> messageWrapper = new MessageWrapper<>(
+        MessageWrapper<OrderReject> messageWrapper = new MessageWrapper<>(
                 messageId,
                 topic,
                 partition,
-                "PUBLIC_TRADE",
-                publicTradeRecord,
+                "ORDER_REJECT",
+                reject,
                 System.currentTimeMillis()
         );
         
@@ -209,7 +309,7 @@ public class KafkaProducerService {
         ProducerRecord<String, byte[]> record = new ProducerRecord<>(
                 topic,
                 partition,
-                publicTradeRecord.getSymbol(),
+                String.valueOf(reject.getUserId()),
                 messageBytes
         );
         
@@ -221,6 +321,34 @@ public class KafkaProducerService {
         }
     }
     
+    /**
+     * 发送公共成交记录
+     *
+     * @param publicTradeRecord 公共成交记录
+     */
+    private void sendPublicTradeRecord(PublicTradeRecord publicTradeRecord) {
+        String topic = config.getTradesTopic();
+        int partition = marketDataPartition(topic, publicTradeRecord.getSymbol());
+        
+        // 生成消息ID，用于业务端排重
+        String messageId = MessageWrapper.generatePublicTradeMessageId(
+                publicTradeRecord.getTradeId(),
+                0L);  // 这里应该是对手方订单ID，但我们在PublicTradeRecord中没有保存
+        
+        MessageWrapper<PublicTradeRecord> messageWrapper = new MessageWrapper<>(
+                messageId,
+                topic,
+                partition,
+                "PUBLIC_TRADE",
+                publicTradeRecord,
+                System.currentTimeMillis()
+        );
+        
+        byte[] messageBytes = ProtostuffUtils.serialize(messageWrapper);
+        
+        enqueueMarketData(topic, partition, publicTradeRecord.getSymbol(), messageBytes);
+    }
+    
     /**
      * 发送订单簿更新
      *
@@ -228,7 +356,7 @@ public class KafkaProducerService {
      */
     private void sendOrderBookUpdate(OrderBookUpdate orderBookUpdate) {
         String topic = config.getOrderBookTopic();
-        int partition = 0; // 根据实际情况确定分区
+        int partition = marketDataPartition(topic, orderBookUpdate.getSymbol());
         
         // 生成消息ID，用于业务端排重
         String messageId = MessageWrapper.generateOrderBookUpdateMessageId(
@@ -246,15 +374,159 @@ public class KafkaProducerService {
         
         byte[] messageBytes = ProtostuffUtils.serialize(messageWrapper);
         
-        ProducerRecord<String, byte[]> record = new ProducerRecord<>(
+        enqueueMarketData(topic, partition, orderBookUpdate.getSymbol(), messageBytes);
+    }
+    
+    /**
+     * 发送聚合深度更新
+     *
+     * @param aggregatedDepthUpdate 聚合深度更新
+     */
+    private void sendAggregatedDepthUpdate(AggregatedDepthUpdate aggregatedDepthUpdate) {
+        String topic = config.getAggregatedDepthTopic();
+        int partition = marketDataPartition(topic, aggregatedDepthUpdate.getSymbol());
+        
+        // 生成消息ID，用于业务端排重
+        String messageId = MessageWrapper.generateAggregatedDepthMessageId(
+                aggregatedDepthUpdate.getSymbol(),
+                aggregatedDepthUpdate.getGroupTicks(),
+                aggregatedDepthUpdate.getLastOffset());
+        
+        MessageWrapper<AggregatedDepthUpdate> messageWrapper = new MessageWrapper<>(
+                messageId,
                 topic,
                 partition,
-                orderBookUpdate.getSymbol(),
-                messageBytes
+                "AGGREGATED_DEPTH_UPDATE",
+                aggregatedDepthUpdate,
+                System.currentTimeMillis()
+        );
+        
+        byte[] messageBytes = ProtostuffUtils.serialize(messageWrapper);
+        
+        enqueueMarketData(topic, partition, aggregatedDepthUpdate.getSymbol(), messageBytes);
+    }
+    
+    /**
+     * 发送逐笔委托事件
+     *
+     * @param orderEvents 逐笔委托事件批次
+     */
+    private void sendOrderEvents(OrderEventBatch orderEvents) {
+        String topic = config.getOrderEventsTopic();
+        int partition = marketDataPartition(topic, orderEvents.getSymbol());
+        
+        // 生成消息ID，用于业务端排重
+        String messageId = MessageWrapper.generateOrderEventMessageId(
+                orderEvents.getSymbol(),
+                orderEvents.getFirstSequence());
+        
+        MessageWrapper<OrderEventBatch> messageWrapper = new MessageWrapper<>(
+                messageId,
+                topic,
+                partition,
+                "ORDER_EVENTS",
+                orderEvents,
+                System.currentTimeMillis()
+        );
+        
+        byte[] messageBytes = ProtostuffUtils.serialize(messageWrapper);
+        
+        enqueueMarketData(topic, partition, orderEvents.getSymbol(), messageBytes);
+    }
+    
+    /**
+     * 发送收盘的K线
+     *
+     * @param kline K线
+     */
+    private void sendKline(Kline kline) {
+        String topic = config.getKlinesTopic();
+        int partition = marketDataPartition(topic, kline.getSymbol());
+        
+        // 生成消息ID，用于业务端排重
+        String messageId = MessageWrapper.generateKlineMessageId(
+                kline.getSymbol(),
+                kline.getInterval(),
+                kline.getOpenTime());
+        
+        MessageWrapper<Kline> messageWrapper = new MessageWrapper<>(
+                messageId,
+                topic,
+                partition,
+                "KLINE",
+                kline,
+                System.currentTimeMillis()
         );
         
+        byte[] messageBytes = ProtostuffUtils.serialize(messageWrapper);
+        
+        enqueueMarketData(topic, partition, kline.getSymbol(), messageBytes);
+    }
+    
+    /**
+     * 发送24小时行情统计
+     *
+     * @param tickerStatistics 24小时行情统计
+     */
+    private void sendTickerStatistics(TickerStatistics tickerStatistics) {
+        String topic = config.getTickerTopic();
+        int partition = marketDataPartition(topic, tickerStatistics.getSymbol());
+        
+        // 生成消息ID，用于业务端排重
+        String messageId = MessageWrapper.generateTickerMessageId(
+                tickerStatistics.getSymbol(),
+                tickerStatistics.getTimestamp());
+        
+        MessageWrapper<TickerStatistics> messageWrapper = new MessageWrapper<>(
+                messageId,
+                topic,
+                partition,
+                "TICKER_24H",
+                tickerStatistics,
+                System.currentTimeMillis()
+        );
+        
+        byte[] messageBytes = ProtostuffUtils.serialize(messageWrapper);
+        
+        enqueueMarketData(topic, partition, tickerStatistics.getSymbol(), messageBytes);
+    }
+    
+    /**
+     * 计算行情消息的分区，同一交易对上线期间始终写入同一分区以保证顺序
+     *
+     * @param topic  topic
+     * @param symbol 交易对
+     * @return 分区
+     */
+    private int marketDataPartition(String topic, String symbol) {
+        return partitioner.partition(topic, symbol);
+    }
+    
+    /**
+     * 查询topic的分区数，由分区器定期调用
+     *
+     * @param topic topic
+     * @return 分区数
+     */
+    private int partitionCount(String topic) {
+        List<PartitionInfo> partitions = producer.partitionsFor(topic);
+        return partitions == null || partitions.isEmpty() ? 1 : partitions.size();
+    }
+    
+    /**
+     * 行情消息入队，迁移期间同时写入原来的分区，两份消息ID相同，下游可按消息ID排重
+     *
+     * @param topic        topic
+     * @param partition    分区
+     * @param symbol       交易对，作为消息key
+     * @param messageBytes 消息体
+     */
+    private void enqueueMarketData(String topic, int partition, String symbol, byte[] messageBytes) {
         try {
-            messageQueue.put(record);
+            messageQueue.put(new ProducerRecord<>(topic, partition, symbol, messageBytes));
+            if (partitioner.writesLegacy(partition)) {
+                messageQueue.put(new ProducerRecord<>(topic, MarketDataPartitioner.LEGACY_PARTITION, symbol, messageBytes));
+            }
         } catch (InterruptedException e) {
             log.error("入队列失败", e);
             Thread.currentThread().interrupt();
@@ -266,6 +538,11 @@ public class KafkaProducerService {
      */
     @PreDestroy
     public void destroy() {
+        if (conflationScheduler != null) {
+            conflationScheduler.shutdownNow();
+            conflator.flushAll(System.currentTimeMillis(), this::sendOrderBookUpdate);
+        }
+        
         running.set(false);
         if (producerThread != null) {
             producerThread.interrupt();
@@ -0,0 +1,130 @@
+package com.exchange.match.engine.service;
+
+import com.exchange.match.engine.model.Symbol;
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * 行情消息分区器，计算交易对的行情消息写入的分区
+ * <p>
+ * fixed 全部写入分区0；hash 按交易对名称的murmur2哈希取模，与Kafka默认分区器对key的哈希一致；
+ * symbol 按交易对信息中的分区取模，交易对没有分区时退回hash。
+ * <p>
+ * 交易对在每个topic上的分区首次发布时确定，上线期间不再变化：交易对信息中的分区被修改、topic扩容都不会让上线中的交易对换分区，
+ * 同一交易对的行情始终有序。交易对下线（{@link #release}）后重新上线时才按新的分区和分区数计算，
+ * 与修改交易对分区须先下线的约定一致。topic分区数定期重新查询，扩容后新上线的交易对可以用到新分区。
+ */
+public class MarketDataPartitioner {
+    
+    // 迁移前所有行情消息写入的分区
+    public static final int LEGACY_PARTITION = 0;
+    // topic分区数的缓存时间（毫秒）
+    private static final long PARTITION_COUNT_TTL_MS = 60_000;
+    
+    private final String mode;
+    private final boolean dualWrite;
+    private final Function<String, Symbol> symbolLookup;
+    private final ToIntFunction<String> partitionCountLookup;
+    private final LongSupplier clock;
+    // topic -> 分区数
+    private final Map<String, PartitionCount> partitionCounts = new ConcurrentHashMap<>();
+    // 交易对 -> topic -> 分区，交易对下线时清除
+    private final Map<String, Map<String, Integer>> symbolPartitions = new ConcurrentHashMap<>();
+    
+    /**
+     * 缓存的topic分区数
+     */
+    private static final class PartitionCount {
+        private final int count;
+        private final long expireTime;
+        
+        private PartitionCount(int count, long expireTime) {
+            this.count = count;
+            this.expireTime = expireTime;
+        }
+    }
+    
+    /**
+     * @param mode                 分区方式：fixed、hash 或 symbol
+     * @param dualWrite            是否同时写入分区0
+     * @param symbolLookup         按名称查询交易对信息
+     * @param partitionCountLookup 查询topic的分区数
+     * @param clock                当前时间（毫秒）
+     */
+    public MarketDataPartitioner(String mode, boolean dualWrite, Function<String, Symbol> symbolLookup,
+                                 ToIntFunction<String> partitionCountLookup, LongSupplier clock) {
+        this.mode = mode;
+        this.dualWrite = dualWrite;
+        this.symbolLookup = symbolLookup;
+        this.partitionCountLookup = partitionCountLookup;
+        this.clock = clock;
+    }
+    
+    /**
+     * 行情消息的分区，同一交易对上线期间始终相同
+     *
+     * @param topic  topic
+     * @param symbol 交易对
+     * @return 分区
+     */
+    public int partition(String topic, String symbol) {
+        if ("fixed".equals(mode) || symbol == null) {
+            return LEGACY_PARTITION;
+        }
+        return symbolPartitions.computeIfAbsent(symbol, s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(topic, t -> resolve(t, symbol));
+    }
+    
+    /**
+     * 迁移期间写入某个分区的行情是否还要写一份到分区0，两份消息ID相同，下游可按消息ID排重
+     *
+     * @param partition 分区
+     * @return 是否同时写入分区0
+     */
+    public boolean writesLegacy(int partition) {
+        return dualWrite && partition != LEGACY_PARTITION;
+    }
+    
+    /**
+     * 交易对下线后清除固定的分区，重新上线时重新计算
+     *
+     * @param symbol 交易对
+     */
+    public void release(String symbol) {
+        symbolPartitions.remove(symbol);
+    }
+    
+    /**
+     * 按当前的交易对信息和topic分区数计算分区
+     */
+    private int resolve(String topic, String symbol) {
+        int partitionCount = partitionCount(topic);
+        if ("symbol".equals(mode)) {
+            Symbol symbolInfo = symbolLookup.apply(symbol);
+            if (symbolInfo != null && symbolInfo.getPartition() != null) {
+                return symbolInfo.getPartition() % partitionCount;
+            }
+        }
+        // 与Kafka默认分区器对key的哈希方式一致
+        return Utils.toPositive(Utils.murmur2(symbol.getBytes(StandardCharsets.UTF_8))) % partitionCount;
+    }
+    
+    /**
+     * 获取topic的分区数，缓存过期后重新查询
+     */
+    private int partitionCount(String topic) {
+        long now = clock.getAsLong();
+        PartitionCount cached = partitionCounts.get(topic);
+        if (cached == null || now >= cached.expireTime) {
+            cached = new PartitionCount(Math.max(partitionCountLookup.applyAsInt(topic), 1), now + PARTITION_COUNT_TTL_MS);
+            partitionCounts.put(topic, cached);
+        }
+        return cached.count;
+    }
+}
@@ -1,23 +1,36 @@
 package com.exchange.match.engine.service;
 
 import com.exchange.match.engine.config.MatchEngineConfig;
-import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.dto.TickerStatistics;
+import com.exchange.match.engine.marketdata.MarketDataFanoutServer;
 import com.exchange.match.engine.matching.MatchingEngine;
 import com.exchange.match.engine.matching.TradeExecutionResult;
-import com.exchange.match.engine.model.Order;
 import com.exchange.match.engine.model.Symbol;
+import com.exchange.match.engine.orderbook.DepthSnapshot;
 import com.exchange.match.engine.orderbook.OrderBook;
+import com.exchange.match.engine.orderbook.OrderBookSnapshot;
+import com.exchange.match.engine.placement.SymbolLoadCounter;
+import com.exchange.match.engine.transport.CommandSource;
+import com.exchange.match.engine.transport.ResultSink;
+import com.exchange.match.engine.transport.SequencedCommand;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -30,14 +43,19 @@ public class MatchService implements ApplicationRunner {
     
     private final MatchEngineConfig config;
     private final SymbolService symbolService;
-    private final KafkaConsumerService kafkaConsumerService;
-    private final KafkaProducerService kafkaProducerService;
+    private final CommandSource commandSource;
+    private final ResultSink resultSink;
     private final OrderBookPersistenceService orderBookPersistenceService;
+    private final ObjectProvider<MarketDataFanoutServer> fanoutServerProvider;
     
     private final Map<String, MatchingEngine> matchingEngines = new ConcurrentHashMap<>();
-    private final Map<String, BlockingQueue<ConsumerRecord<String, byte[]>>> messageQueues = new ConcurrentHashMap<>();
+    private final Map<String, BlockingQueue<SequencedCommand>> messageQueues = new ConcurrentHashMap<>();
     private final Map<String, Thread> matchThreads = new ConcurrentHashMap<>();
     private final Map<String, AtomicLong> tradeIdGenerators = new ConcurrentHashMap<>();
+    // 交易对下线标记，撮合线程处理完队列中的命令后退出
+    private final Map<String, AtomicBoolean> stopFlags = new ConcurrentHashMap<>();
+    // 交易对负载计数，供放置规划采样
+    private final Map<String, SymbolLoadCounter> loadCounters = new ConcurrentHashMap<>();
     private final ExecutorService executorService = Executors.newCachedThreadPool();
     private final CountDownLatch shutdownLatch = new CountDownLatch(1);
     private volatile boolean running = true;
@@ -58,17 +76,155 @@ public class MatchService implements ApplicationRunner {
                 return;
             }
             
-            // 为每个交易对启动撮合引擎
+            // 为每个交易对启动撮合引擎，已下线的交易对与交易对变更监听一样不启动，监听可能已先启动了部分交易对
+            int started = 0;
             for (Symbol symbol : symbols) {
-                startMatchingEngine(symbol);
+                if (symbol.getStatus() != null && symbol.getStatus() == Symbol.STATUS_OFFLINE) {
+                    log.info("交易对已下线，不启动撮合引擎: {}", symbol.getSymbol());
+                    continue;
+                }
+                startSymbol(symbol);
+                started++;
             }
             
-            log.info("撮合服务启动完成，共加载{}个交易对", symbols.size());
+            log.info("撮合服务启动完成，共加载{}个交易对", started);
         } catch (Exception e) {
             log.error("启动撮合服务失败", e);
         }
     }
     
+    /**
+     * 上线交易对，已在运行时忽略，不影响其他交易对
+     *
+     * @param symbol 交易对信息
+     * @return 是否启动了新的撮合引擎
+     */
+    public synchronized boolean startSymbol(Symbol symbol) {
+        if (!running || matchingEngines.containsKey(symbol.getSymbol())) {
+            return false;
+        }
+        startMatchingEngine(symbol);
+        return true;
+    }
+    
+    /**
+     * 下线交易对：停止投递命令，等撮合线程处理完已入队的命令后退出，再保存交接快照并释放资源，
+     * 不影响其他交易对
+     *
+     * @param symbol 交易对
+     * @return 已保存的交接快照，交易对未运行或快照保存失败时返回null
+     */
+    public synchronized OrderBookSnapshot stopSymbol(String symbol) {
+        MatchingEngine matchingEngine = matchingEngines.get(symbol);
+        if (matchingEngine == null) {
+            return null;
+        }
+        log.info("下线交易对{}", symbol);
+        
+        // 先停止投递，再通知撮合线程在队列清空后退出
+        commandSource.close(symbol, matchingEngine.getSymbolInfo().getPartition());
+        stopFlags.get(symbol).set(true);
+        Thread matchThread = matchThreads.get(symbol);
+        try {
+            matchThread.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean drained = !matchThread.isAlive();
+        if (!drained) {
+            log.warn("交易对{}的撮合线程未能在超时内处理完队列，强制中断", symbol);
+            matchThread.interrupt();
+        }
+        
+        // 撮合线程已退出，订单簿停在某个offset处理完成的状态，保存交接快照，之后由接手的节点恢复
+        OrderBookSnapshot snapshot = null;
+        if (drained) {
+            snapshot = matchingEngine.snapshot();
+            if (!orderBookPersistenceService.saveSnapshot(snapshot)) {
+                snapshot = null;
+            }
+        } else {
+            log.warn("交易对{}的撮合线程未正常退出，不保存交接快照", symbol);
+        }
+        
+        MarketDataFanoutServer fanoutServer = fanoutServerProvider.getIfAvailable();
+        if (fanoutServer != null) {
+            fanoutServer.unregisterSymbol(symbol);
+        }
+        resultSink.close(symbol);
+        
+        matchingEngines.remove(symbol);
+        messageQueues.remove(symbol);
+        matchThreads.remove(symbol);
+        tradeIdGenerators.remove(symbol);
+        stopFlags.remove(symbol);
+        loadCounters.remove(symbol);
+        log.info("交易对{}已下线", symbol);
+        return snapshot;
+    }
+    
+    /**
+     * 替换运行中交易对的信息，在撮合线程处理下一条命令前生效
+     *
+     * @param symbol 交易对信息
+     * @return 交易对是否在本节点运行
+     */
+    public boolean updateSymbol(Symbol symbol) {
+        MatchingEngine matchingEngine = matchingEngines.get(symbol.getSymbol());
+        if (matchingEngine == null) {
+            return false;
+        }
+        matchingEngine.updateSymbolInfo(symbol);
+        return true;
+    }
+    
+    /**
+     * 获取运行中交易对的信息
+     *
+     * @param symbol 交易对
+     * @return 交易对信息，不在本节点运行时返回null
+     */
+    public Symbol getRunningSymbol(String symbol) {
+        MatchingEngine matchingEngine = matchingEngines.get(symbol);
+        return matchingEngine == null ? null : matchingEngine.getSymbolInfo();
+    }
+    
+    /**
+     * 获取运行中交易对的负载计数
+     *
+     * @return 交易对 -> 负载计数，只读
+     */
+    public Map<String, SymbolLoadCounter> getLoadCounters() {
+        return Collections.unmodifiableMap(loadCounters);
+    }
+    
+    /**
+     * 获取本节点运行中的交易对
+     *
+     * @return 交易对名称
+     */
+    public Set<String> getRunningSymbols() {
+        return new HashSet<>(matchingEngines.keySet());
+    }
+    
+    /**
+     * 创建订单簿，配置为堆外存储的交易对按交易对精度把挂单放在堆外内存
+     *
+     * @param symbol 交易对信息
+     * @return 订单簿
+     */
+    private OrderBook createOrderBook(Symbol symbol) {
+        String symbolName = symbol.getSymbol();
+        String[] offHeapSymbols = config.getOffHeapSymbols();
+        if (offHeapSymbols != null && Arrays.asList(offHeapSymbols).contains(symbolName)) {
+            int priceDecimal = symbol.getPriceDecimal() == null ? 8 : symbol.getPriceDecimal();
+            int quantityDecimal = symbol.getQuantityDecimal() == null ? 8 : symbol.getQuantityDecimal();
+            log.info("交易对{}使用堆外订单簿，价格精度: {}，数量精度: {}", symbolName, priceDecimal, quantityDecimal);
+            return OrderBook.offHeap(symbolName, priceDecimal, quantityDecimal, config.getOffHeapExpectedOrders());
+        }
+        return new OrderBook(symbolName);
+    }
+    
     /**
      * 启动交易对的撮合引擎
      *
@@ -81,33 +237,75 @@ public class MatchService implements ApplicationRunner {
         log.info("启动交易对{}的撮合引擎，分区: {}", symbolName, partition);
         
         // 创建消息队列
-        BlockingQueue<ConsumerRecord<String, byte[]>> messageQueue = new LinkedBlockingQueue<>();
+        BlockingQueue<SequencedCommand> messageQueue = new LinkedBlockingQueue<>();
         messageQueues.put(symbolName, messageQueue);
         
         // 创建订单簿
-        OrderBook orderBook = new OrderBook(symbolName);
+        OrderBook orderBook = createOrderBook(symbol);
         
-        // 尝试从MongoDB恢复订单簿数据
-        boolean restored = orderBookPersistenceService.restoreOrderBook(symbolName);
-        if (!restored) {
-            log.info("未找到交易对{}的订单簿备份，使用新的订单簿", symbolName);
+        // 从最新的快照恢复，须在开启聚合深度等功能之前
+        OrderBookSnapshot snapshot = orderBookPersistenceService.loadSnapshot(symbolName);
+        long lastTradeId = 0L;
+        if (snapshot != null) {
+            orderBook.restore(snapshot);
+            lastTradeId = snapshot.getLastTradeId();
+            log.info("交易对{}从快照恢复，挂单数: {}", symbolName, snapshot.getOrderCount());
+        } else {
+            log.info("未找到交易对{}的快照，使用新的订单簿", symbolName);
         }
         
-        // 注册订单簿到持久化服务
-        orderBookPersistenceService.registerOrderBook(symbolName, orderBook);
+        // 开启多粒度聚合深度
+        int[] aggregationGroups = config.getDepthAggregationGroups();
+        if (aggregationGroups != null && aggregationGroups.length > 0) {
+            int priceDecimal = symbol.getPriceDecimal() == null ? 8 : symbol.getPriceDecimal();
+            orderBook.enableAggregation(priceDecimal, aggregationGroups);
+        }
+        
+        // 按需开启逐笔委托事件
+        String[] orderEventSymbols = config.getOrderEventSymbols();
+        if (orderEventSymbols != null && Arrays.asList(orderEventSymbols).contains(symbolName)) {
+            orderBook.enableOrderEvents();
+        }
+        
+        // 开启引擎内K线
+        Duration[] klineIntervals = config.getKlineIntervals();
+        if (klineIntervals != null && klineIntervals.length > 0) {
+            orderBook.enableKlines(Arrays.stream(klineIntervals).mapToLong(Duration::toMillis).toArray());
+        }
         
         // 创建交易ID生成器
-        AtomicLong tradeIdGenerator = new AtomicLong(0);
+        AtomicLong tradeIdGenerator = new AtomicLong(lastTradeId);
         tradeIdGenerators.put(symbolName, tradeIdGenerator);
         
         // 创建撮合引擎
         MatchingEngine matchingEngine = new MatchingEngine(orderBook, symbol, tradeIdGenerator);
+        matchingEngine.setTickerPublishIntervalMs(config.getTickerPublishIntervalMs());
+        if (snapshot != null) {
+            matchingEngine.rebuildExpiryWheel(snapshot.getTimestamp());
+        }
         matchingEngines.put(symbolName, matchingEngine);
         
-        // 启动Kafka消费者
-        kafkaConsumerService.startConsumerThread(symbolName, partition, messageQueue);
+        // 行情推送以当前完整盘口为起点，之后只接收撮合线程的增量
+        MarketDataFanoutServer fanoutServer = fanoutServerProvider.getIfAvailable();
+        if (fanoutServer != null) {
+            fanoutServer.registerSymbol(orderBook.snapshotDepth(Integer.MAX_VALUE));
+        }
+        
+        // 启动命令来源：快照来自同一分区时从下一个offset继续；来自其他分区时offset无法衔接，
+        // 从新分区中时间不早于快照的第一条命令开始，要求交易对先下线、再切换分区、最后重新上线
+        if (snapshot == null) {
+            commandSource.start(symbolName, partition, messageQueue);
+        } else if (Objects.equals(snapshot.getPartition(), partition)) {
+            commandSource.start(symbolName, partition, messageQueue, snapshot.getLastProcessedOffset() + 1);
+        } else {
+            log.warn("交易对{}的快照来自分区{}，当前分区{}，按快照时间{}衔接消费",
+                    symbolName, snapshot.getPartition(), partition, snapshot.getTimestamp());
+            commandSource.startFromTimestamp(symbolName, partition, messageQueue, snapshot.getTimestamp());
+        }
         
         // 启动撮合线程
+        stopFlags.put(symbolName, new AtomicBoolean(false));
+        loadCounters.put(symbolName, new SymbolLoadCounter());
         Thread matchThread = new Thread(() -> matchingThread(symbolName));
         matchThread.setName("match-thread-" + symbolName);
         matchThread.setDaemon(true);
@@ -124,27 +322,77 @@ public class MatchService implements ApplicationRunner {
      */
     private void matchingThread(String symbol) {
         MatchingEngine matchingEngine = matchingEngines.get(symbol);
-        BlockingQueue<ConsumerRecord<String, byte[]>> messageQueue = messageQueues.get(symbol);
+        BlockingQueue<SequencedCommand> messageQueue = messageQueues.get(symbol);
+        MarketDataFanoutServer fanoutServer = fanoutServerProvider.getIfAvailable();
+        AtomicBoolean stopRequested = stopFlags.get(symbol);
+        SymbolLoadCounter loadCounter = loadCounters.get(symbol);
+        loadCounter.bindCurrentThread();
         
         log.info("启动交易对{}的撮合线程", symbol);
         
+        // 未发布到深度快照的命令数，队列持续不空时按命令数或时间间隔发布
+        int depthDirty = 1;
+        int depthMaxCommands = config.getDepthSnapshotMaxCommands();
+        long depthMaxInterval = config.getDepthSnapshotMaxIntervalMs();
+        long lastDepthPublishTime = System.currentTimeMillis();
+        // 定期备份快照，在撮合线程生成和序列化，只在有新命令时备份
+        long backupInterval = config.getBackupSaveInterval();
+        long nextBackupTime = System.currentTimeMillis() + backupInterval;
+        long backedUpOffset = matchingEngine.getOrderBook().getLastProcessedOffset();
         try {
             while (running) {
                 try {
-                    ConsumerRecord<String, byte[]> record = messageQueue.poll(100, TimeUnit.MILLISECONDS);
+                    SequencedCommand record = messageQueue.poll(100, TimeUnit.MILLISECONDS);
                     if (record != null) {
-                        // 解析订单命令
-                        OrderCommand command = kafkaConsumerService.parseOrderCommand(record);
-                        if (command != null) {
-                            // 处理订单命令
-                            TradeExecutionResult result = processOrderCommand(matchingEngine, command, record.offset());
-                            
-                            // 发送撮合结果
-                            if (result != null) {
-                                kafkaProducerService.sendTradeExecutionResult(result);
+                        // 处理订单命令
+                        TradeExecutionResult result = matchingEngine.processCommand(record.getCommand(), record.getOffset());
+                        depthDirty++;
+                        loadCounter.record(result == null ? 0 : result.getPublicTrades().size(),
+                                matchingEngine.getOrderBook().getOrderCount());
+                        
+                        // 发送撮合结果
+                        if (result != null) {
+                            resultSink.publish(result);
+                            if (fanoutServer != null && result.getOrderBookUpdate() != null) {
+                                fanoutServer.onUpdate(result.getOrderBookUpdate());
                             }
                         }
                     }
+                    
+                    // 队列中的一批命令处理完后发布深度快照，队列一直不空时按命令数或时间间隔发布
+                    long now = System.currentTimeMillis();
+                    if (depthDirty > 0 && (messageQueue.isEmpty()
+                            || (depthMaxCommands > 0 && depthDirty >= depthMaxCommands)
+                            || (depthMaxInterval > 0 && now - lastDepthPublishTime >= depthMaxInterval))) {
+                        matchingEngine.getOrderBook().publishDepthSnapshot(config.getDepthSnapshotLevels());
+                        depthDirty = 0;
+                        lastDepthPublishTime = now;
+                    }
+                    
+                    if (now >= nextBackupTime) {
+                        long offset = matchingEngine.getOrderBook().getLastProcessedOffset();
+                        if (offset != backedUpOffset) {
+                            // 备份写入成功后，命令来源可以清理该快照之前的命令日志
+                            orderBookPersistenceService.backupSnapshot(matchingEngine.snapshot())
+                                    .thenAccept(saved -> {
+                                        if (saved) {
+                                            commandSource.snapshotSaved(symbol, offset);
+                                        }
+                                    });
+                            backedUpOffset = offset;
+                        }
+                        nextBackupTime = now + backupInterval;
+                    }
+                    
+                    // 空闲时也刷新，窗口滑动会改变24小时统计
+                    if (messageQueue.isEmpty()) {
+                        matchingEngine.refreshTickerStatistics();
+                        
+                        // 交易对下线，命令来源已停止且队列已处理完
+                        if (stopRequested.get()) {
+                            break;
+                        }
+                    }
                 } catch (InterruptedException e) {
                     log.error("交易对{}的撮合线程被中断", symbol, e);
                     Thread.currentThread().interrupt();
@@ -159,26 +407,25 @@ public class MatchService implements ApplicationRunner {
     }
     
     /**
-     * 处理订单命令
+     * 获取交易对最近发布的盘口深度快照，可在任意线程调用
      *
-     * @param matchingEngine 撮合引擎
-     * @param command        订单命令
-     * @param offset         Kafka偏移量
-     * @return 撮合结果
+     * @param symbol 交易对
+     * @return 深度快照，交易对不在本节点或尚未发布时返回null
      */
-    private TradeExecutionResult processOrderCommand(MatchingEngine matchingEngine, OrderCommand command, long offset) {
-        if (OrderCommand.TYPE_NEW_ORDER.equals(command.getType())) {
-            // 将订单命令转换为订单对象
-            Order order = kafkaConsumerService.convertToOrder(command);
-            // 处理新订单
-            return matchingEngine.processNewOrder(order, offset);
-        } else if (OrderCommand.TYPE_CANCEL_ORDER.equals(command.getType())) {
-            // 处理撤单
-            return matchingEngine.processCancelOrder(command, offset);
-        } else {
-            log.warn("未知的订单命令类型: {}", command.getType());
-            return null;
-        }
+    public DepthSnapshot getDepthSnapshot(String symbol) {
+        MatchingEngine matchingEngine = matchingEngines.get(symbol);
+        return matchingEngine == null ? null : matchingEngine.getOrderBook().getDepthSnapshot();
+    }
+    
+    /**
+     * 获取交易对最近的24小时行情统计，可在任意线程调用
+     *
+     * @param symbol 交易对
+     * @return 行情统计，交易对不在本节点或尚未生成时返回null
+     */
+    public TickerStatistics getTickerStatistics(String symbol) {
+        MatchingEngine matchingEngine = matchingEngines.get(symbol);
+        return matchingEngine == null ? null : matchingEngine.getTickerStatistics();
     }
     
     /**
@@ -205,12 +452,10 @@ public class MatchService implements ApplicationRunner {
             }
         }
         
-        // 关闭Kafka消费者
-        for (String symbol : matchingEngines.keySet()) {
-            Symbol symbolInfo = symbolService.getSymbol(symbol);
-            if (symbolInfo != null) {
-                kafkaConsumerService.closeConsumer(symbol, symbolInfo.getPartition());
-            }
+        // 关闭命令来源
+        for (MatchingEngine matchingEngine : matchingEngines.values()) {
+            Symbol symbolInfo = matchingEngine.getSymbolInfo();
+            commandSource.close(symbolInfo.getSymbol(), symbolInfo.getPartition());
         }
         
         // 关闭线程池
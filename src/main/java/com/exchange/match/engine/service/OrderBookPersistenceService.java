@@ -1,7 +1,7 @@
 package com.exchange.match.engine.service;
 
 import com.exchange.match.engine.config.MatchEngineConfig;
-import com.exchange.match.engine.orderbook.OrderBook;
+import com.exchange.match.engine.orderbook.OrderBookSnapshot;
 import com.exchange.match.engine.util.ProtostuffUtils;
 import com.mongodb.client.gridfs.GridFSBucket;
 import com.mongodb.client.gridfs.GridFSBuckets;
@@ -9,117 +9,152 @@ import com.mongodb.client.gridfs.model.GridFSFile;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.Document;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 订单簿持久化服务，负责备份和恢复订单簿数据
+ * 订单簿持久化服务，负责保存和加载订单簿快照
+ * <p>
+ * 定期备份和下线交接使用同一种快照格式（metadata.type=snapshot），快照由撮合线程生成并序列化，
+ * 写入GridFS在单独的线程中完成。加载时取保存时间最新的快照，元数据中记录快照对应的Kafka分区，
+ * 由调用方决定如何衔接消费位置。
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderBookPersistenceService {
     
+    private static final String SNAPSHOT_TYPE = "snapshot";
+    
     private final MatchEngineConfig config;
     private final GridFsTemplate gridFsTemplate;
     private final MongoDatabaseFactory mongoDatabaseFactory;
-    private final Map<String, OrderBook> orderBooks = new ConcurrentHashMap<>();
+    
+    private final ExecutorService backupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "order-book-backup-thread");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * 保存交接快照，在调用线程上完成，用于交易对下线后由其他节点或下次启动接手
+     *
+     * @param snapshot 快照
+     * @return 是否成功
+     */
+    public boolean saveSnapshot(OrderBookSnapshot snapshot) {
+        try {
+            return store(snapshot, ProtostuffUtils.serialize(snapshot));
+        } catch (Exception e) {
+            log.error("序列化交易对{}的快照失败", snapshot.getSymbol(), e);
+            return false;
+        }
+    }
     
     /**
-     * 注册订单簿
+     * 定期备份快照，在撮合线程调用：在调用线程上序列化，保证与撮合线程之后的修改无关，再异步写入
      *
-     * @param symbol    交易对
-     * @param orderBook 订单簿
+     * @param snapshot 快照
+     * @return 写入结果，在备份线程上完成，序列化或写入失败时为false
+     */
+    public CompletableFuture<Boolean> backupSnapshot(OrderBookSnapshot snapshot) {
+        byte[] snapshotBytes;
+        try {
+            snapshotBytes = ProtostuffUtils.serialize(snapshot);
+        } catch (Exception e) {
+            log.error("序列化交易对{}的快照失败", snapshot.getSymbol(), e);
+            return CompletableFuture.completedFuture(false);
+        }
+        return CompletableFuture.supplyAsync(() -> store(snapshot, snapshotBytes), backupExecutor);
+    }
+    
+    /**
+     * 写入GridFS，只读取快照的元数据字段
      */
-    public void registerOrderBook(String symbol, OrderBook orderBook) {
-        orderBooks.put(symbol, orderBook);
+    private boolean store(OrderBookSnapshot snapshot, byte[] snapshotBytes) {
+        String symbol = snapshot.getSymbol();
+        try {
+            Document metadata = new Document()
+                    .append("type", SNAPSHOT_TYPE)
+                    .append("symbol", symbol)
+                    .append("nodeId", config.getNodeId())
+                    .append("partition", snapshot.getPartition())
+                    .append("lastOffset", snapshot.getLastProcessedOffset())
+                    .append("timestamp", snapshot.getTimestamp());
+            
+            try (InputStream inputStream = new ByteArrayInputStream(snapshotBytes)) {
+                String filename = symbol + "_snapshot_" + snapshot.getPartition() + "_"
+                        + snapshot.getLastProcessedOffset() + "_" + snapshot.getTimestamp();
+                gridFsTemplate.store(inputStream, filename, metadata);
+                log.info("保存交易对{}的快照成功，文件名: {}，挂单数: {}", symbol, filename, snapshot.getOrderCount());
+                return true;
+            }
+        } catch (Exception e) {
+            log.error("保存交易对{}的快照失败", symbol, e);
+            return false;
+        }
     }
     
     /**
-     * 从MongoDB恢复订单簿数据
+     * 加载交易对保存时间最新的快照，不限保存快照的节点和分区
      *
      * @param symbol 交易对
-     * @return 是否成功
+     * @return 快照，没有快照或加载失败时返回null
      */
-    public boolean restoreOrderBook(String symbol) {
+    public OrderBookSnapshot loadSnapshot(String symbol) {
         try {
             GridFSFile file = gridFsTemplate.findOne(
                     Query.query(
                             Criteria.where("metadata.symbol").is(symbol)
-                                    .and("metadata.nodeId").is(config.getNodeId())
-                    ).with(org.springframework.data.domain.Sort.by(org.springframework.data.domain.Sort.Direction.DESC, "uploadDate")).limit(1)
+                                    .and("metadata.type").is(SNAPSHOT_TYPE)
+                    ).with(Sort.by(Sort.Direction.DESC, "metadata.timestamp", "metadata.lastOffset")).limit(1)
             );
             
             if (file == null) {
-                log.warn("没有找到交易对{}的订单簿备份", symbol);
-                return false;
+                log.info("没有找到交易对{}的快照", symbol);
+                return null;
             }
             
             GridFSBucket gridFSBucket = GridFSBuckets.create(mongoDatabaseFactory.getMongoDatabase());
             GridFsResource resource = new GridFsResource(file, gridFSBucket.openDownloadStream(file.getObjectId()));
             
-            try (InputStream inputStream = resource.getInputStream();
-                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, len);
-                }
-                
-                OrderBook orderBook = ProtostuffUtils.deserialize(outputStream.toByteArray(), OrderBook.class);
-                orderBooks.put(symbol, orderBook);
-                
-                log.info("恢复交易对{}的订单簿数据成功，最后处理偏移量: {}", symbol, orderBook.getLastProcessedOffset());
-                return true;
+            try (InputStream inputStream = resource.getInputStream()) {
+                OrderBookSnapshot snapshot = ProtostuffUtils.deserialize(inputStream.readAllBytes(), OrderBookSnapshot.class);
+                log.info("加载交易对{}的快照成功，分区: {}，最后处理偏移量: {}",
+                        symbol, snapshot.getPartition(), snapshot.getLastProcessedOffset());
+                return snapshot;
             }
         } catch (Exception e) {
-            log.error("恢复交易对{}的订单簿数据失败", symbol, e);
-            return false;
+            log.error("加载交易对{}的快照失败", symbol, e);
+            return null;
         }
     }
     
     /**
-     * 定时备份订单簿数据
+     * 等待已提交的备份写完
      */
-    @Scheduled(fixedDelayString = "${match.backup.save-interval}")
-    public void backupOrderBooks() {
-        if (orderBooks.isEmpty()) {
-            return;
-        }
-        
-        for (Map.Entry<String, OrderBook> entry : orderBooks.entrySet()) {
-            String symbol = entry.getKey();
-            OrderBook orderBook = entry.getValue();
-            
-            try {
-                byte[] orderBookBytes = ProtostuffUtils.serialize(orderBook);
-                
-                Document metadata = new Document()
-                        .append("symbol", symbol)
-                        .append("nodeId", config.getNodeId())
-                        .append("lastOffset", orderBook.getLastProcessedOffset())
-                        .append("timestamp", System.currentTimeMillis());
-                
-                try (InputStream inputStream = new ByteArrayInputStream(orderBookBytes)) {
-                    String filename = symbol + "_" + orderBook.getLastProcessedOffset() + "_" + System.currentTimeMillis();
-                    gridFsTemplate.store(inputStream, filename, metadata);
-                    log.info("备份交易对{}的订单簿数据成功，文件名: {}", symbol, filename);
-                }
-            } catch (IOException e) {
-                log.error("备份交易对{}的订单簿数据失败", symbol, e);
+    @PreDestroy
+    public void shutdown() {
+        backupExecutor.shutdown();
+        try {
+            if (!backupExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("快照备份未能在超时内写完");
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,162 @@
+package com.exchange.match.engine.service;
+
+import com.exchange.match.engine.dto.OrderBookEntry;
+import com.exchange.match.engine.dto.OrderBookUpdate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 订单簿更新合并器，按交易对合并订单簿增量后限频发布
+ * <p>
+ * 同一价格只保留最新数量，合并后的更新携带最后一条的offset和时间戳。
+ * 距上次发布已超过间隔时立即发布，否则累积到变化档位数达到上限或间隔到期再发布。
+ * 只合并订单簿更新，成交结果不经过合并器。
+ */
+public class OrderBookUpdateConflator {
+    private final long intervalMs; // 最小发布间隔（毫秒）
+    private final int maxChanges; // 累积的档位变化数达到该值时立即发布
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 单个交易对待发布的合并结果，由撮合线程和定时线程共同访问，操作均在该对象上加锁
+     */
+    private static final class Pending {
+        private final TreeMap<BigDecimal, OrderBookEntry> bids = new TreeMap<>(Comparator.reverseOrder());
+        private final TreeMap<BigDecimal, OrderBookEntry> asks = new TreeMap<>();
+        private OrderBookUpdate last; // 最后合并的一条更新，为null表示没有待发布内容
+        private long lastPublishTime;
+        private int changes;
+    }
+
+    /**
+     * @param intervalMs 最小发布间隔（毫秒）
+     * @param maxChanges 累积档位变化数上限
+     */
+    public OrderBookUpdateConflator(long intervalMs, int maxChanges) {
+        this.intervalMs = intervalMs;
+        this.maxChanges = maxChanges;
+    }
+
+    /**
+     * 提交一条订单簿更新，满足发布条件时在锁内交给publisher，保证同一交易对按offset顺序发布
+     *
+     * @param update    订单簿更新
+     * @param now       当前时间（毫秒）
+     * @param publisher 发布方法
+     */
+    public void offer(OrderBookUpdate update, long now, Consumer<OrderBookUpdate> publisher) {
+        Pending state = pending.computeIfAbsent(update.getSymbol(), symbol -> new Pending());
+        synchronized (state) {
+            // 没有积压且距上次发布已超过间隔，直接发布
+            if (state.last == null && now - state.lastPublishTime >= intervalMs) {
+                state.lastPublishTime = now;
+                publisher.accept(update);
+                return;
+            }
+            merge(state.bids, update.getBids());
+            merge(state.asks, update.getAsks());
+            state.changes += sizeOf(update);
+            state.last = update;
+            if (state.changes >= maxChanges || now - state.lastPublishTime >= intervalMs) {
+                publisher.accept(drain(state, now));
+            }
+        }
+    }
+
+    /**
+     * 发布所有已等待超过间隔的合并结果，由定时线程调用
+     *
+     * @param now       当前时间（毫秒）
+     * @param publisher 发布方法
+     */
+    public void flushDue(long now, Consumer<OrderBookUpdate> publisher) {
+        for (Pending state : pending.values()) {
+            synchronized (state) {
+                if (state.last != null && now - state.lastPublishTime >= intervalMs) {
+                    publisher.accept(drain(state, now));
+                }
+            }
+        }
+    }
+
+    /**
+     * 发布所有待发布的合并结果，用于关闭前
+     *
+     * @param now       当前时间（毫秒）
+     * @param publisher 发布方法
+     */
+    public void flushAll(long now, Consumer<OrderBookUpdate> publisher) {
+        for (Pending state : pending.values()) {
+            synchronized (state) {
+                if (state.last != null) {
+                    publisher.accept(drain(state, now));
+                }
+            }
+        }
+    }
+
+    /**
+     * 发布交易对待发布的合并结果并移除其合并状态，用于交易对下线
+     *
+     * @param symbol    交易对
+     * @param now       当前时间（毫秒）
+     * @param publisher 发布方法
+     */
+    public void flushAndRemove(String symbol, long now, Consumer<OrderBookUpdate> publisher) {
+        Pending state = pending.remove(symbol);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.last != null) {
+                publisher.accept(drain(state, now));
+            }
+        }
+    }
+    
+    /**
+     * 移除交易对的合并状态，未发布的内容丢弃
+     *
+     * @param symbol 交易对
+     */
+    public void remove(String symbol) {
+        pending.remove(symbol);
+    }
+
+    private static void merge(TreeMap<BigDecimal, OrderBookEntry> levels, List<OrderBookEntry> updates) {
+        if (updates == null) {
+            return;
+        }
+        for (OrderBookEntry entry : updates) {
+            levels.put(entry.getPrice(), entry);
+        }
+    }
+
+    private static int sizeOf(OrderBookUpdate update) {
+        return (update.getBids() == null ? 0 : update.getBids().size())
+                + (update.getAsks() == null ? 0 : update.getAsks().size());
+    }
+
+    private static OrderBookUpdate drain(Pending state, long now) {
+        OrderBookUpdate merged = OrderBookUpdate.builder()
+                .symbol(state.last.getSymbol())
+                .bids(new ArrayList<>(state.bids.values()))
+                .asks(new ArrayList<>(state.asks.values()))
+                .lastOffset(state.last.getLastOffset())
+                .timestamp(state.last.getTimestamp())
+                .build();
+        state.bids.clear();
+        state.asks.clear();
+        state.changes = 0;
+        state.last = null;
+        state.lastPublishTime = now;
+        return merged;
+    }
+}
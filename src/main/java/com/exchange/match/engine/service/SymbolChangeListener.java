@@ -0,0 +1,132 @@
+package com.exchange.match.engine.service;
+
+import com.exchange.match.engine.config.MatchEngineConfig;
+import com.exchange.match.engine.model.Symbol;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 交易对变更监听，订阅Redis频道后按需上线、下线交易对或替换交易对信息，无需重启节点
+ * <p>
+ * 消息内容为交易对名称，表示该交易对的信息或分区分配有变化；为"*"时核对本节点的全部交易对。
+ * 收到消息后重新读取Redis中的分配和交易对信息并与本节点运行状态比较：
+ * 新分配且未下线的交易对启动撮合引擎，不再分配或已下线（status=2）的交易对停止，
+ * 分区变化的交易对先停止再启动（按快照时间衔接新分区，见README），其余只在撮合线程中整体替换交易对信息。
+ * 变更在单独的线程中逐条处理，其他交易对的撮合线程不受影响。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "match.symbol.listen-changes", havingValue = "true", matchIfMissing = true)
+public class SymbolChangeListener {
+
+    private static final String ALL_SYMBOLS = "*";
+
+    private final MatchEngineConfig config;
+    private final RedisConnectionFactory connectionFactory;
+    private final SymbolService symbolService;
+    private final MatchService matchService;
+
+    private final ExecutorService changeExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "symbol-change-thread");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private RedisMessageListenerContainer container;
+
+    /**
+     * 订阅交易对变更频道
+     */
+    @PostConstruct
+    public void start() {
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            String symbol = new String(message.getBody(), StandardCharsets.UTF_8).trim();
+            changeExecutor.execute(() -> onChange(symbol));
+        }, new ChannelTopic(config.getSymbolChangeChannel()));
+        container.afterPropertiesSet();
+        container.start();
+        log.info("订阅交易对变更频道: {}", config.getSymbolChangeChannel());
+    }
+
+    /**
+     * 处理一条变更消息
+     *
+     * @param symbol 交易对，"*"表示全部
+     */
+    private void onChange(String symbol) {
+        try {
+            Set<String> assigned = symbolService.getSymbolNamesByNodeId(config.getNodeId());
+            if (ALL_SYMBOLS.equals(symbol)) {
+                Set<String> symbols = matchService.getRunningSymbols();
+                symbols.addAll(assigned);
+                for (String name : symbols) {
+                    reconcile(name, assigned.contains(name));
+                }
+            } else if (!symbol.isEmpty()) {
+                reconcile(symbol, assigned.contains(symbol));
+            }
+        } catch (Exception e) {
+            log.error("处理交易对变更失败: {}", symbol, e);
+        }
+    }
+
+    /**
+     * 使交易对的运行状态与Redis中的配置一致
+     *
+     * @param symbol   交易对
+     * @param assigned 是否分配给本节点
+     */
+    private void reconcile(String symbol, boolean assigned) {
+        Symbol latest = symbolService.reloadSymbol(symbol);
+        boolean online = assigned && latest != null
+                && (latest.getStatus() == null || latest.getStatus() != Symbol.STATUS_OFFLINE);
+        Symbol running = matchService.getRunningSymbol(symbol);
+
+        if (!online) {
+            if (running != null) {
+                matchService.stopSymbol(symbol);
+            }
+            return;
+        }
+        if (running == null) {
+            log.info("上线交易对{}", symbol);
+            matchService.startSymbol(latest);
+        } else if (!Objects.equals(running.getPartition(), latest.getPartition())) {
+            // 快照的offset属于原分区，重新启动后按快照时间衔接新分区，应先下线再切换分区
+            log.warn("交易对{}的分区由{}变为{}，重新启动", symbol, running.getPartition(), latest.getPartition());
+            matchService.stopSymbol(symbol);
+            matchService.startSymbol(latest);
+        } else {
+            log.info("更新交易对{}的信息", symbol);
+            matchService.updateSymbol(latest);
+        }
+    }
+
+    /**
+     * 取消订阅
+     */
+    @PreDestroy
+    public void stop() {
+        try {
+            container.destroy();
+        } catch (Exception e) {
+            log.warn("关闭交易对变更订阅失败", e);
+        }
+        changeExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,76 @@
+package com.exchange.match.engine.service;
+
+import com.exchange.match.engine.config.MatchEngineConfig;
+import com.exchange.match.engine.dto.SymbolMigrationResult;
+import com.exchange.match.engine.model.Symbol;
+import com.exchange.match.engine.orderbook.OrderBookSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 交易对迁移服务，把本节点运行中的交易对交接给其他节点
+ * <p>
+ * 迁移只改变由哪个节点撮合：停止投递命令并等撮合线程处理完已入队的命令，在最后处理的offset上保存交接快照；
+ * 然后在一个Redis事务中把交易对指定给目标节点（match:symbol:owners）并发布变更通知。
+ * 目标节点的交易对变更监听收到通知后启动交易对，加载快照并从下一个offset继续消费同一个Kafka分区。
+ * 交易对的Kafka分区和分区的交易对列表都不变。暂停时间为保存快照和切换分配的耗时加上目标节点的启动时间。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SymbolMigrationService {
+    
+    private final MatchEngineConfig config;
+    private final SymbolService symbolService;
+    private final MatchService matchService;
+    
+    /**
+     * 把交易对迁移到目标节点
+     *
+     * @param symbol       交易对
+     * @param targetNodeId 目标节点ID
+     * @return 迁移结果
+     */
+    public synchronized SymbolMigrationResult migrate(String symbol, int targetNodeId) {
+        int nodeId = config.getNodeId();
+        if (targetNodeId == nodeId) {
+            throw new IllegalStateException("目标节点与当前节点相同: " + targetNodeId);
+        }
+        Symbol running = matchService.getRunningSymbol(symbol);
+        if (running == null) {
+            throw new IllegalStateException("交易对不在本节点运行: " + symbol);
+        }
+        if (!symbolService.getSymbolNamesByNodeId(nodeId).contains(symbol)) {
+            throw new IllegalStateException("交易对未分配给本节点: " + symbol);
+        }
+        if (symbolService.getPartitionsByNodeId(targetNodeId).isEmpty()) {
+            throw new IllegalStateException("目标节点未注册: " + targetNodeId);
+        }
+        
+        log.info("开始迁移交易对{}到节点{}，分区: {}", symbol, targetNodeId, running.getPartition());
+        long start = System.currentTimeMillis();
+        OrderBookSnapshot snapshot = matchService.stopSymbol(symbol);
+        if (snapshot == null) {
+            // 快照保存失败，分配未变，在本节点重新上线
+            log.error("交易对{}的交接快照保存失败，在本节点重新上线", symbol);
+            matchService.startSymbol(running);
+            throw new IllegalStateException("交接快照保存失败: " + symbol);
+        }
+        
+        symbolService.assignOwner(symbol, targetNodeId, config.getSymbolChangeChannel());
+        long pauseMillis = System.currentTimeMillis() - start;
+        log.info("交易对{}已交接给节点{}，最后处理offset: {}，挂单数: {}，本节点暂停耗时: {}ms",
+                symbol, targetNodeId, snapshot.getLastProcessedOffset(), snapshot.getOrderCount(), pauseMillis);
+        
+        return SymbolMigrationResult.builder()
+                .symbol(symbol)
+                .sourceNodeId(nodeId)
+                .targetNodeId(targetNodeId)
+                .partition(running.getPartition())
+                .lastOffset(snapshot.getLastProcessedOffset())
+                .orderCount(snapshot.getOrderCount())
+                .pauseMillis(pauseMillis)
+                .build();
+    }
+}
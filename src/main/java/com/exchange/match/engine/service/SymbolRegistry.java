@@ -0,0 +1,146 @@
+package com.exchange.match.engine.service;
+
+import com.exchange.match.engine.model.Symbol;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 不可变的交易对注册表，按名称和交易对ID索引
+ * <p>
+ * 变更时复制出新的注册表整体替换，读取方拿到的实例永远不会再变化，不需要加锁。
+ * 交易对ID较小时用数组按下标直接定位，超出范围的ID退回到哈希表。放入的交易对信息不应再修改。
+ * 交易对ID与其他交易对重复时，该交易对不放入注册表并记录日志，已在注册表中的交易对不受影响。
+ */
+@Slf4j
+public final class SymbolRegistry {
+    // 数组索引支持的最大交易对ID
+    private static final int MAX_DENSE_ID = 65535;
+    
+    static final SymbolRegistry EMPTY = new SymbolRegistry(Collections.emptyMap());
+    
+    private final Map<String, Symbol> byName; // 名称 -> 交易对
+    private final Symbol[] byId; // 交易对ID -> 交易对，ID不超过MAX_DENSE_ID
+    private final Map<Integer, Symbol> byLargeId; // 超出数组范围的交易对ID -> 交易对
+    
+    /**
+     * 构造函数，交易对ID已保证不重复
+     *
+     * @param symbols 名称 -> 交易对
+     */
+    private SymbolRegistry(Map<String, Symbol> symbols) {
+        this.byName = Collections.unmodifiableMap(symbols);
+        int maxId = -1;
+        for (Symbol symbol : symbols.values()) {
+            Integer id = symbol.getId();
+            if (id != null && id >= 0 && id <= MAX_DENSE_ID) {
+                maxId = Math.max(maxId, id);
+            }
+        }
+        Symbol[] dense = new Symbol[maxId + 1];
+        Map<Integer, Symbol> large = new HashMap<>();
+        for (Symbol symbol : symbols.values()) {
+            Integer id = symbol.getId();
+            if (id == null) {
+                continue;
+            }
+            if (id >= 0 && id <= MAX_DENSE_ID) {
+                dense[id] = symbol;
+            } else {
+                large.put(id, symbol);
+            }
+        }
+        this.byId = dense;
+        this.byLargeId = large.isEmpty() ? Collections.emptyMap() : large;
+    }
+    
+    /**
+     * 按名称获取交易对
+     *
+     * @param name 交易对名称
+     * @return 交易对，不存在时返回null
+     */
+    public Symbol get(String name) {
+        return byName.get(name);
+    }
+    
+    /**
+     * 按交易对ID获取交易对
+     *
+     * @param id 交易对ID
+     * @return 交易对，不存在时返回null
+     */
+    public Symbol get(int id) {
+        if (id >= 0 && id < byId.length) {
+            return byId[id];
+        }
+        return byLargeId.get(id);
+    }
+    
+    /**
+     * 全部交易对
+     *
+     * @return 只读集合
+     */
+    public Collection<Symbol> getSymbols() {
+        return byName.values();
+    }
+    
+    public int size() {
+        return byName.size();
+    }
+    
+    /**
+     * 复制出加入或替换若干交易对后的注册表，交易对ID与其他名称的交易对重复时跳过该交易对
+     *
+     * @param symbols 交易对
+     * @return 新的注册表
+     */
+    SymbolRegistry with(Collection<Symbol> symbols) {
+        if (symbols.isEmpty()) {
+            return this;
+        }
+        Map<String, Symbol> copy = new HashMap<>(byName);
+        Map<Integer, String> owners = new HashMap<>(); // 交易对ID -> 交易对名称
+        for (Symbol symbol : copy.values()) {
+            if (symbol.getId() != null) {
+                owners.put(symbol.getId(), symbol.getSymbol());
+            }
+        }
+        for (Symbol symbol : symbols) {
+            String name = symbol.getSymbol();
+            Integer id = symbol.getId();
+            String owner = id == null ? null : owners.get(id);
+            if (owner != null && !owner.equals(name)) {
+                log.warn("交易对{}的ID{}与交易对{}重复，不放入注册表", name, id, owner);
+                continue;
+            }
+            Symbol previous = copy.put(name, symbol);
+            if (previous != null && previous.getId() != null) {
+                owners.remove(previous.getId());
+            }
+            if (id != null) {
+                owners.put(id, name);
+            }
+        }
+        return new SymbolRegistry(copy);
+    }
+    
+    /**
+     * 复制出移除一个交易对后的注册表
+     *
+     * @param name 交易对名称
+     * @return 新的注册表，交易对不存在时返回自身
+     */
+    SymbolRegistry without(String name) {
+        if (!byName.containsKey(name)) {
+            return this;
+        }
+        Map<String, Symbol> copy = new HashMap<>(byName);
+        copy.remove(name);
+        return new SymbolRegistry(copy);
+    }
+}
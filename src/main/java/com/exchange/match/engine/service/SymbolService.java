@@ -3,25 +3,37 @@ package com.exchange.match.engine.service;
 import com.exchange.match.engine.model.Symbol;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 交易对服务，负责管理交易对信息
+ * <p>
+ * 分区列表和交易对详情通过Redis管道批量读取，每一层只有一次往返。读取到的交易对放入不可变的
+ * {@link SymbolRegistry}，变更时复制后整体替换，撮合和查询线程无锁读取。
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SymbolService {
     
+    // 交易对 -> 指定撮合的节点ID，覆盖按分区的分配，由交易对迁移写入
+    private static final String OWNERS_KEY = "match:symbol:owners";
+    
     private final StringRedisTemplate redisTemplate;
-    private final Map<String, Symbol> symbolCache = new HashMap<>();
+    // 写入串行化，读取直接使用当前实例
+    private volatile SymbolRegistry registry = SymbolRegistry.EMPTY;
     
     /**
      * 获取交易对信息
@@ -30,73 +42,317 @@ public class SymbolService {
      * @return 交易对信息
      */
     public Symbol getSymbol(String symbol) {
-        return symbolCache.get(symbol);
+        return registry.get(symbol);
+    }
+    
+    /**
+     * 按交易对ID获取交易对信息
+     *
+     * @param id 交易对ID
+     * @return 交易对信息
+     */
+    public Symbol getSymbol(int id) {
+        return registry.get(id);
+    }
+    
+    /**
+     * 获取当前的交易对注册表，需要多次查询时先取出再使用，保证看到同一时刻的数据
+     *
+     * @return 交易对注册表
+     */
+    public SymbolRegistry getRegistry() {
+        return registry;
     }
     
     /**
      * 根据分区获取交易对列表
      *
      * @param nodeId 节点ID
-     * @return 交易对列表
+     * @return 交易对列表，不含ID与其他交易对重复而未放入注册表的交易对
      */
     public List<Symbol> getSymbolsByNodeId(int nodeId) {
-        List<Symbol> symbols = new ArrayList<>();
-        
-        // 从Redis中获取该节点负责的分区列表
-        String key = "match:node:" + nodeId + ":partitions";
-        List<String> partitionStrings = redisTemplate.opsForList().range(key, 0, -1);
+        Set<String> symbolNames = getSymbolNamesByNodeId(nodeId);
+        List<Symbol> symbols = new ArrayList<>(symbolNames.size());
+        List<Map<Object, Object>> hashes = entriesPipelined(symbolNames);
+        int i = 0;
+        for (String symbolName : symbolNames) {
+            Map<Object, Object> hash = hashes.get(i++);
+            // 单个交易对的配置有误时跳过该交易对，不影响其他交易对
+            Symbol symbol;
+            try {
+                symbol = parseSymbol(symbolName, hash);
+            } catch (NumberFormatException e) {
+                log.error("交易对{}的配置无法解析，跳过", symbolName, e);
+                continue;
+            }
+            if (symbol != null) {
+                symbols.add(symbol);
+            }
+        }
+        SymbolRegistry current = register(symbols);
+        symbols.removeIf(symbol -> current.get(symbol.getSymbol()) != symbol);
+        return symbols;
+    }
+    
+    /**
+     * 获取节点负责的交易对名称，不读取交易对详情
+     * <p>
+     * 先按节点的分区取交易对列表，再按 match:symbol:owners 中的指定调整：
+     * 指定给其他节点的交易对移出，指定给本节点的交易对加入。
+     *
+     * @param nodeId 节点ID
+     * @return 交易对名称，按分区顺序，指定给本节点的交易对在最后
+     */
+    public Set<String> getSymbolNamesByNodeId(int nodeId) {
+        Set<String> symbolNames = new LinkedHashSet<>();
         
-        if (partitionStrings == null || partitionStrings.isEmpty()) {
+        List<Integer> partitions = getPartitionsByNodeId(nodeId);
+        if (partitions.isEmpty()) {
             log.warn("节点{}没有分配到分区", nodeId);
-            return symbols;
         }
         
         // 根据分区ID获取交易对列表
-        for (String partitionString : partitionStrings) {
-            int partition = Integer.parseInt(partitionString);
-            String symbolsKey = "match:partition:" + partition + ":symbols";
-            List<String> symbolNames = redisTemplate.opsForList().range(symbolsKey, 0, -1);
-            
-            if (symbolNames != null && !symbolNames.isEmpty()) {
+        for (List<String> names : rangePipelined(partitionSymbolsKeys(partitions))) {
+            symbolNames.addAll(names);
+        }
+        
+        // 按节点指定调整
+        String node = String.valueOf(nodeId);
+        for (Map.Entry<Object, Object> owner : redisTemplate.opsForHash().entries(OWNERS_KEY).entrySet()) {
+            String symbol = owner.getKey().toString();
+            if (node.equals(owner.getValue().toString())) {
+                symbolNames.add(symbol);
+            } else {
+                symbolNames.remove(symbol);
+            }
+        }
+        
+        return symbolNames;
+    }
+    
+    /**
+     * 获取节点负责的分区列表
+     *
+     * @param nodeId 节点ID
+     * @return 分区列表，按分配顺序
+     */
+    public List<Integer> getPartitionsByNodeId(int nodeId) {
+        List<Integer> partitions = new ArrayList<>();
+        String key = "match:node:" + nodeId + ":partitions";
+        List<String> partitionStrings = redisTemplate.opsForList().range(key, 0, -1);
+        if (partitionStrings != null) {
+            for (String partitionString : partitionStrings) {
+                partitions.add(Integer.parseInt(partitionString));
+            }
+        }
+        return partitions;
+    }
+    
+    /**
+     * 把交易对指定给节点，并在同一个事务中发布变更通知，订阅变更的节点看到通知时分配已经生效。
+     * 只改变由哪个节点撮合，交易对的Kafka分区和所在分区的交易对列表不变
+     *
+     * @param symbol  交易对
+     * @param nodeId  节点ID
+     * @param channel 交易对变更频道
+     */
+    public void assignOwner(String symbol, int nodeId, String channel) {
+        redisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.multi();
+                ops.opsForHash().put(OWNERS_KEY, symbol, String.valueOf(nodeId));
+                ops.convertAndSend(channel, symbol);
+                return ops.exec();
+            }
+        });
+        log.info("交易对{}指定给节点{}", symbol, nodeId);
+    }
+    
+    /**
+     * 从Redis重新读取交易对信息并替换注册表中的条目，交易对已删除时移出注册表
+     *
+     * @param symbolName 交易对名称
+     * @return 注册表中的交易对信息，不存在时返回null；新读取的ID与其他交易对重复时保留并返回原有信息
+     */
+    public Symbol reloadSymbol(String symbolName) {
+        Map<Object, Object> symbolMap = redisTemplate.opsForHash().entries(symbolKey(symbolName));
+        Symbol symbol = parseSymbol(symbolName, symbolMap);
+        if (symbol != null) {
+            return register(Collections.singletonList(symbol)).get(symbolName);
+        }
+        synchronized (this) {
+            registry = registry.without(symbolName);
+        }
+        return null;
+    }
+    
+    /**
+     * 把交易对放入注册表，复制后整体替换
+     *
+     * @param symbols 交易对
+     * @return 替换后的注册表
+     */
+    private synchronized SymbolRegistry register(Collection<Symbol> symbols) {
+        registry = registry.with(symbols);
+        return registry;
+    }
+    
+    /**
+     * 在一个管道中读取多个列表
+     *
+     * @param keys 列表key
+     * @return 与key顺序一致的列表内容，不存在的key为空列表
+     */
+    @SuppressWarnings("unchecked")
+    private List<List<String>> rangePipelined(List<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (String key : keys) {
+                    ops.opsForList().range(key, 0, -1);
+                }
+                return null;
+            }
+        });
+        List<List<String>> lists = new ArrayList<>(results.size());
+        for (Object result : results) {
+            lists.add(result == null ? Collections.emptyList() : (List<String>) result);
+        }
+        return lists;
+    }
+    
+    /**
+     * 在一个管道中读取多个交易对的哈希
+     *
+     * @param symbolNames 交易对名称
+     * @return 与名称顺序一致的哈希内容，不存在的交易对为空表
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<Object, Object>> entriesPipelined(Collection<String> symbolNames) {
+        if (symbolNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
                 for (String symbolName : symbolNames) {
-                    Symbol symbol = getSymbolBySymbolName(symbolName);
-                    if (symbol != null) {
-                        symbols.add(symbol);
-                        symbolCache.put(symbolName, symbol);
-                    }
+                    ops.opsForHash().entries(symbolKey(symbolName));
                 }
+                return null;
             }
+        });
+        List<Map<Object, Object>> hashes = new ArrayList<>(results.size());
+        for (Object result : results) {
+            hashes.add(result == null ? Collections.emptyMap() : (Map<Object, Object>) result);
         }
-        
-        return symbols;
+        return hashes;
     }
     
     /**
-     * 根据交易对名称获取交易对信息
+     * 把Redis哈希转换为交易对信息，字段名为下划线形式，缺少的字段为null，手续费率缺少时为0
      *
      * @param symbolName 交易对名称
-     * @return 交易对信息
+     * @param symbolMap  Redis哈希
+     * @return 交易对信息，哈希为空时返回null
      */
-    private Symbol getSymbolBySymbolName(String symbolName) {
-        String key = "match:symbol:" + symbolName;
-        Map<Object, Object> symbolMap = redisTemplate.opsForHash().entries(key);
-        
+    private Symbol parseSymbol(String symbolName, Map<Object, Object> symbolMap) {
         if (symbolMap == null || symbolMap.isEmpty()) {
             log.warn("交易对{}不存在", symbolName);
             return null;
         }
         
         Symbol symbol = new Symbol();
-        symbol.setId(Integer.valueOf(symbolMap.get("id").toString()));
+        symbol.setId(intValue(symbolMap, "id"));
         symbol.setSymbol(symbolName);
-        symbol.setType(Integer.valueOf(symbolMap.get("type").toString()));
-        symbol.setBaseCoin(symbolMap.get("base_coin").toString());
-        symbol.setQuoteCoin(symbolMap.get("quote_coin").toString());
-        symbol.setMarginCoin(symbolMap.get("margin_coin").toString());
-        symbol.setPartition(Integer.valueOf(symbolMap.get("partition").toString()));
-        
-        // 其他字段也可以根据需要从Redis中获取
+        symbol.setType(intValue(symbolMap, "type"));
+        symbol.setBaseCoin(stringValue(symbolMap, "base_coin"));
+        symbol.setQuoteCoin(stringValue(symbolMap, "quote_coin"));
+        symbol.setPer(decimalValue(symbolMap, "per"));
+        symbol.setShow(intValue(symbolMap, "show"));
+        symbol.setStatus(intValue(symbolMap, "status"));
+        symbol.setMarketOrder(intValue(symbolMap, "market_order"));
+        symbol.setPriceDecimal(intValue(symbolMap, "price_decimal"));
+        symbol.setQuantityDecimal(intValue(symbolMap, "quantity_decimal"));
+        symbol.setLever(intValue(symbolMap, "lever"));
+        symbol.setSettleTime(longValue(symbolMap, "settle_time"));
+        symbol.setMarginType(intValue(symbolMap, "margin_type"));
+        symbol.setMarginCoin(stringValue(symbolMap, "margin_coin"));
+        symbol.setMarginDecimal(intValue(symbolMap, "margin_decimal"));
+        symbol.setStartTime(longValue(symbolMap, "start_time"));
+        symbol.setStopTime(longValue(symbolMap, "stop_time"));
+        symbol.setFundRateMax(decimalValue(symbolMap, "fund_rate_max"));
+        symbol.setFundRateMin(decimalValue(symbolMap, "fund_rate_min"));
+        symbol.setX(decimalValue(symbolMap, "x"));
+        symbol.setY(decimalValue(symbolMap, "y"));
+        symbol.setZ(decimalValue(symbolMap, "z"));
+        symbol.setBuyTakerFee(feeValue(symbolMap, symbolName, "buy_taker_fee"));
+        symbol.setBuyMakerFee(feeValue(symbolMap, symbolName, "buy_maker_fee"));
+        symbol.setSellTakerFee(feeValue(symbolMap, symbolName, "sell_taker_fee"));
+        symbol.setSellMakerFee(feeValue(symbolMap, symbolName, "sell_maker_fee"));
+        symbol.setPriceMin(decimalValue(symbolMap, "price_min"));
+        symbol.setPriceMax(decimalValue(symbolMap, "price_max"));
+        symbol.setLimitStart(longValue(symbolMap, "limit_start"));
+        symbol.setLimitEnd(longValue(symbolMap, "limit_end"));
+        symbol.setPartition(intValue(symbolMap, "partition"));
         
         return symbol;
     }
-} 
\ No newline at end of file
+    
+    private static String stringValue(Map<Object, Object> map, String field) {
+        Object value = map.get(field);
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+    
+    private static Integer intValue(Map<Object, Object> map, String field) {
+        String text = stringValue(map, field);
+        return text == null ? null : Integer.valueOf(text);
+    }
+    
+    private static Long longValue(Map<Object, Object> map, String field) {
+        String text = stringValue(map, field);
+        return text == null ? null : Long.valueOf(text);
+    }
+    
+    private static BigDecimal decimalValue(Map<Object, Object> map, String field) {
+        String text = stringValue(map, field);
+        return text == null ? null : new BigDecimal(text);
+    }
+    
+    // 撮合时直接参与计算，缺少时按0处理
+    private BigDecimal feeValue(Map<Object, Object> map, String symbolName, String field) {
+        BigDecimal fee = decimalValue(map, field);
+        if (fee == null) {
+            log.warn("交易对{}缺少手续费率{}，按0处理", symbolName, field);
+            return BigDecimal.ZERO;
+        }
+        return fee;
+    }
+    
+    private static String symbolKey(String symbolName) {
+        return "match:symbol:" + symbolName;
+    }
+    
+    private static List<String> partitionSymbolsKeys(List<Integer> partitions) {
+        List<String> keys = new ArrayList<>(partitions.size());
+        for (int partition : partitions) {
+            keys.add(partitionSymbolsKey(partition));
+        }
+        return keys;
+    }
+    
+    private static String partitionSymbolsKey(int partition) {
+        return "match:partition:" + partition + ":symbols";
+    }
+}
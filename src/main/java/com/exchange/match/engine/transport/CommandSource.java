@@ -0,0 +1,60 @@
+package com.exchange.match.engine.transport;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 订单命令来源，负责把某个交易对的命令按顺序投递到撮合线程的队列
+ */
+public interface CommandSource {
+    
+    /**
+     * 开始投递交易对的命令
+     *
+     * @param symbol       交易对
+     * @param partition    分区
+     * @param messageQueue 撮合线程的命令队列
+     */
+    void start(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue);
+    
+    /**
+     * 从指定位置开始投递交易对的命令，用于从交接快照恢复后衔接消费；不支持定位的来源忽略起始位置
+     *
+     * @param symbol       交易对
+     * @param partition    分区
+     * @param messageQueue 撮合线程的命令队列
+     * @param fromOffset   起始offset，小于0表示从默认位置开始
+     */
+    default void start(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue, long fromOffset) {
+        start(symbol, partition, messageQueue);
+    }
+    
+    /**
+     * 从时间戳不早于指定时间的第一条命令开始投递，用于快照来自其他分区、offset无法衔接时；
+     * 不支持按时间定位的来源忽略起始时间
+     *
+     * @param symbol       交易对
+     * @param partition    分区
+     * @param messageQueue 撮合线程的命令队列
+     * @param timestamp    起始时间
+     */
+    default void startFromTimestamp(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue, long timestamp) {
+        start(symbol, partition, messageQueue);
+    }
+    
+    /**
+     * 交易对的快照已保存，该快照之前的命令不再用于恢复，自带命令日志的来源可以据此清理
+     *
+     * @param symbol              交易对
+     * @param lastProcessedOffset 快照的最后处理offset
+     */
+    default void snapshotSaved(String symbol, long lastProcessedOffset) {
+    }
+    
+    /**
+     * 停止投递交易对的命令
+     *
+     * @param symbol    交易对
+     * @param partition 分区
+     */
+    void close(String symbol, int partition);
+}
@@ -0,0 +1,55 @@
+package com.exchange.match.engine.transport;
+
+import com.exchange.match.engine.dto.OrderCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存命令来源，同进程的网关或测试直接提交命令，不经过Kafka
+ * <p>
+ * 偏移量按交易对从0开始递增，同一交易对的提交方需要自行保证顺序。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "match.transport.command-source", havingValue = "memory")
+public class InMemoryCommandSource implements CommandSource {
+    
+    private final Map<String, BlockingQueue<SequencedCommand>> queues = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> offsets = new ConcurrentHashMap<>();
+    
+    @Override
+    public void start(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue) {
+        queues.put(symbol, messageQueue);
+        offsets.putIfAbsent(symbol, new AtomicLong(0));
+        log.info("启动内存命令来源: {}", symbol);
+    }
+    
+    @Override
+    public void close(String symbol, int partition) {
+        queues.remove(symbol);
+        log.info("关闭内存命令来源: {}", symbol);
+    }
+    
+    /**
+     * 提交订单命令
+     *
+     * @param command 订单命令
+     * @return 分配的偏移量
+     * @throws InterruptedException 等待入队被中断
+     */
+    public long submit(OrderCommand command) throws InterruptedException {
+        BlockingQueue<SequencedCommand> queue = queues.get(command.getSymbol());
+        if (queue == null) {
+            throw new IllegalStateException("交易对未在本节点撮合: " + command.getSymbol());
+        }
+        long offset = offsets.get(command.getSymbol()).getAndIncrement();
+        queue.put(new SequencedCommand(command, offset));
+        return offset;
+    }
+}
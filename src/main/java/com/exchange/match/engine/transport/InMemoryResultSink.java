@@ -0,0 +1,44 @@
+package com.exchange.match.engine.transport;
+
+import com.exchange.match.engine.matching.TradeExecutionResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 内存结果去向，在撮合线程上把结果直接交给注册的监听器
+ */
+@Service
+@ConditionalOnProperty(name = "match.transport.result-sink", havingValue = "memory")
+public class InMemoryResultSink implements ResultSink {
+    
+    private final List<Consumer<TradeExecutionResult>> listeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * 注册监听器，监听器在撮合线程上执行，必须足够轻量
+     *
+     * @param listener 监听器
+     */
+    public void addListener(Consumer<TradeExecutionResult> listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * 移除监听器
+     *
+     * @param listener 监听器
+     */
+    public void removeListener(Consumer<TradeExecutionResult> listener) {
+        listeners.remove(listener);
+    }
+    
+    @Override
+    public void publish(TradeExecutionResult result) {
+        for (Consumer<TradeExecutionResult> listener : listeners) {
+            listener.accept(result);
+        }
+    }
+}
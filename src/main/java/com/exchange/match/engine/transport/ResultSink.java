@@ -0,0 +1,24 @@
+package com.exchange.match.engine.transport;
+
+import com.exchange.match.engine.matching.TradeExecutionResult;
+
+/**
+ * 撮合结果去向，由撮合线程调用，实现不得阻塞撮合
+ */
+public interface ResultSink {
+    
+    /**
+     * 发布撮合结果
+     *
+     * @param result 撮合结果
+     */
+    void publish(TradeExecutionResult result);
+    
+    /**
+     * 交易对的撮合线程停止后调用，发出尚未发布的内容并释放该交易对的状态
+     *
+     * @param symbol 交易对
+     */
+    default void close(String symbol) {
+    }
+}
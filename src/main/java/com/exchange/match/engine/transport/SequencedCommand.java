@@ -0,0 +1,15 @@
+package com.exchange.match.engine.transport;
+
+import com.exchange.match.engine.dto.OrderCommand;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 带序号的订单命令，序号即命令在输入流中的偏移量（Kafka为分区offset）
+ */
+@Getter
+@AllArgsConstructor
+public class SequencedCommand {
+    private final OrderCommand command; // 订单命令
+    private final long offset; // 偏移量
+}
@@ -0,0 +1,353 @@
+package com.exchange.match.engine.transport;
+
+import com.exchange.match.engine.config.MatchEngineConfig;
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.replay.SegmentedCommandLog;
+import com.exchange.match.engine.util.ProtostuffUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 共享内存命令来源，从同机网关写入的内存映射环形缓冲区读取命令
+ * <p>
+ * 每个交易对一个环形缓冲区，序号即偏移量，保证与写入顺序一致。命令先批量追加到本地命令日志并刷盘
+ * （{@link java.nio.channels.FileChannel#force}），然后才释放环形缓冲区的槽位并投递给撮合线程，
+ * 因此已投递的命令一定能从命令日志恢复。代价是每个批次（最多{@value #MAX_BATCH}条命令）在投递前都有一次fsync，
+ * 空闲时批次只有一条命令，每条命令都要等一次fsync；fsync的次数和耗时定期输出到日志，
+ * 可与Kafka来源的网络往返延迟对比，评估共享内存来源实际节省的时间。
+ * <p>
+ * 命令日志按 {@link SegmentedCommandLog} 分段保存在 {@code <journal-dir>/<交易对>/} 下，段文件与
+ * {@link com.exchange.match.engine.replay.ReplayTool} 格式相同。启动时先从包含起始偏移量的段重放命令，
+ * 再从环形缓冲区继续读取，与Kafka来源从快照offset衔接消费的语义一致；快照保存成功后删除全部命令都在快照之前的段。
+ * 命令日志只保存在本机，共享内存来源的交易对不支持迁移到其他机器。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "match.transport.command-source", havingValue = "ipc")
+public class SharedMemoryCommandSource implements CommandSource {
+    
+    // 每批最多读取的命令数
+    private static final int MAX_BATCH = 256;
+    
+    // 关闭时等待读取线程投递完当前批次的最长时间（毫秒）
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+    
+    // 输出命令日志刷盘统计的间隔（毫秒）
+    private static final long FORCE_STATS_INTERVAL_MS = 60_000;
+    
+    private final MatchEngineConfig config;
+    private final Map<String, Reader> readers = new ConcurrentHashMap<>();
+    
+    /**
+     * 交易对的环形缓冲区文件路径
+     *
+     * @param dir    目录
+     * @param symbol 交易对
+     * @return 文件路径
+     */
+    public static Path ringPath(String dir, String symbol) {
+        return Paths.get(dir, symbol + ".ring");
+    }
+    
+    @Override
+    public void start(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue) {
+        start(symbol, partition, messageQueue, -1L);
+    }
+    
+    /**
+     * 从指定偏移量开始投递，先重放命令日志中不小于该偏移量的命令；起始偏移量来自快照，之前的段不再需要，启动时删除
+     *
+     * @param symbol       交易对
+     * @param partition    分区
+     * @param messageQueue 撮合线程的命令队列
+     * @param fromOffset   起始偏移量，小于0表示没有快照，重放整个命令日志
+     */
+    @Override
+    public void start(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue, long fromOffset) {
+        startReader(symbol, messageQueue, Math.max(fromOffset, 0L), fromOffset);
+    }
+    
+    /**
+     * 命令日志的偏移量与时间无法对应，快照来自其他分区时不重放命令日志，只投递环形缓冲区中的新命令
+     *
+     * @param symbol       交易对
+     * @param partition    分区
+     * @param messageQueue 撮合线程的命令队列
+     * @param timestamp    起始时间
+     */
+    @Override
+    public void startFromTimestamp(String symbol, int partition, BlockingQueue<SequencedCommand> messageQueue, long timestamp) {
+        log.warn("共享内存来源不支持按时间定位，跳过命令日志重放: {}", symbol);
+        startReader(symbol, messageQueue, Long.MAX_VALUE, -1L);
+    }
+    
+    /**
+     * 快照保存成功后由读取线程在投递完当前批次后删除全部命令都在快照之前的段
+     *
+     * @param symbol              交易对
+     * @param lastProcessedOffset 快照的最后处理偏移量
+     */
+    @Override
+    public void snapshotSaved(String symbol, long lastProcessedOffset) {
+        Reader reader = readers.get(symbol);
+        if (reader != null) {
+            reader.retainFrom = Math.max(reader.retainFrom, lastProcessedOffset + 1);
+        }
+    }
+    
+    /**
+     * 打开环形缓冲区和命令日志，启动读取线程
+     *
+     * @param symbol       交易对
+     * @param messageQueue 撮合线程的命令队列
+     * @param fromOffset   从命令日志重放的起始偏移量
+     * @param retainFrom   快照之后的第一个偏移量，之前的段可以删除，小于0表示不删除
+     */
+    private void startReader(String symbol, BlockingQueue<SequencedCommand> messageQueue, long fromOffset, long retainFrom) {
+        if (readers.containsKey(symbol)) {
+            log.warn("共享内存读取线程已存在: {}", symbol);
+            return;
+        }
+        
+        Path journalDir = Paths.get(config.getIpcJournalDir(), symbol);
+        SharedMemoryRing ring = null;
+        SegmentedCommandLog journal = null;
+        try {
+            ring = new SharedMemoryRing(ringPath(config.getIpcDir(), symbol), config.getIpcSlotSize(), config.getIpcCapacity());
+            journal = new SegmentedCommandLog(journalDir, config.getIpcJournalSegmentBytes());
+            long nextSequence = journal.recover();
+            if (retainFrom >= 0) {
+                int deleted = journal.deleteBefore(retainFrom);
+                if (deleted > 0) {
+                    log.info("交易对{}删除快照之前的{}个命令日志段，保留偏移量: {}", symbol, deleted, retainFrom);
+                }
+            }
+            
+            // 刷盘后、释放槽位前崩溃时，环形缓冲区中还留有已写入命令日志的命令，跳过它们
+            if (ring.writeSequence() < nextSequence) {
+                throw new IllegalStateException("环形缓冲区序号" + ring.writeSequence()
+                        + "落后于命令日志" + nextSequence + "，环形缓冲区可能被重建: " + symbol);
+            }
+            nextSequence = Math.max(nextSequence, ring.readSequence());
+            ring.release(nextSequence);
+            
+            Reader reader = new Reader(symbol, ring, journal, messageQueue, fromOffset, nextSequence, retainFrom);
+            readers.put(symbol, reader);
+            reader.thread.start();
+            log.info("启动共享内存读取线程: {}，重放起始偏移量: {}，环形缓冲区起始序号: {}", symbol, fromOffset, nextSequence);
+        } catch (IOException e) {
+            closeQuietly(ring);
+            closeQuietly(journal);
+            throw new IllegalStateException("打开共享内存环形缓冲区失败: " + symbol, e);
+        } catch (RuntimeException e) {
+            closeQuietly(ring);
+            closeQuietly(journal);
+            throw e;
+        }
+    }
+    
+    /**
+     * 解码命令，失败时返回null
+     *
+     * @param symbol 交易对
+     * @param offset 偏移量
+     * @param data   消息体
+     * @return 订单命令
+     */
+    private static OrderCommand decode(String symbol, long offset, byte[] data) {
+        try {
+            OrderCommand command = ProtostuffUtils.deserialize(data, OrderCommand.class);
+            if (symbol.equals(command.getSymbol())) {
+                return command;
+            }
+            log.warn("交易对{}的环形缓冲区收到其他交易对的命令: {}，offset: {}", symbol, command.getSymbol(), offset);
+        } catch (Exception e) {
+            log.error("解码交易对{}的共享内存命令失败，跳过offset: {}", symbol, offset, e);
+        }
+        return null;
+    }
+    
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                log.warn("关闭{}失败", closeable.getClass().getSimpleName(), e);
+            }
+        }
+    }
+    
+    @Override
+    public void close(String symbol, int partition) {
+        Reader reader = readers.remove(symbol);
+        if (reader == null) {
+            return;
+        }
+        // 不中断读取线程，让它投递完已写入命令日志的当前批次再退出，撮合线程排空队列时不会漏掉命令
+        reader.running = false;
+        try {
+            reader.thread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (reader.thread.isAlive()) {
+            log.warn("共享内存读取线程未在{}ms内退出: {}", CLOSE_TIMEOUT_MS, symbol);
+        }
+        log.info("关闭共享内存读取线程: {}", symbol);
+    }
+    
+    /**
+     * 单个交易对的读取线程
+     */
+    private static final class Reader implements Runnable {
+        private final String symbol;
+        private final SharedMemoryRing ring;
+        private final SegmentedCommandLog journal;
+        private final BlockingQueue<SequencedCommand> messageQueue;
+        private final long fromOffset;
+        private final long replayEnd;
+        private final Thread thread;
+        private volatile boolean running = true;
+        // 最近一次快照之后的第一个偏移量，由保存快照的线程更新
+        private volatile long retainFrom;
+        private long deletedBefore;
+        
+        // 命令日志刷盘统计，只在读取线程访问
+        private long forceCount;
+        private long forceCommands;
+        private long forceNanos;
+        private long forceMaxNanos;
+        private long nextStatsTime = System.currentTimeMillis() + FORCE_STATS_INTERVAL_MS;
+        
+        private Reader(String symbol, SharedMemoryRing ring, SegmentedCommandLog journal,
+                       BlockingQueue<SequencedCommand> messageQueue, long fromOffset, long replayEnd, long retainFrom) {
+            this.symbol = symbol;
+            this.ring = ring;
+            this.journal = journal;
+            this.messageQueue = messageQueue;
+            this.fromOffset = fromOffset;
+            this.replayEnd = replayEnd;
+            this.retainFrom = Math.max(retainFrom, 0L);
+            this.deletedBefore = this.retainFrom;
+            this.thread = new Thread(this, "ipc-reader-" + symbol);
+            this.thread.setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            try (ring; journal) {
+                replayJournal();
+                readRing();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("读取交易对{}的共享内存命令异常", symbol, e);
+            }
+            log.info("共享内存读取线程结束: {}", symbol);
+        }
+        
+        /**
+         * 重放命令日志中[fromOffset, replayEnd)范围内的命令
+         */
+        private void replayJournal() throws IOException, InterruptedException {
+            if (fromOffset >= replayEnd) {
+                return;
+            }
+            int replayed = journal.replay(fromOffset, replayEnd, record -> {
+                OrderCommand command = decode(symbol, record.getOffset(), record.getValue());
+                if (command != null) {
+                    messageQueue.put(new SequencedCommand(command, record.getOffset()));
+                }
+            });
+            log.info("交易对{}从命令日志重放{}条命令，起始偏移量: {}", symbol, replayed, fromOffset);
+        }
+        
+        /**
+         * 读取环形缓冲区，命令日志刷盘后再释放槽位并投递
+         */
+        private void readRing() throws IOException, InterruptedException {
+            List<SequencedCommand> batch = new ArrayList<>(MAX_BATCH);
+            long sequence = ring.readSequence();
+            int idleSpins = 0;
+            while (running) {
+                int count = 0;
+                byte[] data;
+                while (count < MAX_BATCH && (data = ring.peek(sequence)) != null) {
+                    OrderCommand command = decode(symbol, sequence, data);
+                    // 解码失败的命令也写入命令日志，保证偏移量连续，重放时同样会被跳过
+                    journal.write(sequence, command == null ? null : command.getType(), data);
+                    if (command != null) {
+                        batch.add(new SequencedCommand(command, sequence));
+                    }
+                    sequence++;
+                    count++;
+                }
+                
+                if (count == 0) {
+                    // 先自旋，空闲较久后让出CPU
+                    if (++idleSpins < 1000) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(50_000);
+                    }
+                    continue;
+                }
+                idleSpins = 0;
+                
+                // 命令日志刷盘后再释放槽位和投递，进程或机器崩溃时已投递的命令都能从命令日志恢复
+                long begin = System.nanoTime();
+                journal.force();
+                recordForce(System.nanoTime() - begin, count);
+                ring.release(sequence);
+                for (SequencedCommand command : batch) {
+                    messageQueue.put(command);
+                }
+                batch.clear();
+                
+                long retain = retainFrom;
+                if (retain > deletedBefore) {
+                    int deleted = journal.deleteBefore(retain);
+                    if (deleted > 0) {
+                        log.info("交易对{}删除快照之前的{}个命令日志段，保留偏移量: {}", symbol, deleted, retain);
+                    }
+                    deletedBefore = retain;
+                }
+            }
+        }
+        
+        /**
+         * 累计一次刷盘的耗时，定期输出次数、平均和最大耗时，与该来源节省的网络往返延迟对比
+         */
+        private void recordForce(long nanos, int commands) {
+            forceCount++;
+            forceCommands += commands;
+            forceNanos += nanos;
+            forceMaxNanos = Math.max(forceMaxNanos, nanos);
+            long now = System.currentTimeMillis();
+            if (now < nextStatsTime) {
+                return;
+            }
+            log.info("交易对{}命令日志刷盘{}次，平均每批{}条命令，平均耗时{}us，最大耗时{}us",
+                    symbol, forceCount, forceCommands / forceCount, forceNanos / forceCount / 1000, forceMaxNanos / 1000);
+            forceCount = 0;
+            forceCommands = 0;
+            forceNanos = 0;
+            forceMaxNanos = 0;
+            nextStatsTime = now + FORCE_STATS_INTERVAL_MS;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.exchange.match.engine.transport;
+
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.util.ProtostuffUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 共享内存命令写入器，供同机网关进程使用，每个交易对对应一个环形缓冲区文件
+ */
+public class SharedMemoryCommandWriter implements Closeable {
+    private final SharedMemoryRing ring;
+    
+    /**
+     * 构造函数
+     *
+     * @param dir      环形缓冲区目录，与撮合节点的 match.ipc.dir 一致
+     * @param symbol   交易对
+     * @param slotSize 槽位大小，与撮合节点一致
+     * @param capacity 槽位数量，与撮合节点一致
+     * @throws IOException 打开文件失败
+     */
+    public SharedMemoryCommandWriter(String dir, String symbol, int slotSize, int capacity) throws IOException {
+        this.ring = new SharedMemoryRing(SharedMemoryCommandSource.ringPath(dir, symbol), slotSize, capacity);
+    }
+    
+    /**
+     * 提交订单命令，缓冲区满时自旋等待撮合进程消费
+     *
+     * @param command 订单命令
+     * @return 命令序号，即撮合中使用的偏移量
+     */
+    public long submit(OrderCommand command) {
+        return ring.publish(ProtostuffUtils.serialize(command));
+    }
+    
+    @Override
+    public void close() throws IOException {
+        ring.close();
+    }
+}
@@ -0,0 +1,155 @@
+package com.exchange.match.engine.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射文件的环形缓冲区，供同机网关进程与撮合进程之间传递命令
+ * <p>
+ * 文件布局（偏移量单位字节）：
+ * <pre>
+ * 0    magic(int) | slotSize(int) | capacity(int)
+ * 64   生产序号(long)，多个写入方通过原子加法申请槽位
+ * 128  消费序号(long)，写入方据此判断是否有空闲槽位
+ * 192  槽位数组，每个槽位：发布标记(long) | 长度(int) | 数据
+ * </pre>
+ * 写入方写完数据后以release语义把槽位的发布标记置为序号+1，读取方以acquire语义读取标记，
+ * 因此同一环形缓冲区中的命令严格按申请序号的顺序被消费。只允许一个读取方。
+ */
+public class SharedMemoryRing implements Closeable {
+    private static final int MAGIC = 0x4D524E47;
+    private static final int PRODUCER_OFFSET = 64;
+    private static final int CONSUMER_OFFSET = 128;
+    private static final int SLOTS_OFFSET = 192;
+    private static final int SLOT_HEADER = 12;
+    
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotSize;
+    private final int capacity;
+    private final int mask;
+    
+    /**
+     * 打开或创建环形缓冲区
+     *
+     * @param path     文件路径
+     * @param slotSize 槽位大小（字节，8的倍数）
+     * @param capacity 槽位数量（2的幂）
+     * @throws IOException 打开文件失败
+     */
+    public SharedMemoryRing(Path path, int slotSize, int capacity) throws IOException {
+        if (Integer.bitCount(capacity) != 1 || slotSize % 8 != 0 || slotSize <= SLOT_HEADER) {
+            throw new IllegalArgumentException("capacity必须为2的幂，slotSize必须为8的倍数");
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = SLOTS_OFFSET + (long) slotSize * capacity;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.buffer.order(ByteOrder.nativeOrder());
+        
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(4, slotSize);
+            buffer.putInt(8, capacity);
+            buffer.putInt(0, MAGIC);
+        } else if (buffer.getInt(4) != slotSize || buffer.getInt(8) != capacity) {
+            throw new IllegalStateException("环形缓冲区参数与已有文件不一致: " + path);
+        }
+        this.slotSize = slotSize;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+    
+    /**
+     * 单条数据的最大长度
+     *
+     * @return 最大长度（字节）
+     */
+    public int maxPayload() {
+        return slotSize - SLOT_HEADER;
+    }
+    
+    /**
+     * 写入一条数据，缓冲区满时自旋等待读取方
+     *
+     * @param data 数据
+     * @return 分配的序号
+     */
+    public long publish(byte[] data) {
+        if (data.length > maxPayload()) {
+            throw new IllegalArgumentException("数据长度超过槽位大小: " + data.length);
+        }
+        long sequence = (long) LONG.getAndAdd(buffer, PRODUCER_OFFSET, 1L);
+        while (sequence - (long) LONG.getAcquire(buffer, CONSUMER_OFFSET) >= capacity) {
+            Thread.onSpinWait();
+        }
+        int slot = slotOffset(sequence);
+        buffer.putInt(slot + 8, data.length);
+        buffer.put(slot + SLOT_HEADER, data);
+        LONG.setRelease(buffer, slot, sequence + 1);
+        return sequence;
+    }
+    
+    /**
+     * 下一条待读取数据的序号
+     *
+     * @return 序号
+     */
+    public long readSequence() {
+        return (long) LONG.getAcquire(buffer, CONSUMER_OFFSET);
+    }
+    
+    /**
+     * 已申请的下一个序号，即写入方下次发布使用的序号
+     *
+     * @return 序号
+     */
+    public long writeSequence() {
+        return (long) LONG.getAcquire(buffer, PRODUCER_OFFSET);
+    }
+    
+    /**
+     * 读取指定序号的数据但不释放槽位，不会阻塞
+     * <p>
+     * 读取方处理完后调用 {@link #release(long)} 释放槽位，在此之前写入方不会覆盖该槽位。
+     *
+     * @param sequence 序号，必须不小于 {@link #readSequence()} 且未超出容量
+     * @return 数据，该序号尚未发布时返回null
+     */
+    public byte[] peek(long sequence) {
+        int slot = slotOffset(sequence);
+        if ((long) LONG.getAcquire(buffer, slot) != sequence + 1) {
+            return null;
+        }
+        byte[] data = new byte[buffer.getInt(slot + 8)];
+        buffer.get(slot + SLOT_HEADER, data);
+        return data;
+    }
+    
+    /**
+     * 释放指定序号之前的所有槽位
+     *
+     * @param nextSequence 下一条待读取数据的序号
+     */
+    public void release(long nextSequence) {
+        LONG.setRelease(buffer, CONSUMER_OFFSET, nextSequence);
+    }
+    
+    private int slotOffset(long sequence) {
+        return SLOTS_OFFSET + (int) (sequence & mask) * slotSize;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,64 @@
+package com.exchange.match.engine.util;
+
+import java.util.Arrays;
+
+/**
+ * 延迟记录器，保存全部样本并在报告时排序计算分位数，非线程安全
+ */
+public class LatencyRecorder {
+    private long[] samples = new long[1 << 16];
+    private int count;
+    
+    /**
+     * 记录一个样本
+     *
+     * @param nanos 延迟（纳秒）
+     */
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = nanos;
+    }
+    
+    /**
+     * 样本数量
+     *
+     * @return 样本数量
+     */
+    public int count() {
+        return count;
+    }
+    
+    /**
+     * 生成分位数报告
+     *
+     * @return 报告文本，单位微秒
+     */
+    public String report() {
+        if (count == 0) {
+            return "no samples";
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return String.format("latency(us) p50: %.1f, p90: %.1f, p99: %.1f, p99.9: %.1f, p99.99: %.1f, max: %.1f",
+                percentile(sorted, 0.50) / 1e3,
+                percentile(sorted, 0.90) / 1e3,
+                percentile(sorted, 0.99) / 1e3,
+                percentile(sorted, 0.999) / 1e3,
+                percentile(sorted, 0.9999) / 1e3,
+                sorted[sorted.length - 1] / 1e3);
+    }
+    
+    /**
+     * 已排序数组的分位数
+     *
+     * @param sorted 已排序的样本
+     * @param p      分位（0-1）
+     * @return 分位数
+     */
+    public static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,75 @@
+package com.exchange.match.engine.util;
+
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.model.Order;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单命令工具类，负责命令消息的解码和转换，供Kafka消费和离线重放共用
+ */
+public class OrderCommandUtils {
+    
+    private OrderCommandUtils() {
+    }
+    
+    /**
+     * 是否为支持的命令类型
+     *
+     * @param type 命令类型（即Kafka消息的key）
+     * @return 是否支持
+     */
+    public static boolean isSupportedType(String type) {
+        return OrderCommand.TYPE_NEW_ORDER.equals(type)
+                || OrderCommand.TYPE_CANCEL_ORDER.equals(type)
+                || OrderCommand.TYPE_CANCEL_ALL_USER.equals(type)
+                || OrderCommand.TYPE_CANCEL_ALL_USER_SIDE.equals(type)
+                || OrderCommand.TYPE_AMEND.equals(type)
+                || OrderCommand.TYPE_BATCH_NEW.equals(type)
+                || OrderCommand.TYPE_TICK.equals(type);
+    }
+    
+    /**
+     * 解码订单命令
+     *
+     * @param key   消息key，区分命令类型
+     * @param value 消息体
+     * @return 订单命令，类型不支持时返回null
+     */
+    public static OrderCommand decode(String key, byte[] value) {
+        if (!isSupportedType(key)) {
+            return null;
+        }
+        return ProtostuffUtils.deserialize(value, OrderCommand.class);
+    }
+    
+    /**
+     * 将订单命令转换为订单对象
+     *
+     * @param command 订单命令
+     * @return 订单对象
+     */
+    public static Order toOrder(OrderCommand command) {
+        Order order = new Order();
+        order.setId(command.getOrderId());
+        order.setUserId(command.getUserId());
+        order.setSymbol(command.getSymbol());
+        order.setType(command.getOrderType());
+        order.setPrice(command.getPrice());
+        order.setQuantity(command.getQuantity());
+        order.setQuantityLeft(command.getQuantity());
+        order.setQuantityDone(BigDecimal.ZERO);
+        order.setSide(command.getSide());
+        order.setAction(command.getAction());
+        order.setMarginMode(command.getMarginMode());
+        order.setMarginType(command.getMarginType());
+        order.setPriceStop(command.getPriceStop());
+        order.setVolumeMax(command.getVolumeMax());
+        order.setQuantityClose(command.getQuantityClose());
+        order.setStatus(1); // 等待撮合
+        order.setCreateTime(command.getTimestamp());
+        order.setUpdateTime(command.getTimestamp());
+        order.setExpireTime(command.getExpireTime());
+        return order;
+    }
+}
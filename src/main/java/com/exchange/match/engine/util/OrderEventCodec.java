@@ -0,0 +1,155 @@
+package com.exchange.match.engine.util;
+
+import com.exchange.match.engine.dto.OrderEventBatch;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 逐笔委托（L3）事件编解码
+ * <p>
+ * 每个事件：byte 类型 | varint 订单ID | byte 方向 | 价格 | 数量，
+ * 价格和数量为 varint 去掉小数点后的整数 + byte 小数位。
+ * <ul>
+ *     <li>ADD：挂单进入订单簿，数量为挂单数量，排在该价格队尾</li>
+ *     <li>REDUCE：挂单原地减量（改单），数量为减量后的剩余数量，排队位置不变</li>
+ *     <li>REMOVE：挂单被撤销或过期，数量为撤销时的剩余数量</li>
+ *     <li>EXECUTE：挂单作为maker成交，数量为本次成交数量，剩余为0时挂单出队</li>
+ * </ul>
+ */
+public final class OrderEventCodec {
+    public static final int TYPE_ADD = 1;
+    public static final int TYPE_REDUCE = 2;
+    public static final int TYPE_REMOVE = 3;
+    public static final int TYPE_EXECUTE = 4;
+
+    private OrderEventCodec() {
+    }
+
+    /**
+     * 解码后的事件
+     */
+    public record Event(int type, long sequence, long orderId, int side, BigDecimal price, BigDecimal quantity) {
+    }
+
+    /**
+     * 解码事件批次
+     *
+     * @param batch 事件批次
+     * @return 事件列表
+     */
+    public static List<Event> decode(OrderEventBatch batch) {
+        byte[] data = batch.getEvents();
+        List<Event> events = new ArrayList<>(batch.getCount());
+        int[] pos = {0};
+        for (int i = 0; i < batch.getCount(); i++) {
+            int type = data[pos[0]++];
+            long orderId = readVarLong(data, pos);
+            int side = data[pos[0]++];
+            BigDecimal price = readDecimal(data, pos);
+            BigDecimal quantity = readDecimal(data, pos);
+            events.add(new Event(type, batch.getFirstSequence() + i, orderId, side, price, quantity));
+        }
+        return events;
+    }
+
+    private static BigDecimal readDecimal(byte[] data, int[] pos) {
+        long unscaled = readVarLong(data, pos);
+        int scale = data[pos[0]++];
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private static long readVarLong(byte[] data, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    /**
+     * 事件编码器，复用内部缓冲区，只在撮合线程中使用
+     */
+    public static final class Writer {
+        private byte[] buffer = new byte[256];
+        private int position;
+        private int count;
+
+        /**
+         * 追加一个事件
+         *
+         * @param type     事件类型
+         * @param orderId  订单ID
+         * @param side     买卖方向（1买/2卖）
+         * @param price    价格
+         * @param quantity 数量
+         */
+        public void write(int type, long orderId, int side, BigDecimal price, BigDecimal quantity) {
+            // 类型、方向、两个小数位各1字节，订单ID和两个整数最多各10字节
+            ensureCapacity(34);
+            buffer[position++] = (byte) type;
+            writeVarLong(orderId);
+            buffer[position++] = (byte) side;
+            writeDecimal(price);
+            writeDecimal(quantity);
+            count++;
+        }
+
+        /**
+         * @return 已写入的事件数
+         */
+        public int count() {
+            return count;
+        }
+
+        /**
+         * 取出已写入的事件并清空
+         *
+         * @return 编码后的事件
+         */
+        public byte[] drain() {
+            byte[] events = Arrays.copyOf(buffer, position);
+            position = 0;
+            count = 0;
+            return events;
+        }
+
+        private void writeDecimal(BigDecimal value) {
+            BigInteger unscaled = value.unscaledValue();
+            int scale = value.scale();
+            if (unscaled.bitLength() > 63 || scale < 0 || scale > Byte.MAX_VALUE) {
+                // 去掉末尾的0后再编码，仍超出范围时抛出ArithmeticException
+                value = value.stripTrailingZeros();
+                if (value.scale() < 0) {
+                    value = value.setScale(0);
+                }
+                unscaled = value.unscaledValue();
+                scale = value.scale();
+            }
+            writeVarLong(unscaled.longValueExact());
+            buffer[position++] = (byte) scale;
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.exchange.match.engine.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExpiryWheelTest {
+    private static final long DAY_MS = 86_400_000L;
+    
+    private final ExpiryWheel wheel = new ExpiryWheel(10);
+    private final List<Long> expired = new ArrayList<>();
+    
+    @Test
+    void scheduleBeforeStartIsRejected() {
+        assertThatThrownBy(() -> wheel.schedule(1, 100)).isInstanceOf(IllegalStateException.class);
+    }
+    
+    @Test
+    void earlierExpiryScheduledAfterLaterOneIsNotDelayed() {
+        wheel.start(0);
+        wheel.schedule(1, DAY_MS);
+        wheel.schedule(2, 60_000);
+        
+        wheel.advance(59_999, this::onExpire);
+        assertThat(expired).isEmpty();
+        
+        wheel.advance(60_000, this::onExpire);
+        assertThat(expired).containsExactly(2L);
+        
+        wheel.advance(DAY_MS, this::onExpire);
+        assertThat(expired).containsExactly(2L, 1L);
+        assertThat(wheel.size()).isZero();
+    }
+    
+    @Test
+    void expiryIsRoundedUpToTheNextTick() {
+        wheel.start(0);
+        wheel.schedule(1, 15);
+        
+        wheel.advance(19, this::onExpire);
+        assertThat(expired).isEmpty();
+        
+        wheel.advance(20, this::onExpire);
+        assertThat(expired).containsExactly(1L);
+    }
+    
+    @Test
+    void alreadyExpiredOrderFiresOnNextAdvance() {
+        wheel.start(1_000);
+        wheel.schedule(1, 500);
+        
+        wheel.advance(1_000, this::onExpire);
+        assertThat(expired).containsExactly(1L);
+    }
+    
+    @Test
+    void clearRequiresRestart() {
+        wheel.start(0);
+        wheel.schedule(1, 100);
+        wheel.clear();
+        
+        assertThat(wheel.size()).isZero();
+        assertThatThrownBy(() -> wheel.schedule(2, 100)).isInstanceOf(IllegalStateException.class);
+    }
+    
+    private void onExpire(long orderId, long expireTime) {
+        expired.add(orderId);
+    }
+}
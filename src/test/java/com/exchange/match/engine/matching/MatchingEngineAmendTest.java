@@ -0,0 +1,127 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.dto.OrderReject;
+import com.exchange.match.engine.dto.TradeResult;
+import com.exchange.match.engine.orderbook.OrderBook;
+import com.exchange.match.engine.orderbook.OrderBookEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+
+import static com.exchange.match.engine.matching.MatchingFixtures.amend;
+import static com.exchange.match.engine.matching.MatchingFixtures.limit;
+import static com.exchange.match.engine.matching.MatchingFixtures.newEngine;
+import static com.exchange.match.engine.matching.MatchingFixtures.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchingEngineAmendTest {
+    
+    @Test
+    void reduceAtSamePriceKeepsQueuePosition() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 1, 1, "100.00", "2"), 0);
+        engine.processCommand(limit(2, 2, 1, "100.00", "2"), 1);
+        
+        engine.processCommand(amend(1, null, "1"), 2);
+        
+        assertThat(queueAt(engine, "100.00")).containsExactly(1L, 2L);
+        assertThat(engine.getOrderBook().getOrder(1L).getQuantity()).isEqualByComparingTo("1");
+    }
+    
+    @Test
+    void increaseAtSamePriceMovesToBackOfQueue() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 1, 1, "100.00", "2"), 0);
+        engine.processCommand(limit(2, 2, 1, "100.00", "2"), 1);
+        
+        engine.processCommand(amend(1, null, "3"), 2);
+        
+        assertThat(queueAt(engine, "100.00")).containsExactly(2L, 1L);
+        assertThat(engine.getOrderBook().getOrder(1L).getQuantity()).isEqualByComparingTo("3");
+    }
+    
+    @Test
+    void priceAmendThatCrossesIsMatchedImmediately() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 1, 1, "100.00", "1"), 0);
+        engine.processCommand(limit(2, 2, 2, "101.00", "1"), 1);
+        
+        TradeExecutionResult result = engine.processCommand(amend(1, "101.00", "1"), 2);
+        
+        assertThat(result.getTakerTradeResults()).extracting(TradeResult::getOrderId).containsExactly(1L);
+        assertThat(result.getMakerTradeResults()).extracting(TradeResult::getOrderId).containsExactly(2L);
+        assertThat(engine.getOrderBook().getOrderCount()).isZero();
+    }
+    
+    @Test
+    void zeroQuantityAmendCancelsOrder() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 1, 1, "100.00", "1"), 0);
+        
+        engine.processCommand(amend(1, null, "0"), 1);
+        
+        assertThat(engine.getOrderBook().getOrder(1L)).isNull();
+    }
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void amendKeepsMarginAttributes(boolean offHeap) {
+        OrderBook orderBook = offHeap
+                ? OrderBook.offHeap(MatchingFixtures.SYMBOL, 2, 4, 1024)
+                : new OrderBook(MatchingFixtures.SYMBOL);
+        MatchingEngine engine = newEngine(orderBook, 0);
+        OrderCommand marginOrder = newOrder(1, 1, 1, 1, "100.00", "1", null);
+        marginOrder.setAction(1);
+        marginOrder.setMarginMode(1);
+        marginOrder.setMarginType(2);
+        engine.processCommand(marginOrder, 0);
+        
+        engine.processCommand(amend(1, "99.50", "1"), 1);
+        TradeExecutionResult result = engine.processCommand(limit(2, 2, 2, "99.50", "1"), 2);
+        
+        assertThat(result.getMakerTradeResults()).singleElement().satisfies(maker -> {
+            assertThat(maker.getOrderId()).isEqualTo(1L);
+            assertThat(maker.getAction()).isEqualTo(1);
+            assertThat(maker.getMarginMode()).isEqualTo(1);
+            assertThat(maker.getMarginType()).isEqualTo(2);
+        });
+    }
+    
+    @Test
+    void postOnlyPriceAmendThatWouldCrossIsRejected() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(newOrder(1, 1, 1, 2, "99.00", "1", null), 0);
+        engine.processCommand(limit(2, 2, 2, "100.00", "1"), 1);
+        
+        TradeExecutionResult result = engine.processCommand(amend(1, "100.00", "1"), 2);
+        
+        assertThat(result.getRejects()).singleElement().satisfies(reject -> {
+            assertThat(reject.getOrderId()).isEqualTo(1L);
+            assertThat(reject.getReason()).isEqualTo(OrderReject.REASON_POST_ONLY);
+        });
+        assertThat(result.getTakerTradeResults()).isEmpty();
+        assertThat(engine.getOrderBook().getOrder(1L).getPrice()).isEqualByComparingTo("99.00");
+        assertThat(engine.getOrderBook().getOrder(2L)).isNotNull();
+    }
+    
+    @Test
+    void postOnlyPriceAmendThatRestsIsAccepted() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(newOrder(1, 1, 1, 2, "99.00", "1", null), 0);
+        engine.processCommand(limit(2, 2, 2, "100.00", "1"), 1);
+        
+        TradeExecutionResult result = engine.processCommand(amend(1, "99.50", "1"), 2);
+        
+        assertThat(result.getRejects()).isEmpty();
+        assertThat(engine.getOrderBook().getOrder(1L).getPrice()).isEqualByComparingTo("99.50");
+    }
+    
+    private static Iterable<Long> queueAt(MatchingEngine engine, String price) {
+        return engine.getOrderBook().getBucket(new BigDecimal(price), 1).getOrders().stream()
+                .map(OrderBookEntry::getOrderId)
+                .toList();
+    }
+}
@@ -0,0 +1,67 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.dto.OrderBookEntry;
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.dto.OrderReject;
+import com.exchange.match.engine.dto.PublicTradeRecord;
+import com.exchange.match.engine.dto.TradeResult;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static com.exchange.match.engine.matching.MatchingFixtures.batch;
+import static com.exchange.match.engine.matching.MatchingFixtures.limit;
+import static com.exchange.match.engine.matching.MatchingFixtures.newEngine;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MatchingEngineBatchTest {
+    
+    @Test
+    void batchProducesOneCoalescedUpdateAndSequentialFills() {
+        MatchingEngine engine = newEngine();
+        
+        // 同一批内先挂两档卖单，再由买单依次吃掉，最后在同一档位追加买单
+        TradeExecutionResult result = engine.processCommand(batch(
+                limit(1, 1, 2, "100.00", "1"),
+                limit(2, 2, 2, "101.00", "1"),
+                limit(3, 3, 1, "101.00", "1.5"),
+                limit(4, 4, 1, "99.00", "2"),
+                limit(5, 5, 1, "99.00", "1")), 7);
+        
+        assertThat(result.getOffset()).isEqualTo(7L);
+        assertThat(result.getPublicTrades()).extracting(PublicTradeRecord::getPrice, PublicTradeRecord::getQuantity)
+                .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .containsExactly(tuple(new BigDecimal("100.00"), new BigDecimal("1")),
+                        tuple(new BigDecimal("101.00"), new BigDecimal("0.5")));
+        assertThat(result.getMakerTradeResults()).extracting(TradeResult::getOrderId).containsExactly(1L, 2L);
+        assertThat(result.getTakerTradeResults()).extracting(TradeResult::getOrderId).containsOnly(3L);
+        
+        // 每个变化的档位只出现一次，数量为整批处理后的结果
+        assertThat(result.getOrderBookUpdate().getLastOffset()).isEqualTo(7L);
+        assertThat(result.getOrderBookUpdate().getAsks()).extracting(OrderBookEntry::getPrice, OrderBookEntry::getQuantity)
+                .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .containsExactlyInAnyOrder(tuple(new BigDecimal("100.00"), BigDecimal.ZERO),
+                        tuple(new BigDecimal("101.00"), new BigDecimal("0.5")));
+        assertThat(result.getOrderBookUpdate().getBids()).hasSize(1);
+        assertThat(result.getOrderBookUpdate().getBids().get(0).getPrice()).isEqualByComparingTo("99.00");
+        assertThat(result.getOrderBookUpdate().getBids().get(0).getQuantity()).isEqualByComparingTo("3");
+    }
+    
+    @Test
+    void childOrderForAnotherSymbolIsRejected() {
+        MatchingEngine engine = newEngine();
+        OrderCommand foreign = limit(2, 2, 2, "100.00", "1");
+        foreign.setSymbol("ETHUSDT");
+        OrderCommand inherited = limit(3, 3, 2, "101.00", "1");
+        inherited.setSymbol(null);
+        
+        TradeExecutionResult result = engine.processCommand(batch(limit(1, 1, 2, "100.00", "1"), foreign, inherited), 1);
+        
+        assertThat(result.getRejects()).extracting(OrderReject::getOrderId, OrderReject::getReason)
+                .containsExactly(tuple(2L, OrderReject.REASON_SYMBOL));
+        assertThat(engine.getOrderBook().getOrder(2L)).isNull();
+        assertThat(engine.getOrderBook().getOrder(1L)).isNotNull();
+        assertThat(engine.getOrderBook().getOrder(3L)).isNotNull();
+    }
+}
@@ -0,0 +1,125 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.dto.OrderReject;
+import com.exchange.match.engine.orderbook.OrderBook;
+import com.exchange.match.engine.orderbook.OrderBookSnapshot;
+import org.junit.jupiter.api.Test;
+
+import static com.exchange.match.engine.matching.MatchingFixtures.gtd;
+import static com.exchange.match.engine.matching.MatchingFixtures.newEngine;
+import static com.exchange.match.engine.matching.MatchingFixtures.newOrder;
+import static com.exchange.match.engine.matching.MatchingFixtures.stop;
+import static com.exchange.match.engine.matching.MatchingFixtures.tick;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MatchingEngineExpiryTest {
+    private static final long DAY_MS = 86_400_000L;
+    
+    @Test
+    void gtdOrderExpiresOnCommandTimestamp() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(gtd(1, 1, "100.00", 1_000L, 61_000), 0);
+        
+        TradeExecutionResult before = engine.processCommand(tick(60_999), 1);
+        assertThat(before.getRejects()).isEmpty();
+        assertThat(engine.getOrderBook().getOrder(1L)).isNotNull();
+        
+        TradeExecutionResult result = engine.processCommand(tick(61_000), 2);
+        assertThat(engine.getOrderBook().getOrder(1L)).isNull();
+        assertThat(result.getRejects()).extracting(OrderReject::getOrderId, OrderReject::getUserId, OrderReject::getReason)
+                .containsExactly(tuple(1L, 1L, OrderReject.REASON_EXPIRED));
+    }
+    
+    @Test
+    void orderExpiredOnArrivalIsReported() {
+        MatchingEngine engine = newEngine();
+        
+        TradeExecutionResult result = engine.processCommand(gtd(1, 1, "100.00", 10_000L, 5_000), 0);
+        
+        assertThat(result.getRejects()).extracting(OrderReject::getOrderId, OrderReject::getReason)
+                .containsExactly(tuple(1L, OrderReject.REASON_EXPIRED));
+        assertThat(engine.getOrderBook().getOrderCount()).isZero();
+    }
+    
+    @Test
+    void pendingStopExpiryIsReported() {
+        MatchingEngine engine = newEngine();
+        OrderCommand stopOrder = stop(1, 7, 1, 7, null, "105.00", "1");
+        stopOrder.setTimestamp(1_000L);
+        stopOrder.setExpireTime(61_000L);
+        engine.processCommand(stopOrder, 0);
+        
+        TradeExecutionResult result = engine.processCommand(tick(61_000), 1);
+        
+        assertThat(engine.getOrderBook().getStopOrders().get(1L)).isNull();
+        assertThat(result.getRejects()).extracting(OrderReject::getOrderId, OrderReject::getUserId, OrderReject::getReason)
+                .containsExactly(tuple(1L, 7L, OrderReject.REASON_EXPIRED));
+    }
+    
+    @Test
+    void expiryIsReportedWithTheCommandThatAdvancesTime() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(gtd(1, 1, "100.00", 1_000L, 61_000), 0);
+        
+        TradeExecutionResult result = engine.processCommand(newOrder(2, 2, 2, 1, "101.00", "1", 61_000L), 1);
+        
+        assertThat(result.getRejects()).extracting(OrderReject::getOrderId).containsExactly(1L);
+        assertThat(engine.getOrderBook().getOrder(2L)).isNotNull();
+    }
+    
+    @Test
+    void mixedExpiriesAfterSnapshotRestore() {
+        MatchingEngine engine = newEngine();
+        // 先登记晚到期的订单，再登记早到期的订单
+        engine.processCommand(gtd(1, 1, "100.00", 1_000L, 1_000 + DAY_MS), 0);
+        engine.processCommand(gtd(2, 1, "99.00", 1_000L, 61_000), 1);
+        engine.processCommand(gtd(3, 2, "101.00", 1_000L, 121_000), 2);
+        OrderBookSnapshot snapshot = engine.snapshot();
+        
+        OrderBook restoredBook = new OrderBook(MatchingFixtures.SYMBOL);
+        restoredBook.restore(snapshot);
+        MatchingEngine restored = newEngine(restoredBook, snapshot.getLastTradeId());
+        restored.rebuildExpiryWheel(1_000L);
+        
+        restored.processCommand(tick(61_000), 3);
+        assertThat(restoredBook.getOrder(2L)).isNull();
+        assertThat(restoredBook.getOrder(3L)).isNotNull();
+        assertThat(restoredBook.getOrder(1L)).isNotNull();
+        
+        restored.processCommand(tick(121_000), 4);
+        assertThat(restoredBook.getOrder(3L)).isNull();
+        assertThat(restoredBook.getOrder(1L)).isNotNull();
+        
+        restored.processCommand(tick(1_000 + DAY_MS), 5);
+        assertThat(restoredBook.getOrder(1L)).isNull();
+    }
+    
+    @Test
+    void ordersExpiredAtSnapshotTimeAreCancelledOnFirstCommand() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(gtd(1, 1, "100.00", 1_000L, 5_000), 0);
+        OrderBookSnapshot snapshot = engine.snapshot();
+        
+        OrderBook restoredBook = new OrderBook(MatchingFixtures.SYMBOL);
+        restoredBook.restore(snapshot);
+        MatchingEngine restored = newEngine(restoredBook, snapshot.getLastTradeId());
+        restored.rebuildExpiryWheel(10_000L);
+        
+        restored.processCommand(tick(10_000), 1);
+        assertThat(restoredBook.getOrder(1L)).isNull();
+    }
+    
+    @Test
+    void mixedExpiriesWithoutCommandTimestamps() {
+        MatchingEngine engine = newEngine();
+        // 命令不带时间戳时以时间来源开始计时（固定为0）
+        engine.processCommand(gtd(1, 1, "100.00", null, DAY_MS), 0);
+        engine.processCommand(gtd(2, 1, "99.00", null, 60_000), 1);
+        
+        engine.processCommand(tick(60_000), 2);
+        assertThat(engine.getOrderBook().getOrder(2L)).isNull();
+        assertThat(engine.getOrderBook().getOrder(1L)).isNotNull();
+    }
+}
@@ -0,0 +1,84 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.dto.OrderReject;
+import com.exchange.match.engine.dto.TradeResult;
+import org.junit.jupiter.api.Test;
+
+import static com.exchange.match.engine.matching.MatchingFixtures.limit;
+import static com.exchange.match.engine.matching.MatchingFixtures.newEngine;
+import static com.exchange.match.engine.matching.MatchingFixtures.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MatchingEngineFokPostOnlyTest {
+    private static final int POST_ONLY = 2;
+    private static final int FOK = 3;
+    
+    @Test
+    void fokThatCannotFillLeavesBookUntouched() {
+        MatchingEngine engine = bookWithTwoAsks();
+        
+        TradeExecutionResult result = engine.processCommand(newOrder(10, 10, 1, FOK, "101.00", "3", null), 2);
+        
+        assertThat(result.getRejects()).extracting(OrderReject::getOrderId, OrderReject::getUserId, OrderReject::getReason)
+                .containsExactly(tuple(10L, 10L, OrderReject.REASON_FOK));
+        assertThat(result.getPublicTrades()).isEmpty();
+        assertThat(result.getMakerTradeResults()).isEmpty();
+        assertThat(engine.getOrderBook().getOrder(1L).getQuantity()).isEqualByComparingTo("1");
+        assertThat(engine.getOrderBook().getOrder(2L).getQuantity()).isEqualByComparingTo("1");
+        assertThat(engine.getOrderBook().getOrder(10L)).isNull();
+    }
+    
+    @Test
+    void fokOnlyCountsLevelsWithinItsPrice() {
+        MatchingEngine engine = bookWithTwoAsks();
+        
+        TradeExecutionResult result = engine.processCommand(newOrder(10, 10, 1, FOK, "100.00", "2", null), 2);
+        
+        assertThat(result.getRejects()).extracting(OrderReject::getReason).containsExactly(OrderReject.REASON_FOK);
+        assertThat(result.getPublicTrades()).isEmpty();
+        assertThat(engine.getOrderBook().getOrderCount()).isEqualTo(2);
+    }
+    
+    @Test
+    void fokThatCanFillSweepsLevels() {
+        MatchingEngine engine = bookWithTwoAsks();
+        
+        TradeExecutionResult result = engine.processCommand(newOrder(10, 10, 1, FOK, "101.00", "2", null), 2);
+        
+        assertThat(result.getRejects()).isEmpty();
+        assertThat(result.getMakerTradeResults()).extracting(TradeResult::getOrderId).containsExactly(1L, 2L);
+        assertThat(engine.getOrderBook().getOrderCount()).isZero();
+    }
+    
+    @Test
+    void crossingPostOnlyIsNotMatchedOrRested() {
+        MatchingEngine engine = bookWithTwoAsks();
+        
+        TradeExecutionResult result = engine.processCommand(newOrder(10, 10, 1, POST_ONLY, "100.00", "1", null), 2);
+        
+        assertThat(result.getRejects()).extracting(OrderReject::getOrderId, OrderReject::getReason)
+                .containsExactly(tuple(10L, OrderReject.REASON_POST_ONLY));
+        assertThat(result.getPublicTrades()).isEmpty();
+        assertThat(engine.getOrderBook().getOrder(10L)).isNull();
+        assertThat(engine.getOrderBook().getOrder(1L).getQuantity()).isEqualByComparingTo("1");
+    }
+    
+    @Test
+    void nonCrossingPostOnlyRests() {
+        MatchingEngine engine = bookWithTwoAsks();
+        
+        TradeExecutionResult result = engine.processCommand(newOrder(10, 10, 1, POST_ONLY, "99.99", "1", null), 2);
+        
+        assertThat(result.getRejects()).isEmpty();
+        assertThat(result.getPublicTrades()).isEmpty();
+        assertThat(engine.getOrderBook().getOrder(10L).getPrice()).isEqualByComparingTo("99.99");
+    }
+    
+    private static MatchingEngine bookWithTwoAsks() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 1, 2, "100.00", "1"), 0);
+        engine.processCommand(limit(2, 2, 2, "101.00", "1"), 1);
+        return engine;
+    }
+}
@@ -0,0 +1,79 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.orderbook.OrderBook;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static com.exchange.match.engine.matching.MatchingFixtures.limit;
+import static com.exchange.match.engine.matching.MatchingFixtures.massCancel;
+import static com.exchange.match.engine.matching.MatchingFixtures.newEngine;
+import static com.exchange.match.engine.matching.MatchingFixtures.stop;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchingEngineMassCancelTest {
+    
+    @Test
+    void cancelAllRemovesOnlyThatUsersOrdersAndStops() {
+        MatchingEngine engine = bookWithUsers();
+        
+        engine.processCommand(massCancel(7, null), 10);
+        
+        OrderBook orderBook = engine.getOrderBook();
+        assertThat(orderBook.getOrder(1L)).isNull();
+        assertThat(orderBook.getOrder(2L)).isNull();
+        assertThat(orderBook.getStopOrders().get(5L)).isNull();
+        assertThat(orderBook.getOrder(3L)).isNotNull();
+        assertThat(orderBook.getOrder(4L)).isNotNull();
+        assertThat(orderBook.getStopOrders().get(6L)).isNotNull();
+        assertThat(orderBook.getLastProcessedOffset()).isEqualTo(10L);
+    }
+    
+    @Test
+    void cancelSideKeepsOtherSide() {
+        MatchingEngine engine = bookWithUsers();
+        
+        engine.processCommand(massCancel(7, 1), 10);
+        
+        OrderBook orderBook = engine.getOrderBook();
+        assertThat(orderBook.getOrder(1L)).isNull();
+        assertThat(orderBook.getStopOrders().get(5L)).isNull();
+        assertThat(orderBook.getOrder(2L)).isNotNull();
+        assertThat(orderBook.getOrder(3L)).isNotNull();
+    }
+    
+    @Test
+    void cancelledLevelsArePublished() {
+        MatchingEngine engine = bookWithUsers();
+        
+        TradeExecutionResult result = engine.processCommand(massCancel(7, null), 10);
+        
+        assertThat(result.getOrderBookUpdate()).isNotNull();
+        assertThat(engine.getOrderBook().getBucket(new BigDecimal("99.00"), 1)).isNull();
+        assertThat(engine.getOrderBook().getBestAskPrice()).isEqualByComparingTo("101.00");
+    }
+    
+    @Test
+    void unknownUserChangesNothing() {
+        MatchingEngine engine = bookWithUsers();
+        
+        engine.processCommand(massCancel(99, null), 10);
+        
+        assertThat(engine.getOrderBook().getOrderCount()).isEqualTo(4);
+        assertThat(engine.getOrderBook().getStopOrders().size()).isEqualTo(2);
+    }
+    
+    /**
+     * 用户7和用户8各有一笔买单、一笔卖单和一笔买入止损单
+     */
+    private static MatchingEngine bookWithUsers() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 7, 1, "99.00", "1"), 0);
+        engine.processCommand(limit(2, 7, 2, "102.00", "1"), 1);
+        engine.processCommand(limit(3, 8, 1, "98.00", "1"), 2);
+        engine.processCommand(limit(4, 8, 2, "101.00", "1"), 3);
+        engine.processCommand(stop(5, 7, 1, 7, null, "105.00", "1"), 4);
+        engine.processCommand(stop(6, 8, 1, 7, null, "105.00", "1"), 5);
+        return engine;
+    }
+}
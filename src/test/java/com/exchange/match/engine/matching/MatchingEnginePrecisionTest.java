@@ -0,0 +1,55 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.dto.OrderReject;
+import com.exchange.match.engine.orderbook.OrderBook;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static com.exchange.match.engine.matching.MatchingFixtures.amend;
+import static com.exchange.match.engine.matching.MatchingFixtures.limit;
+import static com.exchange.match.engine.matching.MatchingFixtures.newEngine;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchingEnginePrecisionTest {
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void orderWithTooManyDecimalsIsRejected(boolean offHeap) {
+        MatchingEngine engine = newEngine(newBook(offHeap), 0);
+        
+        TradeExecutionResult result = engine.processCommand(limit(1, 1, 1, "100.001", "1"), 0);
+        assertThat(result.getRejects()).extracting(OrderReject::getReason).containsExactly(OrderReject.REASON_PRECISION);
+        assertThat(engine.getOrderBook().getOrderCount()).isZero();
+        
+        result = engine.processCommand(limit(2, 1, 1, "100.00", "0.00001"), 1);
+        assertThat(result.getRejects()).extracting(OrderReject::getOrderId).containsExactly(2L);
+        assertThat(engine.getOrderBook().getOrderCount()).isZero();
+    }
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void trailingZerosAreAccepted(boolean offHeap) {
+        MatchingEngine engine = newEngine(newBook(offHeap), 0);
+        
+        TradeExecutionResult result = engine.processCommand(limit(1, 1, 1, "100.0000", "1.000000"), 0);
+        assertThat(result.getRejects()).isEmpty();
+        assertThat(engine.getOrderBook().getOrder(1L)).isNotNull();
+    }
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void amendWithTooManyDecimalsKeepsOriginalOrder(boolean offHeap) {
+        MatchingEngine engine = newEngine(newBook(offHeap), 0);
+        engine.processCommand(limit(1, 1, 1, "100.00", "2"), 0);
+        
+        TradeExecutionResult result = engine.processCommand(amend(1, null, "1.00001"), 1);
+        assertThat(result.getRejects()).extracting(OrderReject::getOrderId).containsExactly(1L);
+        assertThat(engine.getOrderBook().getOrder(1L).getQuantity()).isEqualByComparingTo("2");
+    }
+    
+    private static OrderBook newBook(boolean offHeap) {
+        return offHeap
+                ? OrderBook.offHeap(MatchingFixtures.SYMBOL, 2, 4, 1024)
+                : new OrderBook(MatchingFixtures.SYMBOL);
+    }
+}
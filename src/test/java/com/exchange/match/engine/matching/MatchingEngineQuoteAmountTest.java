@@ -0,0 +1,97 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.dto.PublicTradeRecord;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static com.exchange.match.engine.matching.MatchingFixtures.limit;
+import static com.exchange.match.engine.matching.MatchingFixtures.newEngine;
+import static com.exchange.match.engine.matching.MatchingFixtures.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MatchingEngineQuoteAmountTest {
+    private static final int MARKET = 5;
+    
+    @Test
+    void quoteAmountThatExactlyExhaustsLevelsStopsAtLevelBoundary() {
+        MatchingEngine engine = bookWithThreeAsks();
+        
+        // 100 * 1 + 101 * 2 = 302
+        TradeExecutionResult result = engine.processCommand(marketBuy("0", "302", null), 4);
+        
+        assertTrades(result, "100.00", "1", "101.00", "2");
+        assertThat(engine.getOrderBook().getOrder(2L)).isNull();
+        assertThat(engine.getOrderBook().getOrder(3L).getQuantity()).isEqualByComparingTo("1");
+    }
+    
+    @Test
+    void partialLastLevelRoundsQuantityDown() {
+        MatchingEngine engine = bookWithThreeAsks();
+        
+        // 剩余50 / 101 = 0.49504...，按4位数量精度向下取整，成交额不超过上限
+        TradeExecutionResult result = engine.processCommand(marketBuy("0", "150", null), 4);
+        
+        assertTrades(result, "100.00", "1", "101.00", "0.4950");
+        assertThat(engine.getOrderBook().getOrder(2L).getQuantity()).isEqualByComparingTo("1.5050");
+    }
+    
+    @Test
+    void priceStopLimitsLevelsCountedForQuoteAmount() {
+        MatchingEngine engine = bookWithThreeAsks();
+        
+        TradeExecutionResult result = engine.processCommand(marketBuy("0", "1000", "101.00"), 4);
+        
+        assertTrades(result, "100.00", "1", "101.00", "2");
+        assertThat(engine.getOrderBook().getOrder(3L).getQuantity()).isEqualByComparingTo("1");
+    }
+    
+    @Test
+    void quantityCapsQuoteAmountWhenSmaller() {
+        MatchingEngine engine = bookWithThreeAsks();
+        
+        TradeExecutionResult result = engine.processCommand(marketBuy("1.5", "1000", null), 4);
+        
+        assertTrades(result, "100.00", "1", "101.00", "0.5");
+    }
+    
+    @Test
+    void quoteAmountCapsQuantityWhenSmaller() {
+        MatchingEngine engine = bookWithThreeAsks();
+        
+        TradeExecutionResult result = engine.processCommand(marketBuy("5", "150", null), 4);
+        
+        assertTrades(result, "100.00", "1", "101.00", "0.4950");
+    }
+    
+    private static MatchingEngine bookWithThreeAsks() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 1, 2, "100.00", "1"), 0);
+        engine.processCommand(limit(2, 2, 2, "101.00", "2"), 1);
+        engine.processCommand(limit(3, 3, 2, "103.00", "1"), 2);
+        return engine;
+    }
+    
+    private static OrderCommand marketBuy(String quantity, String volumeMax, String priceStop) {
+        OrderCommand command = newOrder(10, 10, 1, MARKET, null, quantity, null);
+        command.setVolumeMax(new BigDecimal(volumeMax));
+        command.setPriceStop(priceStop == null ? null : new BigDecimal(priceStop));
+        return command;
+    }
+    
+    /**
+     * 断言公共成交的价格和数量，参数依次为每笔成交的价格、数量
+     */
+    private static void assertTrades(TradeExecutionResult result, String... priceAndQuantity) {
+        Tuple[] expected = new Tuple[priceAndQuantity.length / 2];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = tuple(new BigDecimal(priceAndQuantity[2 * i]), new BigDecimal(priceAndQuantity[2 * i + 1]));
+        }
+        assertThat(result.getPublicTrades()).extracting(PublicTradeRecord::getPrice, PublicTradeRecord::getQuantity)
+                .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .containsExactly(expected);
+    }
+}
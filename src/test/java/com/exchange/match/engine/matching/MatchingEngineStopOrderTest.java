@@ -0,0 +1,83 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.dto.OrderReject;
+import com.exchange.match.engine.dto.PublicTradeRecord;
+import com.exchange.match.engine.orderbook.StopOrderBook;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static com.exchange.match.engine.matching.MatchingFixtures.cancel;
+import static com.exchange.match.engine.matching.MatchingFixtures.limit;
+import static com.exchange.match.engine.matching.MatchingFixtures.newEngine;
+import static com.exchange.match.engine.matching.MatchingFixtures.stop;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchingEngineStopOrderTest {
+    
+    @Test
+    void stopOrderWithoutTriggerPriceIsRejected() {
+        MatchingEngine engine = newEngine();
+        
+        TradeExecutionResult result = engine.processCommand(stop(1, 1, 1, 7, null, null, "1"), 0);
+        
+        assertThat(result.getRejects()).extracting(OrderReject::getReason).containsExactly(OrderReject.REASON_STOP_PRICE);
+        assertThat(engine.getOrderBook().getStopOrders().size()).isZero();
+    }
+    
+    @Test
+    void stopOrderWaitsUntilTriggerPriceTrades() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 1, 2, "100.00", "2"), 0);
+        engine.processCommand(stop(2, 2, 1, 7, null, "101.00", "1"), 1);
+        
+        TradeExecutionResult result = engine.processCommand(limit(3, 3, 1, "100.00", "1"), 2);
+        
+        assertThat(result.getPublicTrades()).hasSize(1);
+        assertThat(engine.getOrderBook().getStopOrders().get(2L)).isNotNull();
+        assertThat(engine.getOrderBook().getOrder(1L).getQuantity()).isEqualByComparingTo("1");
+    }
+    
+    @Test
+    void triggeredStopsCascadeWithinOneCommand() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 1, 2, "100.00", "1"), 0);
+        engine.processCommand(limit(2, 2, 2, "101.00", "1"), 1);
+        // 100成交后触发止损市价买单，吃掉101的卖单，101的成交再触发止损限价买单
+        engine.processCommand(stop(10, 10, 1, 7, null, "100.00", "1"), 2);
+        engine.processCommand(stop(11, 11, 1, 6, "102.00", "101.00", "1"), 3);
+        
+        TradeExecutionResult result = engine.processCommand(limit(3, 3, 1, "100.00", "1"), 4);
+        
+        assertThat(result.getPublicTrades()).extracting(PublicTradeRecord::getPrice)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("100.00"), new BigDecimal("101.00"));
+        StopOrderBook stopOrders = engine.getOrderBook().getStopOrders();
+        assertThat(stopOrders.size()).isZero();
+        assertThat(engine.getOrderBook().getOrder(11L).getPrice()).isEqualByComparingTo("102.00");
+    }
+    
+    @Test
+    void stopOrderAlreadyTriggeredExecutesImmediately() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(limit(1, 1, 2, "100.00", "2"), 0);
+        engine.processCommand(limit(2, 2, 1, "100.00", "1"), 1);
+        
+        TradeExecutionResult result = engine.processCommand(stop(3, 3, 1, 7, null, "99.00", "1"), 2);
+        
+        assertThat(result.getPublicTrades()).hasSize(1);
+        assertThat(engine.getOrderBook().getStopOrders().size()).isZero();
+        assertThat(engine.getOrderBook().getOrder(1L)).isNull();
+    }
+    
+    @Test
+    void cancelRemovesPendingStop() {
+        MatchingEngine engine = newEngine();
+        engine.processCommand(stop(1, 1, 1, 7, null, "100.00", "1"), 0);
+        
+        engine.processCommand(cancel(1), 1);
+        
+        assertThat(engine.getOrderBook().getStopOrders().get(1L)).isNull();
+        assertThat(engine.getOrderBook().getStopOrders().size()).isZero();
+    }
+}
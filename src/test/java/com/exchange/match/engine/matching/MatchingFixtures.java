@@ -0,0 +1,218 @@
+package com.exchange.match.engine.matching;
+
+import com.exchange.match.engine.dto.OrderCommand;
+import com.exchange.match.engine.model.Symbol;
+import com.exchange.match.engine.orderbook.OrderBook;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 撮合测试公共数据构造
+ */
+final class MatchingFixtures {
+    static final String SYMBOL = "BTCUSDT";
+    
+    private MatchingFixtures() {
+    }
+    
+    /**
+     * 创建交易对信息，手续费必须非空，否则成交时计算手续费会抛出异常
+     *
+     * @return 交易对信息
+     */
+    static Symbol newSymbol() {
+        Symbol symbol = new Symbol();
+        symbol.setId(1);
+        symbol.setSymbol(SYMBOL);
+        symbol.setType(1);
+        symbol.setStatus(1);
+        symbol.setMarginCoin("USDT");
+        symbol.setPriceDecimal(2);
+        symbol.setQuantityDecimal(4);
+        symbol.setBuyMakerFee(new BigDecimal("0.001"));
+        symbol.setBuyTakerFee(new BigDecimal("0.002"));
+        symbol.setSellMakerFee(new BigDecimal("0.001"));
+        symbol.setSellTakerFee(new BigDecimal("0.002"));
+        symbol.setPartition(0);
+        return symbol;
+    }
+    
+    /**
+     * 创建空订单簿上的撮合引擎，时间来源固定为0
+     *
+     * @return 撮合引擎
+     */
+    static MatchingEngine newEngine() {
+        return newEngine(new OrderBook(SYMBOL), 0L);
+    }
+    
+    /**
+     * 创建撮合引擎，时间来源固定
+     *
+     * @param orderBook   订单簿
+     * @param lastTradeId 最后分配的成交ID
+     * @return 撮合引擎
+     */
+    static MatchingEngine newEngine(OrderBook orderBook, long lastTradeId) {
+        MatchingEngine engine = new MatchingEngine(orderBook, newSymbol(), new AtomicLong(lastTradeId));
+        engine.setClock(() -> 0L);
+        return engine;
+    }
+    
+    /**
+     * 创建下单命令
+     *
+     * @param orderId   订单ID
+     * @param userId    用户ID
+     * @param side      方向 1买 2卖
+     * @param orderType 订单类型
+     * @param price     价格，市价单为null
+     * @param quantity  数量
+     * @param timestamp 时间戳
+     * @return 下单命令
+     */
+    static OrderCommand newOrder(long orderId, long userId, int side, int orderType, String price, String quantity,
+                                 Long timestamp) {
+        OrderCommand command = new OrderCommand();
+        command.setType(OrderCommand.TYPE_NEW_ORDER);
+        command.setOrderId(orderId);
+        command.setUserId(userId);
+        command.setSymbol(SYMBOL);
+        command.setOrderType(orderType);
+        command.setPrice(price == null ? null : new BigDecimal(price));
+        command.setQuantity(new BigDecimal(quantity));
+        command.setSide(side);
+        command.setAction(0);
+        command.setMarginMode(0);
+        command.setMarginType(0);
+        command.setTimestamp(timestamp);
+        return command;
+    }
+    
+    /**
+     * 创建限价下单命令
+     *
+     * @param orderId   订单ID
+     * @param userId    用户ID
+     * @param side      方向 1买 2卖
+     * @param price     价格
+     * @param quantity  数量
+     * @return 下单命令
+     */
+    static OrderCommand limit(long orderId, long userId, int side, String price, String quantity) {
+        return newOrder(orderId, userId, side, 1, price, quantity, null);
+    }
+    
+    /**
+     * 创建止损下单命令
+     *
+     * @param orderId   订单ID
+     * @param userId    用户ID
+     * @param side      方向 1买 2卖
+     * @param orderType 订单类型 6止损限价 7止损市价
+     * @param price     委托价，止损市价为null
+     * @param priceStop 触发价
+     * @param quantity  数量
+     * @return 下单命令
+     */
+    static OrderCommand stop(long orderId, long userId, int side, int orderType, String price, String priceStop,
+                             String quantity) {
+        OrderCommand command = newOrder(orderId, userId, side, orderType, price, quantity, null);
+        command.setPriceStop(priceStop == null ? null : new BigDecimal(priceStop));
+        return command;
+    }
+    
+    /**
+     * 创建带过期时间的限价下单命令
+     *
+     * @param orderId    订单ID
+     * @param side       方向 1买 2卖
+     * @param price      价格
+     * @param timestamp  下单时间
+     * @param expireTime 过期时间
+     * @return 下单命令
+     */
+    static OrderCommand gtd(long orderId, int side, String price, Long timestamp, long expireTime) {
+        OrderCommand command = newOrder(orderId, orderId, side, 1, price, "1", timestamp);
+        command.setExpireTime(expireTime);
+        return command;
+    }
+    
+    /**
+     * 创建撤单命令
+     *
+     * @param orderId 订单ID
+     * @return 撤单命令
+     */
+    static OrderCommand cancel(long orderId) {
+        OrderCommand command = new OrderCommand();
+        command.setType(OrderCommand.TYPE_CANCEL_ORDER);
+        command.setOrderId(orderId);
+        command.setSymbol(SYMBOL);
+        return command;
+    }
+    
+    /**
+     * 创建按用户批量撤单命令
+     *
+     * @param userId 用户ID
+     * @param side   方向 1买 2卖，为null表示两边都撤
+     * @return 批量撤单命令
+     */
+    static OrderCommand massCancel(long userId, Integer side) {
+        OrderCommand command = new OrderCommand();
+        command.setType(side == null ? OrderCommand.TYPE_CANCEL_ALL_USER : OrderCommand.TYPE_CANCEL_ALL_USER_SIDE);
+        command.setUserId(userId);
+        command.setSide(side);
+        command.setSymbol(SYMBOL);
+        return command;
+    }
+    
+    /**
+     * 创建改单命令
+     *
+     * @param orderId  订单ID
+     * @param price    新价格，为空表示不改价
+     * @param quantity 新的剩余数量
+     * @return 改单命令
+     */
+    static OrderCommand amend(long orderId, String price, String quantity) {
+        OrderCommand command = new OrderCommand();
+        command.setType(OrderCommand.TYPE_AMEND);
+        command.setOrderId(orderId);
+        command.setSymbol(SYMBOL);
+        command.setPrice(price == null ? null : new BigDecimal(price));
+        command.setQuantity(new BigDecimal(quantity));
+        return command;
+    }
+    
+    /**
+     * 创建时钟推进命令
+     *
+     * @param timestamp 时间戳
+     * @return 时钟推进命令
+     */
+    static OrderCommand tick(long timestamp) {
+        OrderCommand command = new OrderCommand();
+        command.setType(OrderCommand.TYPE_TICK);
+        command.setSymbol(SYMBOL);
+        command.setTimestamp(timestamp);
+        return command;
+    }
+    
+    /**
+     * 创建批量下单命令
+     *
+     * @param orders 子订单，按顺序撮合
+     * @return 批量下单命令
+     */
+    static OrderCommand batch(OrderCommand... orders) {
+        OrderCommand command = new OrderCommand();
+        command.setType(OrderCommand.TYPE_BATCH_NEW);
+        command.setSymbol(SYMBOL);
+        command.setOrders(Arrays.asList(orders));
+        return command;
+    }
+}
@@ -0,0 +1,147 @@
+package com.exchange.match.engine.orderbook;
+
+import com.exchange.match.engine.dto.AggregatedDepthUpdate;
+import com.exchange.match.engine.dto.OrderBookEntry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class AggregatedDepthTest {
+    private static final int PRICE_DECIMAL = 2;
+    private static final int[] GROUP_TICKS = {1, 5, 10, 100};
+    
+    @Test
+    void bidsRoundDownAndAsksRoundUp() {
+        AggregatedDepth depth = new AggregatedDepth(PRICE_DECIMAL, new int[]{10});
+        depth.onVolumeChange(1, new BigDecimal("100.07"), new BigDecimal("1"));
+        depth.onVolumeChange(1, new BigDecimal("100.00"), new BigDecimal("2"));
+        depth.onVolumeChange(2, new BigDecimal("100.03"), new BigDecimal("3"));
+        depth.onVolumeChange(2, new BigDecimal("100.10"), new BigDecimal("4"));
+        
+        List<AggregatedDepthUpdate> updates = depth.generateUpdates("BTCUSDT", 5, 0);
+        
+        assertThat(updates).hasSize(1);
+        assertThat(updates.get(0).getGroupTicks()).isEqualTo(10);
+        assertThat(updates.get(0).getLastOffset()).isEqualTo(5L);
+        // 100.07买单并入100.00，100.03卖单并入100.10，聚合后买卖盘不交叉
+        assertThat(updates.get(0).getBids()).extracting(OrderBookEntry::getPrice, OrderBookEntry::getQuantity)
+                .containsExactly(tuple(new BigDecimal("100.00"), new BigDecimal("3")));
+        assertThat(updates.get(0).getAsks()).extracting(OrderBookEntry::getPrice, OrderBookEntry::getQuantity)
+                .containsExactly(tuple(new BigDecimal("100.10"), new BigDecimal("7")));
+    }
+    
+    @Test
+    void emptiedGroupIsPublishedWithZeroAndUnchangedGroupsAreNot() {
+        AggregatedDepth depth = new AggregatedDepth(PRICE_DECIMAL, new int[]{1, 10});
+        depth.onVolumeChange(1, new BigDecimal("99.91"), new BigDecimal("1"));
+        depth.onVolumeChange(1, new BigDecimal("99.95"), new BigDecimal("1"));
+        depth.generateUpdates("BTCUSDT", 1, 0);
+        
+        depth.onVolumeChange(1, new BigDecimal("99.95"), new BigDecimal("-1"));
+        List<AggregatedDepthUpdate> updates = depth.generateUpdates("BTCUSDT", 2, 0);
+        
+        assertThat(updates).extracting(AggregatedDepthUpdate::getGroupTicks).containsExactly(1, 10);
+        assertThat(updates.get(0).getBids()).extracting(OrderBookEntry::getPrice, OrderBookEntry::getQuantity)
+                .containsExactly(tuple(new BigDecimal("99.95"), BigDecimal.ZERO));
+        assertThat(updates.get(1).getBids()).extracting(OrderBookEntry::getPrice)
+                .containsExactly(new BigDecimal("99.90"));
+        assertThat(updates.get(1).getBids().get(0).getQuantity()).isEqualByComparingTo("1");
+        assertThat(depth.generateUpdates("BTCUSDT", 3, 0)).isEmpty();
+    }
+    
+    @Test
+    void incrementalUpdatesMatchFullRecomputation() {
+        AggregatedDepth depth = new AggregatedDepth(PRICE_DECIMAL, GROUP_TICKS);
+        // 逐档数量：买盘99.00~100.00，卖盘100.01~101.00
+        Map<BigDecimal, BigDecimal> bidLevels = new HashMap<>();
+        Map<BigDecimal, BigDecimal> askLevels = new HashMap<>();
+        // 按增量更新维护的下游视图，每个分组粒度一份
+        List<Map<BigDecimal, BigDecimal>> bidViews = new ArrayList<>();
+        List<Map<BigDecimal, BigDecimal>> askViews = new ArrayList<>();
+        for (int i = 0; i < GROUP_TICKS.length; i++) {
+            bidViews.add(new HashMap<>());
+            askViews.add(new HashMap<>());
+        }
+        
+        Random random = new Random(42);
+        for (int step = 0; step < 2000; step++) {
+            // 每批若干次档位变化后生成一次更新
+            int changes = 1 + random.nextInt(5);
+            for (int c = 0; c < changes; c++) {
+                boolean bid = random.nextBoolean();
+                Map<BigDecimal, BigDecimal> levels = bid ? bidLevels : askLevels;
+                BigDecimal price = BigDecimal.valueOf((bid ? 9900 : 10001) + random.nextInt(100), PRICE_DECIMAL);
+                BigDecimal volume = levels.getOrDefault(price, BigDecimal.ZERO);
+                BigDecimal delta;
+                if (volume.signum() > 0 && random.nextInt(3) == 0) {
+                    // 整档移除或部分成交
+                    delta = random.nextBoolean() ? volume.negate()
+                            : volume.multiply(new BigDecimal("0.5")).setScale(4, RoundingMode.DOWN).negate();
+                } else {
+                    delta = BigDecimal.valueOf(1 + random.nextInt(10000), 4);
+                }
+                BigDecimal updated = volume.add(delta);
+                if (updated.signum() > 0) {
+                    levels.put(price, updated);
+                } else {
+                    levels.remove(price);
+                }
+                depth.onVolumeChange(bid ? 1 : 2, price, delta);
+            }
+            
+            for (AggregatedDepthUpdate update : depth.generateUpdates("BTCUSDT", step, 0)) {
+                int index = indexOf(update.getGroupTicks());
+                apply(bidViews.get(index), update.getBids());
+                apply(askViews.get(index), update.getAsks());
+            }
+            for (int i = 0; i < GROUP_TICKS.length; i++) {
+                assertThat(bidViews.get(i)).as("bids, group %d, step %d", GROUP_TICKS[i], step)
+                        .isEqualTo(recompute(bidLevels, GROUP_TICKS[i], true));
+                assertThat(askViews.get(i)).as("asks, group %d, step %d", GROUP_TICKS[i], step)
+                        .isEqualTo(recompute(askLevels, GROUP_TICKS[i], false));
+            }
+        }
+    }
+    
+    /**
+     * 按逐档数量全量计算聚合深度
+     */
+    private static Map<BigDecimal, BigDecimal> recompute(Map<BigDecimal, BigDecimal> levels, int groupTicks, boolean bid) {
+        Map<BigDecimal, BigDecimal> groups = new HashMap<>();
+        for (Map.Entry<BigDecimal, BigDecimal> level : levels.entrySet()) {
+            long ticks = level.getKey().unscaledValue().longValueExact();
+            long group = bid ? Math.floorDiv(ticks, groupTicks) : -Math.floorDiv(-ticks, groupTicks);
+            groups.merge(BigDecimal.valueOf(group * groupTicks, PRICE_DECIMAL), level.getValue(), BigDecimal::add);
+        }
+        groups.replaceAll((price, volume) -> volume.stripTrailingZeros());
+        return groups;
+    }
+    
+    private static void apply(Map<BigDecimal, BigDecimal> view, List<OrderBookEntry> entries) {
+        for (OrderBookEntry entry : entries) {
+            if (entry.getQuantity().signum() == 0) {
+                view.remove(entry.getPrice());
+            } else {
+                view.put(entry.getPrice(), entry.getQuantity().stripTrailingZeros());
+            }
+        }
+    }
+    
+    private static int indexOf(int groupTicks) {
+        for (int i = 0; i < GROUP_TICKS.length; i++) {
+            if (GROUP_TICKS[i] == groupTicks) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unknown group: " + groupTicks);
+    }
+}
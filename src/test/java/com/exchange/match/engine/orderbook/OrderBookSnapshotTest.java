@@ -0,0 +1,110 @@
+package com.exchange.match.engine.orderbook;
+
+import com.exchange.match.engine.dto.OrderEventBatch;
+import com.exchange.match.engine.model.Order;
+import com.exchange.match.engine.util.ProtostuffUtils;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderBookSnapshotTest {
+    private static final String SYMBOL = "BTCUSDT";
+    
+    @Test
+    void restoreKeepsQueueOrderAndOffset() {
+        OrderBook orderBook = new OrderBook(SYMBOL);
+        orderBook.addOrder(newOrder(1, 1, "100.00", "1"));
+        orderBook.addOrder(newOrder(2, 1, "100.00", "2"));
+        orderBook.addOrder(newOrder(3, 2, "101.00", "3"));
+        orderBook.updateLastProcessedOffset(42);
+        
+        OrderBook restored = new OrderBook(SYMBOL);
+        restored.restore(orderBook.snapshot(0, 7));
+        
+        assertThat(restored.getOrderCount()).isEqualTo(3);
+        assertThat(restored.getBestBidBucket().getOrders())
+                .extracting(OrderBookEntry::getOrderId)
+                .containsExactly(1L, 2L);
+        assertThat(restored.getBestAskPrice()).isEqualByComparingTo("101.00");
+        assertThat(restored.snapshot(0, 7).getLastProcessedOffset()).isEqualTo(42);
+    }
+    
+    @Test
+    void orderEventSequenceContinuesAfterRestore() {
+        OrderBook orderBook = new OrderBook(SYMBOL);
+        orderBook.enableOrderEvents();
+        orderBook.addOrder(newOrder(1, 1, "100.00", "1"));
+        orderBook.addOrder(newOrder(2, 1, "99.00", "1"));
+        OrderEventBatch first = orderBook.generateOrderEvents();
+        assertThat(first.getFirstSequence()).isZero();
+        assertThat(first.getCount()).isEqualTo(2);
+        
+        OrderBookSnapshot snapshot = orderBook.snapshot(0, 0);
+        assertThat(snapshot.getNextOrderEventSequence()).isEqualTo(2);
+        
+        OrderBook restored = new OrderBook(SYMBOL);
+        restored.restore(snapshot);
+        restored.enableOrderEvents();
+        restored.addOrder(newOrder(3, 2, "101.00", "1"));
+        
+        assertThat(restored.generateOrderEvents().getFirstSequence()).isEqualTo(2);
+    }
+    
+    @Test
+    void offHeapSnapshotPacksSlotsAndRoundTripsThroughProtostuff() {
+        OrderBook orderBook = OrderBook.offHeap(SYMBOL, 2, 4, 16);
+        orderBook.addOrder(newOrder(1, 1, "100.00", "1"));
+        orderBook.addOrder(newOrder(2, 1, "100.00", "2.5"));
+        orderBook.addOrder(newOrder(3, 1, "99.00", "3"));
+        orderBook.addOrder(newOrder(4, 2, "101.00", "0.0001"));
+        orderBook.cancelOrder(2L);
+        orderBook.reduceOrder(1L, new BigDecimal("0.5"));
+        orderBook.addOrder(newOrder(5, 1, "100.00", "4"));
+        orderBook.updateLastProcessedOffset(9);
+        
+        OrderBookSnapshot snapshot = ProtostuffUtils.deserialize(
+                ProtostuffUtils.serialize(orderBook.snapshot(0, 3)), OrderBookSnapshot.class);
+        
+        assertThat(snapshot.getOrderCount()).isEqualTo(4);
+        assertThat(snapshot.getOrders())
+                .extracting(OrderBookEntry::getOrderId, OrderBookEntry::getQuantity)
+                .containsExactly(
+                        tuple(1L, new BigDecimal("0.5000")),
+                        tuple(5L, new BigDecimal("4.0000")),
+                        tuple(3L, new BigDecimal("3.0000")),
+                        tuple(4L, new BigDecimal("0.0001")));
+        
+        OrderBook heap = new OrderBook(SYMBOL);
+        heap.restore(snapshot);
+        assertThat(heap.getBestBidBucket().getOrders()).extracting(OrderBookEntry::getOrderId).containsExactly(1L, 5L);
+        assertThat(heap.getBestAskPrice()).isEqualByComparingTo("101.00");
+        
+        OrderBook offHeap = OrderBook.offHeap(SYMBOL, 2, 4, 16);
+        offHeap.restore(snapshot);
+        assertThat(offHeap.getOrderCount()).isEqualTo(4);
+        assertThat(offHeap.snapshot(0, 3).getOrders()).extracting(OrderBookEntry::getOrderId).containsExactly(1L, 5L, 3L, 4L);
+        assertThat(offHeap.snapshot(0, 3).getLastProcessedOffset()).isEqualTo(9);
+    }
+    
+    private static Order newOrder(long id, int side, String price, String quantity) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId(id);
+        order.setSymbol(SYMBOL);
+        order.setType(1);
+        order.setPrice(new BigDecimal(price));
+        order.setQuantity(new BigDecimal(quantity));
+        order.setQuantityLeft(new BigDecimal(quantity));
+        order.setQuantityDone(BigDecimal.ZERO);
+        order.setSide(side);
+        order.setAction(0);
+        order.setMarginMode(0);
+        order.setMarginType(0);
+        order.setStatus(1);
+        order.setCreateTime(id);
+        return order;
+    }
+}
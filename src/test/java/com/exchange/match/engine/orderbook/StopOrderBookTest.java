@@ -0,0 +1,80 @@
+package com.exchange.match.engine.orderbook;
+
+import com.exchange.match.engine.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StopOrderBookTest {
+    
+    private final StopOrderBook stopOrders = new StopOrderBook();
+    
+    @Test
+    void removeKeepsOrderOfRemainingStopsAtSamePrice() {
+        stopOrders.add(stop(1, 1, 1, "100"));
+        stopOrders.add(stop(2, 2, 1, "100"));
+        stopOrders.add(stop(3, 3, 1, "100"));
+        
+        assertThat(stopOrders.remove(2L).getId()).isEqualTo(2L);
+        
+        assertThat(stopOrders.getOrdersInQueueOrder()).extracting(Order::getId).containsExactly(1L, 3L);
+        assertThat(stopOrders.remove(2L)).isNull();
+    }
+    
+    @Test
+    void removeUserOrdersFiltersBySide() {
+        stopOrders.add(stop(1, 7, 1, "100"));
+        stopOrders.add(stop(2, 8, 1, "100"));
+        stopOrders.add(stop(3, 7, 2, "90"));
+        stopOrders.add(stop(4, 7, 1, "101"));
+        
+        assertThat(stopOrders.removeUserOrders(7L, 1)).extracting(Order::getId).containsExactly(1L, 4L);
+        assertThat(stopOrders.getOrdersInQueueOrder()).extracting(Order::getId).containsExactly(2L, 3L);
+        
+        assertThat(stopOrders.removeUserOrders(7L, null)).extracting(Order::getId).containsExactly(3L);
+        assertThat(stopOrders.removeUserOrders(7L, null)).isEmpty();
+        assertThat(stopOrders.size()).isEqualTo(1);
+    }
+    
+    @Test
+    void triggeredStopsLeaveUserIndex() {
+        stopOrders.add(stop(1, 7, 1, "100"));
+        stopOrders.add(stop(2, 7, 2, "90"));
+        stopOrders.add(stop(3, 7, 1, "105"));
+        
+        List<Order> triggered = new ArrayList<>();
+        stopOrders.pollTriggered(new BigDecimal("100"), triggered);
+        
+        assertThat(triggered).extracting(Order::getId).containsExactly(1L);
+        assertThat(stopOrders.removeUserOrders(7L, null)).extracting(Order::getId).containsExactly(2L, 3L);
+        assertThat(stopOrders.size()).isZero();
+    }
+    
+    @Test
+    void triggerOrderFollowsPriceThenArrival() {
+        stopOrders.add(stop(1, 1, 1, "101"));
+        stopOrders.add(stop(2, 2, 1, "100"));
+        stopOrders.add(stop(3, 3, 1, "100"));
+        stopOrders.add(stop(4, 4, 2, "102"));
+        
+        List<Order> triggered = new ArrayList<>();
+        stopOrders.pollTriggered(new BigDecimal("101"), triggered);
+        
+        assertThat(triggered).extracting(Order::getId).containsExactly(2L, 3L, 1L, 4L);
+    }
+    
+    private static Order stop(long orderId, long userId, int side, String priceStop) {
+        Order order = new Order();
+        order.setId(orderId);
+        order.setUserId(userId);
+        order.setSide(side);
+        order.setType(7);
+        order.setPriceStop(new BigDecimal(priceStop));
+        order.setQuantity(BigDecimal.ONE);
+        return order;
+    }
+}
@@ -0,0 +1,107 @@
+package com.exchange.match.engine.replay;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentedCommandLogTest {
+    
+    // 每条记录16字节头 + key(1) + value(8)，共25字节，段大小150字节时每段6条记录
+    private static final long SEGMENT_BYTES = 150;
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void rollsSegmentsNamedByFirstOffset() throws IOException {
+        writeRecords(0, 20);
+        
+        List<Path> segments = SegmentedCommandLog.segments(dir);
+        assertThat(segments).hasSize(4);
+        assertThat(segments).extracting(SegmentedCommandLog::baseOffset).containsExactly(0L, 6L, 12L, 18L);
+    }
+    
+    @Test
+    void replayStartsFromSegmentContainingFromOffset() throws Exception {
+        writeRecords(0, 20);
+        // 删掉起始偏移量之前的段，重放仍然完整，说明没有读取这些段
+        Files.delete(SegmentedCommandLog.segments(dir).get(0));
+        
+        assertThat(replay(8, 15)).containsExactly(8L, 9L, 10L, 11L, 12L, 13L, 14L);
+        assertThat(replay(17, Long.MAX_VALUE)).containsExactly(17L, 18L, 19L);
+    }
+    
+    @Test
+    void deleteBeforeKeepsSegmentContainingOffsetAndActiveSegment() throws Exception {
+        try (SegmentedCommandLog log = new SegmentedCommandLog(dir, SEGMENT_BYTES)) {
+            for (long offset = 0; offset < 20; offset++) {
+                log.write(offset, "k", new byte[8]);
+            }
+            log.force();
+            
+            assertThat(log.deleteBefore(13)).isEqualTo(2);
+            assertThat(SegmentedCommandLog.segments(dir)).extracting(SegmentedCommandLog::baseOffset)
+                    .containsExactly(12L, 18L);
+            
+            // 当前写入的段没有后继，不会被删除
+            assertThat(log.deleteBefore(Long.MAX_VALUE)).isEqualTo(1);
+            assertThat(SegmentedCommandLog.segments(dir)).extracting(SegmentedCommandLog::baseOffset)
+                    .containsExactly(18L);
+        }
+        assertThat(replay(13, Long.MAX_VALUE)).containsExactly(18L, 19L);
+    }
+    
+    @Test
+    void recoverTruncatesPartialTailOfLastSegment() throws Exception {
+        writeRecords(0, 10);
+        Path last = SegmentedCommandLog.segments(dir).get(1);
+        long validLength = Files.size(last);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(10));
+        }
+        
+        try (SegmentedCommandLog log = new SegmentedCommandLog(dir, SEGMENT_BYTES)) {
+            assertThat(log.recover()).isEqualTo(10L);
+            assertThat(Files.size(last)).isEqualTo(validLength);
+            
+            // 重启后从新段继续写入，偏移量连续
+            log.write(10, "k", new byte[8]);
+            log.force();
+        }
+        assertThat(replay(0, Long.MAX_VALUE)).hasSize(11).endsWith(10L);
+    }
+    
+    @Test
+    void recoverWithoutRecordsStartsFromZero() throws IOException {
+        try (SegmentedCommandLog log = new SegmentedCommandLog(dir, SEGMENT_BYTES)) {
+            assertThat(log.recover()).isZero();
+        }
+    }
+    
+    private void writeRecords(long from, long to) throws IOException {
+        try (SegmentedCommandLog log = new SegmentedCommandLog(dir, SEGMENT_BYTES)) {
+            for (long offset = from; offset < to; offset++) {
+                log.write(offset, "k", new byte[8]);
+            }
+            log.force();
+        }
+    }
+    
+    private List<Long> replay(long from, long to) throws Exception {
+        List<Long> offsets = new ArrayList<>();
+        try (SegmentedCommandLog log = new SegmentedCommandLog(dir, SEGMENT_BYTES)) {
+            log.replay(from, to, record -> offsets.add(record.getOffset()));
+        }
+        return offsets;
+    }
+}
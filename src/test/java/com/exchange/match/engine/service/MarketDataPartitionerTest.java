@@ -0,0 +1,121 @@
+package com.exchange.match.engine.service;
+
+import com.exchange.match.engine.model.Symbol;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarketDataPartitionerTest {
+    
+    private static final String TOPIC = "order_book_updates";
+    
+    private final Map<String, Symbol> symbols = new HashMap<>();
+    private final AtomicInteger partitionCount = new AtomicInteger(8);
+    private final AtomicInteger partitionCountQueries = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong();
+    
+    @Test
+    void fixedModeWritesEverythingToPartitionZero() {
+        symbols.put("BTCUSDT", symbol("BTCUSDT", 5));
+        MarketDataPartitioner partitioner = partitioner("fixed", false);
+        
+        assertThat(partitioner.partition(TOPIC, "BTCUSDT")).isZero();
+        assertThat(partitioner.partition(TOPIC, "ETHUSDT")).isZero();
+        assertThat(partitionCountQueries).hasValue(0);
+    }
+    
+    @Test
+    void symbolModeUsesSymbolPartitionModuloPartitionCount() {
+        symbols.put("BTCUSDT", symbol("BTCUSDT", 5));
+        symbols.put("ETHUSDT", symbol("ETHUSDT", 11));
+        MarketDataPartitioner partitioner = partitioner("symbol", false);
+        
+        assertThat(partitioner.partition(TOPIC, "BTCUSDT")).isEqualTo(5);
+        assertThat(partitioner.partition(TOPIC, "ETHUSDT")).isEqualTo(3);
+    }
+    
+    @Test
+    void symbolModeFallsBackToHashWithoutSymbolPartition() {
+        symbols.put("ETHUSDT", symbol("ETHUSDT", null));
+        MarketDataPartitioner partitioner = partitioner("symbol", false);
+        
+        assertThat(partitioner.partition(TOPIC, "BTCUSDT")).isEqualTo(murmur2("BTCUSDT", 8));
+        assertThat(partitioner.partition(TOPIC, "ETHUSDT")).isEqualTo(murmur2("ETHUSDT", 8));
+    }
+    
+    @Test
+    void hashModeIgnoresSymbolPartition() {
+        symbols.put("BTCUSDT", symbol("BTCUSDT", 5));
+        MarketDataPartitioner partitioner = partitioner("hash", false);
+        
+        assertThat(partitioner.partition(TOPIC, "BTCUSDT")).isEqualTo(murmur2("BTCUSDT", 8));
+    }
+    
+    @Test
+    void partitionStaysPinnedWhileSymbolIsOnline() {
+        symbols.put("BTCUSDT", symbol("BTCUSDT", 5));
+        MarketDataPartitioner partitioner = partitioner("symbol", false);
+        assertThat(partitioner.partition(TOPIC, "BTCUSDT")).isEqualTo(5);
+        
+        // 上线期间修改交易对分区、topic扩容都不换分区
+        symbols.get("BTCUSDT").setPartition(6);
+        partitionCount.set(16);
+        now.addAndGet(120_000);
+        assertThat(partitioner.partition(TOPIC, "BTCUSDT")).isEqualTo(5);
+        
+        // 下线后重新上线按新的分区计算
+        partitioner.release("BTCUSDT");
+        assertThat(partitioner.partition(TOPIC, "BTCUSDT")).isEqualTo(6);
+    }
+    
+    @Test
+    void partitionCountIsRefreshedAfterTtl() {
+        MarketDataPartitioner partitioner = partitioner("hash", false);
+        partitioner.partition(TOPIC, "BTCUSDT");
+        partitioner.partition(TOPIC, "ETHUSDT");
+        assertThat(partitionCountQueries).hasValue(1);
+        
+        // 扩容后新上线的交易对用到新的分区数
+        partitionCount.set(64);
+        now.addAndGet(60_000);
+        assertThat(partitioner.partition(TOPIC, "SOLUSDT")).isEqualTo(murmur2("SOLUSDT", 64));
+        assertThat(partitionCountQueries).hasValue(2);
+    }
+    
+    @Test
+    void dualWriteAddsLegacyPartitionOnlyWhenEnabledAndDifferent() {
+        MarketDataPartitioner dualWrite = partitioner("symbol", true);
+        assertThat(dualWrite.writesLegacy(5)).isTrue();
+        assertThat(dualWrite.writesLegacy(MarketDataPartitioner.LEGACY_PARTITION)).isFalse();
+        
+        MarketDataPartitioner singleWrite = partitioner("symbol", false);
+        assertThat(singleWrite.writesLegacy(5)).isFalse();
+    }
+    
+    private MarketDataPartitioner partitioner(String mode, boolean dualWrite) {
+        return new MarketDataPartitioner(mode, dualWrite, symbols::get,
+                topic -> {
+                    partitionCountQueries.incrementAndGet();
+                    return partitionCount.get();
+                },
+                now::get);
+    }
+    
+    private static int murmur2(String symbol, int partitions) {
+        return Utils.toPositive(Utils.murmur2(symbol.getBytes(StandardCharsets.UTF_8))) % partitions;
+    }
+    
+    private static Symbol symbol(String name, Integer partition) {
+        Symbol symbol = new Symbol();
+        symbol.setSymbol(name);
+        symbol.setPartition(partition);
+        return symbol;
+    }
+}
@@ -0,0 +1,87 @@
+package com.exchange.match.engine.service;
+
+import com.exchange.match.engine.model.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SymbolRegistryTest {
+    
+    @Test
+    void lookupByNameAndId() {
+        SymbolRegistry registry = SymbolRegistry.EMPTY.with(Arrays.asList(symbol(1, "BTCUSDT"), symbol(100_000, "ETHUSDT")));
+        
+        assertThat(registry.get("BTCUSDT").getId()).isEqualTo(1);
+        assertThat(registry.get(1).getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(registry.get(100_000).getSymbol()).isEqualTo("ETHUSDT");
+        assertThat(registry.get(2)).isNull();
+        assertThat(registry.get(-1)).isNull();
+    }
+    
+    @Test
+    void duplicateIdInSameBatchSkipsOnlyTheLaterSymbol() {
+        SymbolRegistry registry = SymbolRegistry.EMPTY.with(
+                Arrays.asList(symbol(1, "BTCUSDT"), symbol(1, "ETHUSDT"), symbol(2, "SOLUSDT")));
+        
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.get(1).getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(registry.get("ETHUSDT")).isNull();
+        assertThat(registry.get("SOLUSDT")).isNotNull();
+    }
+    
+    @Test
+    void duplicateIdAgainstExistingSymbolKeepsExistingEntry() {
+        SymbolRegistry registry = SymbolRegistry.EMPTY.with(Collections.singletonList(symbol(1, "BTCUSDT")));
+        
+        SymbolRegistry updated = registry.with(Collections.singletonList(symbol(1, "ETHUSDT")));
+        
+        assertThat(updated.size()).isEqualTo(1);
+        assertThat(updated.get(1).getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(updated.get("ETHUSDT")).isNull();
+    }
+    
+    @Test
+    void reloadWithNewIdFreesTheOldId() {
+        SymbolRegistry registry = SymbolRegistry.EMPTY.with(Collections.singletonList(symbol(1, "BTCUSDT")))
+                .with(Collections.singletonList(symbol(5, "BTCUSDT")));
+        
+        assertThat(registry.get(1)).isNull();
+        assertThat(registry.get(5).getSymbol()).isEqualTo("BTCUSDT");
+        
+        SymbolRegistry withOther = registry.with(Collections.singletonList(symbol(1, "ETHUSDT")));
+        assertThat(withOther.get(1).getSymbol()).isEqualTo("ETHUSDT");
+    }
+    
+    @Test
+    void reloadingSameSymbolReplacesEntry() {
+        Symbol reloaded = symbol(1, "BTCUSDT");
+        SymbolRegistry registry = SymbolRegistry.EMPTY.with(Collections.singletonList(symbol(1, "BTCUSDT")))
+                .with(Collections.singletonList(reloaded));
+        
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.get("BTCUSDT")).isSameAs(reloaded);
+        assertThat(registry.get(1)).isSameAs(reloaded);
+    }
+    
+    @Test
+    void withoutRemovesSymbol() {
+        SymbolRegistry registry = SymbolRegistry.EMPTY.with(Arrays.asList(symbol(1, "BTCUSDT"), symbol(2, "ETHUSDT")));
+        
+        SymbolRegistry removed = registry.without("BTCUSDT");
+        
+        assertThat(removed.get("BTCUSDT")).isNull();
+        assertThat(removed.get(1)).isNull();
+        assertThat(removed.get("ETHUSDT")).isNotNull();
+        assertThat(registry.get("BTCUSDT")).isNotNull();
+    }
+    
+    private static Symbol symbol(int id, String name) {
+        Symbol symbol = new Symbol();
+        symbol.setId(id);
+        symbol.setSymbol(name);
+        return symbol;
+    }
+}
@@ -0,0 +1,104 @@
+package com.exchange.match.engine.service;
+
+import com.exchange.match.engine.model.Symbol;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SymbolServiceTest {
+    
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ListOperations<String, String> listOperations = mock(ListOperations.class);
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+    private final SymbolService symbolService = new SymbolService(redisTemplate);
+    
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForList()).thenReturn(listOperations);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(listOperations.range("match:node:0:partitions", 0, -1)).thenReturn(Arrays.asList("0", "1"));
+        when(hashOperations.entries("match:symbol:owners")).thenReturn(Collections.emptyMap());
+    }
+    
+    @Test
+    void loadsAllSymbolsInTwoPipelines() {
+        pipelineResults(
+                Arrays.asList(Arrays.asList("BTCUSDT", "ETHUSDT"), Collections.singletonList("SOLUSDT")),
+                Arrays.asList(hash("1", "0"), hash("2", "0"), hash("3", "1")));
+        
+        List<Symbol> symbols = symbolService.getSymbolsByNodeId(0);
+        
+        assertThat(symbols).extracting(Symbol::getSymbol).containsExactly("BTCUSDT", "ETHUSDT", "SOLUSDT");
+        assertThat(symbols).extracting(Symbol::getPartition).containsExactly(0, 0, 1);
+        assertThat(symbolService.getSymbol("ETHUSDT").getId()).isEqualTo(2);
+        assertThat(symbolService.getSymbol(3).getSymbol()).isEqualTo("SOLUSDT");
+        // 一次读取分区列表，一个管道读取交易对列表，一个管道读取交易对详情
+        verify(redisTemplate, times(2)).executePipelined(any(SessionCallback.class));
+        verify(hashOperations, never()).entries("match:symbol:BTCUSDT");
+    }
+    
+    @Test
+    void ownerAssignmentsMoveSymbolsBetweenNodes() {
+        Map<Object, Object> owners = new HashMap<>();
+        owners.put("ETHUSDT", "1");
+        owners.put("XRPUSDT", "0");
+        when(hashOperations.entries("match:symbol:owners")).thenReturn(owners);
+        pipelineResults(
+                Arrays.asList(Arrays.asList("BTCUSDT", "ETHUSDT"), Collections.singletonList("SOLUSDT")),
+                Arrays.asList(hash("1", "0"), hash("3", "1"), hash("4", "2")));
+        
+        List<Symbol> symbols = symbolService.getSymbolsByNodeId(0);
+        
+        assertThat(symbols).extracting(Symbol::getSymbol).containsExactly("BTCUSDT", "SOLUSDT", "XRPUSDT");
+    }
+    
+    @Test
+    void duplicateIdOrBadHashSkipsOnlyThatSymbol() {
+        pipelineResults(
+                Arrays.asList(Arrays.asList("BTCUSDT", "ETHUSDT"), Collections.singletonList("SOLUSDT")),
+                Arrays.asList(hash("1", "0"), hash("1", "0"), hash("x", "1")));
+        
+        List<Symbol> symbols = symbolService.getSymbolsByNodeId(0);
+        
+        assertThat(symbols).extracting(Symbol::getSymbol).containsExactly("BTCUSDT");
+        assertThat(symbolService.getSymbol(1).getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(symbolService.getSymbol("ETHUSDT")).isNull();
+        assertThat(symbolService.getSymbol("SOLUSDT")).isNull();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void pipelineResults(List<List<String>> partitionSymbols, List<Map<Object, Object>> hashes) {
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(new ArrayList<Object>(partitionSymbols), new ArrayList<Object>(hashes));
+    }
+    
+    private static Map<Object, Object> hash(String id, String partition) {
+        Map<Object, Object> hash = new HashMap<>();
+        hash.put("id", id);
+        hash.put("partition", partition);
+        hash.put("status", "1");
+        hash.put("price_decimal", "2");
+        hash.put("quantity_decimal", "4");
+        return hash;
+    }
+}